@@ -16,7 +16,7 @@ import tech.pegasys.pantheon.crypto.SECP256K1.Signature;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
-import tech.pegasys.pantheon.ethereum.core.Util;
+import tech.pegasys.pantheon.ethereum.core.SealRecovery;
 import tech.pegasys.pantheon.ethereum.rlp.BytesValueRLPOutput;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
@@ -55,7 +55,7 @@ public class CliqueBlockHashing {
           "Supplied cliqueExtraData does not include a proposer " + "seal");
     }
     final Hash proposerHash = calculateDataHashForProposerSeal(header, cliqueExtraData);
-    return Util.signatureToAddress(cliqueExtraData.getProposerSeal().get(), proposerHash);
+    return SealRecovery.recoverAddress(cliqueExtraData.getProposerSeal().get(), proposerHash);
   }
 
   private static BytesValue serializeHeaderWithoutProposerSeal(
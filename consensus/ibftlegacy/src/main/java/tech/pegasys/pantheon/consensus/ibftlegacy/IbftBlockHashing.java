@@ -16,13 +16,12 @@ import tech.pegasys.pantheon.crypto.SECP256K1.Signature;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
-import tech.pegasys.pantheon.ethereum.core.Util;
+import tech.pegasys.pantheon.ethereum.core.SealRecovery;
 import tech.pegasys.pantheon.ethereum.rlp.BytesValueRLPOutput;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.List;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 public class IbftBlockHashing {
 
@@ -92,11 +91,13 @@ public class IbftBlockHashing {
   public static Address recoverProposerAddress(
       final BlockHeader header, final IbftExtraData ibftExtraData) {
     final Hash proposerHash = calculateDataHashForProposerSeal(header, ibftExtraData);
-    return Util.signatureToAddress(ibftExtraData.getProposerSeal(), proposerHash);
+    return SealRecovery.recoverAddress(ibftExtraData.getProposerSeal(), proposerHash);
   }
 
   /**
    * Recovers the {@link Address} for each validator that contributed a committed seal to the block.
+   * The seals are recovered in parallel, and addresses already recovered for the same seals are
+   * reused.
    *
    * @param header the block header that was signed by the committed seals
    * @param ibftExtraData the parsed IBftExtraData from the header
@@ -107,9 +108,7 @@ public class IbftBlockHashing {
     final Hash committerHash =
         IbftBlockHashing.calculateDataHashForCommittedSeal(header, ibftExtraData);
 
-    return ibftExtraData.getSeals().stream()
-        .map(p -> Util.signatureToAddress(p, committerHash))
-        .collect(Collectors.toList());
+    return SealRecovery.recoverAddresses(ibftExtraData.getSeals(), committerHash);
   }
 
   private static BytesValue encodeExtraDataWithoutCommittedSeals(
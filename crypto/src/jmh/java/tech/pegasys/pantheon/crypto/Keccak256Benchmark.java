@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.crypto;
+
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+public class Keccak256Benchmark {
+
+  // Sizes of a storage key, a typical trie branch node, and a large contract input.
+  @Param({"32", "532", "4096"})
+  public int size;
+
+  private BytesValue input;
+  private MutableBytes32 result;
+  private Keccak256.Hasher hasher;
+
+  @Setup(Level.Trial)
+  public void prepare() {
+    final byte[] bytes = new byte[size];
+    new Random(1).nextBytes(bytes);
+    input = BytesValue.wrap(bytes);
+    result = MutableBytes32.create();
+    hasher = Keccak256.hasher();
+  }
+
+  @Benchmark
+  public Bytes32 providerLookupPerHash() throws Exception {
+    final MessageDigest digest = BouncyCastleMessageDigestFactory.create(Hash.KECCAK256_ALG);
+    input.update(digest);
+    return Bytes32.wrap(digest.digest());
+  }
+
+  @Benchmark
+  public Bytes32 threadLocalDigest() {
+    return Keccak256.hash(input);
+  }
+
+  @Benchmark
+  public MutableBytes32 threadLocalDigestIntoResult() {
+    Keccak256.hash(input, result);
+    return result;
+  }
+
+  @Benchmark
+  public Bytes32 hasher() {
+    return hasher.update(input).digest();
+  }
+}
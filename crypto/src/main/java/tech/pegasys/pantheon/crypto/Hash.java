@@ -69,7 +69,7 @@ public abstract class Hash {
    * @return A digest.
    */
   public static Bytes32 keccak256(final BytesValue input) {
-    return Bytes32.wrap(digestUsingAlgorithm(input, KECCAK256_ALG));
+    return Keccak256.hash(input);
   }
 
   /**
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.crypto;
+
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+import org.bouncycastle.jcajce.provider.digest.Keccak;
+
+/**
+ * Keccak-256 hashing that skips the JCA provider lookup {@link
+ * BouncyCastleMessageDigestFactory#create(String)} does for every digest.
+ *
+ * <p>One-shot hashes use a digest kept by each thread, which is left reset after every hash, so
+ * they don't allocate anything beyond the returned hash, and nothing at all when hashing into a
+ * caller-provided {@link MutableBytes32}. Inputs are fed through {@link
+ * BytesValue#update(MessageDigest)}, so values wrapping arrays or buffers are hashed in place.
+ *
+ * <p>Hashing several inputs as one goes through a {@link Hasher}, which has its own digest so that
+ * one-shot hashes can still be computed while it is in use.
+ */
+public final class Keccak256 {
+  private static final ThreadLocal<ThreadState> STATE = ThreadLocal.withInitial(ThreadState::new);
+
+  private Keccak256() {}
+
+  /**
+   * Hashes a value.
+   *
+   * @param input The bytes to hash.
+   * @return The Keccak-256 hash of {@code input}.
+   */
+  public static Bytes32 hash(final BytesValue input) {
+    final MessageDigest digest = STATE.get().digest;
+    update(digest, input);
+    return Bytes32.wrap(digest.digest());
+  }
+
+  /**
+   * Hashes a value into an existing 32 bytes value.
+   *
+   * @param input The bytes to hash.
+   * @param result The value the Keccak-256 hash of {@code input} is written to.
+   */
+  public static void hash(final BytesValue input, final MutableBytes32 result) {
+    final ThreadState state = STATE.get();
+    update(state.digest, input);
+    finish(state.digest, state.output, result);
+  }
+
+  /**
+   * Creates a hasher computing the hash of several inputs, as if they were concatenated.
+   *
+   * @return A new hasher.
+   */
+  public static Hasher hasher() {
+    return new Hasher();
+  }
+
+  private static void update(final MessageDigest digest, final BytesValue input) {
+    try {
+      input.update(digest);
+    } catch (final RuntimeException e) {
+      // Don't leave a partial input behind for the next hash computed on this thread.
+      digest.reset();
+      throw e;
+    }
+  }
+
+  private static void finish(
+      final MessageDigest digest, final byte[] output, final MutableBytes32 result) {
+    try {
+      digest.digest(output, 0, Bytes32.SIZE);
+    } catch (final DigestException e) {
+      throw new IllegalStateException(e);
+    }
+    for (int i = 0; i < Bytes32.SIZE; i++) {
+      result.set(i, output[i]);
+    }
+  }
+
+  private static class ThreadState {
+    private final MessageDigest digest = new Keccak.Digest256();
+    private final byte[] output = new byte[Bytes32.SIZE];
+  }
+
+  /** Computes the Keccak-256 hash of a sequence of inputs. */
+  public static final class Hasher {
+    private final MessageDigest digest = new Keccak.Digest256();
+    private final byte[] output = new byte[Bytes32.SIZE];
+
+    private Hasher() {}
+
+    public Hasher update(final BytesValue input) {
+      input.update(digest);
+      return this;
+    }
+
+    public Hasher update(final byte[] input, final int offset, final int length) {
+      digest.update(input, offset, length);
+      return this;
+    }
+
+    public Hasher update(final byte input) {
+      digest.update(input);
+      return this;
+    }
+
+    /**
+     * Completes the hash, and resets this hasher so it can be reused.
+     *
+     * @return The hash of the inputs given since this hasher was created or last completed.
+     */
+    public Bytes32 digest() {
+      return Bytes32.wrap(digest.digest());
+    }
+
+    /**
+     * Completes the hash into an existing 32 bytes value, and resets this hasher so it can be
+     * reused.
+     *
+     * @param result The value the hash of the inputs given since this hasher was created or last
+     *     completed is written to.
+     */
+    public void digest(final MutableBytes32 result) {
+      finish(digest, output, result);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.crypto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+import tech.pegasys.pantheon.util.bytes.MutableBytesValue;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Keccak256Test {
+  private final Random random = new Random(1);
+
+  @Test
+  public void matchesProviderDigestAcrossBlockBoundaries() throws Exception {
+    // The Keccak-256 rate is 136 bytes, so this covers inputs filling several blocks.
+    for (int size = 0; size < 300; size += 7) {
+      final BytesValue input = randomBytes(size);
+      final Bytes32 expected = providerKeccak256(input);
+
+      assertThat(Keccak256.hash(input)).isEqualTo(expected);
+      final MutableBytes32 result = MutableBytes32.create();
+      Keccak256.hash(input, result);
+      assertThat(result).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void hashesSlicesOfArraysAndBuffersInPlace() throws Exception {
+    final byte[] bytes = randomBytes(200).extractArray();
+    final BytesValue expectedInput = BytesValue.wrap(bytes, 13, 150);
+    final Bytes32 expected = providerKeccak256(expectedInput);
+
+    final ByteBuffer heapBuffer = ByteBuffer.wrap(bytes);
+    final ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+    directBuffer.flip();
+
+    assertThat(Keccak256.hash(expectedInput)).isEqualTo(expected);
+    assertThat(Keccak256.hash(MutableBytesValue.wrapBuffer(heapBuffer, 13, 150)))
+        .isEqualTo(expected);
+    assertThat(Keccak256.hash(MutableBytesValue.wrapBuffer(directBuffer, 13, 150)))
+        .isEqualTo(expected);
+    assertThat(directBuffer.position()).isZero();
+    assertThat(directBuffer.limit()).isEqualTo(bytes.length);
+  }
+
+  @Test
+  public void hasherHashesInputsAsIfConcatenated() throws Exception {
+    final BytesValue first = randomBytes(100);
+    final BytesValue second = randomBytes(90);
+    final Bytes32 expected = providerKeccak256(BytesValue.wrap(first, second));
+
+    final Keccak256.Hasher hasher = Keccak256.hasher();
+    hasher.update(first);
+    // One-shot hashes in the middle of a hasher's input must not affect it.
+    Keccak256.hash(randomBytes(20));
+    hasher.update(second.extractArray(), 0, second.size());
+    assertThat(hasher.digest()).isEqualTo(expected);
+
+    final MutableBytes32 result = MutableBytes32.create();
+    hasher.update(first).update(second).digest(result);
+    assertThat(result).isEqualTo(expected);
+  }
+
+  @Test
+  public void failedHashDoesNotAffectTheNextOne() throws Exception {
+    final BytesValue failing = mock(BytesValue.class);
+    doAnswer(
+            invocation -> {
+              invocation.<MessageDigest>getArgument(0).update(new byte[64]);
+              throw new IllegalStateException("Failed");
+            })
+        .when(failing)
+        .update(any());
+    assertThatThrownBy(() -> Keccak256.hash(failing)).isInstanceOf(IllegalStateException.class);
+
+    final BytesValue input = randomBytes(64);
+    assertThat(Keccak256.hash(input)).isEqualTo(providerKeccak256(input));
+  }
+
+  private BytesValue randomBytes(final int size) {
+    final byte[] bytes = new byte[size];
+    random.nextBytes(bytes);
+    return BytesValue.wrap(bytes);
+  }
+
+  private static Bytes32 providerKeccak256(final BytesValue input) throws Exception {
+    final MessageDigest digest = BouncyCastleMessageDigestFactory.create(Hash.KECCAK256_ALG);
+    digest.update(input.extractArray());
+    return Bytes32.wrap(digest.digest());
+  }
+}
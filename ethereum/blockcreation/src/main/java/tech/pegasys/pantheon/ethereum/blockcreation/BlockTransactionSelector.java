@@ -14,6 +14,7 @@ package tech.pegasys.pantheon.ethereum.blockcreation;
 
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
 import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
 import tech.pegasys.pantheon.ethereum.core.ProcessableBlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Transaction;
@@ -26,6 +27,8 @@ import tech.pegasys.pantheon.ethereum.mainnet.MainnetBlockProcessor.TransactionR
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionProcessor;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionValidationParams;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionValidator.TransactionInvalidReason;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.trie.OrderedTrieRootBuilder;
 import tech.pegasys.pantheon.ethereum.vm.BlockHashLookup;
 
 import java.util.List;
@@ -64,12 +67,18 @@ public class BlockTransactionSelector {
 
     private final List<Transaction> transactions = Lists.newArrayList();
     private final List<TransactionReceipt> receipts = Lists.newArrayList();
+    // The roots are built up as transactions are selected, rather than from the lists once the
+    // block is complete.
+    private final OrderedTrieRootBuilder transactionsTrie = new OrderedTrieRootBuilder();
+    private final OrderedTrieRootBuilder receiptsTrie = new OrderedTrieRootBuilder();
     private long cumulativeGasUsed = 0;
 
     private void update(
         final Transaction transaction, final TransactionReceipt receipt, final long gasUsed) {
       transactions.add(transaction);
       receipts.add(receipt);
+      transactionsTrie.append(RLP.encode(transaction::writeTo));
+      receiptsTrie.append(RLP.encode(receipt::writeTo));
       cumulativeGasUsed += gasUsed;
     }
 
@@ -84,6 +93,14 @@ public class BlockTransactionSelector {
     public long getCumulativeGasUsed() {
       return cumulativeGasUsed;
     }
+
+    public Hash getTransactionsRoot() {
+      return Hash.wrap(transactionsTrie.rootHash());
+    }
+
+    public Hash getReceiptsRoot() {
+      return Hash.wrap(receiptsTrie.rootHash());
+    }
   }
 
   private final Supplier<Boolean> isCancelled;
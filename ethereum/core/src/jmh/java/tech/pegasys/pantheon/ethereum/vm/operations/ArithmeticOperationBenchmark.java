@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm.operations;
+
+import tech.pegasys.pantheon.ethereum.mainnet.ConstantinopleFixGasCalculator;
+import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
+import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
+import tech.pegasys.pantheon.ethereum.vm.Operation;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+import tech.pegasys.pantheon.util.uint.UInt256Bytes;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the arithmetic opcodes on full-width operands. {@link #executeOperation()} runs the
+ * operation against a real frame, while {@link #executeWithBigInteger()} performs the same
+ * computation the way the operations used to, so the two can be compared per opcode.
+ */
+@State(Scope.Thread)
+public class ArithmeticOperationBenchmark {
+
+  private static final BigInteger P256 = BigInteger.ONE.shiftLeft(256);
+
+  @Param({"ADD", "SUB", "MUL", "DIV", "MOD", "EXP", "ADDMOD", "MULMOD", "LT", "GT", "SHL", "SHR"})
+  public String opcode;
+
+  private OperationBenchmarkHelper operationBenchmarkHelper;
+  private Operation operation;
+  private MessageFrame frame;
+
+  private Bytes32 operand0;
+  private Bytes32 operand1;
+  private Bytes32 operand2;
+
+  @Setup
+  public void prepare() throws Exception {
+    operationBenchmarkHelper = OperationBenchmarkHelper.create();
+    frame = operationBenchmarkHelper.createMessageFrame();
+    operation = createOperation(opcode, new ConstantinopleFixGasCalculator());
+
+    final Random random = new Random(42);
+    operand0 = UInt256Bytes.of(new BigInteger(256, random));
+    operand1 = UInt256Bytes.of(new BigInteger(192, random));
+    operand2 = UInt256Bytes.of(new BigInteger(128, random));
+    // Keep the exponent and shift amount in a realistic range.
+    if (opcode.equals("EXP")) {
+      operand1 = UInt256Bytes.of(0xFFFF);
+    } else if (opcode.equals("SHL") || opcode.equals("SHR")) {
+      operand0 = UInt256Bytes.of(100);
+    }
+  }
+
+  @TearDown
+  public void cleanUp() throws Exception {
+    operationBenchmarkHelper.cleanUp();
+  }
+
+  @Benchmark
+  public Bytes32 executeOperation() {
+    if (operation.getStackItemsConsumed() == 3) {
+      frame.pushStackItem(operand2);
+    }
+    frame.pushStackItem(operand1);
+    frame.pushStackItem(operand0);
+    operation.execute(frame);
+    return frame.popStackItem();
+  }
+
+  @Benchmark
+  public Bytes32 executeWithBigInteger() {
+    final BigInteger v0 = BytesValues.asUnsignedBigInteger(operand0);
+    final BigInteger v1 = BytesValues.asUnsignedBigInteger(operand1);
+    final BigInteger v2 = BytesValues.asUnsignedBigInteger(operand2);
+    final BigInteger result;
+    switch (opcode) {
+      case "ADD":
+        result = v0.add(v1).mod(P256);
+        break;
+      case "SUB":
+        result = v0.subtract(v1).mod(P256);
+        break;
+      case "MUL":
+        result = v0.multiply(v1).mod(P256);
+        break;
+      case "DIV":
+        result = v0.divide(v1);
+        break;
+      case "MOD":
+        result = v0.mod(v1);
+        break;
+      case "EXP":
+        result = v0.modPow(v1, P256);
+        break;
+      case "ADDMOD":
+        result = v0.add(v1).mod(v2);
+        break;
+      case "MULMOD":
+        result = v0.multiply(v1).mod(v2);
+        break;
+      case "LT":
+        result = v0.compareTo(v1) < 0 ? BigInteger.ONE : BigInteger.ZERO;
+        break;
+      case "GT":
+        result = v0.compareTo(v1) > 0 ? BigInteger.ONE : BigInteger.ZERO;
+        break;
+      case "SHL":
+        result = v1.shiftLeft(v0.intValue()).mod(P256);
+        break;
+      case "SHR":
+        result = v1.shiftRight(v0.intValue());
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported opcode " + opcode);
+    }
+    return UInt256Bytes.of(result);
+  }
+
+  private static Operation createOperation(final String opcode, final GasCalculator calculator) {
+    switch (opcode) {
+      case "ADD":
+        return new AddOperation(calculator);
+      case "SUB":
+        return new SubOperation(calculator);
+      case "MUL":
+        return new MulOperation(calculator);
+      case "DIV":
+        return new DivOperation(calculator);
+      case "MOD":
+        return new ModOperation(calculator);
+      case "EXP":
+        return new ExpOperation(calculator);
+      case "ADDMOD":
+        return new AddModOperation(calculator);
+      case "MULMOD":
+        return new MulModOperation(calculator);
+      case "LT":
+        return new LtOperation(calculator);
+      case "GT":
+        return new GtOperation(calculator);
+      case "SHL":
+        return new ShlOperation(calculator);
+      case "SHR":
+        return new ShrOperation(calculator);
+      default:
+        throw new IllegalArgumentException("Unsupported opcode " + opcode);
+    }
+  }
+}
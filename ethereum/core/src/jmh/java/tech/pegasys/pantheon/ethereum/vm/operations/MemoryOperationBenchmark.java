@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm.operations;
+
+import tech.pegasys.pantheon.ethereum.mainnet.ConstantinopleFixGasCalculator;
+import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
+import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+import tech.pegasys.pantheon.util.uint.UInt256Bytes;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the memory opcodes against a real frame. Offsets walk through a fixed window of memory
+ * so the frame's memory stops growing after the first iterations and the steady-state cost of the
+ * reads and writes is what gets measured.
+ */
+@State(Scope.Thread)
+public class MemoryOperationBenchmark {
+
+  private static final int MEMORY_WINDOW = 64 * 1024;
+
+  // 0 is word-aligned, anything else forces accesses to straddle words (and sometimes pages).
+  @Param({"0", "7"})
+  public int misalignment;
+
+  @Param({"32", "1024", "16384"})
+  public int copySize;
+
+  private OperationBenchmarkHelper operationBenchmarkHelper;
+  private MessageFrame frame;
+  private MStoreOperation mStoreOperation;
+  private MLoadOperation mLoadOperation;
+  private CallDataCopyOperation callDataCopyOperation;
+  private ReturnOperation returnOperation;
+
+  private Bytes32 value;
+  private int offset;
+
+  @Setup
+  public void prepare() throws Exception {
+    operationBenchmarkHelper = OperationBenchmarkHelper.create();
+    final byte[] callData = new byte[copySize];
+    new Random(42).nextBytes(callData);
+    frame =
+        operationBenchmarkHelper
+            .createMessageFrameBuilder()
+            .inputData(BytesValue.wrap(callData))
+            .build();
+
+    final GasCalculator gasCalculator = new ConstantinopleFixGasCalculator();
+    mStoreOperation = new MStoreOperation(gasCalculator);
+    mLoadOperation = new MLoadOperation(gasCalculator);
+    callDataCopyOperation = new CallDataCopyOperation(gasCalculator);
+    returnOperation = new ReturnOperation(gasCalculator);
+
+    value =
+        Bytes32.fromHexString(
+            "0x0102030405060708091011121314151617181920212223242526272829303132");
+    // Pre-expand the window so that expansion is not part of the steady-state measurements.
+    frame.expandMemory(0, MEMORY_WINDOW + copySize + misalignment);
+  }
+
+  @TearDown
+  public void cleanUp() throws Exception {
+    operationBenchmarkHelper.cleanUp();
+  }
+
+  @Benchmark
+  public void mStore() {
+    frame.pushStackItem(value);
+    frame.pushStackItem(nextOffset(Bytes32.SIZE));
+    mStoreOperation.execute(frame);
+  }
+
+  @Benchmark
+  public Bytes32 mLoad() {
+    frame.pushStackItem(nextOffset(Bytes32.SIZE));
+    mLoadOperation.execute(frame);
+    return frame.popStackItem();
+  }
+
+  @Benchmark
+  public void callDataCopy() {
+    frame.pushStackItem(UInt256Bytes.of(copySize));
+    frame.pushStackItem(Bytes32.ZERO);
+    frame.pushStackItem(nextOffset(copySize));
+    callDataCopyOperation.execute(frame);
+  }
+
+  @Benchmark
+  public BytesValue returnData() {
+    frame.pushStackItem(UInt256Bytes.of(copySize));
+    frame.pushStackItem(nextOffset(copySize));
+    returnOperation.execute(frame);
+    return frame.getOutputData();
+  }
+
+  @Benchmark
+  public MessageFrame expandFreshMemory() {
+    // MSTORE at increasing offsets on a new frame, i.e. the cost of growing memory from scratch.
+    final MessageFrame freshFrame = operationBenchmarkHelper.createMessageFrame();
+    for (int i = 0; i < copySize; i += Bytes32.SIZE) {
+      freshFrame.writeMemoryWord(UInt256.of(i + misalignment), value);
+    }
+    return freshFrame;
+  }
+
+  private Bytes32 nextOffset(final int accessSize) {
+    final int current = offset;
+    offset += accessSize;
+    if (offset + accessSize > MEMORY_WINDOW) {
+      offset = 0;
+    }
+    return UInt256Bytes.of(current + misalignment);
+  }
+}
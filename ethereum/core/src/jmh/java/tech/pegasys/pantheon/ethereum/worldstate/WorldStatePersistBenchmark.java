@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableAccount;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.RocksDbStorageProvider;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the storage side of importing a block: each invocation changes the balance, nonce and a
+ * storage slot of a block's worth of accounts, then persists the world state to RocksDB. Compares
+ * committing through a pessimistic transaction database against plain write batches.
+ */
+@State(Scope.Thread)
+public class WorldStatePersistBenchmark {
+
+  private static final int ACCOUNT_COUNT = 10_000;
+  private static final int ACCOUNTS_UPDATED_PER_BLOCK = 200;
+  private static final int STORAGE_SLOTS_PER_ACCOUNT = 64;
+
+  @Param({"true", "false"})
+  public boolean useTransactionDb;
+
+  @Param({"false", "true"})
+  public boolean useColumns;
+
+  private final Random random = new Random(42);
+  private final List<Address> addresses = new ArrayList<>(ACCOUNT_COUNT);
+  private Path storageDirectory;
+  private StorageProvider storageProvider;
+  private MutableWorldState worldState;
+  private long blockNumber;
+
+  @Setup
+  public void prepare() throws IOException {
+    storageDirectory = Files.createTempDirectory("benchmark");
+    storageProvider =
+        RocksDbStorageProvider.create(
+            RocksDbConfiguration.builder()
+                .databaseDir(storageDirectory)
+                .useColumns(useColumns)
+                .useTransactionDb(useTransactionDb)
+                .build(),
+            new NoOpMetricsSystem());
+    worldState = new WorldStateArchive(storageProvider.createWorldStateStorage()).getMutable();
+
+    final WorldUpdater updater = worldState.updater();
+    for (int i = 0; i < ACCOUNT_COUNT; i++) {
+      final Address address = Address.fromHexString(String.format("0x%040x", i + 1));
+      addresses.add(address);
+      updater.createAccount(address).setBalance(Wei.of(i));
+    }
+    updater.commit();
+    worldState.persist();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    storageProvider.close();
+    MoreFiles.deleteRecursively(storageDirectory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public Hash persistBlock() {
+    blockNumber++;
+    final WorldUpdater updater = worldState.updater();
+    for (int i = 0; i < ACCOUNTS_UPDATED_PER_BLOCK; i++) {
+      final MutableAccount account =
+          updater.getMutable(addresses.get(random.nextInt(ACCOUNT_COUNT)));
+      account.incrementBalance(Wei.of(1));
+      account.incrementNonce();
+      account.setStorageValue(
+          UInt256.of(random.nextInt(STORAGE_SLOTS_PER_ACCOUNT)), UInt256.of(blockNumber));
+    }
+    updater.commit();
+    worldState.persist();
+    return worldState.rootHash();
+  }
+}
@@ -14,15 +14,25 @@ package tech.pegasys.pantheon.ethereum;
 
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
 import tech.pegasys.pantheon.ethereum.chain.BlockchainStorage;
+import tech.pegasys.pantheon.ethereum.chain.CachingBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.chain.DefaultMutableBlockchain;
 import tech.pegasys.pantheon.ethereum.chain.GenesisState;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.core.SenderRecoveryService;
+import tech.pegasys.pantheon.ethereum.freezer.BlockFreezer;
+import tech.pegasys.pantheon.ethereum.freezer.FreezingBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
+import tech.pegasys.pantheon.ethereum.mainnet.ScheduleBasedBlockHeaderFunctions;
 import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.ethereum.trie.TrieNodeCache;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateArchive;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateSnapshots;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 
 /**
@@ -36,14 +46,24 @@ public class ProtocolContext<C> {
   private final MutableBlockchain blockchain;
   private final WorldStateArchive worldStateArchive;
   private final C consensusState;
+  private final SenderRecoveryService senderRecoveryService;
 
   public ProtocolContext(
       final MutableBlockchain blockchain,
       final WorldStateArchive worldStateArchive,
       final C consensusState) {
+    this(blockchain, worldStateArchive, consensusState, SenderRecoveryService.callerRuns());
+  }
+
+  public ProtocolContext(
+      final MutableBlockchain blockchain,
+      final WorldStateArchive worldStateArchive,
+      final C consensusState,
+      final SenderRecoveryService senderRecoveryService) {
     this.blockchain = blockchain;
     this.worldStateArchive = worldStateArchive;
     this.consensusState = consensusState;
+    this.senderRecoveryService = senderRecoveryService;
   }
 
   public static <T> ProtocolContext<T> init(
@@ -51,21 +71,63 @@ public class ProtocolContext<C> {
       final GenesisState genesisState,
       final ProtocolSchedule<T> protocolSchedule,
       final MetricsSystem metricsSystem,
+      final long blockchainCacheSize,
+      final long trieNodeCacheSize,
+      final Optional<BlockFreezer> blockFreezer,
+      final Optional<ExecutorService> flatStateGenerationExecutor,
       final BiFunction<Blockchain, WorldStateArchive, T> consensusContextFactory) {
-    final BlockchainStorage blockchainStorage =
-        storageProvider.createBlockchainStorage(protocolSchedule);
+    BlockchainStorage blockchainStorage = storageProvider.createBlockchainStorage(protocolSchedule);
+    if (blockFreezer.isPresent()) {
+      blockchainStorage =
+          new FreezingBlockchainStorage(
+              blockchainStorage,
+              blockFreezer.get(),
+              storageProvider.createBlockFreezerStorage(),
+              ScheduleBasedBlockHeaderFunctions.create(protocolSchedule));
+    }
+    if (blockchainCacheSize > 0) {
+      blockchainStorage =
+          new CachingBlockchainStorage(blockchainStorage, blockchainCacheSize, metricsSystem);
+    }
     final WorldStateStorage worldStateStorage = storageProvider.createWorldStateStorage();
 
     final MutableBlockchain blockchain =
         new DefaultMutableBlockchain(genesisState.getBlock(), blockchainStorage, metricsSystem);
 
-    final WorldStateArchive worldStateArchive = new WorldStateArchive(worldStateStorage);
-    genesisState.writeStateTo(worldStateArchive.getMutable());
+    // Shared by block processing and every RPC call, so the upper levels of the world state trie
+    // are decoded once rather than once per world state.
+    final Optional<TrieNodeCache<BytesValue>> trieNodeCache =
+        trieNodeCacheSize > 0
+            ? Optional.of(new TrieNodeCache<>(trieNodeCacheSize))
+            : Optional.empty();
+    trieNodeCache.ifPresent(cache -> cache.registerMetrics(metricsSystem));
+    final WorldStateArchive worldStateArchive;
+    if (flatStateGenerationExecutor.isPresent()) {
+      // Accounts and storage of recent world states are read from the flat state rather than the
+      // trie. The flat state follows the canonical chain, and is generated in the background when
+      // the chain head can't be reached from it.
+      final WorldStateSnapshots snapshots =
+          new WorldStateSnapshots(worldStateStorage, flatStateGenerationExecutor.get());
+      worldStateArchive =
+          new WorldStateArchive(worldStateStorage, trieNodeCache, Optional.of(snapshots));
+      genesisState.writeStateTo(worldStateArchive.getMutable());
+      blockchain.observeBlockAdded(
+          (event, chain) -> {
+            if (event.isNewCanonicalHead()) {
+              snapshots.onNewCanonicalHead(event.getBlock().getHeader().getStateRoot());
+            }
+          });
+      snapshots.onNewCanonicalHead(blockchain.getChainHeadHeader().getStateRoot());
+    } else {
+      worldStateArchive = new WorldStateArchive(worldStateStorage, trieNodeCache, Optional.empty());
+      genesisState.writeStateTo(worldStateArchive.getMutable());
+    }
 
     return new ProtocolContext<>(
         blockchain,
         worldStateArchive,
-        consensusContextFactory.apply(blockchain, worldStateArchive));
+        consensusContextFactory.apply(blockchain, worldStateArchive),
+        SenderRecoveryService.create(metricsSystem));
   }
 
   public MutableBlockchain getBlockchain() {
@@ -79,4 +141,8 @@ public class ProtocolContext<C> {
   public C getConsensusState() {
     return consensusState;
   }
+
+  public SenderRecoveryService getSenderRecoveryService() {
+    return senderRecoveryService;
+  }
 }
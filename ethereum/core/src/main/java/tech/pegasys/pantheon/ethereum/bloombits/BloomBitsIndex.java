@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.bloombits;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.LogsBloomFilter;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Looks up which blocks may contain matching logs using the sections written by {@link
+ * BloomBitsIndexer}, without loading any block headers or receipts.
+ */
+public class BloomBitsIndex {
+  public static final int DEFAULT_SECTION_SIZE = 4096;
+  static final int BLOOM_BITS = LogsBloomFilter.BYTE_SIZE * Byte.SIZE;
+
+  private final Blockchain blockchain;
+  private final BloomBitsStorage storage;
+  private final int sectionSize;
+
+  public BloomBitsIndex(final Blockchain blockchain, final BloomBitsStorage storage) {
+    this(blockchain, storage, DEFAULT_SECTION_SIZE);
+  }
+
+  BloomBitsIndex(
+      final Blockchain blockchain, final BloomBitsStorage storage, final int sectionSize) {
+    checkArgument(sectionSize > 0, "Section size must be positive");
+    this.blockchain = blockchain;
+    this.storage = storage;
+    this.sectionSize = sectionSize;
+  }
+
+  public int getSectionSize() {
+    return sectionSize;
+  }
+
+  public long getSection(final long blockNumber) {
+    return blockNumber / sectionSize;
+  }
+
+  public long getFirstBlockInSection(final long section) {
+    return section * sectionSize;
+  }
+
+  public long getLastBlockInSection(final long section) {
+    return getFirstBlockInSection(section + 1) - 1;
+  }
+
+  /**
+   * Finds the blocks in a section whose logs bloom may match a query.
+   *
+   * <p>The query is a list of groups which must all match. A group matches if any of its filters
+   * is contained in the block's logs bloom, and an empty group matches every block.
+   *
+   * @param section the section to search.
+   * @param query the groups of filters to match.
+   * @return the offsets, relative to the first block of the section, of the blocks that may match
+   *     or empty if the section isn't indexed for the current canonical chain.
+   */
+  public Optional<BitSet> getCandidateBlocks(
+      final long section, final List<List<LogsBloomFilter>> query) {
+    if (!isIndexed(section)) {
+      return Optional.empty();
+    }
+    final BitSet candidates = new BitSet(sectionSize);
+    candidates.set(0, sectionSize);
+    for (final List<LogsBloomFilter> group : query) {
+      if (!group.isEmpty()) {
+        candidates.and(matchAny(section, group));
+      }
+      if (candidates.isEmpty()) {
+        break;
+      }
+    }
+    return Optional.of(candidates);
+  }
+
+  private boolean isIndexed(final long section) {
+    if (section >= storage.getIndexedSectionCount()) {
+      return false;
+    }
+    // Sections indexed from a chain that has since been reorganised are ignored until re-indexed.
+    final Optional<Hash> canonicalHead =
+        blockchain.getBlockHashByNumber(getLastBlockInSection(section));
+    return canonicalHead.isPresent() && canonicalHead.equals(storage.getSectionHead(section));
+  }
+
+  private BitSet matchAny(final long section, final List<LogsBloomFilter> filters) {
+    final BitSet matches = new BitSet(sectionSize);
+    for (final LogsBloomFilter filter : filters) {
+      matches.or(matchAll(section, filter));
+    }
+    return matches;
+  }
+
+  private BitSet matchAll(final long section, final LogsBloomFilter filter) {
+    final BitSet matches = new BitSet(sectionSize);
+    matches.set(0, sectionSize);
+    final BytesValue filterBytes = filter.getBytes();
+    for (int i = 0; i < LogsBloomFilter.BYTE_SIZE && !matches.isEmpty(); ++i) {
+      final int filterByte = filterBytes.get(i) & 0xFF;
+      for (int bit = 0; bit < Byte.SIZE; ++bit) {
+        if ((filterByte & (1 << bit)) != 0) {
+          matches.and(getBloomBits(section, bloomBitIndex(i, bit)));
+        }
+      }
+    }
+    return matches;
+  }
+
+  private BitSet getBloomBits(final long section, final int bloomBit) {
+    return storage
+        .getBloomBits(section, bloomBit)
+        .map(bits -> BitSet.valueOf(bits.getArrayUnsafe()))
+        .orElseGet(BitSet::new);
+  }
+
+  static int bloomBitIndex(final int byteIndex, final int bit) {
+    return byteIndex * Byte.SIZE + bit;
+  }
+}
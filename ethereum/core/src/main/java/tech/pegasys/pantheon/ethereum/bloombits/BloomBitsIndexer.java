@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.bloombits;
+
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedObserver;
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Builds the log bloom index in the background. Each time the chain head advances, every complete
+ * section that is far enough behind the head is indexed, so existing databases are backfilled the
+ * first time the indexer runs.
+ */
+public class BloomBitsIndexer implements BlockAddedObserver {
+  private static final Logger LOG = LogManager.getLogger();
+  // Sections are only indexed once their last block is this far behind the chain head so that
+  // reorgs rarely invalidate an indexed section.
+  public static final long DEFAULT_CONFIRMATIONS = 256;
+
+  private final Blockchain blockchain;
+  private final BloomBitsStorage storage;
+  private final BloomBitsIndex index;
+  private final ExecutorService executor;
+  private final long confirmations;
+  private final AtomicBoolean indexing = new AtomicBoolean(false);
+  private final AtomicLong indexedSectionCount = new AtomicLong();
+  private Optional<Long> blockAddedObserverId = Optional.empty();
+
+  public BloomBitsIndexer(
+      final Blockchain blockchain,
+      final BloomBitsStorage storage,
+      final BloomBitsIndex index,
+      final ExecutorService executor,
+      final MetricsSystem metricsSystem) {
+    this(blockchain, storage, index, executor, metricsSystem, DEFAULT_CONFIRMATIONS);
+  }
+
+  @VisibleForTesting
+  BloomBitsIndexer(
+      final Blockchain blockchain,
+      final BloomBitsStorage storage,
+      final BloomBitsIndex index,
+      final ExecutorService executor,
+      final MetricsSystem metricsSystem,
+      final long confirmations) {
+    this.blockchain = blockchain;
+    this.storage = storage;
+    this.index = index;
+    this.executor = executor;
+    this.confirmations = confirmations;
+    indexedSectionCount.set(storage.getIndexedSectionCount());
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "log_bloom_indexed_sections",
+        "Number of block sections included in the log bloom index",
+        indexedSectionCount::get);
+  }
+
+  public void start() {
+    blockAddedObserverId = Optional.of(blockchain.observeBlockAdded(this));
+    scheduleIndexing();
+  }
+
+  public void stop() {
+    blockAddedObserverId.ifPresent(blockchain::removeObserver);
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      LOG.error("Interrupted while waiting for log bloom indexing to stop");
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void onBlockAdded(final BlockAddedEvent event, final Blockchain blockchain) {
+    if (event.isNewCanonicalHead()) {
+      scheduleIndexing();
+    }
+  }
+
+  private void scheduleIndexing() {
+    if (indexing.compareAndSet(false, true)) {
+      executor.submit(this::indexCompleteSections);
+    }
+  }
+
+  @VisibleForTesting
+  void indexCompleteSections() {
+    try {
+      long section = findFirstSectionToIndex();
+      while (index.getLastBlockInSection(section) + confirmations
+              <= blockchain.getChainHeadBlockNumber()
+          && !Thread.currentThread().isInterrupted()) {
+        indexSection(section);
+        section++;
+      }
+    } catch (final RuntimeException e) {
+      LOG.error("Failed to update log bloom index", e);
+    } finally {
+      indexing.set(false);
+    }
+  }
+
+  private long findFirstSectionToIndex() {
+    long section = storage.getIndexedSectionCount();
+    // Re-index any trailing sections that are no longer part of the canonical chain.
+    while (section > 0 && !isCanonical(section - 1)) {
+      section--;
+    }
+    return section;
+  }
+
+  private boolean isCanonical(final long section) {
+    final Optional<Hash> sectionHead = storage.getSectionHead(section);
+    return sectionHead.isPresent()
+        && sectionHead.equals(
+            blockchain.getBlockHashByNumber(index.getLastBlockInSection(section)));
+  }
+
+  private void indexSection(final long section) {
+    final int sectionSize = index.getSectionSize();
+    final BitSet[] bloomBits = new BitSet[BloomBitsIndex.BLOOM_BITS];
+    final long firstBlock = index.getFirstBlockInSection(section);
+    BlockHeader header = null;
+    for (int offset = 0; offset < sectionSize; offset++) {
+      final long blockNumber = firstBlock + offset;
+      header =
+          blockchain
+              .getBlockHeader(blockNumber)
+              .orElseThrow(
+                  () -> new IllegalStateException("Missing canonical block " + blockNumber));
+      final BytesValue logsBloom = header.getLogsBloom().getBytes();
+      for (int i = 0; i < logsBloom.size(); i++) {
+        final int bloomByte = logsBloom.get(i) & 0xFF;
+        for (int bit = 0; bloomByte != 0 && bit < Byte.SIZE; bit++) {
+          if ((bloomByte & (1 << bit)) != 0) {
+            final int bloomBit = BloomBitsIndex.bloomBitIndex(i, bit);
+            if (bloomBits[bloomBit] == null) {
+              bloomBits[bloomBit] = new BitSet(sectionSize);
+            }
+            bloomBits[bloomBit].set(offset);
+          }
+        }
+      }
+    }
+
+    // Bits left behind by a previous, reorganised version of this section must be cleared.
+    final boolean overwrite = storage.getSectionHead(section).isPresent();
+    final BloomBitsStorage.Updater updater = storage.updater();
+    for (int bloomBit = 0; bloomBit < bloomBits.length; bloomBit++) {
+      if (bloomBits[bloomBit] != null) {
+        updater.putBloomBits(section, bloomBit, BytesValue.wrap(bloomBits[bloomBit].toByteArray()));
+      } else if (overwrite) {
+        updater.putBloomBits(section, bloomBit, BytesValue.EMPTY);
+      }
+    }
+    updater.putSectionHead(section, header.getHash());
+    updater.setIndexedSectionCount(section + 1);
+    updater.commit();
+    indexedSectionCount.set(section + 1);
+    LOG.debug("Indexed log blooms for blocks {} to {}", firstBlock, header.getNumber());
+  }
+}
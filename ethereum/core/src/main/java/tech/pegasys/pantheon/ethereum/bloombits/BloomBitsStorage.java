@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.bloombits;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Optional;
+
+/**
+ * Persists the log bloom index. Blocks are grouped into fixed size sections and, for each section,
+ * one bit vector is kept per logs bloom bit with a bit set for every block whose bloom has that bit
+ * set.
+ */
+public interface BloomBitsStorage {
+
+  /** @return the number of consecutive sections, starting from section 0, that are indexed. */
+  long getIndexedSectionCount();
+
+  Optional<Hash> getSectionHead(long section);
+
+  /**
+   * Returns the bit vector for a single logs bloom bit in a section, as produced by {@link
+   * java.util.BitSet#toByteArray()}.
+   *
+   * @param section the section number.
+   * @param bloomBit the index of the logs bloom bit.
+   * @return the bit vector, or empty if no block in the section has the bit set.
+   */
+  Optional<BytesValue> getBloomBits(long section, int bloomBit);
+
+  Updater updater();
+
+  interface Updater {
+
+    void putSectionHead(long section, Hash sectionHead);
+
+    void putBloomBits(long section, int bloomBit, BytesValue bits);
+
+    void setIndexedSectionCount(long indexedSectionCount);
+
+    void commit();
+
+    void rollback();
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.chain;
+
+import tech.pegasys.pantheon.ethereum.core.BlockBody;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Buffers blockchain updates in memory on top of another {@link BlockchainStorage} so that a run of
+ * blocks can be written in a single storage transaction.
+ *
+ * <p>Committed updates are visible to reads immediately but only reach the underlying storage when
+ * {@link #flush()} is called, at which point each key is written once regardless of how many times
+ * it was updated. Rolled back updates are discarded as usual.
+ */
+class BatchingBlockchainStorage implements BlockchainStorage {
+
+  private final BlockchainStorage delegate;
+
+  private final Map<Hash, BlockHeader> headers = new ConcurrentHashMap<>();
+  private final Map<Hash, BlockBody> bodies = new ConcurrentHashMap<>();
+  private final Map<Hash, List<TransactionReceipt>> receipts = new ConcurrentHashMap<>();
+  private final Map<Hash, UInt256> totalDifficulties = new ConcurrentHashMap<>();
+  // An empty value records a removed mapping.
+  private final Map<Long, Optional<Hash>> blockHashes = new ConcurrentHashMap<>();
+  private final Map<Hash, Optional<TransactionLocation>> transactionLocations =
+      new ConcurrentHashMap<>();
+  private volatile Optional<Hash> chainHead = Optional.empty();
+  private volatile Optional<Collection<Hash>> forkHeads = Optional.empty();
+
+  BatchingBlockchainStorage(final BlockchainStorage delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Optional<Hash> getChainHead() {
+    final Optional<Hash> bufferedChainHead = chainHead;
+    return bufferedChainHead.isPresent() ? bufferedChainHead : delegate.getChainHead();
+  }
+
+  @Override
+  public Collection<Hash> getForkHeads() {
+    return forkHeads.<Collection<Hash>>map(ArrayList::new).orElseGet(delegate::getForkHeads);
+  }
+
+  @Override
+  public Optional<BlockHeader> getBlockHeader(final Hash blockHash) {
+    final BlockHeader header = headers.get(blockHash);
+    return header != null ? Optional.of(header) : delegate.getBlockHeader(blockHash);
+  }
+
+  @Override
+  public Optional<BlockBody> getBlockBody(final Hash blockHash) {
+    final BlockBody body = bodies.get(blockHash);
+    return body != null ? Optional.of(body) : delegate.getBlockBody(blockHash);
+  }
+
+  @Override
+  public Optional<List<TransactionReceipt>> getTransactionReceipts(final Hash blockHash) {
+    final List<TransactionReceipt> blockReceipts = receipts.get(blockHash);
+    return blockReceipts != null
+        ? Optional.of(blockReceipts)
+        : delegate.getTransactionReceipts(blockHash);
+  }
+
+  @Override
+  public Optional<Hash> getBlockHash(final long blockNumber) {
+    final Optional<Hash> blockHash = blockHashes.get(blockNumber);
+    return blockHash != null ? blockHash : delegate.getBlockHash(blockNumber);
+  }
+
+  @Override
+  public Optional<UInt256> getTotalDifficulty(final Hash blockHash) {
+    final UInt256 totalDifficulty = totalDifficulties.get(blockHash);
+    return totalDifficulty != null
+        ? Optional.of(totalDifficulty)
+        : delegate.getTotalDifficulty(blockHash);
+  }
+
+  @Override
+  public Optional<TransactionLocation> getTransactionLocation(final Hash transactionHash) {
+    final Optional<TransactionLocation> location = transactionLocations.get(transactionHash);
+    return location != null ? location : delegate.getTransactionLocation(transactionHash);
+  }
+
+  @Override
+  public Updater updater() {
+    return new BufferingUpdater();
+  }
+
+  /** Writes all buffered updates to the underlying storage in a single transaction. */
+  synchronized void flush() {
+    final BlockchainStorage.Updater updater = delegate.updater();
+    headers.forEach(updater::putBlockHeader);
+    bodies.forEach(updater::putBlockBody);
+    receipts.forEach(updater::putTransactionReceipts);
+    totalDifficulties.forEach(updater::putTotalDifficulty);
+    blockHashes.forEach(
+        (blockNumber, blockHash) ->
+            blockHash.ifPresentOrElse(
+                hash -> updater.putBlockHash(blockNumber, hash),
+                () -> updater.removeBlockHash(blockNumber)));
+    transactionLocations.forEach(
+        (transactionHash, location) ->
+            location.ifPresentOrElse(
+                value -> updater.putTransactionLocation(transactionHash, value),
+                () -> updater.removeTransactionLocation(transactionHash)));
+    chainHead.ifPresent(updater::setChainHead);
+    forkHeads.ifPresent(updater::setForkHeads);
+    updater.commit();
+
+    headers.clear();
+    bodies.clear();
+    receipts.clear();
+    totalDifficulties.clear();
+    blockHashes.clear();
+    transactionLocations.clear();
+    chainHead = Optional.empty();
+    forkHeads = Optional.empty();
+  }
+
+  private class BufferingUpdater implements BlockchainStorage.Updater {
+
+    private final List<Consumer<BatchingBlockchainStorage>> updates = new ArrayList<>();
+
+    @Override
+    public void putBlockHeader(final Hash blockHash, final BlockHeader blockHeader) {
+      updates.add(storage -> storage.headers.put(blockHash, blockHeader));
+    }
+
+    @Override
+    public void putBlockBody(final Hash blockHash, final BlockBody blockBody) {
+      updates.add(storage -> storage.bodies.put(blockHash, blockBody));
+    }
+
+    @Override
+    public void putTransactionLocation(
+        final Hash transactionHash, final TransactionLocation transactionLocation) {
+      updates.add(
+          storage ->
+              storage.transactionLocations.put(transactionHash, Optional.of(transactionLocation)));
+    }
+
+    @Override
+    public void putTransactionReceipts(
+        final Hash blockHash, final List<TransactionReceipt> transactionReceipts) {
+      updates.add(storage -> storage.receipts.put(blockHash, transactionReceipts));
+    }
+
+    @Override
+    public void putBlockHash(final long blockNumber, final Hash blockHash) {
+      updates.add(storage -> storage.blockHashes.put(blockNumber, Optional.of(blockHash)));
+    }
+
+    @Override
+    public void putTotalDifficulty(final Hash blockHash, final UInt256 totalDifficulty) {
+      updates.add(storage -> storage.totalDifficulties.put(blockHash, totalDifficulty));
+    }
+
+    @Override
+    public void setChainHead(final Hash blockHash) {
+      updates.add(storage -> storage.chainHead = Optional.of(blockHash));
+    }
+
+    @Override
+    public void setForkHeads(final Collection<Hash> forkHeadHashes) {
+      final Collection<Hash> forkHeadsCopy = new ArrayList<>(forkHeadHashes);
+      updates.add(storage -> storage.forkHeads = Optional.of(forkHeadsCopy));
+    }
+
+    @Override
+    public void removeBlockHash(final long blockNumber) {
+      updates.add(storage -> storage.blockHashes.put(blockNumber, Optional.empty()));
+    }
+
+    @Override
+    public void removeTransactionLocation(final Hash transactionHash) {
+      updates.add(storage -> storage.transactionLocations.put(transactionHash, Optional.empty()));
+    }
+
+    @Override
+    public void commit() {
+      synchronized (BatchingBlockchainStorage.this) {
+        updates.forEach(update -> update.accept(BatchingBlockchainStorage.this));
+      }
+      updates.clear();
+    }
+
+    @Override
+    public void rollback() {
+      updates.clear();
+    }
+  }
+}
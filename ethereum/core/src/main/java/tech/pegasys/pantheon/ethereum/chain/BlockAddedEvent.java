@@ -47,6 +47,12 @@ public class BlockAddedEvent {
         EventType.HEAD_ADVANCED, block, block.getBody().getTransactions(), Collections.emptyList());
   }
 
+  public static BlockAddedEvent createForHeadAdvancement(
+      final Block block, final List<Transaction> addedTransactions) {
+    return new BlockAddedEvent(
+        EventType.HEAD_ADVANCED, block, addedTransactions, Collections.emptyList());
+  }
+
   public static BlockAddedEvent createForChainReorg(
       final Block block,
       final List<Transaction> addedTransactions,
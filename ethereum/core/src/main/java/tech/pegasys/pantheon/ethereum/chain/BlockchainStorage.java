@@ -16,6 +16,8 @@ import tech.pegasys.pantheon.ethereum.core.BlockBody;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.Collection;
@@ -32,6 +34,28 @@ public interface BlockchainStorage {
 
   Optional<BlockBody> getBlockBody(Hash blockHash);
 
+  /**
+   * Returns the RLP encoding of a block header. Implementations that hold the encoded header should
+   * return it as is rather than decoding and re-encoding it.
+   *
+   * @param blockHash the hash of the block.
+   * @return the RLP encoded block header, or empty if the block is unknown.
+   */
+  default Optional<BytesValue> getBlockHeaderRlp(final Hash blockHash) {
+    return getBlockHeader(blockHash).map(header -> RLP.encode(header::writeTo));
+  }
+
+  /**
+   * Returns the RLP encoding of a block body. Implementations that hold the encoded body should
+   * return it as is rather than decoding and re-encoding it.
+   *
+   * @param blockHash the hash of the block.
+   * @return the RLP encoded block body, or empty if the block is unknown.
+   */
+  default Optional<BytesValue> getBlockBodyRlp(final Hash blockHash) {
+    return getBlockBody(blockHash).map(body -> RLP.encode(body::writeTo));
+  }
+
   Optional<List<TransactionReceipt>> getTransactionReceipts(Hash blockHash);
 
   Optional<Hash> getBlockHash(long blockNumber);
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.chain;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.ethereum.core.BlockBody;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.metrics.Counter;
+import tech.pegasys.pantheon.metrics.LabelledMetric;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A {@link BlockchainStorage} that keeps the decoded headers, bodies, receipts, total difficulties
+ * and canonical block hashes of recently used blocks in memory, so that repeated reads around the
+ * chain head don't go back to the underlying storage.
+ *
+ * <p>Values keyed by block hash never change once written, so those caches are simply populated on
+ * read and on commit. The canonical number to hash mapping is rewritten on a reorg; entries touched
+ * by a committed update are replaced, and reads that raced with that update are not cached.
+ */
+public class CachingBlockchainStorage implements BlockchainStorage {
+  public static final long DEFAULT_CACHE_SIZE = 512;
+
+  private final BlockchainStorage delegate;
+
+  private final Cache<Hash, BlockHeader> headers;
+  private final Cache<Hash, BlockBody> bodies;
+  private final Cache<Hash, List<TransactionReceipt>> receipts;
+  private final Cache<Hash, UInt256> totalDifficulties;
+  private final Cache<Long, Hash> blockHashes;
+
+  private final Object canonicalLock = new Object();
+  // Incremented, while holding canonicalLock, every time the canonical mapping is updated.
+  private volatile long canonicalGeneration = 0;
+
+  private final CacheMetrics headerMetrics;
+  private final CacheMetrics bodyMetrics;
+  private final CacheMetrics receiptMetrics;
+  private final CacheMetrics totalDifficultyMetrics;
+  private final CacheMetrics blockHashMetrics;
+
+  public CachingBlockchainStorage(
+      final BlockchainStorage delegate, final long cacheSize, final MetricsSystem metricsSystem) {
+    checkArgument(cacheSize > 0, "Cache size must be positive, got %s", cacheSize);
+    this.delegate = delegate;
+    this.headers = createCache(cacheSize);
+    this.bodies = createCache(cacheSize);
+    this.receipts = createCache(cacheSize);
+    this.totalDifficulties = createCache(cacheSize);
+    this.blockHashes = createCache(cacheSize);
+
+    final LabelledMetric<Counter> lookups =
+        metricsSystem.createLabelledCounter(
+            PantheonMetricCategory.BLOCKCHAIN,
+            "storage_cache_lookups_total",
+            "Number of blockchain storage reads served from (hit) or missing (miss) the cache",
+            "cache",
+            "result");
+    this.headerMetrics = new CacheMetrics(lookups, "header");
+    this.bodyMetrics = new CacheMetrics(lookups, "body");
+    this.receiptMetrics = new CacheMetrics(lookups, "receipts");
+    this.totalDifficultyMetrics = new CacheMetrics(lookups, "total_difficulty");
+    this.blockHashMetrics = new CacheMetrics(lookups, "block_hash");
+  }
+
+  private static <K, V> Cache<K, V> createCache(final long cacheSize) {
+    return CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+  }
+
+  @Override
+  public Optional<Hash> getChainHead() {
+    return delegate.getChainHead();
+  }
+
+  @Override
+  public Collection<Hash> getForkHeads() {
+    return delegate.getForkHeads();
+  }
+
+  @Override
+  public Optional<BlockHeader> getBlockHeader(final Hash blockHash) {
+    return get(headers, headerMetrics, blockHash, delegate::getBlockHeader);
+  }
+
+  @Override
+  public Optional<BlockBody> getBlockBody(final Hash blockHash) {
+    return get(bodies, bodyMetrics, blockHash, delegate::getBlockBody);
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockHeaderRlp(final Hash blockHash) {
+    final BlockHeader cached = headers.getIfPresent(blockHash);
+    return cached != null
+        ? Optional.of(RLP.encode(cached::writeTo))
+        : delegate.getBlockHeaderRlp(blockHash);
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockBodyRlp(final Hash blockHash) {
+    final BlockBody cached = bodies.getIfPresent(blockHash);
+    return cached != null
+        ? Optional.of(RLP.encode(cached::writeTo))
+        : delegate.getBlockBodyRlp(blockHash);
+  }
+
+  @Override
+  public Optional<List<TransactionReceipt>> getTransactionReceipts(final Hash blockHash) {
+    return get(receipts, receiptMetrics, blockHash, delegate::getTransactionReceipts);
+  }
+
+  @Override
+  public Optional<Hash> getBlockHash(final long blockNumber) {
+    final Hash cached = blockHashes.getIfPresent(blockNumber);
+    if (cached != null) {
+      blockHashMetrics.hits.inc();
+      return Optional.of(cached);
+    }
+    blockHashMetrics.misses.inc();
+
+    final long generation = canonicalGeneration;
+    final Optional<Hash> loaded = delegate.getBlockHash(blockNumber);
+    loaded.ifPresent(
+        hash -> {
+          synchronized (canonicalLock) {
+            // Don't cache a mapping that may have been replaced while it was being read.
+            if (canonicalGeneration == generation) {
+              blockHashes.put(blockNumber, hash);
+            }
+          }
+        });
+    return loaded;
+  }
+
+  @Override
+  public Optional<UInt256> getTotalDifficulty(final Hash blockHash) {
+    return get(totalDifficulties, totalDifficultyMetrics, blockHash, delegate::getTotalDifficulty);
+  }
+
+  @Override
+  public Optional<TransactionLocation> getTransactionLocation(final Hash transactionHash) {
+    return delegate.getTransactionLocation(transactionHash);
+  }
+
+  @Override
+  public Updater updater() {
+    return new Updater(delegate.updater());
+  }
+
+  /** Drops every cached value, e.g. after the underlying storage was modified directly. */
+  public void invalidateAll() {
+    synchronized (canonicalLock) {
+      canonicalGeneration++;
+      blockHashes.invalidateAll();
+    }
+    headers.invalidateAll();
+    bodies.invalidateAll();
+    receipts.invalidateAll();
+    totalDifficulties.invalidateAll();
+  }
+
+  private <V> Optional<V> get(
+      final Cache<Hash, V> cache,
+      final CacheMetrics metrics,
+      final Hash blockHash,
+      final Function<Hash, Optional<V>> loader) {
+    final V cached = cache.getIfPresent(blockHash);
+    if (cached != null) {
+      metrics.hits.inc();
+      return Optional.of(cached);
+    }
+    metrics.misses.inc();
+    final Optional<V> loaded = loader.apply(blockHash);
+    loaded.ifPresent(value -> cache.put(blockHash, value));
+    return loaded;
+  }
+
+  private static class CacheMetrics {
+    private final Counter hits;
+    private final Counter misses;
+
+    private CacheMetrics(final LabelledMetric<Counter> lookups, final String cache) {
+      this.hits = lookups.labels(cache, "hit");
+      this.misses = lookups.labels(cache, "miss");
+    }
+  }
+
+  private class Updater implements BlockchainStorage.Updater {
+
+    private final BlockchainStorage.Updater delegateUpdater;
+
+    private final Map<Hash, BlockHeader> pendingHeaders = new HashMap<>();
+    private final Map<Hash, BlockBody> pendingBodies = new HashMap<>();
+    private final Map<Hash, List<TransactionReceipt>> pendingReceipts = new HashMap<>();
+    private final Map<Hash, UInt256> pendingTotalDifficulties = new HashMap<>();
+    // An empty value records a removed mapping.
+    private final Map<Long, Optional<Hash>> pendingBlockHashes = new HashMap<>();
+
+    private Updater(final BlockchainStorage.Updater delegateUpdater) {
+      this.delegateUpdater = delegateUpdater;
+    }
+
+    @Override
+    public void putBlockHeader(final Hash blockHash, final BlockHeader blockHeader) {
+      delegateUpdater.putBlockHeader(blockHash, blockHeader);
+      pendingHeaders.put(blockHash, blockHeader);
+    }
+
+    @Override
+    public void putBlockBody(final Hash blockHash, final BlockBody blockBody) {
+      delegateUpdater.putBlockBody(blockHash, blockBody);
+      pendingBodies.put(blockHash, blockBody);
+    }
+
+    @Override
+    public void putTransactionLocation(
+        final Hash transactionHash, final TransactionLocation transactionLocation) {
+      delegateUpdater.putTransactionLocation(transactionHash, transactionLocation);
+    }
+
+    @Override
+    public void putTransactionReceipts(
+        final Hash blockHash, final List<TransactionReceipt> transactionReceipts) {
+      delegateUpdater.putTransactionReceipts(blockHash, transactionReceipts);
+      pendingReceipts.put(blockHash, transactionReceipts);
+    }
+
+    @Override
+    public void putBlockHash(final long blockNumber, final Hash blockHash) {
+      delegateUpdater.putBlockHash(blockNumber, blockHash);
+      pendingBlockHashes.put(blockNumber, Optional.of(blockHash));
+    }
+
+    @Override
+    public void putTotalDifficulty(final Hash blockHash, final UInt256 totalDifficulty) {
+      delegateUpdater.putTotalDifficulty(blockHash, totalDifficulty);
+      pendingTotalDifficulties.put(blockHash, totalDifficulty);
+    }
+
+    @Override
+    public void setChainHead(final Hash blockHash) {
+      delegateUpdater.setChainHead(blockHash);
+    }
+
+    @Override
+    public void setForkHeads(final Collection<Hash> forkHeadHashes) {
+      delegateUpdater.setForkHeads(forkHeadHashes);
+    }
+
+    @Override
+    public void removeBlockHash(final long blockNumber) {
+      delegateUpdater.removeBlockHash(blockNumber);
+      pendingBlockHashes.put(blockNumber, Optional.empty());
+    }
+
+    @Override
+    public void removeTransactionLocation(final Hash transactionHash) {
+      delegateUpdater.removeTransactionLocation(transactionHash);
+    }
+
+    @Override
+    public void commit() {
+      delegateUpdater.commit();
+
+      if (!pendingBlockHashes.isEmpty()) {
+        synchronized (canonicalLock) {
+          canonicalGeneration++;
+          pendingBlockHashes.forEach(
+              (blockNumber, blockHash) -> {
+                if (blockHash.isPresent()) {
+                  blockHashes.put(blockNumber, blockHash.get());
+                } else {
+                  blockHashes.invalidate(blockNumber);
+                }
+              });
+        }
+      }
+      headers.putAll(pendingHeaders);
+      bodies.putAll(pendingBodies);
+      receipts.putAll(pendingReceipts);
+      totalDifficulties.putAll(pendingTotalDifficulties);
+      clearPending();
+    }
+
+    @Override
+    public void rollback() {
+      delegateUpdater.rollback();
+      clearPending();
+    }
+
+    private void clearPending() {
+      pendingHeaders.clear();
+      pendingBodies.clear();
+      pendingReceipts.clear();
+      pendingTotalDifficulties.clear();
+      pendingBlockHashes.clear();
+    }
+  }
+}
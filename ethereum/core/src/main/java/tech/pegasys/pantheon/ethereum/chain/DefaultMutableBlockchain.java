@@ -27,6 +27,7 @@ import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 import tech.pegasys.pantheon.util.InvalidConfigurationException;
 import tech.pegasys.pantheon.util.Subscribers;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.bytes.BytesValues;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
@@ -44,7 +45,10 @@ import com.google.common.annotations.VisibleForTesting;
 
 public class DefaultMutableBlockchain implements MutableBlockchain {
 
-  private final BlockchainStorage blockchainStorage;
+  private final BlockchainStorage persistedStorage;
+  // Replaced by a BatchingBlockchainStorage while blocks are being appended in a batch.
+  private volatile BlockchainStorage blockchainStorage;
+  private List<BlockAddedEvent> batchedEvents;
 
   private final Subscribers<BlockAddedObserver> blockAddedObservers = Subscribers.create();
 
@@ -58,15 +62,10 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
       final BlockchainStorage blockchainStorage,
       final MetricsSystem metricsSystem) {
     checkNotNull(genesisBlock);
+    this.persistedStorage = blockchainStorage;
     this.blockchainStorage = blockchainStorage;
     this.setGenesis(genesisBlock);
-
-    final Hash chainHead = blockchainStorage.getChainHead().get();
-    chainHeader = blockchainStorage.getBlockHeader(chainHead).get();
-    totalDifficulty = blockchainStorage.getTotalDifficulty(chainHead).get();
-    final BlockBody chainHeadBody = blockchainStorage.getBlockBody(chainHead).get();
-    chainHeadTransactionCount = chainHeadBody.getTransactions().size();
-    chainHeadOmmerCount = chainHeadBody.getOmmers().size();
+    loadChainHead();
 
     metricsSystem.createLongGauge(
         PantheonMetricCategory.ETHEREUM,
@@ -112,6 +111,15 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
         () -> chainHeadOmmerCount);
   }
 
+  private void loadChainHead() {
+    final Hash chainHead = blockchainStorage.getChainHead().get();
+    chainHeader = blockchainStorage.getBlockHeader(chainHead).get();
+    totalDifficulty = blockchainStorage.getTotalDifficulty(chainHead).get();
+    final BlockBody chainHeadBody = blockchainStorage.getBlockBody(chainHead).get();
+    chainHeadTransactionCount = chainHeadBody.getTransactions().size();
+    chainHeadOmmerCount = chainHeadBody.getOmmers().size();
+  }
+
   @Override
   public ChainHead getChainHead() {
     return new ChainHead(chainHeader.getHash(), totalDifficulty, chainHeader.getNumber());
@@ -147,6 +155,16 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
     return blockchainStorage.getBlockBody(blockHeaderHash);
   }
 
+  @Override
+  public Optional<BytesValue> getBlockHeaderRlp(final Hash blockHeaderHash) {
+    return blockchainStorage.getBlockHeaderRlp(blockHeaderHash);
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockBodyRlp(final Hash blockHeaderHash) {
+    return blockchainStorage.getBlockBodyRlp(blockHeaderHash);
+  }
+
   @Override
   public Optional<List<TransactionReceipt>> getTxReceipts(final Hash blockHeaderHash) {
     return blockchainStorage.getTransactionReceipts(blockHeaderHash);
@@ -194,6 +212,56 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
     notifyBlockAdded(blockAddedEvent);
   }
 
+  @Override
+  public synchronized void appendBlocksInBatch(final Runnable appendBlocks) {
+    if (batchedEvents != null) {
+      // Already batching, nested batches join the outer one.
+      appendBlocks.run();
+      return;
+    }
+
+    final BatchingBlockchainStorage batchingStorage =
+        new BatchingBlockchainStorage(persistedStorage);
+    final List<BlockAddedEvent> events = new ArrayList<>();
+    batchedEvents = events;
+    blockchainStorage = batchingStorage;
+    try {
+      appendBlocks.run();
+    } finally {
+      try {
+        batchingStorage.flush();
+      } catch (final RuntimeException e) {
+        // Nothing from the batch was written so the chain head must match storage again.
+        blockchainStorage = persistedStorage;
+        loadChainHead();
+        throw e;
+      } finally {
+        blockchainStorage = persistedStorage;
+        batchedEvents = null;
+      }
+      notifyBatchedBlocksAdded(events);
+    }
+  }
+
+  private void notifyBatchedBlocksAdded(final List<BlockAddedEvent> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    final boolean onlyHeadAdvances =
+        events.stream()
+            .allMatch(event -> event.getEventType() == BlockAddedEvent.EventType.HEAD_ADVANCED);
+    if (!onlyHeadAdvances) {
+      events.forEach(this::notifyBlockAdded);
+      return;
+    }
+    final List<Transaction> addedTransactions =
+        events.stream()
+            .flatMap(event -> event.getAddedTransactions().stream())
+            .collect(toList());
+    final Block newChainHead = events.get(events.size() - 1).getBlock();
+    notifyBlockAdded(BlockAddedEvent.createForHeadAdvancement(newChainHead, addedTransactions));
+  }
+
   private BlockAddedEvent appendBlockHelper(
       final Block block, final List<TransactionReceipt> receipts) {
     final Hash hash = block.getHash();
@@ -444,6 +512,10 @@ public class DefaultMutableBlockchain implements MutableBlockchain {
   }
 
   private void notifyBlockAdded(final BlockAddedEvent event) {
+    if (batchedEvents != null) {
+      batchedEvents.add(event);
+      return;
+    }
     blockAddedObservers.forEach(observer -> observer.onBlockAdded(event, this));
   }
 }
@@ -30,4 +30,17 @@ public interface MutableBlockchain extends Blockchain {
    * @param receipts The list of receipts associated with this block's transactions.
    */
   void appendBlock(Block block, List<TransactionReceipt> receipts);
+
+  /**
+   * Runs a sequence of {@link #appendBlock(Block, List)} calls as a single batch.
+   *
+   * <p>Implementations may buffer the appended blocks and write them to storage in one transaction
+   * once {@code appendBlocks} completes, notifying observers once for the whole batch. Blocks
+   * appended earlier in the batch are visible to reads made later in the same batch.
+   *
+   * @param appendBlocks The action appending the blocks.
+   */
+  default void appendBlocksInBatch(final Runnable appendBlocks) {
+    appendBlocks.run();
+  }
 }
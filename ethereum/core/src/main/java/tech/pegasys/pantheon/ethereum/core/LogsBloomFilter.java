@@ -133,6 +133,33 @@ public class LogsBloomFilter {
     }
   }
 
+  /**
+   * Inserts a single log address or topic, setting the same bits that inserting a log containing
+   * it would set.
+   *
+   * @param value the address or topic to insert.
+   */
+  public void insertBytes(final BytesValue value) {
+    setBits(keccak256(value));
+  }
+
+  /**
+   * Checks whether every bit set in the given filter is also set in this one. When {@code subset}
+   * holds a single address or topic this tells whether a log containing it may be present.
+   *
+   * @param subset the filter whose bits must all be set.
+   * @return false if {@code subset} is definitely not contained in this filter, true otherwise.
+   */
+  public boolean couldContain(final LogsBloomFilter subset) {
+    for (int i = 0; i < BYTE_SIZE; ++i) {
+      final byte subsetByte = subset.data.get(i);
+      if ((data.get(i) & subsetByte) != subsetByte) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void setBit(final int index) {
     final int byteIndex = BYTE_SIZE - 1 - index / 8;
     final int bitIndex = index % 8;
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.core;
+
+import tech.pegasys.pantheon.crypto.SECP256K1.Signature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Recovers the addresses of the signers of block header seals, for the consensus mechanisms that
+ * seal headers with validator signatures.
+ *
+ * <p>On chains with many validators, seal recovery dominates header validation. The seals of a
+ * header are recovered in parallel on a bounded pool shared by everything validating headers, and
+ * recovered addresses are cached so that validation rules, vote tallying and the re-validation of
+ * a header on import don't recover them again. The cache is keyed by the signed hash and the seal
+ * rather than by the header hash, as consensus mechanisms leave seals out of the header hash and
+ * headers with the same hash may therefore carry different seals.
+ */
+public final class SealRecovery {
+
+  private static final int CACHE_SIZE = 32_768;
+  // Handing fewer seals than this to the pool costs more than recovering them on the caller.
+  private static final int PARALLEL_RECOVERY_THRESHOLD = 4;
+
+  private static final ForkJoinPool SEAL_RECOVERY_POOL = createSealRecoveryPool();
+  private static final Cache<SealKey, Address> RECOVERED_ADDRESSES =
+      CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
+  private SealRecovery() {}
+
+  /**
+   * Recovers the address that signed a seal.
+   *
+   * @param seal the seal to recover the signer of
+   * @param dataHash the hash signed by the seal
+   * @return the address of the signer, or null if it can't be recovered
+   */
+  public static Address recoverAddress(final Signature seal, final Hash dataHash) {
+    final SealKey key = new SealKey(dataHash, seal);
+    final Address cached = RECOVERED_ADDRESSES.getIfPresent(key);
+    return cached != null ? cached : recoverAndCache(key);
+  }
+
+  /**
+   * Recovers the addresses that signed a set of seals over the same hash.
+   *
+   * @param seals the seals to recover the signers of
+   * @param dataHash the hash signed by every seal
+   * @return the address of the signer of each seal, in the order of the seals. Seals whose signer
+   *     can't be recovered map to null.
+   */
+  public static List<Address> recoverAddresses(
+      final Collection<Signature> seals, final Hash dataHash) {
+    final List<SealKey> keys = new ArrayList<>(seals.size());
+    seals.forEach(seal -> keys.add(new SealKey(dataHash, seal)));
+    final Address[] addresses = new Address[keys.size()];
+    final List<Integer> pending = new ArrayList<>();
+    for (int i = 0; i < addresses.length; i++) {
+      addresses[i] = RECOVERED_ADDRESSES.getIfPresent(keys.get(i));
+      if (addresses[i] == null) {
+        pending.add(i);
+      }
+    }
+
+    if (pending.size() < PARALLEL_RECOVERY_THRESHOLD) {
+      pending.forEach(i -> addresses[i] = recoverAndCache(keys.get(i)));
+    } else {
+      final CompletableFuture<?>[] recoveries = new CompletableFuture<?>[pending.size()];
+      for (int i = 0; i < recoveries.length; i++) {
+        final int index = pending.get(i);
+        recoveries[i] =
+            CompletableFuture.runAsync(
+                () -> addresses[index] = recoverAndCache(keys.get(index)), SEAL_RECOVERY_POOL);
+      }
+      // Completing the futures publishes the addresses written by the workers.
+      CompletableFuture.allOf(recoveries).join();
+    }
+    return Arrays.asList(addresses);
+  }
+
+  private static Address recoverAndCache(final SealKey key) {
+    final Address address = Util.signatureToAddress(key.seal, key.dataHash);
+    // Failed recoveries aren't cached as the header carrying the seal is rejected.
+    if (address != null) {
+      RECOVERED_ADDRESSES.put(key, address);
+    }
+    return address;
+  }
+
+  private static ForkJoinPool createSealRecoveryPool() {
+    return new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors(),
+        pool -> {
+          final ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("SealRecovery-" + thread.getPoolIndex());
+          return thread;
+        },
+        null,
+        false);
+  }
+
+  private static class SealKey {
+    private final Hash dataHash;
+    private final Signature seal;
+
+    private SealKey(final Hash dataHash, final Signature seal) {
+      this.dataHash = dataHash;
+      this.seal = seal;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof SealKey)) {
+        return false;
+      }
+      final SealKey that = (SealKey) other;
+      return dataHash.equals(that.dataHash) && seal.equals(that.seal);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(dataHash, seal);
+    }
+  }
+}
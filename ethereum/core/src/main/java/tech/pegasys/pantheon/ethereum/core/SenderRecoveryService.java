@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.metrics.Counter;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Recovers transaction senders from their signatures on a bounded, work-stealing pool shared by
+ * everything that needs senders ahead of validation: block import, sync and the transaction pool.
+ *
+ * <p>Transactions are split into batches so that a single large block is spread across all workers
+ * while small batches don't pay a scheduling cost per transaction. Recovered senders are cached on
+ * the {@link Transaction} itself so later calls to {@link Transaction#getSender()} are free.
+ */
+public class SenderRecoveryService implements AutoCloseable {
+  private static final Logger LOG = LogManager.getLogger();
+
+  public static final int DEFAULT_BATCH_SIZE = 32;
+
+  private final ExecutorService executor;
+  private final int batchSize;
+  private final AtomicInteger pendingBatches = new AtomicInteger();
+  private final Counter recoveredSendersCounter;
+
+  private SenderRecoveryService(
+      final ExecutorService executor, final int batchSize, final MetricsSystem metricsSystem) {
+    checkArgument(batchSize > 0, "Batch size must be positive");
+    this.executor = executor;
+    this.batchSize = batchSize;
+    this.recoveredSendersCounter =
+        metricsSystem.createCounter(
+            PantheonMetricCategory.ETHEREUM,
+            "sender_recoveries_total",
+            "Total number of transaction senders recovered");
+    metricsSystem.createIntegerGauge(
+        PantheonMetricCategory.ETHEREUM,
+        "sender_recovery_queue_depth_current",
+        "Current number of sender recovery batches waiting for or being processed",
+        pendingBatches::get);
+  }
+
+  /**
+   * Creates a service recovering senders on a work-stealing pool with the given number of workers.
+   *
+   * @param parallelism the maximum number of worker threads
+   * @param batchSize the maximum number of transactions processed by a single task
+   * @param metricsSystem the metrics system to report throughput and queue depth to
+   * @return the new service
+   */
+  public static SenderRecoveryService create(
+      final int parallelism, final int batchSize, final MetricsSystem metricsSystem) {
+    checkArgument(parallelism > 0, "Parallelism must be positive");
+    final ForkJoinPool pool =
+        new ForkJoinPool(
+            parallelism,
+            forkJoinPool -> {
+              final ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+              thread.setName(
+                  SenderRecoveryService.class.getSimpleName() + "-" + thread.getPoolIndex());
+              return thread;
+            },
+            null,
+            true);
+    return new SenderRecoveryService(pool, batchSize, metricsSystem);
+  }
+
+  /**
+   * Creates a service using one worker per available processor.
+   *
+   * @param metricsSystem the metrics system to report throughput and queue depth to
+   * @return the new service
+   */
+  public static SenderRecoveryService create(final MetricsSystem metricsSystem) {
+    return create(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, metricsSystem);
+  }
+
+  /**
+   * Creates a service that recovers senders on the calling thread, for contexts that don't need
+   * the parallelism.
+   *
+   * @return the new service
+   */
+  public static SenderRecoveryService callerRuns() {
+    return new SenderRecoveryService(
+        MoreExecutors.newDirectExecutorService(), DEFAULT_BATCH_SIZE, new NoOpMetricsSystem());
+  }
+
+  /**
+   * Recovers the senders of the given transactions.
+   *
+   * <p>A transaction whose signature is invalid is skipped rather than failing the whole request;
+   * the failure resurfaces when its sender is next requested during validation.
+   *
+   * @param transactions the transactions to recover senders for
+   * @return a future completing once every sender has been recovered
+   */
+  public CompletableFuture<Void> recoverSenders(final List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    final List<List<Transaction>> batches = Lists.partition(transactions, batchSize);
+    final List<CompletableFuture<Void>> futures = new ArrayList<>(batches.size());
+    for (final List<Transaction> batch : batches) {
+      pendingBatches.incrementAndGet();
+      futures.add(CompletableFuture.runAsync(() -> recoverBatch(batch), executor));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /**
+   * Recovers the senders of the given transactions, waiting for the recovery to complete.
+   *
+   * @param transactions the transactions to recover senders for
+   */
+  public void recoverSendersAndWait(final List<Transaction> transactions) {
+    recoverSenders(transactions).join();
+  }
+
+  private void recoverBatch(final List<Transaction> batch) {
+    try {
+      for (final Transaction transaction : batch) {
+        try {
+          transaction.getSender();
+          recoveredSendersCounter.inc();
+        } catch (final IllegalStateException e) {
+          LOG.trace("Unable to recover sender for transaction {}", transaction.hash(), e);
+        }
+      }
+    } finally {
+      pendingBatches.decrementAndGet();
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
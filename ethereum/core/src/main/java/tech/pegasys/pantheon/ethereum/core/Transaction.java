@@ -73,11 +73,19 @@ public class Transaction {
   // Caches the hash used to uniquely identify the transaction.
   protected volatile Hash hash;
 
+  // The RLP encoding the transaction was decoded from, if any. Decoding is strict, so this is the
+  // canonical encoding and can be hashed and written out as is.
+  private volatile BytesValue encoded;
+
   public static Builder builder() {
     return new Builder();
   }
 
-  public static Transaction readFrom(final RLPInput input) throws RLPException {
+  public static Transaction readFrom(final RLPInput rlpInput) throws RLPException {
+    // Decode from a copy of the transaction's bytes, so that neither the retained encoding nor the
+    // fields sliced out of it keep the whole message or block body it came from in memory.
+    final BytesValue encoded = rlpInput.readAsRlp().raw().copy();
+    final RLPInput input = RLP.input(encoded);
     input.enterList();
 
     final Builder builder =
@@ -108,7 +116,9 @@ public class Transaction {
     input.leaveList();
 
     chainId.ifPresent(builder::chainId);
-    return builder.signature(signature).build();
+    final Transaction transaction = builder.signature(signature).build();
+    transaction.encoded = encoded;
+    return transaction;
   }
 
   /**
@@ -260,6 +270,10 @@ public class Transaction {
    * @param out the output to write the transaction to
    */
   public void writeTo(final RLPOutput out) {
+    if (encoded != null) {
+      out.writeRLPUnsafe(encoded);
+      return;
+    }
     out.startList();
 
     out.writeLongScalar(getNonce());
@@ -305,7 +319,7 @@ public class Transaction {
    */
   public Hash hash() {
     if (hash == null) {
-      final BytesValue rlp = RLP.encode(this::writeTo);
+      final BytesValue rlp = encoded != null ? encoded : RLP.encode(this::writeTo);
       hash = Hash.hash(rlp);
     }
     return hash;
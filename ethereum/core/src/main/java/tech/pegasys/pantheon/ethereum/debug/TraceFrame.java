@@ -20,6 +20,7 @@ import tech.pegasys.pantheon.util.uint.UInt256;
 import java.util.EnumSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
 
 import com.google.common.base.MoreObjects;
 
@@ -35,6 +36,9 @@ public class TraceFrame {
   private final Optional<Bytes32[]> memory;
   private final Optional<Map<UInt256, UInt256>> storage;
   private final String revertReason;
+  private final long memorySize;
+  private final Optional<SortedMap<Integer, Bytes32>> memoryChanges;
+  private final Optional<Map<UInt256, UInt256>> storageChanges;
 
   public TraceFrame(
       final int pc,
@@ -46,7 +50,10 @@ public class TraceFrame {
       final Optional<Bytes32[]> stack,
       final Optional<Bytes32[]> memory,
       final Optional<Map<UInt256, UInt256>> storage,
-      final String revertReason) {
+      final String revertReason,
+      final long memorySize,
+      final Optional<SortedMap<Integer, Bytes32>> memoryChanges,
+      final Optional<Map<UInt256, UInt256>> storageChanges) {
     this.pc = pc;
     this.opcode = opcode;
     this.gasRemaining = gasRemaining;
@@ -57,6 +64,36 @@ public class TraceFrame {
     this.memory = memory;
     this.storage = storage;
     this.revertReason = revertReason;
+    this.memorySize = memorySize;
+    this.memoryChanges = memoryChanges;
+    this.storageChanges = storageChanges;
+  }
+
+  public TraceFrame(
+      final int pc,
+      final String opcode,
+      final Gas gasRemaining,
+      final Optional<Gas> gasCost,
+      final int depth,
+      final EnumSet<ExceptionalHaltReason> exceptionalHaltReasons,
+      final Optional<Bytes32[]> stack,
+      final Optional<Bytes32[]> memory,
+      final Optional<Map<UInt256, UInt256>> storage,
+      final String revertReason) {
+    this(
+        pc,
+        opcode,
+        gasRemaining,
+        gasCost,
+        depth,
+        exceptionalHaltReasons,
+        stack,
+        memory,
+        storage,
+        revertReason,
+        memory.map(words -> (long) words.length * Bytes32.SIZE).orElse(0L),
+        Optional.empty(),
+        Optional.empty());
   }
 
   public TraceFrame(
@@ -122,6 +159,31 @@ public class TraceFrame {
     return revertReason;
   }
 
+  /** @return the size of memory in bytes before the operation executed */
+  public long getMemorySize() {
+    return memorySize;
+  }
+
+  /**
+   * When tracing diffs, the memory words which changed since the previous step of the same call,
+   * keyed by word index. Words added by memory expansion are zero and only included once written.
+   *
+   * @return the changed memory words, or empty if memory diffs are not being traced
+   */
+  public Optional<SortedMap<Integer, Bytes32>> getMemoryChanges() {
+    return memoryChanges;
+  }
+
+  /**
+   * When tracing diffs, the storage slots written by this operation with their value after it
+   * executed.
+   *
+   * @return the written storage slots, or empty if storage diffs are not being traced
+   */
+  public Optional<Map<UInt256, UInt256>> getStorageChanges() {
+    return storageChanges;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
@@ -134,6 +196,9 @@ public class TraceFrame {
         .add("stack", stack)
         .add("memory", memory)
         .add("storage", storage)
+        .add("memorySize", memorySize)
+        .add("memoryChanges", memoryChanges)
+        .add("storageChanges", storageChanges)
         .toString();
   }
 }
@@ -17,14 +17,31 @@ public class TraceOptions {
   private final boolean traceStorage;
   private final boolean traceMemory;
   private final boolean traceStack;
+  private final boolean traceDiffs;
 
   public static final TraceOptions DEFAULT = new TraceOptions(true, true, true);
 
   public TraceOptions(
       final boolean traceStorage, final boolean traceMemory, final boolean traceStack) {
+    this(traceStorage, traceMemory, traceStack, false);
+  }
+
+  /**
+   * @param traceStorage whether to record contract storage
+   * @param traceMemory whether to record memory
+   * @param traceStack whether to record the stack
+   * @param traceDiffs whether memory and storage are recorded as the changes made since the
+   *     previous step of the same call, rather than as full snapshots at every step
+   */
+  public TraceOptions(
+      final boolean traceStorage,
+      final boolean traceMemory,
+      final boolean traceStack,
+      final boolean traceDiffs) {
     this.traceStorage = traceStorage;
     this.traceMemory = traceMemory;
     this.traceStack = traceStack;
+    this.traceDiffs = traceDiffs;
   }
 
   public boolean isStorageEnabled() {
@@ -38,4 +55,8 @@ public class TraceOptions {
   public boolean isStackEnabled() {
     return traceStack;
   }
+
+  public boolean isDiffsEnabled() {
+    return traceDiffs;
+  }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedObserver;
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Moves canonical blocks into the {@link BlockFreezer} in the background. Each time the chain head
+ * advances, every block that is at least the configured depth behind the head is appended to the
+ * freezer and then removed from the blockchain storage, so existing databases are migrated the
+ * first time the mover runs.
+ *
+ * <p>Should the chain be reorganised below the frozen blocks, the blocks that are no longer
+ * canonical are moved back to the blockchain storage and the freezer is truncated to the common
+ * ancestor before freezing resumes.
+ */
+public class AncientBlockMover implements BlockAddedObserver {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final int BATCH_SIZE = 1000;
+
+  /** The smallest depth that leaves room for the reorganisations expected on a live network. */
+  public static final long MINIMUM_DEPTH = 1024;
+
+  private final Blockchain blockchain;
+  private final BlockFreezer freezer;
+  private final BlockFreezerStorage storage;
+  private final ExecutorService executor;
+  private final long depth;
+  private final AtomicBoolean moving = new AtomicBoolean(false);
+  private boolean interruptedMoveChecked = false;
+  private Optional<Long> blockAddedObserverId = Optional.empty();
+
+  public AncientBlockMover(
+      final Blockchain blockchain,
+      final BlockFreezer freezer,
+      final BlockFreezerStorage storage,
+      final ExecutorService executor,
+      final MetricsSystem metricsSystem,
+      final long depth) {
+    this.blockchain = blockchain;
+    this.freezer = freezer;
+    this.storage = storage;
+    this.executor = executor;
+    this.depth = depth;
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "frozen_blocks",
+        "Number of blocks moved to the ancient block freezer",
+        freezer::getFrozenBlockCount);
+  }
+
+  public void start() {
+    blockAddedObserverId = Optional.of(blockchain.observeBlockAdded(this));
+    scheduleMove();
+  }
+
+  public void stop() {
+    blockAddedObserverId.ifPresent(blockchain::removeObserver);
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (final InterruptedException e) {
+      LOG.error("Interrupted while waiting for the block freezer to stop");
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void onBlockAdded(final BlockAddedEvent event, final Blockchain blockchain) {
+    if (event.isNewCanonicalHead()) {
+      scheduleMove();
+    }
+  }
+
+  private void scheduleMove() {
+    if (moving.compareAndSet(false, true)) {
+      executor.submit(this::moveAncientBlocks);
+    }
+  }
+
+  @VisibleForTesting
+  void moveAncientBlocks() {
+    try {
+      if (!interruptedMoveChecked) {
+        removeBlocksLeftBehind();
+        interruptedMoveChecked = true;
+      }
+      long nextBlock = unfreezeNonCanonicalBlocks();
+      final long lastBlockToFreeze = blockchain.getChainHeadBlockNumber() - depth;
+      while (nextBlock <= lastBlockToFreeze && !Thread.currentThread().isInterrupted()) {
+        final long endBlock = Math.min(nextBlock + BATCH_SIZE, lastBlockToFreeze + 1);
+        freezeBlocks(nextBlock, endBlock);
+        nextBlock = endBlock;
+      }
+    } catch (final RuntimeException e) {
+      LOG.error("Failed to move blocks to the block freezer", e);
+    } finally {
+      moving.set(false);
+    }
+  }
+
+  // Blocks are committed to the freezer before being removed from the blockchain storage, so an
+  // interrupted move can leave the last frozen blocks in both.
+  private void removeBlocksLeftBehind() {
+    final BlockFreezerStorage.Updater updater = storage.updater();
+    long blockNumber = freezer.getFrozenBlockCount() - 1;
+    while (blockNumber >= 0) {
+      final Optional<Hash> blockHash = freezer.getBlockHash(blockNumber);
+      if (!blockHash.isPresent() || !storage.getBlockHeaderRlp(blockHash.get()).isPresent()) {
+        break;
+      }
+      updater.markFrozen(blockHash.get(), blockNumber);
+      blockNumber--;
+    }
+    updater.commit();
+  }
+
+  // Returns the number of frozen blocks that are still canonical, after unfreezing the others.
+  private long unfreezeNonCanonicalBlocks() {
+    final long frozenBlockCount = freezer.getFrozenBlockCount();
+    long canonicalBlockCount = frozenBlockCount;
+    while (canonicalBlockCount > 0 && !isCanonical(canonicalBlockCount - 1)) {
+      canonicalBlockCount--;
+    }
+    if (canonicalBlockCount == frozenBlockCount) {
+      return frozenBlockCount;
+    }
+
+    // Block data is restored before the freezer is truncated, so that it is never missing. Like an
+    // interrupted move, an interrupted unfreeze leaves the blocks in both and is redone on restart.
+    final BlockFreezerStorage.Updater updater = storage.updater();
+    for (long blockNumber = canonicalBlockCount; blockNumber < frozenBlockCount; blockNumber++) {
+      updater.markUnfrozen(
+          freezer.getBlockHash(blockNumber).orElseThrow(missing(blockNumber)),
+          freezer.getBlockHeaderRlp(blockNumber).orElseThrow(missing(blockNumber)),
+          freezer.getBlockBodyRlp(blockNumber).orElseThrow(missing(blockNumber)),
+          freezer.getTransactionReceiptsRlp(blockNumber).orElseThrow(missing(blockNumber)));
+    }
+    updater.commit();
+    freezer.truncate(canonicalBlockCount);
+    LOG.info(
+        "Chain reorganised below the block freezer, unfroze blocks {} to {}",
+        canonicalBlockCount,
+        frozenBlockCount - 1);
+    return canonicalBlockCount;
+  }
+
+  private boolean isCanonical(final long blockNumber) {
+    return freezer.getBlockHash(blockNumber).equals(blockchain.getBlockHashByNumber(blockNumber));
+  }
+
+  private void freezeBlocks(final long startBlock, final long endBlock) {
+    final List<Hash> blockHashes = new ArrayList<>();
+    try {
+      for (long blockNumber = startBlock; blockNumber < endBlock; blockNumber++) {
+        final Hash blockHash =
+            blockchain.getBlockHashByNumber(blockNumber).orElseThrow(missing(blockNumber));
+        freezer.append(
+            blockHash,
+            storage.getBlockHeaderRlp(blockHash).orElseThrow(missing(blockNumber)),
+            storage.getBlockBodyRlp(blockHash).orElseThrow(missing(blockNumber)),
+            storage.getTransactionReceiptsRlp(blockHash).orElseThrow(missing(blockNumber)));
+        blockHashes.add(blockHash);
+      }
+      freezer.commit();
+    } catch (final RuntimeException e) {
+      freezer.rollback();
+      throw e;
+    }
+
+    final BlockFreezerStorage.Updater updater = storage.updater();
+    for (int i = 0; i < blockHashes.size(); i++) {
+      updater.markFrozen(blockHashes.get(i), startBlock + i);
+    }
+    updater.commit();
+    LOG.debug("Moved blocks {} to {} to the block freezer", startBlock, endBlock - 1);
+  }
+
+  private static Supplier<IllegalStateException> missing(final long blockNumber) {
+    return () -> new IllegalStateException("Missing data for block " + blockNumber);
+  }
+}
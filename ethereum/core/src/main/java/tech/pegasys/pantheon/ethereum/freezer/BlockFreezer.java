@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stores the canonical blocks that are too old to be reorganised in append-only flat files,
+ * indexed by block number. Block hashes, headers, bodies and receipts are kept in separate {@link
+ * FreezerTable}s, holding the same RLP as the blockchain storage does.
+ *
+ * <p>Values are read from memory mapped files and copied out, so they stay valid when the freezer
+ * is truncated.
+ */
+public class BlockFreezer implements Closeable {
+  public static final String DIRECTORY_NAME = "ancient";
+
+  private final FreezerTable hashes;
+  private final FreezerTable headers;
+  private final FreezerTable bodies;
+  private final FreezerTable receipts;
+  private final List<FreezerTable> tables;
+  private volatile long frozenBlockCount;
+
+  private BlockFreezer(
+      final FreezerTable hashes,
+      final FreezerTable headers,
+      final FreezerTable bodies,
+      final FreezerTable receipts) {
+    this.hashes = hashes;
+    this.headers = headers;
+    this.bodies = bodies;
+    this.receipts = receipts;
+    this.tables = Arrays.asList(hashes, headers, bodies, receipts);
+  }
+
+  public static BlockFreezer open(final Path directory) throws IOException {
+    Files.createDirectories(directory);
+    final BlockFreezer freezer =
+        new BlockFreezer(
+            FreezerTable.open(directory, "hashes"),
+            FreezerTable.open(directory, "headers"),
+            FreezerTable.open(directory, "bodies"),
+            FreezerTable.open(directory, "receipts"));
+    // Tables are committed one after the other, so a crash can leave some of them ahead.
+    final long frozenBlockCount =
+        freezer.tables.stream().mapToLong(FreezerTable::size).min().orElse(0);
+    for (final FreezerTable table : freezer.tables) {
+      table.truncate(frozenBlockCount);
+    }
+    freezer.frozenBlockCount = frozenBlockCount;
+    return freezer;
+  }
+
+  /** @return the number of consecutive blocks, starting from the genesis block, that are frozen. */
+  public long getFrozenBlockCount() {
+    return frozenBlockCount;
+  }
+
+  public Optional<Hash> getBlockHash(final long blockNumber) {
+    return hashes.get(blockNumber).map(bytes -> Hash.wrap(Bytes32.wrap(bytes, 0)));
+  }
+
+  public Optional<BytesValue> getBlockHeaderRlp(final long blockNumber) {
+    return headers.get(blockNumber);
+  }
+
+  public Optional<BytesValue> getBlockBodyRlp(final long blockNumber) {
+    return bodies.get(blockNumber);
+  }
+
+  public Optional<BytesValue> getTransactionReceiptsRlp(final long blockNumber) {
+    return receipts.get(blockNumber);
+  }
+
+  /**
+   * Appends the next block. The block isn't visible until the next {@link #commit()}.
+   *
+   * @param blockHash The hash of the block.
+   * @param header The RLP encoded block header.
+   * @param body The RLP encoded block body.
+   * @param transactionReceipts The RLP encoded list of transaction receipts.
+   */
+  public synchronized void append(
+      final Hash blockHash,
+      final BytesValue header,
+      final BytesValue body,
+      final BytesValue transactionReceipts) {
+    try {
+      hashes.append(blockHash);
+      headers.append(header);
+      bodies.append(body);
+      receipts.append(transactionReceipts);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Flushes appended blocks to disk and makes them visible to readers. */
+  public synchronized void commit() {
+    try {
+      for (final FreezerTable table : tables) {
+        table.commit();
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    frozenBlockCount = hashes.size();
+  }
+
+  /**
+   * Removes frozen blocks from the top of the freezer, for when they are no longer canonical.
+   *
+   * @param blockCount The number of blocks to keep.
+   */
+  public synchronized void truncate(final long blockCount) {
+    checkArgument(
+        blockCount >= 0 && blockCount <= frozenBlockCount,
+        "Can't truncate %s frozen blocks to %s",
+        frozenBlockCount,
+        blockCount);
+    // Hide the removed blocks from readers before they are gone from the tables.
+    frozenBlockCount = blockCount;
+    try {
+      for (final FreezerTable table : tables) {
+        table.truncate(blockCount);
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Discards the blocks appended since the last {@link #commit()}. */
+  public synchronized void rollback() {
+    try {
+      for (final FreezerTable table : tables) {
+        table.rollback();
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    for (final FreezerTable table : tables) {
+      table.close();
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Optional;
+
+/**
+ * The parts of the blockchain storage used to move blocks into the {@link BlockFreezer}: raw
+ * access to the block data that gets frozen, and the index from block hash to block number that
+ * frozen blocks are looked up by.
+ */
+public interface BlockFreezerStorage {
+
+  Optional<Long> getFrozenBlockNumber(Hash blockHash);
+
+  Optional<BytesValue> getBlockHeaderRlp(Hash blockHash);
+
+  Optional<BytesValue> getBlockBodyRlp(Hash blockHash);
+
+  Optional<BytesValue> getTransactionReceiptsRlp(Hash blockHash);
+
+  Updater updater();
+
+  interface Updater {
+
+    /**
+     * Records that a block is now held by the freezer and removes its header, body and receipts
+     * from the blockchain storage.
+     *
+     * @param blockHash the hash of the frozen block.
+     * @param blockNumber the number of the frozen block.
+     */
+    void markFrozen(Hash blockHash, long blockNumber);
+
+    /**
+     * Moves a block that is being removed from the freezer back into the blockchain storage.
+     *
+     * @param blockHash the hash of the block.
+     * @param header the RLP encoded block header.
+     * @param body the RLP encoded block body.
+     * @param transactionReceipts the RLP encoded list of transaction receipts.
+     */
+    void markUnfrozen(
+        Hash blockHash, BytesValue header, BytesValue body, BytesValue transactionReceipts);
+
+    void commit();
+
+    void rollback();
+  }
+}
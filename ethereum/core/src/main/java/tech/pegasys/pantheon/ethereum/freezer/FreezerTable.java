@@ -0,0 +1,338 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An append-only table of items, indexed by their position, stored in flat files.
+ *
+ * <p>Items are written one after another to data files which are rolled once they'd grow past the
+ * maximum file size, so an item never spans two files. The index file holds one 8 byte entry per
+ * item (the number of the data file it's in and the offset its data ends at) preceded by an entry
+ * marking the start of the first item.
+ *
+ * <p>Data files are memory mapped for reading. Items are copied out of the mapping rather than
+ * returned as views over it, as touching a mapping past the end of a file that has since been
+ * truncated crashes the JVM. Reads are excluded while files are truncated for the same reason.
+ * Appended items only become visible once {@link #commit()} has flushed them to disk, data first,
+ * so the index never refers to data that may have been lost.
+ */
+class FreezerTable implements Closeable {
+  private static final Logger LOG = LogManager.getLogger();
+  static final long DEFAULT_MAX_FILE_SIZE = 2_000_000_000L;
+  private static final int INDEX_ENTRY_SIZE = 8;
+
+  private final Path directory;
+  private final String name;
+  private final long maxFileSize;
+  private final FileChannel indexChannel;
+  private final ConcurrentMap<Integer, MappedByteBuffer> mappedFiles = new ConcurrentHashMap<>();
+  private final List<ByteBuffer> pendingIndexEntries = new ArrayList<>();
+  private final ReadWriteLock truncationLock = new ReentrantReadWriteLock();
+
+  private FileChannel headChannel;
+  private int headFileNumber;
+  private long headFileSize;
+  private volatile long itemCount;
+
+  private FreezerTable(
+      final Path directory,
+      final String name,
+      final long maxFileSize,
+      final FileChannel indexChannel) {
+    this.directory = directory;
+    this.name = name;
+    this.maxFileSize = maxFileSize;
+    this.indexChannel = indexChannel;
+  }
+
+  static FreezerTable open(final Path directory, final String name) throws IOException {
+    return open(directory, name, DEFAULT_MAX_FILE_SIZE);
+  }
+
+  static FreezerTable open(final Path directory, final String name, final long maxFileSize)
+      throws IOException {
+    // Offsets are stored as ints in the index.
+    checkArgument(
+        maxFileSize > 0 && maxFileSize <= Integer.MAX_VALUE,
+        "Maximum file size must be between 1 and %s",
+        Integer.MAX_VALUE);
+    final FileChannel indexChannel =
+        FileChannel.open(
+            directory.resolve(name + ".idx"),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    final FreezerTable table = new FreezerTable(directory, name, maxFileSize, indexChannel);
+    try {
+      table.repair();
+    } catch (final IOException | RuntimeException e) {
+      indexChannel.close();
+      throw e;
+    }
+    return table;
+  }
+
+  // Drops anything written after the last complete commit, which can only be left behind by a
+  // crash, and opens the last data file for appending.
+  private void repair() throws IOException {
+    if (indexChannel.size() < INDEX_ENTRY_SIZE) {
+      indexChannel.truncate(0);
+      indexChannel.write(indexEntry(0, 0), 0);
+      indexChannel.force(true);
+    }
+    long entryCount = indexChannel.size() / INDEX_ENTRY_SIZE;
+    IndexEntry last = readIndexEntry(entryCount - 1);
+    while (entryCount > 1 && dataFileSize(last.fileNumber) < last.offset) {
+      entryCount--;
+      last = readIndexEntry(entryCount - 1);
+    }
+    if (indexChannel.size() != entryCount * INDEX_ENTRY_SIZE) {
+      LOG.warn(
+          "Dropping {} incomplete items from freezer table {}",
+          indexChannel.size() / INDEX_ENTRY_SIZE - entryCount,
+          name);
+    }
+    truncateTo(entryCount - 1, last);
+  }
+
+  /**
+   * Drops every item from {@code items} onwards.
+   *
+   * @param items The number of items to keep.
+   * @throws IOException If the table files can't be updated.
+   */
+  synchronized void truncate(final long items) throws IOException {
+    if (items >= itemCount) {
+      return;
+    }
+    pendingIndexEntries.clear();
+    truncateTo(items, readIndexEntry(items));
+  }
+
+  private void truncateTo(final long items, final IndexEntry last) throws IOException {
+    truncationLock.writeLock().lock();
+    try {
+      doTruncateTo(items, last);
+    } finally {
+      truncationLock.writeLock().unlock();
+    }
+  }
+
+  private void doTruncateTo(final long items, final IndexEntry last) throws IOException {
+    itemCount = Math.min(itemCount, items);
+    indexChannel.truncate((items + 1) * INDEX_ENTRY_SIZE);
+    indexChannel.force(true);
+    if (headChannel != null) {
+      headChannel.close();
+    }
+    int fileNumber = last.fileNumber + 1;
+    while (Files.deleteIfExists(dataFilePath(fileNumber))) {
+      fileNumber++;
+    }
+    mappedFiles.keySet().removeIf(number -> number >= last.fileNumber);
+    headFileNumber = last.fileNumber;
+    headChannel = openDataFile(headFileNumber);
+    headChannel.truncate(last.offset);
+    headChannel.force(true);
+    headFileSize = last.offset;
+    itemCount = items;
+  }
+
+  long size() {
+    return itemCount;
+  }
+
+  /**
+   * Returns an item.
+   *
+   * @param item The position of the item.
+   * @return The item, or empty if it hasn't been committed.
+   */
+  Optional<BytesValue> get(final long item) {
+    truncationLock.readLock().lock();
+    try {
+      if (item < 0 || item >= itemCount) {
+        return Optional.empty();
+      }
+      final ByteBuffer entries = ByteBuffer.allocate(2 * INDEX_ENTRY_SIZE);
+      readFully(indexChannel, entries, item * INDEX_ENTRY_SIZE);
+      final int startFile = entries.getInt(0);
+      final int endFile = entries.getInt(INDEX_ENTRY_SIZE);
+      final int end = entries.getInt(INDEX_ENTRY_SIZE + 4);
+      // An item that didn't fit in the previous file starts at the beginning of the next one.
+      final int start = startFile == endFile ? entries.getInt(4) : 0;
+      final ByteBuffer data = mappedFile(endFile, end).duplicate();
+      data.position(start);
+      final byte[] bytes = new byte[end - start];
+      data.get(bytes);
+      return Optional.of(BytesValue.wrap(bytes));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      truncationLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Appends an item. The item isn't visible until the next {@link #commit()}.
+   *
+   * @param item The item to append.
+   * @throws IOException If the item can't be written.
+   */
+  synchronized void append(final BytesValue item) throws IOException {
+    if (headFileSize > 0 && headFileSize + item.size() > maxFileSize) {
+      headChannel.force(true);
+      headChannel.close();
+      headFileNumber++;
+      headChannel = openDataFile(headFileNumber);
+      headFileSize = 0;
+    }
+    final ByteBuffer data = ByteBuffer.wrap(item.getArrayUnsafe());
+    while (data.hasRemaining()) {
+      headFileSize += headChannel.write(data, headFileSize);
+    }
+    pendingIndexEntries.add(indexEntry(headFileNumber, headFileSize));
+  }
+
+  /**
+   * Flushes appended items to disk and makes them visible to readers.
+   *
+   * @throws IOException If the items can't be written.
+   */
+  synchronized void commit() throws IOException {
+    if (pendingIndexEntries.isEmpty()) {
+      return;
+    }
+    headChannel.force(false);
+    long position = (itemCount + 1) * INDEX_ENTRY_SIZE;
+    for (final ByteBuffer entry : pendingIndexEntries) {
+      while (entry.hasRemaining()) {
+        position += indexChannel.write(entry, position);
+      }
+    }
+    indexChannel.force(false);
+    itemCount += pendingIndexEntries.size();
+    pendingIndexEntries.clear();
+  }
+
+  /**
+   * Discards the items appended since the last {@link #commit()}.
+   *
+   * @throws IOException If the table files can't be updated.
+   */
+  synchronized void rollback() throws IOException {
+    // Always truncate, as a failed append may have written part of an item.
+    pendingIndexEntries.clear();
+    truncateTo(itemCount, readIndexEntry(itemCount));
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    pendingIndexEntries.clear();
+    headChannel.close();
+    indexChannel.close();
+    mappedFiles.clear();
+  }
+
+  // Data files are mapped once and only remapped when reading past the end of the mapping, which
+  // can only happen for the file currently being appended to.
+  private ByteBuffer mappedFile(final int fileNumber, final int requiredSize) throws IOException {
+    final MappedByteBuffer mapped = mappedFiles.get(fileNumber);
+    if (mapped != null && mapped.capacity() >= requiredSize) {
+      return mapped;
+    }
+    synchronized (mappedFiles) {
+      final MappedByteBuffer current = mappedFiles.get(fileNumber);
+      if (current != null && current.capacity() >= requiredSize) {
+        return current;
+      }
+      try (final FileChannel channel =
+          FileChannel.open(dataFilePath(fileNumber), StandardOpenOption.READ)) {
+        final MappedByteBuffer remapped =
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        mappedFiles.put(fileNumber, remapped);
+        return remapped;
+      }
+    }
+  }
+
+  private IndexEntry readIndexEntry(final long entry) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    readFully(indexChannel, buffer, entry * INDEX_ENTRY_SIZE);
+    return new IndexEntry(buffer.getInt(0), buffer.getInt(4));
+  }
+
+  private long dataFileSize(final int fileNumber) throws IOException {
+    final Path path = dataFilePath(fileNumber);
+    return Files.exists(path) ? Files.size(path) : 0;
+  }
+
+  private FileChannel openDataFile(final int fileNumber) throws IOException {
+    return FileChannel.open(
+        dataFilePath(fileNumber), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+  }
+
+  private Path dataFilePath(final int fileNumber) {
+    return directory.resolve(String.format("%s.%04d.dat", name, fileNumber));
+  }
+
+  private static ByteBuffer indexEntry(final int fileNumber, final long offset) {
+    final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    entry.putInt(fileNumber).putInt(Math.toIntExact(offset)).flip();
+    return entry;
+  }
+
+  private static void readFully(
+      final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IllegalStateException("Freezer index is shorter than expected");
+      }
+    }
+  }
+
+  private static class IndexEntry {
+    private final int fileNumber;
+    private final int offset;
+
+    private IndexEntry(final int fileNumber, final int offset) {
+      this.fileNumber = fileNumber;
+      this.offset = offset;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import tech.pegasys.pantheon.ethereum.chain.BlockchainStorage;
+import tech.pegasys.pantheon.ethereum.chain.TransactionLocation;
+import tech.pegasys.pantheon.ethereum.core.BlockBody;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.BlockHeaderFunctions;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * A {@link BlockchainStorage} that reads the headers, bodies and receipts of blocks that have been
+ * moved to the {@link BlockFreezer} from there, so that freezing blocks is transparent to readers.
+ *
+ * <p>Block data is looked up in the underlying storage first, as that's where recent blocks are.
+ * Everything else, including the canonical number to hash mapping and total difficulties, stays in
+ * the underlying storage and updates are passed through unchanged.
+ */
+public class FreezingBlockchainStorage implements BlockchainStorage {
+
+  private final BlockchainStorage delegate;
+  private final BlockFreezer freezer;
+  private final BlockFreezerStorage freezerStorage;
+  private final BlockHeaderFunctions blockHeaderFunctions;
+
+  public FreezingBlockchainStorage(
+      final BlockchainStorage delegate,
+      final BlockFreezer freezer,
+      final BlockFreezerStorage freezerStorage,
+      final BlockHeaderFunctions blockHeaderFunctions) {
+    this.delegate = delegate;
+    this.freezer = freezer;
+    this.freezerStorage = freezerStorage;
+    this.blockHeaderFunctions = blockHeaderFunctions;
+  }
+
+  @Override
+  public Optional<Hash> getChainHead() {
+    return delegate.getChainHead();
+  }
+
+  @Override
+  public Collection<Hash> getForkHeads() {
+    return delegate.getForkHeads();
+  }
+
+  @Override
+  public Optional<BlockHeader> getBlockHeader(final Hash blockHash) {
+    return getBlockHeaderRlp(blockHash)
+        .map(rlp -> BlockHeader.readFrom(RLP.input(rlp), blockHeaderFunctions));
+  }
+
+  @Override
+  public Optional<BlockBody> getBlockBody(final Hash blockHash) {
+    return getBlockBodyRlp(blockHash)
+        .map(rlp -> BlockBody.readFrom(RLP.input(rlp), blockHeaderFunctions));
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockHeaderRlp(final Hash blockHash) {
+    final Optional<BytesValue> header = freezerStorage.getBlockHeaderRlp(blockHash);
+    return header.isPresent() ? header : getFrozen(blockHash, freezer::getBlockHeaderRlp);
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockBodyRlp(final Hash blockHash) {
+    final Optional<BytesValue> body = freezerStorage.getBlockBodyRlp(blockHash);
+    return body.isPresent() ? body : getFrozen(blockHash, freezer::getBlockBodyRlp);
+  }
+
+  @Override
+  public Optional<List<TransactionReceipt>> getTransactionReceipts(final Hash blockHash) {
+    final Optional<BytesValue> receipts = freezerStorage.getTransactionReceiptsRlp(blockHash);
+    return (receipts.isPresent()
+            ? receipts
+            : getFrozen(blockHash, freezer::getTransactionReceiptsRlp))
+        .map(rlp -> RLP.input(rlp).readList(TransactionReceipt::readFrom));
+  }
+
+  @Override
+  public Optional<Hash> getBlockHash(final long blockNumber) {
+    return delegate.getBlockHash(blockNumber);
+  }
+
+  @Override
+  public Optional<UInt256> getTotalDifficulty(final Hash blockHash) {
+    return delegate.getTotalDifficulty(blockHash);
+  }
+
+  @Override
+  public Optional<TransactionLocation> getTransactionLocation(final Hash transactionHash) {
+    return delegate.getTransactionLocation(transactionHash);
+  }
+
+  @Override
+  public Updater updater() {
+    return delegate.updater();
+  }
+
+  private Optional<BytesValue> getFrozen(
+      final Hash blockHash, final LongFunction<Optional<BytesValue>> reader) {
+    return freezerStorage
+        .getFrozenBlockNumber(blockHash)
+        .filter(blockNumber -> freezer.getBlockHash(blockNumber).equals(Optional.of(blockHash)))
+        .flatMap(reader::apply);
+  }
+}
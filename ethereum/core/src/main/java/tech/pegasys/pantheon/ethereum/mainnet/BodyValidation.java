@@ -13,7 +13,6 @@
 package tech.pegasys.pantheon.ethereum.mainnet;
 
 import static tech.pegasys.pantheon.crypto.Hash.keccak256;
-import static tech.pegasys.pantheon.util.bytes.BytesValues.trimLeadingZeros;
 
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
@@ -21,10 +20,7 @@ import tech.pegasys.pantheon.ethereum.core.LogsBloomFilter;
 import tech.pegasys.pantheon.ethereum.core.Transaction;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
 import tech.pegasys.pantheon.ethereum.rlp.RLP;
-import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
-import tech.pegasys.pantheon.ethereum.trie.SimpleMerklePatriciaTrie;
-import tech.pegasys.pantheon.util.bytes.BytesValue;
-import tech.pegasys.pantheon.util.uint.UInt256;
+import tech.pegasys.pantheon.ethereum.trie.OrderedTrieRootBuilder;
 
 import java.util.List;
 
@@ -35,14 +31,6 @@ public final class BodyValidation {
     // Utility Class
   }
 
-  private static BytesValue indexKey(final int i) {
-    return RLP.encodeOne(trimLeadingZeros(UInt256.of(i).getBytes()));
-  }
-
-  private static MerklePatriciaTrie<BytesValue, BytesValue> trie() {
-    return new SimpleMerklePatriciaTrie<>(b -> b);
-  }
-
   /**
    * Generates the transaction root for a list of transactions
    *
@@ -50,13 +38,9 @@ public final class BodyValidation {
    * @return the transaction root
    */
   public static Hash transactionsRoot(final List<Transaction> transactions) {
-    final MerklePatriciaTrie<BytesValue, BytesValue> trie = trie();
-
-    for (int i = 0; i < transactions.size(); ++i) {
-      trie.put(indexKey(i), RLP.encode(transactions.get(i)::writeTo));
-    }
-
-    return Hash.wrap(trie.getRootHash());
+    final OrderedTrieRootBuilder trie = new OrderedTrieRootBuilder();
+    transactions.forEach(transaction -> trie.append(RLP.encode(transaction::writeTo)));
+    return Hash.wrap(trie.rootHash());
   }
 
   /**
@@ -66,13 +50,9 @@ public final class BodyValidation {
    * @return the receipt root
    */
   public static Hash receiptsRoot(final List<TransactionReceipt> receipts) {
-    final MerklePatriciaTrie<BytesValue, BytesValue> trie = trie();
-
-    for (int i = 0; i < receipts.size(); ++i) {
-      trie.put(indexKey(i), RLP.encode(receipts.get(i)::writeTo));
-    }
-
-    return Hash.wrap(trie.getRootHash());
+    final OrderedTrieRootBuilder trie = new OrderedTrieRootBuilder();
+    receipts.forEach(receipt -> trie.append(RLP.encode(receipt::writeTo)));
+    return Hash.wrap(trie.rootHash());
   }
 
   /**
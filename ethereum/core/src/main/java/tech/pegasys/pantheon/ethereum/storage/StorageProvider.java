@@ -12,11 +12,14 @@
  */
 package tech.pegasys.pantheon.ethereum.storage;
 
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsStorage;
 import tech.pegasys.pantheon.ethereum.chain.BlockchainStorage;
+import tech.pegasys.pantheon.ethereum.freezer.BlockFreezerStorage;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.privacy.PrivateStateStorage;
 import tech.pegasys.pantheon.ethereum.privacy.PrivateTransactionStorage;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
 
 import java.io.Closeable;
 
@@ -26,7 +29,21 @@ public interface StorageProvider extends Closeable {
 
   WorldStateStorage createWorldStateStorage();
 
+  BloomBitsStorage createBloomBitsStorage();
+
+  BlockFreezerStorage createBlockFreezerStorage();
+
   PrivateTransactionStorage createPrivateTransactionStorage();
 
   PrivateStateStorage createPrivateStateStorage();
+
+  KeyValueStorage createPruningStorage();
+
+  /**
+   * Whether the world state is held in storage of its own, so that iterating over it only visits
+   * world state nodes and code.
+   *
+   * @return true if the world state storage can be iterated and pruned.
+   */
+  boolean isWorldStateIterable();
 }
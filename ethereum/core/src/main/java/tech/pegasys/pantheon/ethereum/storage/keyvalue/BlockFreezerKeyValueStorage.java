@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.storage.keyvalue;
+
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueStoragePrefixedKeyBlockchainStorage.BLOCK_BODY_PREFIX;
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueStoragePrefixedKeyBlockchainStorage.BLOCK_HEADER_PREFIX;
+import static tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueStoragePrefixedKeyBlockchainStorage.TRANSACTION_RECEIPTS_PREFIX;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.freezer.BlockFreezerStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+
+import java.util.Optional;
+
+/**
+ * Reads, removes and restores the block data of {@link
+ * KeyValueStoragePrefixedKeyBlockchainStorage} on behalf of the block freezer, and stores the
+ * number of each frozen block under a key prefix that doesn't clash with the blockchain's own.
+ */
+public class BlockFreezerKeyValueStorage implements BlockFreezerStorage {
+
+  private static final BytesValue FROZEN_BLOCK_NUMBER_PREFIX = BytesValue.of(11);
+
+  private final KeyValueStorage storage;
+
+  public BlockFreezerKeyValueStorage(final KeyValueStorage storage) {
+    this.storage = storage;
+  }
+
+  @Override
+  public Optional<Long> getFrozenBlockNumber(final Hash blockHash) {
+    return get(FROZEN_BLOCK_NUMBER_PREFIX, blockHash).map(BytesValues::extractLong);
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockHeaderRlp(final Hash blockHash) {
+    return get(BLOCK_HEADER_PREFIX, blockHash);
+  }
+
+  @Override
+  public Optional<BytesValue> getBlockBodyRlp(final Hash blockHash) {
+    return get(BLOCK_BODY_PREFIX, blockHash);
+  }
+
+  @Override
+  public Optional<BytesValue> getTransactionReceiptsRlp(final Hash blockHash) {
+    return get(TRANSACTION_RECEIPTS_PREFIX, blockHash);
+  }
+
+  @Override
+  public Updater updater() {
+    return new Updater(storage.startTransaction());
+  }
+
+  private Optional<BytesValue> get(final BytesValue prefix, final BytesValue key) {
+    return storage.get(BytesValues.concatenate(prefix, key));
+  }
+
+  public static class Updater implements BlockFreezerStorage.Updater {
+
+    private final KeyValueStorage.Transaction transaction;
+
+    private Updater(final KeyValueStorage.Transaction transaction) {
+      this.transaction = transaction;
+    }
+
+    @Override
+    public void markFrozen(final Hash blockHash, final long blockNumber) {
+      transaction.put(
+          BytesValues.concatenate(FROZEN_BLOCK_NUMBER_PREFIX, blockHash),
+          BytesValues.toMinimalBytes(blockNumber));
+      transaction.remove(BytesValues.concatenate(BLOCK_HEADER_PREFIX, blockHash));
+      transaction.remove(BytesValues.concatenate(BLOCK_BODY_PREFIX, blockHash));
+      transaction.remove(BytesValues.concatenate(TRANSACTION_RECEIPTS_PREFIX, blockHash));
+    }
+
+    @Override
+    public void markUnfrozen(
+        final Hash blockHash,
+        final BytesValue header,
+        final BytesValue body,
+        final BytesValue transactionReceipts) {
+      transaction.put(BytesValues.concatenate(BLOCK_HEADER_PREFIX, blockHash), header);
+      transaction.put(BytesValues.concatenate(BLOCK_BODY_PREFIX, blockHash), body);
+      transaction.put(
+          BytesValues.concatenate(TRANSACTION_RECEIPTS_PREFIX, blockHash), transactionReceipts);
+      transaction.remove(BytesValues.concatenate(FROZEN_BLOCK_NUMBER_PREFIX, blockHash));
+    }
+
+    @Override
+    public void commit() {
+      transaction.commit();
+    }
+
+    @Override
+    public void rollback() {
+      transaction.rollback();
+    }
+  }
+}
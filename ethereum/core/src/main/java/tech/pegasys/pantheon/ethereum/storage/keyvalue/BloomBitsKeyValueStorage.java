@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.storage.keyvalue;
+
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsStorage;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
+
+import java.util.Optional;
+
+/**
+ * Stores the log bloom index alongside the blockchain data, using key prefixes that don't clash
+ * with those of {@link KeyValueStoragePrefixedKeyBlockchainStorage}.
+ */
+public class BloomBitsKeyValueStorage implements BloomBitsStorage {
+
+  private static final BytesValue INDEXED_SECTION_COUNT_KEY = BytesValue.of(8);
+  private static final BytesValue SECTION_HEAD_PREFIX = BytesValue.of(9);
+  private static final BytesValue BLOOM_BITS_PREFIX = BytesValue.of(10);
+
+  private final KeyValueStorage storage;
+
+  public BloomBitsKeyValueStorage(final KeyValueStorage storage) {
+    this.storage = storage;
+  }
+
+  @Override
+  public long getIndexedSectionCount() {
+    return storage.get(INDEXED_SECTION_COUNT_KEY).map(BytesValues::extractLong).orElse(0L);
+  }
+
+  @Override
+  public Optional<Hash> getSectionHead(final long section) {
+    return storage.get(sectionHeadKey(section)).map(bytes -> Hash.wrap(Bytes32.wrap(bytes, 0)));
+  }
+
+  @Override
+  public Optional<BytesValue> getBloomBits(final long section, final int bloomBit) {
+    return storage.get(bloomBitsKey(section, bloomBit));
+  }
+
+  @Override
+  public Updater updater() {
+    return new Updater(storage.startTransaction());
+  }
+
+  private static BytesValue sectionHeadKey(final long section) {
+    return BytesValues.concatenate(SECTION_HEAD_PREFIX, BytesValues.ofUnsignedInt(section));
+  }
+
+  private static BytesValue bloomBitsKey(final long section, final int bloomBit) {
+    return BytesValues.concatenate(
+        BLOOM_BITS_PREFIX,
+        BytesValues.ofUnsignedInt(section),
+        BytesValues.ofUnsignedShort(bloomBit));
+  }
+
+  public static class Updater implements BloomBitsStorage.Updater {
+
+    private final KeyValueStorage.Transaction transaction;
+
+    private Updater(final KeyValueStorage.Transaction transaction) {
+      this.transaction = transaction;
+    }
+
+    @Override
+    public void putSectionHead(final long section, final Hash sectionHead) {
+      transaction.put(sectionHeadKey(section), sectionHead);
+    }
+
+    @Override
+    public void putBloomBits(final long section, final int bloomBit, final BytesValue bits) {
+      transaction.put(bloomBitsKey(section, bloomBit), bits);
+    }
+
+    @Override
+    public void setIndexedSectionCount(final long indexedSectionCount) {
+      transaction.put(INDEXED_SECTION_COUNT_KEY, BytesValues.toMinimalBytes(indexedSectionCount));
+    }
+
+    @Override
+    public void commit() {
+      transaction.commit();
+    }
+
+    @Override
+    public void rollback() {
+      transaction.rollback();
+    }
+  }
+}
@@ -12,7 +12,9 @@
  */
 package tech.pegasys.pantheon.ethereum.storage.keyvalue;
 
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsStorage;
 import tech.pegasys.pantheon.ethereum.chain.BlockchainStorage;
+import tech.pegasys.pantheon.ethereum.freezer.BlockFreezerStorage;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.ScheduleBasedBlockHeaderFunctions;
 import tech.pegasys.pantheon.ethereum.privacy.PrivateStateKeyValueStorage;
@@ -29,25 +31,38 @@ public class KeyValueStorageProvider implements StorageProvider {
 
   private final KeyValueStorage blockchainStorage;
   private final KeyValueStorage worldStateStorage;
+  private final KeyValueStorage flatStateStorage;
   private final KeyValueStorage privateTransactionStorage;
   private final KeyValueStorage privateStateStorage;
   private final KeyValueStorage pruningStorage;
+  private final boolean isWorldStateIterable;
 
   public KeyValueStorageProvider(final KeyValueStorage keyValueStorage) {
-    this(keyValueStorage, keyValueStorage, keyValueStorage, keyValueStorage, keyValueStorage);
+    this(
+        keyValueStorage,
+        keyValueStorage,
+        keyValueStorage,
+        keyValueStorage,
+        keyValueStorage,
+        keyValueStorage,
+        false);
   }
 
   public KeyValueStorageProvider(
       final KeyValueStorage blockchainStorage,
       final KeyValueStorage worldStateStorage,
+      final KeyValueStorage flatStateStorage,
       final KeyValueStorage privateTransactionStorage,
       final KeyValueStorage privateStateStorage,
-      final KeyValueStorage pruningStorage) {
+      final KeyValueStorage pruningStorage,
+      final boolean isWorldStateIterable) {
     this.blockchainStorage = blockchainStorage;
     this.worldStateStorage = worldStateStorage;
+    this.flatStateStorage = flatStateStorage;
     this.privateTransactionStorage = privateTransactionStorage;
     this.privateStateStorage = privateStateStorage;
     this.pruningStorage = pruningStorage;
+    this.isWorldStateIterable = isWorldStateIterable;
   }
 
   @Override
@@ -58,7 +73,17 @@ public class KeyValueStorageProvider implements StorageProvider {
 
   @Override
   public WorldStateStorage createWorldStateStorage() {
-    return new WorldStateKeyValueStorage(worldStateStorage);
+    return new WorldStateKeyValueStorage(worldStateStorage, flatStateStorage);
+  }
+
+  @Override
+  public BloomBitsStorage createBloomBitsStorage() {
+    return new BloomBitsKeyValueStorage(blockchainStorage);
+  }
+
+  @Override
+  public BlockFreezerStorage createBlockFreezerStorage() {
+    return new BlockFreezerKeyValueStorage(blockchainStorage);
   }
 
   @Override
@@ -71,14 +96,21 @@ public class KeyValueStorageProvider implements StorageProvider {
     return new PrivateStateKeyValueStorage(privateStateStorage);
   }
 
+  @Override
   public KeyValueStorage createPruningStorage() {
     return pruningStorage;
   }
 
+  @Override
+  public boolean isWorldStateIterable() {
+    return isWorldStateIterable;
+  }
+
   @Override
   public void close() throws IOException {
     blockchainStorage.close();
     worldStateStorage.close();
+    flatStateStorage.close();
     privateTransactionStorage.close();
     privateStateStorage.close();
     pruningStorage.close();
@@ -22,6 +22,7 @@ import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 import tech.pegasys.pantheon.services.kvstore.RocksDbKeyValueStorage;
 import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage;
 import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.Segment;
+import tech.pegasys.pantheon.services.kvstore.SegmentOptions;
 import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorageAdapter;
 
 import java.io.IOException;
@@ -32,6 +33,10 @@ import org.apache.logging.log4j.Logger;
 
 public class RocksDbStorageProvider {
   private static final Logger LOG = LogManager.getLogger();
+  private static final SegmentOptions SEQUENTIAL =
+      SegmentOptions.builder().levelCompression(true).build();
+  private static final SegmentOptions POINT_LOOKUP =
+      SegmentOptions.builder().bloomFilterBitsPerKey(10).levelCompression(true).build();
 
   public static StorageProvider create(
       final RocksDbConfiguration rocksDbConfiguration, final MetricsSystem metricsSystem)
@@ -63,21 +68,29 @@ public class RocksDbStorageProvider {
     return new KeyValueStorageProvider(
         new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.BLOCKCHAIN, columnarStorage),
         new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.WORLD_STATE, columnarStorage),
+        new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.FLAT_STATE, columnarStorage),
         new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.PRIVATE_TRANSACTIONS, columnarStorage),
         new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.PRIVATE_STATE, columnarStorage),
-        new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.PRUNING_STATE, columnarStorage));
+        new SegmentedKeyValueStorageAdapter<>(RocksDbSegment.PRUNING_STATE, columnarStorage),
+        true);
   }
 
   private enum RocksDbSegment implements Segment {
-    BLOCKCHAIN((byte) 1),
-    WORLD_STATE((byte) 2),
-    PRIVATE_TRANSACTIONS((byte) 3),
-    PRIVATE_STATE((byte) 4),
-    PRUNING_STATE((byte) 5);
+    BLOCKCHAIN(SEQUENTIAL, (byte) 1),
+    // World state is keyed by the hashes of trie nodes, code, accounts and storage slots.
+    WORLD_STATE(POINT_LOOKUP, (byte) 2),
+    PRIVATE_TRANSACTIONS(SEQUENTIAL, (byte) 3),
+    PRIVATE_STATE(POINT_LOOKUP, (byte) 4),
+    PRUNING_STATE(SEQUENTIAL, (byte) 5),
+    // The flat state is keyed by account and slot hashes, and kept apart from the world state so
+    // that pruning the world state doesn't have to skip it.
+    FLAT_STATE(POINT_LOOKUP, (byte) 6);
 
+    private final SegmentOptions options;
     private final byte[] id;
 
-    RocksDbSegment(final byte... id) {
+    RocksDbSegment(final SegmentOptions options, final byte... id) {
+      this.options = options;
       this.id = id;
     }
 
@@ -90,5 +103,10 @@ public class RocksDbStorageProvider {
     public byte[] getId() {
       return id;
     }
+
+    @Override
+    public SegmentOptions getOptions() {
+      return options;
+    }
   }
 }
@@ -19,19 +19,43 @@ import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
 import tech.pegasys.pantheon.util.Subscribers;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.bytes.BytesValues;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public class WorldStateKeyValueStorage implements WorldStateStorage {
 
+  // The flat state may share its storage with the blockchain, so its prefixes carry on from the
+  // ones used there.
+  private static final BytesValue FLAT_ACCOUNT_PREFIX = BytesValue.of(12);
+  private static final BytesValue FLAT_STORAGE_PREFIX = BytesValue.of(13);
+  private static final BytesValue FLAT_DIFF_LAYER_PREFIX = BytesValue.of(14);
+  private static final BytesValue FLAT_STATE_ROOT_KEY =
+      BytesValue.wrap("flatStateRoot".getBytes(StandardCharsets.UTF_8));
+  private static final BytesValue GENERATING_FLAT_STATE_ROOT_KEY =
+      BytesValue.wrap("generatingFlatStateRoot".getBytes(StandardCharsets.UTF_8));
+  private static final BytesValue FLAT_DIFF_LAYER_INDEX_KEY =
+      BytesValue.wrap("flatDiffLayerIndex".getBytes(StandardCharsets.UTF_8));
+  private static final int CLEAR_BATCH_SIZE = 10_000;
+
   private final Subscribers<NodesAddedListener> nodeAddedListeners = Subscribers.create();
   private final KeyValueStorage keyValueStorage;
+  private final KeyValueStorage flatStateStorage;
 
   public WorldStateKeyValueStorage(final KeyValueStorage keyValueStorage) {
+    this(keyValueStorage, keyValueStorage);
+  }
+
+  public WorldStateKeyValueStorage(
+      final KeyValueStorage keyValueStorage, final KeyValueStorage flatStateStorage) {
     this.keyValueStorage = keyValueStorage;
+    this.flatStateStorage = flatStateStorage;
   }
 
   @Override
@@ -77,9 +101,78 @@ public class WorldStateKeyValueStorage implements WorldStateStorage {
     return getAccountStateTrieNode(rootHash).isPresent();
   }
 
+  @Override
+  public Optional<BytesValue> getFlatAccount(final Hash accountHash) {
+    return flatStateStorage.get(flatAccountKey(accountHash));
+  }
+
+  @Override
+  public Optional<BytesValue> getFlatStorageValue(final Hash accountHash, final Hash slotHash) {
+    return flatStateStorage.get(flatStorageKey(accountHash, slotHash));
+  }
+
+  @Override
+  public Optional<Hash> getFlatStateRoot() {
+    return flatStateStorage
+        .get(FLAT_STATE_ROOT_KEY)
+        .map(bytes -> Hash.wrap(Bytes32.wrap(bytes, 0)));
+  }
+
+  @Override
+  public Optional<Hash> getGeneratingFlatStateRoot() {
+    return flatStateStorage
+        .get(GENERATING_FLAT_STATE_ROOT_KEY)
+        .map(bytes -> Hash.wrap(Bytes32.wrap(bytes, 0)));
+  }
+
+  @Override
+  public void clearFlatState() {
+    clearKeysWithPrefix(FLAT_ACCOUNT_PREFIX);
+    clearKeysWithPrefix(FLAT_STORAGE_PREFIX);
+  }
+
+  private void clearKeysWithPrefix(final BytesValue prefix) {
+    try (final Stream<BytesValue> keys = flatStateStorage.streamKeysWithPrefix(prefix)) {
+      final Iterator<BytesValue> iterator = keys.iterator();
+      while (iterator.hasNext()) {
+        final KeyValueStorage.Transaction transaction = flatStateStorage.startTransaction();
+        for (int i = 0; i < CLEAR_BATCH_SIZE && iterator.hasNext(); i++) {
+          transaction.remove(iterator.next());
+        }
+        transaction.commit();
+      }
+    }
+  }
+
+  @Override
+  public Optional<BytesValue> getFlatDiffLayer(final Hash rootHash) {
+    return flatStateStorage.get(flatDiffLayerKey(rootHash));
+  }
+
+  @Override
+  public Optional<BytesValue> getFlatDiffLayerIndex() {
+    return flatStateStorage.get(FLAT_DIFF_LAYER_INDEX_KEY);
+  }
+
+  private static BytesValue flatAccountKey(final Hash accountHash) {
+    return BytesValues.concatenate(FLAT_ACCOUNT_PREFIX, accountHash);
+  }
+
+  private static BytesValue flatStoragePrefix(final Hash accountHash) {
+    return BytesValues.concatenate(FLAT_STORAGE_PREFIX, accountHash);
+  }
+
+  private static BytesValue flatStorageKey(final Hash accountHash, final Hash slotHash) {
+    return BytesValues.concatenate(FLAT_STORAGE_PREFIX, accountHash, slotHash);
+  }
+
+  private static BytesValue flatDiffLayerKey(final Hash rootHash) {
+    return BytesValues.concatenate(FLAT_DIFF_LAYER_PREFIX, rootHash);
+  }
+
   @Override
   public Updater updater() {
-    return new Updater(keyValueStorage.startTransaction(), nodeAddedListeners);
+    return new Updater(keyValueStorage.startTransaction(), flatStateStorage, nodeAddedListeners);
   }
 
   @Override
@@ -87,6 +180,14 @@ public class WorldStateKeyValueStorage implements WorldStateStorage {
     return keyValueStorage.removeUnless(inUseCheck);
   }
 
+  @Override
+  public Stream<Bytes32> streamNodeHashes() {
+    return keyValueStorage
+        .streamKeys()
+        .filter(key -> key.size() == Bytes32.SIZE)
+        .map(key -> Bytes32.wrap(key, 0));
+  }
+
   @Override
   public long addNodeAddedListener(final NodesAddedListener listener) {
     return nodeAddedListeners.subscribe(listener);
@@ -100,13 +201,18 @@ public class WorldStateKeyValueStorage implements WorldStateStorage {
   public static class Updater implements WorldStateStorage.Updater {
 
     private final KeyValueStorage.Transaction transaction;
+    private final KeyValueStorage flatStateStorage;
+    // Only started once the flat state is updated, as most updates only write nodes and code.
+    private KeyValueStorage.Transaction flatStateTransaction;
     private final Subscribers<NodesAddedListener> nodeAddedListeners;
-    private final List<Bytes32> addedNodes = new ArrayList<>();
+    private final Map<Bytes32, BytesValue> addedNodes = new HashMap<>();
 
     public Updater(
         final KeyValueStorage.Transaction transaction,
+        final KeyValueStorage flatStateStorage,
         final Subscribers<NodesAddedListener> nodeAddedListeners) {
       this.transaction = transaction;
+      this.flatStateStorage = flatStateStorage;
       this.nodeAddedListeners = nodeAddedListeners;
     }
 
@@ -117,8 +223,7 @@ public class WorldStateKeyValueStorage implements WorldStateStorage {
         return this;
       }
 
-      addedNodes.add(codeHash);
-      transaction.put(codeHash, code);
+      addedNodes.put(codeHash, code);
       return this;
     }
 
@@ -128,8 +233,7 @@ public class WorldStateKeyValueStorage implements WorldStateStorage {
         // Don't save empty nodes
         return this;
       }
-      addedNodes.add(nodeHash);
-      transaction.put(nodeHash, node);
+      addedNodes.put(nodeHash, node);
       return this;
     }
 
@@ -139,20 +243,113 @@ public class WorldStateKeyValueStorage implements WorldStateStorage {
         // Don't save empty nodes
         return this;
       }
-      addedNodes.add(nodeHash);
-      transaction.put(nodeHash, node);
+      addedNodes.put(nodeHash, node);
+      return this;
+    }
+
+    @Override
+    public Updater removeNodeData(final Bytes32 hash) {
+      addedNodes.remove(hash);
+      transaction.remove(hash);
+      return this;
+    }
+
+    @Override
+    public Updater putFlatAccount(final Hash accountHash, final BytesValue account) {
+      flatStateTransaction().put(flatAccountKey(accountHash), account);
+      return this;
+    }
+
+    @Override
+    public Updater removeFlatAccount(final Hash accountHash) {
+      flatStateTransaction().remove(flatAccountKey(accountHash));
+      return this;
+    }
+
+    @Override
+    public Updater putFlatStorageValue(
+        final Hash accountHash, final Hash slotHash, final BytesValue value) {
+      flatStateTransaction().put(flatStorageKey(accountHash, slotHash), value);
+      return this;
+    }
+
+    @Override
+    public Updater removeFlatStorageValue(final Hash accountHash, final Hash slotHash) {
+      flatStateTransaction().remove(flatStorageKey(accountHash, slotHash));
+      return this;
+    }
+
+    @Override
+    public Updater removeFlatStorage(final Hash accountHash) {
+      final KeyValueStorage.Transaction flatStateTransaction = flatStateTransaction();
+      try (final Stream<BytesValue> keys =
+          flatStateStorage.streamKeysWithPrefix(flatStoragePrefix(accountHash))) {
+        keys.forEach(flatStateTransaction::remove);
+      }
+      return this;
+    }
+
+    @Override
+    public Updater putFlatStateRoot(final Hash rootHash) {
+      flatStateTransaction().put(FLAT_STATE_ROOT_KEY, rootHash);
+      return this;
+    }
+
+    @Override
+    public Updater putGeneratingFlatStateRoot(final Hash rootHash) {
+      flatStateTransaction().put(GENERATING_FLAT_STATE_ROOT_KEY, rootHash);
+      return this;
+    }
+
+    @Override
+    public Updater removeGeneratingFlatStateRoot() {
+      flatStateTransaction().remove(GENERATING_FLAT_STATE_ROOT_KEY);
+      return this;
+    }
+
+    @Override
+    public Updater putFlatDiffLayer(final Hash rootHash, final BytesValue layer) {
+      flatStateTransaction().put(flatDiffLayerKey(rootHash), layer);
+      return this;
+    }
+
+    @Override
+    public Updater removeFlatDiffLayer(final Hash rootHash) {
+      flatStateTransaction().remove(flatDiffLayerKey(rootHash));
+      return this;
+    }
+
+    @Override
+    public Updater putFlatDiffLayerIndex(final BytesValue index) {
+      flatStateTransaction().put(FLAT_DIFF_LAYER_INDEX_KEY, index);
       return this;
     }
 
     @Override
     public void commit() {
-      nodeAddedListeners.forEach(listener -> listener.onNodesAdded(addedNodes));
+      // Listeners are notified before the nodes are written so that a concurrent pruning sweep
+      // either sees them as in use or completes its removals before they are stored again
+      nodeAddedListeners.forEach(listener -> listener.onNodesAdded(addedNodes.keySet()));
+      addedNodes.forEach(transaction::put);
       transaction.commit();
+      if (flatStateTransaction != null) {
+        flatStateTransaction.commit();
+      }
     }
 
     @Override
     public void rollback() {
       transaction.rollback();
+      if (flatStateTransaction != null) {
+        flatStateTransaction.rollback();
+      }
+    }
+
+    private KeyValueStorage.Transaction flatStateTransaction() {
+      if (flatStateTransaction == null) {
+        flatStateTransaction = flatStateStorage.startTransaction();
+      }
+      return flatStateTransaction;
     }
   }
 }
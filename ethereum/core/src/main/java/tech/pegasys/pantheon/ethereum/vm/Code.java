@@ -26,8 +26,11 @@ public class Code {
   /** The bytes representing the code. */
   private final BytesValue bytes;
 
-  /** Used to cache valid jump destinations. */
-  private BitSet validJumpDestinations;
+  /**
+   * Used to cache valid jump destinations. Code may be shared between threads via {@link
+   * CodeCache}, so the set is fully built before being published.
+   */
+  private volatile BitSet validJumpDestinations;
 
   /**
    * Public constructor.
@@ -83,19 +86,22 @@ public class Code {
     final int jumpDestination = destination.toInt();
     if (jumpDestination > getSize()) return false;
 
-    if (validJumpDestinations == null) {
+    BitSet jumpDestinations = validJumpDestinations;
+    if (jumpDestinations == null) {
       // Calculate valid jump destinations
-      validJumpDestinations = new BitSet(getSize());
+      final BitSet calculatedJumpDestinations = new BitSet(getSize());
       evm.forEachOperation(
           this,
           frame.getContractAccountVersion(),
           (final Operation op, final Integer offset) -> {
             if (op.getOpcode() == JumpDestOperation.OPCODE) {
-              validJumpDestinations.set(offset);
+              calculatedJumpDestinations.set(offset);
             }
           });
+      jumpDestinations = calculatedJumpDestinations;
+      validJumpDestinations = jumpDestinations;
     }
-    return validJumpDestinations.get(jumpDestination);
+    return jumpDestinations.get(jumpDestination);
   }
 
   public BytesValue getBytes() {
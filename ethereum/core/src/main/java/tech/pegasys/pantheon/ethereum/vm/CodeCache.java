@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches the {@link Code} of contract accounts so that jump destination analysis is only done once
+ * per contract rather than once per call. Entries are keyed by code hash and account version, so a
+ * single cache can safely be shared by block processing, transaction simulation and tracing.
+ */
+public class CodeCache {
+  public static final long DEFAULT_MAXIMUM_SIZE_BYTES = 32 * 1024 * 1024;
+
+  private static final CodeCache SHARED_CACHE = new CodeCache(DEFAULT_MAXIMUM_SIZE_BYTES);
+  private static final Code EMPTY_CODE = new Code();
+
+  private final Cache<CodeKey, Code> cache;
+
+  @VisibleForTesting
+  CodeCache(final long maximumSizeBytes) {
+    cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumSizeBytes)
+            .<CodeKey, Code>weigher((key, code) -> code.getSize() + 1)
+            .recordStats()
+            .build();
+  }
+
+  /** @return the cache shared by every EVM. */
+  public static CodeCache shared() {
+    return SHARED_CACHE;
+  }
+
+  /**
+   * Returns the code of a contract account, analysing it only if it hasn't been seen recently.
+   *
+   * @param contract the contract account, or null if the account doesn't exist.
+   * @return the code of the account.
+   */
+  public Code getCode(final Account contract) {
+    if (contract == null) {
+      return EMPTY_CODE;
+    }
+    try {
+      return cache.get(
+          new CodeKey(contract.getCodeHash(), contract.getVersion()),
+          () -> new Code(contract.getCode()));
+    } catch (final ExecutionException e) {
+      throw new IllegalStateException("Failed to load contract code", e.getCause());
+    }
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public void registerMetrics(final MetricsSystem metricsSystem) {
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "evm_code_cache_hits",
+        "Number of contract code lookups served from the analysed code cache",
+        () -> cache.stats().hitCount());
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "evm_code_cache_misses",
+        "Number of contract code lookups that had to load and analyse the code",
+        () -> cache.stats().missCount());
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "evm_code_cache_size",
+        "Number of contracts held in the analysed code cache",
+        cache::size);
+  }
+
+  private static class CodeKey {
+    private final Hash codeHash;
+    private final int accountVersion;
+
+    private CodeKey(final Hash codeHash, final int accountVersion) {
+      this.codeHash = codeHash;
+      this.accountVersion = accountVersion;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final CodeKey other = (CodeKey) o;
+      return accountVersion == other.accountVersion && codeHash.equals(other.codeHash);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(codeHash, accountVersion);
+    }
+  }
+}
@@ -12,29 +12,50 @@
  */
 package tech.pegasys.pantheon.ethereum.vm;
 
-import static tech.pegasys.pantheon.util.uint.UInt256.U_32;
-
 import tech.pegasys.pantheon.ethereum.core.Gas;
 import tech.pegasys.pantheon.ethereum.debug.TraceFrame;
 import tech.pegasys.pantheon.ethereum.debug.TraceOptions;
 import tech.pegasys.pantheon.ethereum.vm.ehalt.ExceptionalHaltException;
+import tech.pegasys.pantheon.ethereum.vm.operations.SStoreOperation;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.Consumer;
 
 public class DebugOperationTracer implements OperationTracer {
 
   private final TraceOptions options;
   private final List<TraceFrame> traceFrames = new ArrayList<>();
+  private final Consumer<TraceFrame> traceFrameListener;
+  // The memory of each call on the current call stack, as of its most recently traced step.
+  private final List<MemorySnapshot> memorySnapshots = new ArrayList<>();
 
   public DebugOperationTracer(final TraceOptions options) {
     this.options = options;
+    this.traceFrameListener = traceFrames::add;
+  }
+
+  /**
+   * Creates a tracer which passes each {@link TraceFrame} to the listener as soon as its operation
+   * executes, instead of collecting them, so memory use doesn't grow with the length of the trace.
+   *
+   * @param options what to record for each operation
+   * @param traceFrameListener the listener to receive trace frames
+   */
+  public DebugOperationTracer(
+      final TraceOptions options, final Consumer<TraceFrame> traceFrameListener) {
+    this.options = options;
+    this.traceFrameListener = traceFrameListener;
   }
 
   @Override
@@ -50,14 +71,32 @@ public class DebugOperationTracer implements OperationTracer {
     final EnumSet<ExceptionalHaltReason> exceptionalHaltReasons =
         EnumSet.copyOf(frame.getExceptionalHaltReasons());
     final Optional<Bytes32[]> stack = captureStack(frame);
-    final Optional<Bytes32[]> memory = captureMemory(frame);
+    final long memorySize = frame.memoryByteSize();
+    final Optional<Bytes32[]> memory;
+    final Optional<SortedMap<Integer, Bytes32>> memoryChanges;
+    if (options.isDiffsEnabled()) {
+      memory = Optional.empty();
+      memoryChanges = captureMemoryChanges(frame);
+    } else {
+      memory = captureMemory(frame);
+      memoryChanges = Optional.empty();
+    }
+    final Optional<UInt256> storageKeyWritten = captureStorageKeyWritten(frame);
 
     try {
       executeOperation.execute();
     } finally {
-      final Optional<Map<UInt256, UInt256>> storage = captureStorage(frame);
+      final Optional<Map<UInt256, UInt256>> storage;
+      final Optional<Map<UInt256, UInt256>> storageChanges;
+      if (options.isDiffsEnabled()) {
+        storage = Optional.empty();
+        storageChanges = captureStorageChanges(frame, storageKeyWritten);
+      } else {
+        storage = captureStorage(frame);
+        storageChanges = Optional.empty();
+      }
 
-      traceFrames.add(
+      traceFrameListener.accept(
           new TraceFrame(
               pc,
               opcode,
@@ -68,7 +107,10 @@ public class DebugOperationTracer implements OperationTracer {
               stack,
               memory,
               storage,
-              frame.getRevertReason().orElse(null)));
+              frame.getRevertReason().orElse(null),
+              memorySize,
+              memoryChanges,
+              storageChanges));
     }
   }
 
@@ -82,17 +124,85 @@ public class DebugOperationTracer implements OperationTracer {
     return Optional.of(storageContents);
   }
 
+  private Optional<UInt256> captureStorageKeyWritten(final MessageFrame frame) {
+    if (!options.isStorageEnabled()
+        || !options.isDiffsEnabled()
+        || !(frame.getCurrentOperation() instanceof SStoreOperation)
+        || frame.stackSize() == 0) {
+      return Optional.empty();
+    }
+    return Optional.of(frame.getStackItem(0).asUInt256());
+  }
+
+  private Optional<Map<UInt256, UInt256>> captureStorageChanges(
+      final MessageFrame frame, final Optional<UInt256> storageKeyWritten) {
+    if (!options.isStorageEnabled()) {
+      return Optional.empty();
+    }
+    return Optional.of(
+        storageKeyWritten
+            .map(
+                key ->
+                    Collections.singletonMap(
+                        key,
+                        frame
+                            .getWorldState()
+                            .getMutable(frame.getRecipientAddress())
+                            .getStorageValue(key)))
+            .orElse(Collections.emptyMap()));
+  }
+
   private Optional<Bytes32[]> captureMemory(final MessageFrame frame) {
     if (!options.isMemoryEnabled()) {
       return Optional.empty();
     }
-    final Bytes32[] memoryContents = new Bytes32[frame.memoryWordSize().toInt()];
+    final BytesValue memoryBytes = readAllMemory(frame);
+    final Bytes32[] memoryContents = new Bytes32[memoryBytes.size() / Bytes32.SIZE];
     for (int i = 0; i < memoryContents.length; i++) {
-      memoryContents[i] = Bytes32.wrap(frame.readMemory(UInt256.of(i).times(U_32), U_32), 0);
+      memoryContents[i] = Bytes32.wrap(memoryBytes, i * Bytes32.SIZE);
     }
     return Optional.of(memoryContents);
   }
 
+  private Optional<SortedMap<Integer, Bytes32>> captureMemoryChanges(final MessageFrame frame) {
+    if (!options.isMemoryEnabled()) {
+      return Optional.empty();
+    }
+    final MemorySnapshot snapshot = memorySnapshotFor(frame);
+    final byte[] current = readAllMemory(frame).extractArray();
+    final byte[] previous = Arrays.copyOf(snapshot.memory, current.length);
+    final SortedMap<Integer, Bytes32> changes = new TreeMap<>();
+    for (int offset = 0; offset < current.length; offset += Bytes32.SIZE) {
+      final int end = offset + Bytes32.SIZE;
+      if (!Arrays.equals(current, offset, end, previous, offset, end)) {
+        changes.put(offset / Bytes32.SIZE, Bytes32.wrap(current, offset));
+      }
+    }
+    snapshot.memory = current;
+    return Optional.of(changes);
+  }
+
+  private MemorySnapshot memorySnapshotFor(final MessageFrame frame) {
+    final int depth = frame.getMessageStackDepth();
+    // Any calls deeper than this one have returned.
+    while (memorySnapshots.size() > depth + 1) {
+      memorySnapshots.remove(memorySnapshots.size() - 1);
+    }
+    while (memorySnapshots.size() <= depth) {
+      memorySnapshots.add(null);
+    }
+    MemorySnapshot snapshot = memorySnapshots.get(depth);
+    if (snapshot == null || snapshot.frame != frame) {
+      snapshot = new MemorySnapshot(frame);
+      memorySnapshots.set(depth, snapshot);
+    }
+    return snapshot;
+  }
+
+  private static BytesValue readAllMemory(final MessageFrame frame) {
+    return frame.readMemory(UInt256.ZERO, UInt256.of(frame.memoryByteSize()));
+  }
+
   private Optional<Bytes32[]> captureStack(final MessageFrame frame) {
     if (!options.isStackEnabled()) {
       return Optional.empty();
@@ -108,4 +218,13 @@ public class DebugOperationTracer implements OperationTracer {
   public List<TraceFrame> getTraceFrames() {
     return traceFrames;
   }
+
+  private static class MemorySnapshot {
+    private final MessageFrame frame;
+    private byte[] memory = new byte[0];
+
+    private MemorySnapshot(final MessageFrame frame) {
+      this.frame = frame;
+    }
+  }
 }
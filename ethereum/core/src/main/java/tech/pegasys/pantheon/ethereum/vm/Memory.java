@@ -15,17 +15,13 @@ package tech.pegasys.pantheon.ethereum.vm;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.bytes.BytesValues;
-import tech.pegasys.pantheon.util.bytes.MutableBytes32;
 import tech.pegasys.pantheon.util.bytes.MutableBytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
 import tech.pegasys.pantheon.util.uint.UInt256Value;
 import tech.pegasys.pantheon.util.uint.UInt256s;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Objects;
-
-import com.google.common.base.Joiner;
+import java.util.Arrays;
 
 /**
  * A EVM memory implementation.
@@ -38,6 +34,14 @@ public class Memory {
   // See below.
   private static final long MAX_BYTES = 32L * Integer.MAX_VALUE;
 
+  // Pages are 4KB, that is 128 words. Must be a multiple of the word size so that word-aligned
+  // accesses never span two pages.
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_SIZE = 1 << PAGE_BITS;
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+  private static final byte[][] NO_PAGES = new byte[0][];
+
   /**
    * The data stored within the memory.
    *
@@ -45,43 +49,32 @@ public class Memory {
    * overflow this. That said we can already store up to 64GB and:
    *
    * <ul>
-   *   <li>that's 64GB of underlying bytes, but *a lot* more physical memory use in practice,
-   *       because ... Java; worth testing but I suspect all but the beefiest servers would OOM
-   *       before we come close to his in the first place.
+   *   <li>that's 64GB of underlying bytes; all but the beefiest servers would OOM before we come
+   *       close to this in the first place.
    *   <li>the price of a transaction needing more than that is likely prohibitive.
    * </ul>
    *
    * So this is likely a reasonable limitation, at least at first (and possibly ever if I'm to bet).
    */
   /*
-   * Implementation note: using an array of word have a bunch of advantages: - it can make
-   * expansions cheaper (less bytes to copy on resize). - it makes word-related operations simple. -
-   * it's an easy way to put a higher limit on addressable memory (Integer.MAX_VALUE word is 32
-   * times more capacity than Integer.MAX_VALUE bytes). but it's not without downsides either: -
-   * non-word aligned operations (on more than 1 byte) are currently more expansive (could be
-   * improved, but with more works). - sequential access, even word-aligned, might be slower than if
-   * we allocated larger byte arrays underneath due to cache effects. This is likely good enough
-   * initially, but a page-based design (with a page being X word, X to be determined) could be
-   * worth exploring as a future improvement.
+   * Implementation note: memory is stored as fixed-size byte[] pages rather than one object per
+   * word. Expanding memory only allocates the new (zeroed) pages and copies the page references,
+   * never the existing bytes. Reads and writes of any length or alignment are then
+   * System.arraycopy/Arrays.fill calls over at most a few pages, which is what the copy opcodes
+   * (CALLDATACOPY, CODECOPY, RETURNDATACOPY, ...), RETURN, LOG and unaligned MLOAD/MSTORE need.
+   * Using pages rather than a single growing array also keeps the 64GB limit above reachable, as
+   * a Java array cannot hold more than Integer.MAX_VALUE bytes.
    *
-   * Lastly note that we may want to share the underlying implementation with the VM Stack: the
-   * stack is really just growable memory that is grown/accessed from the end and on by fully word,
-   * but the same page-based design probably make sense.
+   * Bytes past the active words are never written and so are always zero; equals() and hashCode()
+   * rely on this.
    */
-  private final ArrayList<MutableBytes32> data;
+  private byte[][] pages = NO_PAGES;
+  private int allocatedPages;
 
-  // Really data.size(), but cached as a UInt256 to avoid recomputing it each time.
+  private int activeWordCount;
+  // Really activeWordCount, but cached as a UInt256 to avoid recomputing it each time.
   private UInt256 activeWords = UInt256.ZERO;
 
-  public Memory() {
-    this(new ArrayList<>());
-  }
-
-  private Memory(final ArrayList<MutableBytes32> data) {
-    this.data = data;
-    this.activeWords = UInt256.of(data.size());
-  }
-
   private static RuntimeException overflow(final long v) {
     return overflow(String.valueOf(v));
   }
@@ -111,8 +104,8 @@ public class Memory {
 
   private static int asByteLength(final UInt256 l) {
     try {
-      // While we can theoretically support up to 32 * Integer.MAX_VALUE due to storing words, and
-      // so an index in memory need to be a long internally, we simply cannot load/store more than
+      // While we can theoretically support up to 32 * Integer.MAX_VALUE bytes, and so an index in
+      // memory need to be a long internally, we simply cannot load/store more than
       // Integer.MAX_VALUE bytes at a time (BytesValue has an int size).
       return l.toInt();
     } catch (final IllegalStateException e) {
@@ -125,9 +118,16 @@ public class Memory {
     return (int) (byteIndex / Bytes32.SIZE);
   }
 
-  private int indexInWord(final long byteIndex) {
-    checkByteIndex(byteIndex);
-    return (int) (byteIndex - ((byteIndex / Bytes32.SIZE) * Bytes32.SIZE));
+  private static int pageForByte(final long byteIndex) {
+    return (int) (byteIndex >>> PAGE_BITS);
+  }
+
+  private static int indexInPage(final long byteIndex) {
+    return (int) (byteIndex & PAGE_MASK);
+  }
+
+  private static int pagesForWords(final int words) {
+    return (int) (((long) words * Bytes32.SIZE + PAGE_MASK) >>> PAGE_BITS);
   }
 
   /**
@@ -153,7 +153,7 @@ public class Memory {
       final long byteSize = (long) location.toInt() + (long) numBytes.toInt();
       int wordSize = (int) (byteSize / Bytes32.SIZE);
       if (byteSize % Bytes32.SIZE != 0) wordSize += 1;
-      return wordSize > data.size() ? UInt256.of(wordSize) : activeWords;
+      return wordSize > activeWordCount ? UInt256.of(wordSize) : activeWords;
     } else {
       // Slow, rare path
 
@@ -193,15 +193,22 @@ public class Memory {
    * @param newActiveWords The new number of active words to expand to.
    */
   private void maybeExpandCapacity(final int newActiveWords) {
-    if (data.size() >= newActiveWords) return;
-
-    // Require full capacity to guarantee we don't resize more than once.
-    data.ensureCapacity(newActiveWords);
-    final int toAdd = newActiveWords - data.size();
-    for (int i = 0; i < toAdd; i++) {
-      data.add(MutableBytes32.create());
+    if (activeWordCount >= newActiveWords) return;
+
+    final int requiredPages = pagesForWords(newActiveWords);
+    if (requiredPages > allocatedPages) {
+      if (requiredPages > pages.length) {
+        // Only the page references get copied here, so over-allocating the table is cheap and
+        // avoids re-copying it on every small expansion.
+        pages = Arrays.copyOf(pages, Math.max(requiredPages, pages.length * 2));
+      }
+      for (int i = allocatedPages; i < requiredPages; i++) {
+        pages[i] = new byte[PAGE_SIZE];
+      }
+      allocatedPages = requiredPages;
     }
-    this.activeWords = UInt256.of(data.size());
+    this.activeWordCount = newActiveWords;
+    this.activeWords = UInt256.of(newActiveWords);
   }
 
   /**
@@ -217,12 +224,22 @@ public class Memory {
     if (!(other instanceof Memory)) return false;
 
     final Memory that = (Memory) other;
-    return this.data.equals(that.data);
+    if (this.activeWordCount != that.activeWordCount) return false;
+    final int activePages = pagesForWords(activeWordCount);
+    for (int i = 0; i < activePages; i++) {
+      if (!Arrays.equals(this.pages[i], that.pages[i])) return false;
+    }
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(data);
+    int result = activeWordCount;
+    final int activePages = pagesForWords(activeWordCount);
+    for (int i = 0; i < activePages; i++) {
+      result = 31 * result + Arrays.hashCode(pages[i]);
+    }
+    return result;
   }
 
   /**
@@ -231,7 +248,7 @@ public class Memory {
    * @return The current number of active bytes stored in memory.
    */
   public long getActiveBytes() {
-    return (long) data.size() * Bytes32.SIZE;
+    return (long) activeWordCount * Bytes32.SIZE;
   }
 
   /**
@@ -265,36 +282,9 @@ public class Memory {
 
     ensureCapacityForBytes(start, length);
 
-    // Index of last byte to set.
-    final long end = start + length - 1;
-
-    final int startWord = wordForByte(start);
-    final int idxInStart = indexInWord(start);
-    final int endWord = wordForByte(end);
-    final int idxInEnd = indexInWord(end);
-
-    if (startWord == endWord) {
-      // Bytes within a word, fast-path.
-      final MutableBytesValue bytes = data.get(startWord);
-      return idxInStart == 0 && length == Bytes32.SIZE
-          ? bytes.copy()
-          : bytes.slice(idxInStart, length).copy();
-    }
-
-    // Spans multiple word, slower path.
-    final int bytesInStartWord = Bytes32.SIZE - idxInStart;
-    final int bytesInEndWord = idxInEnd + 1;
-
-    final MutableBytesValue result = MutableBytesValue.create(length);
-    int resultIdx = 0;
-    data.get(startWord).slice(idxInStart).copyTo(result, resultIdx);
-    resultIdx += bytesInStartWord;
-    for (int i = startWord + 1; i < endWord; i++) {
-      data.get(i).copyTo(result, resultIdx);
-      resultIdx += Bytes32.SIZE;
-    }
-    data.get(endWord).slice(0, bytesInEndWord).copyTo(result, resultIdx);
-    return result;
+    final byte[] result = new byte[length];
+    copyFromPages(start, result, 0, length);
+    return BytesValue.wrap(result);
   }
 
   /**
@@ -362,44 +352,11 @@ public class Memory {
 
     // We've properly expanded memory as needed. We now have simply have to copy the
     // min(length, value.size()) first bytes of value and clear any bytes that exceed value's length
-    if (taintedValue.isEmpty()) {
-      clearBytes(location, numBytes);
-      return;
+    final int toCopy = Math.min(length, taintedValue.size());
+    copyToPages(taintedValue, toCopy, start);
+    if (toCopy < length) {
+      clearPages(start + toCopy, length - toCopy);
     }
-    final BytesValue value;
-    if (taintedValue.size() > length) {
-      value = taintedValue.slice(0, length);
-    } else if (taintedValue.size() < length) {
-      value = taintedValue;
-      clearBytes(location.plus(taintedValue.size()), numBytes.minus(taintedValue.size()));
-    } else {
-      value = taintedValue;
-    }
-
-    // Index of last byte to set.
-    final long end = start + value.size() - 1;
-
-    final int startWord = wordForByte(start);
-    final int idxInStart = indexInWord(start);
-    final int endWord = wordForByte(end);
-
-    if (startWord == endWord) {
-      // Bytes within a word, fast-path.
-      value.copyTo(data.get(startWord), idxInStart);
-      return;
-    }
-
-    // Spans multiple word, slower path.
-    final int bytesInStartWord = Bytes32.SIZE - idxInStart;
-
-    int valueIdx = 0;
-    value.slice(valueIdx, bytesInStartWord).copyTo(data.get(startWord), idxInStart);
-    valueIdx += bytesInStartWord;
-    for (int i = startWord + 1; i < endWord; i++) {
-      value.slice(valueIdx, Bytes32.SIZE).copyTo(data.get(i));
-      valueIdx += Bytes32.SIZE;
-    }
-    value.slice(valueIdx).copyTo(data.get(endWord), 0);
   }
 
   /**
@@ -429,34 +386,7 @@ public class Memory {
     }
 
     ensureCapacityForBytes(location, numBytes);
-
-    // Index of last byte to set.
-    final long end = location + numBytes - 1;
-
-    final int startWord = wordForByte(location);
-    final int idxInStart = indexInWord(location);
-    final int endWord = wordForByte(end);
-    final int idxInEnd = indexInWord(end);
-
-    if (startWord == endWord) {
-      // Bytes within a word, fast-path.
-      MutableBytesValue bytes = data.get(startWord);
-      if (idxInStart != 0 || numBytes != Bytes32.SIZE) {
-        bytes = bytes.mutableSlice(idxInStart, numBytes);
-      }
-      bytes.clear();
-      return;
-    }
-
-    // Spans multiple word, slower path.
-    final int bytesInStartWord = Bytes32.SIZE - idxInStart;
-    final int bytesInEndWord = idxInEnd + 1;
-
-    data.get(startWord).mutableSlice(idxInStart, bytesInStartWord).clear();
-    for (int i = startWord + 1; i < endWord; i++) {
-      data.get(i).clear();
-    }
-    data.get(endWord).mutableSlice(0, bytesInEndWord).clear();
+    clearPages(location, numBytes);
   }
 
   /**
@@ -469,10 +399,7 @@ public class Memory {
     final long start = asByteIndex(location);
     ensureCapacityForBytes(start, 1);
 
-    final int word = wordForByte(start);
-    final int idxInWord = indexInWord(start);
-
-    data.get(word).set(idxInWord, value);
+    pages[pageForByte(start)][indexInPage(start)] = value;
   }
 
   /**
@@ -485,22 +412,9 @@ public class Memory {
     final long start = asByteIndex(location);
     ensureCapacityForBytes(start, Bytes32.SIZE);
 
-    final int startWord = wordForByte(start);
-    final int idxInStart = indexInWord(start);
-
-    if (idxInStart == 0) {
-      // Word-aligned. Fast-path.
-      return data.get(startWord).copy();
-    }
-
-    // Spans 2 memory word, slower path.
-    final MutableBytes32 result = MutableBytes32.create();
-    final int sizeInFirstWord = Bytes32.SIZE - idxInStart;
-    data.get(startWord).slice(idxInStart, sizeInFirstWord).copyTo(result, 0);
-    data.get(startWord + 1)
-        .slice(0, Bytes32.SIZE - sizeInFirstWord)
-        .copyTo(result, sizeInFirstWord);
-    return result;
+    final byte[] result = new byte[Bytes32.SIZE];
+    copyFromPages(start, result, 0, Bytes32.SIZE);
+    return Bytes32.wrap(result);
   }
 
   /**
@@ -516,27 +430,71 @@ public class Memory {
     final long start = asByteIndex(location);
     ensureCapacityForBytes(start, Bytes32.SIZE);
 
-    final int startWord = wordForByte(start);
-    final int idxInStart = indexInWord(start);
+    copyToPages(bytes, Bytes32.SIZE, start);
+  }
+
+  // Copies length bytes starting at memory location start into dest. Memory must already have been
+  // expanded to cover the range.
+  private void copyFromPages(
+      final long start, final byte[] dest, final int destOffset, final int length) {
+    int page = pageForByte(start);
+    int idxInPage = indexInPage(start);
+    int copied = 0;
+    while (copied < length) {
+      final int chunk = Math.min(PAGE_SIZE - idxInPage, length - copied);
+      System.arraycopy(pages[page], idxInPage, dest, destOffset + copied, chunk);
+      copied += chunk;
+      page++;
+      idxInPage = 0;
+    }
+  }
 
-    if (idxInStart == 0) {
-      // Word-aligned. Fast-path.
-      bytes.copyTo(data.get(startWord));
-      return;
+  // Copies the first length bytes of value into memory from location start. Memory must already
+  // have been expanded to cover the range.
+  private void copyToPages(final BytesValue value, final int length, final long start) {
+    int page = pageForByte(start);
+    int idxInPage = indexInPage(start);
+    int copied = 0;
+    while (copied < length) {
+      final int chunk = Math.min(PAGE_SIZE - idxInPage, length - copied);
+      // Both sides being array-backed, this ends up in a System.arraycopy for the common cases.
+      final BytesValue source =
+          copied == 0 && chunk == value.size() ? value : value.slice(copied, chunk);
+      source.copyTo(MutableBytesValue.wrap(pages[page], idxInPage, chunk));
+      copied += chunk;
+      page++;
+      idxInPage = 0;
     }
+  }
 
-    // Spans 2 memory word, slower path.
-    final int sizeInFirstWord = Bytes32.SIZE - idxInStart;
-    bytes.slice(0, sizeInFirstWord).copyTo(data.get(startWord), idxInStart);
-    bytes.slice(sizeInFirstWord).copyTo(data.get(startWord + 1), 0);
+  // Zeroes length bytes of memory from location start. Memory must already have been expanded to
+  // cover the range.
+  private void clearPages(final long start, final int length) {
+    int page = pageForByte(start);
+    int idxInPage = indexInPage(start);
+    int cleared = 0;
+    while (cleared < length) {
+      final int chunk = Math.min(PAGE_SIZE - idxInPage, length - cleared);
+      Arrays.fill(pages[page], idxInPage, idxInPage + chunk, (byte) 0);
+      cleared += chunk;
+      page++;
+      idxInPage = 0;
+    }
   }
 
   @Override
   public String toString() {
-    if (data.isEmpty()) {
+    if (activeWordCount == 0) {
       return "";
     }
 
-    return '\n' + Joiner.on("\n").join(data);
+    final StringBuilder builder = new StringBuilder();
+    for (long i = 0; i < activeWordCount; i++) {
+      final long start = i * Bytes32.SIZE;
+      builder
+          .append('\n')
+          .append(BytesValue.wrap(pages[pageForByte(start)], indexInPage(start), Bytes32.SIZE));
+    }
+    return builder.toString();
   }
 }
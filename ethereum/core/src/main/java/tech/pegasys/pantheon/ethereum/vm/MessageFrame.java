@@ -530,6 +530,26 @@ public class MessageFrame {
     return memory.getBytes(offset, length);
   }
 
+  /**
+   * Read a 32-bytes word in memory.
+   *
+   * @param offset The offset in memory the word begins at
+   * @return The word in memory at the specified offset
+   */
+  public Bytes32 readMemoryWord(final UInt256 offset) {
+    return memory.getWord(offset);
+  }
+
+  /**
+   * Write a 32-bytes word to memory
+   *
+   * @param offset The offset in memory
+   * @param value The word to write
+   */
+  public void writeMemoryWord(final UInt256 offset, final Bytes32 value) {
+    memory.setWord(offset, value);
+  }
+
   /**
    * Write byte to memory
    *
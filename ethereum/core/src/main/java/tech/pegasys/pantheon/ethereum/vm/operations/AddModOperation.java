@@ -16,7 +16,9 @@ import tech.pegasys.pantheon.ethereum.core.Gas;
 import tech.pegasys.pantheon.ethereum.vm.AbstractOperation;
 import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
 import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
-import tech.pegasys.pantheon.util.uint.UInt256;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
+import tech.pegasys.pantheon.util.uint.UInt256Bytes;
 
 public class AddModOperation extends AbstractOperation {
 
@@ -31,12 +33,13 @@ public class AddModOperation extends AbstractOperation {
 
   @Override
   public void execute(final MessageFrame frame) {
-    final UInt256 value0 = frame.popStackItem().asUInt256();
-    final UInt256 value1 = frame.popStackItem().asUInt256();
-    final UInt256 value2 = frame.popStackItem().asUInt256();
+    final Bytes32 value0 = frame.popStackItem();
+    final Bytes32 value1 = frame.popStackItem();
+    final Bytes32 value2 = frame.getStackItem(0);
 
-    final UInt256 result = value0.plusModulo(value1, value2);
+    final MutableBytes32 result = MutableBytes32.create();
+    UInt256Bytes.addModulo(value0, value1, value2, result);
 
-    frame.pushStackItem(result.getBytes());
+    frame.setStackItem(0, result);
   }
 }
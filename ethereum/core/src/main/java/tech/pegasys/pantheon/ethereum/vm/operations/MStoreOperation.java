@@ -37,6 +37,6 @@ public class MStoreOperation extends AbstractOperation {
     final UInt256 location = frame.popStackItem().asUInt256();
     final Bytes32 value = frame.popStackItem();
 
-    frame.writeMemory(location, UInt256.U_32, value);
+    frame.writeMemoryWord(location, value);
   }
 }
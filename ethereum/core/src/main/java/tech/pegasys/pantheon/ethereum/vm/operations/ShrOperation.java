@@ -19,8 +19,9 @@ import tech.pegasys.pantheon.ethereum.vm.AbstractOperation;
 import tech.pegasys.pantheon.ethereum.vm.GasCalculator;
 import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
-import tech.pegasys.pantheon.util.bytes.Bytes32s;
+import tech.pegasys.pantheon.util.bytes.MutableBytes32;
 import tech.pegasys.pantheon.util.uint.UInt256;
+import tech.pegasys.pantheon.util.uint.UInt256Bytes;
 
 public class ShrOperation extends AbstractOperation {
 
@@ -36,12 +37,14 @@ public class ShrOperation extends AbstractOperation {
   @Override
   public void execute(final MessageFrame frame) {
     final UInt256 shiftAmount = frame.popStackItem().asUInt256();
-    final Bytes32 value = frame.popStackItem();
+    final Bytes32 value = frame.getStackItem(0);
 
     if (greaterThanOrEqualTo256(shiftAmount)) {
-      frame.pushStackItem(Bytes32.ZERO);
+      frame.setStackItem(0, Bytes32.ZERO);
     } else {
-      frame.pushStackItem(Bytes32s.shiftRight(value, shiftAmount.toInt()));
+      final MutableBytes32 result = MutableBytes32.create();
+      UInt256Bytes.shiftRight(value, shiftAmount.toInt(), result);
+      frame.setStackItem(0, result);
     }
   }
 }
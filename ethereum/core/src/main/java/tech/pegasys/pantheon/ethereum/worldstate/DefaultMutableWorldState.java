@@ -25,6 +25,8 @@ import tech.pegasys.pantheon.ethereum.rlp.RLPException;
 import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
 import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
 import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.TrieNodeCache;
+import tech.pegasys.pantheon.ethereum.worldstate.StateSnapshot.StaleSnapshotException;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
@@ -32,21 +34,46 @@ import tech.pegasys.pantheon.util.uint.UInt256;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.stream.Stream;
 
+import com.google.common.base.Throwables;
+
 public class DefaultMutableWorldState implements MutableWorldState {
 
+  // Committing a single storage trie isn't worth a trip through the pool.
+  private static final int PARALLEL_COMMIT_THRESHOLD = 2;
+  // Shared by all world states so that concurrent imports can't oversubscribe the CPUs.
+  private static final ForkJoinPool TRIE_COMMIT_POOL = createTrieCommitPool();
+
   private final MerklePatriciaTrie<Bytes32, BytesValue> accountStateTrie;
   private final Map<Address, MerklePatriciaTrie<Bytes32, BytesValue>> updatedStorageTries =
       new HashMap<>();
   private final Map<Address, BytesValue> updatedAccountCode = new HashMap<>();
   private final WorldStateStorage worldStateStorage;
+  private final Optional<TrieNodeCache<BytesValue>> trieNodeCache;
+  private final Optional<WorldStateSnapshots> snapshots;
+
+  // Flat state changes made since snapshotRoot. Accounts changed since then are read from the trie,
+  // everything else is read from the snapshot of snapshotRoot while one is available.
+  private final Set<Address> pendingAccounts = new HashSet<>();
+  private final Map<Address, Map<Hash, BytesValue>> pendingStorage = new HashMap<>();
+  private final Set<Address> wipedStorage = new HashSet<>();
+  private Hash snapshotRoot;
+  private volatile Optional<StateSnapshot> snapshot;
 
   public DefaultMutableWorldState(final WorldStateStorage storage) {
     this(MerklePatriciaTrie.EMPTY_TRIE_NODE_HASH, storage);
@@ -54,8 +81,19 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
   public DefaultMutableWorldState(
       final Bytes32 rootHash, final WorldStateStorage worldStateStorage) {
+    this(rootHash, worldStateStorage, Optional.empty(), Optional.empty());
+  }
+
+  public DefaultMutableWorldState(
+      final Bytes32 rootHash,
+      final WorldStateStorage worldStateStorage,
+      final Optional<TrieNodeCache<BytesValue>> trieNodeCache,
+      final Optional<WorldStateSnapshots> snapshots) {
     this.worldStateStorage = worldStateStorage;
+    this.trieNodeCache = trieNodeCache;
+    this.snapshots = snapshots;
     this.accountStateTrie = newAccountStateTrie(rootHash);
+    resetSnapshot(Hash.wrap(rootHash));
   }
 
   public DefaultMutableWorldState(final WorldState worldState) {
@@ -68,17 +106,27 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     final DefaultMutableWorldState other = (DefaultMutableWorldState) worldState;
     this.worldStateStorage = other.worldStateStorage;
+    this.trieNodeCache = other.trieNodeCache;
+    this.snapshots = other.snapshots;
     this.accountStateTrie = newAccountStateTrie(other.accountStateTrie.getRootHash());
+    resetSnapshot(rootHash());
+  }
+
+  private void resetSnapshot(final Hash rootHash) {
+    snapshotRoot = rootHash;
+    snapshot = snapshots.flatMap(s -> s.get(rootHash));
   }
 
   private MerklePatriciaTrie<Bytes32, BytesValue> newAccountStateTrie(final Bytes32 rootHash) {
     return new StoredMerklePatriciaTrie<>(
-        worldStateStorage::getAccountStateTrieNode, rootHash, b -> b, b -> b);
+        worldStateStorage::getAccountStateTrieNode, rootHash, b -> b, b -> b, trieNodeCache);
   }
 
   private MerklePatriciaTrie<Bytes32, BytesValue> newAccountStorageTrie(final Bytes32 rootHash) {
+    // Account and storage trie nodes come from the same storage and hold raw bytes as values, so
+    // both kinds of tries can share the node cache.
     return new StoredMerklePatriciaTrie<>(
-        worldStateStorage::getAccountStorageTrieNode, rootHash, b -> b, b -> b);
+        worldStateStorage::getAccountStorageTrieNode, rootHash, b -> b, b -> b, trieNodeCache);
   }
 
   @Override
@@ -88,18 +136,29 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
   @Override
   public MutableWorldState copy() {
-    return new DefaultMutableWorldState(rootHash(), worldStateStorage);
+    return new DefaultMutableWorldState(rootHash(), worldStateStorage, trieNodeCache, snapshots);
   }
 
   @Override
   public Account get(final Address address) {
     final Hash addressHash = Hash.hash(address);
-    return accountStateTrie
-        .get(Hash.hash(address))
+    return getAccountValue(address, addressHash)
         .map(bytes -> deserializeAccount(address, addressHash, bytes))
         .orElse(null);
   }
 
+  private Optional<BytesValue> getAccountValue(final Address address, final Hash addressHash) {
+    final Optional<StateSnapshot> currentSnapshot = snapshot;
+    if (currentSnapshot.isPresent() && !pendingAccounts.contains(address)) {
+      try {
+        return currentSnapshot.get().getAccount(addressHash);
+      } catch (final StaleSnapshotException e) {
+        snapshot = Optional.empty();
+      }
+    }
+    return accountStateTrie.get(addressHash);
+  }
+
   private AccountState deserializeAccount(
       final Address address, final Hash addressHash, final BytesValue encoded) throws RLPException {
     final RLPInput in = RLP.input(encoded);
@@ -147,18 +206,36 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
   @Override
   public void persist() {
+    final Optional<StateDiffLayer> diffLayer =
+        snapshots.filter(s -> s.isTracked(snapshotRoot)).map(s -> createDiffLayer());
+
     final WorldStateStorage.Updater updater = worldStateStorage.updater();
     // Store updated code
     for (final BytesValue code : updatedAccountCode.values()) {
       updater.putCode(code);
     }
-    // Commit account storage tries
+    // Commit account storage tries. They don't depend on each other, nor on the account trie (the
+    // storage roots were computed when the updates were applied), so their nodes are encoded and
+    // collected in parallel. The updater isn't thread safe, so each trie's nodes are collected and
+    // only written once every trie has been committed.
+    final List<CompletableFuture<Map<Bytes32, BytesValue>>> storageTrieCommits =
+        new ArrayList<>(updatedStorageTries.size());
     for (final MerklePatriciaTrie<Bytes32, BytesValue> updatedStorage :
         updatedStorageTries.values()) {
-      updatedStorage.commit(updater::putAccountStorageTrieNode);
+      storageTrieCommits.add(
+          updatedStorageTries.size() < PARALLEL_COMMIT_THRESHOLD
+              ? CompletableFuture.completedFuture(collectCommittedNodes(updatedStorage))
+              : CompletableFuture.supplyAsync(
+                  () -> collectCommittedNodes(updatedStorage), TRIE_COMMIT_POOL));
+    }
+    // Commit account updates while the storage tries are being committed
+    final Map<Bytes32, BytesValue> accountTrieNodes = collectCommittedNodes(accountStateTrie);
+
+    for (final CompletableFuture<Map<Bytes32, BytesValue>> storageTrieCommit :
+        storageTrieCommits) {
+      joinCommit(storageTrieCommit).forEach(updater::putAccountStorageTrieNode);
     }
-    // Commit account updates
-    accountStateTrie.commit(updater::putAccountStateTrieNode);
+    accountTrieNodes.forEach(updater::putAccountStateTrieNode);
 
     // Clear pending changes that we just flushed
     updatedStorageTries.clear();
@@ -166,6 +243,57 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     // Push changes to underlying storage
     updater.commit();
+
+    diffLayer.ifPresent(layer -> snapshots.get().add(layer));
+    pendingAccounts.clear();
+    pendingStorage.clear();
+    wipedStorage.clear();
+    resetSnapshot(rootHash());
+  }
+
+  private StateDiffLayer createDiffLayer() {
+    final Map<Hash, BytesValue> accounts = new HashMap<>();
+    for (final Address address : pendingAccounts) {
+      final Hash addressHash = Hash.hash(address);
+      accounts.put(addressHash, accountStateTrie.get(addressHash).orElse(BytesValue.EMPTY));
+    }
+
+    final Set<Hash> wiped = new HashSet<>();
+    wipedStorage.forEach(address -> wiped.add(Hash.hash(address)));
+    final Map<Hash, Map<Hash, BytesValue>> storage = new HashMap<>();
+    pendingStorage.forEach(
+        (address, slots) -> storage.put(Hash.hash(address), new HashMap<>(slots)));
+
+    return new StateDiffLayer(snapshotRoot, rootHash(), accounts, wiped, storage);
+  }
+
+  private static Map<Bytes32, BytesValue> collectCommittedNodes(
+      final MerklePatriciaTrie<Bytes32, BytesValue> trie) {
+    final Map<Bytes32, BytesValue> nodes = new LinkedHashMap<>();
+    trie.commit(nodes::put);
+    return nodes;
+  }
+
+  private static <T> T joinCommit(final CompletableFuture<T> commit) {
+    try {
+      return commit.join();
+    } catch (final CompletionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  private static ForkJoinPool createTrieCommitPool() {
+    return new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors(),
+        pool -> {
+          final ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("TrieCommit-" + thread.getPoolIndex());
+          return thread;
+        },
+        null,
+        false);
   }
 
   // An immutable class that represents an individual account as stored in
@@ -254,13 +382,25 @@ public class DefaultMutableWorldState implements MutableWorldState {
 
     @Override
     public UInt256 getStorageValue(final UInt256 key) {
-      final Optional<BytesValue> val = storageTrie().get(Hash.hash(key.getBytes()));
+      final Optional<BytesValue> val = readStorageValue(Hash.hash(key.getBytes()));
       if (!val.isPresent()) {
         return UInt256.ZERO;
       }
       return convertToUInt256(val.get());
     }
 
+    private Optional<BytesValue> readStorageValue(final Hash slotHash) {
+      final Optional<StateSnapshot> currentSnapshot = snapshot;
+      if (currentSnapshot.isPresent() && !pendingAccounts.contains(address)) {
+        try {
+          return currentSnapshot.get().getStorageValue(addressHash, slotHash);
+        } catch (final StaleSnapshotException e) {
+          snapshot = Optional.empty();
+        }
+      }
+      return storageTrie().get(slotHash);
+    }
+
     @Override
     public UInt256 getOriginalStorageValue(final UInt256 key) {
       return getStorageValue(key);
@@ -309,8 +449,7 @@ public class DefaultMutableWorldState implements MutableWorldState {
       final DefaultMutableWorldState wrapped = wrappedWorldView();
       final Hash addressHash = Hash.hash(address);
       return wrapped
-          .accountStateTrie
-          .get(addressHash)
+          .getAccountValue(address, addressHash)
           .map(bytes -> wrapped.deserializeAccount(address, addressHash, bytes))
           .orElse(null);
     }
@@ -335,9 +474,21 @@ public class DefaultMutableWorldState implements MutableWorldState {
         wrapped.accountStateTrie.remove(addressHash);
         wrapped.updatedStorageTries.remove(address);
         wrapped.updatedAccountCode.remove(address);
+        wrapped.pendingAccounts.add(address);
+        wrapped.pendingStorage.remove(address);
+        wrapped.wipedStorage.add(address);
       }
 
-      for (final UpdateTrackingAccount<AccountState> updated : updatedAccounts()) {
+      // Storage tries of different accounts are independent, so their updates are applied and
+      // their roots hashed in parallel, while everything else the world state tracks, which isn't
+      // thread safe, is updated here.
+      final Collection<UpdateTrackingAccount<AccountState>> updatedAccounts = updatedAccounts();
+      final boolean parallelStorageUpdates =
+          updatedAccounts.stream().filter(updated -> !updated.getUpdatedStorage().isEmpty()).count()
+              >= PARALLEL_COMMIT_THRESHOLD;
+      final List<CompletableFuture<Hash>> storageRoots = new ArrayList<>(updatedAccounts.size());
+      final List<Hash> codeHashes = new ArrayList<>(updatedAccounts.size());
+      for (final UpdateTrackingAccount<AccountState> updated : updatedAccounts) {
         final AccountState origin = updated.getWrappedAccount();
 
         // Save the code in key-value storage ...
@@ -346,43 +497,77 @@ public class DefaultMutableWorldState implements MutableWorldState {
           codeHash = Hash.hash(updated.getCode());
           wrapped.updatedAccountCode.put(updated.getAddress(), updated.getCode());
         }
+        codeHashes.add(codeHash);
         // ...and storage in the account trie first.
         final boolean freshState = origin == null || updated.getStorageWasCleared();
-        Hash storageRoot = freshState ? Hash.EMPTY_TRIE_HASH : origin.getStorageRoot();
+        final Hash storageRoot = freshState ? Hash.EMPTY_TRIE_HASH : origin.getStorageRoot();
         if (freshState) {
           wrapped.updatedStorageTries.remove(updated.getAddress());
+          wrapped.pendingStorage.remove(updated.getAddress());
+          // An account without origin doesn't exist yet, so it has no storage left to clear.
+          if (origin != null) {
+            wrapped.wipedStorage.add(updated.getAddress());
+          }
         }
+        wrapped.pendingAccounts.add(updated.getAddress());
         final SortedMap<UInt256, UInt256> updatedStorage = updated.getUpdatedStorage();
-        if (!updatedStorage.isEmpty()) {
-          // Apply any storage updates
-          final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie =
-              freshState
-                  ? wrapped.newAccountStorageTrie(Hash.EMPTY_TRIE_HASH)
-                  : origin.storageTrie();
-          wrapped.updatedStorageTries.put(updated.getAddress(), storageTrie);
-          for (final Map.Entry<UInt256, UInt256> entry : updatedStorage.entrySet()) {
-            final UInt256 value = entry.getValue();
-            final Hash keyHash = Hash.hash(entry.getKey().getBytes());
-            if (value.isZero()) {
-              storageTrie.remove(keyHash);
-            } else {
-              storageTrie.put(keyHash, RLP.encode(out -> out.writeUInt256Scalar(entry.getValue())));
-            }
-          }
-          storageRoot = Hash.wrap(storageTrie.getRootHash());
+        if (updatedStorage.isEmpty()) {
+          storageRoots.add(CompletableFuture.completedFuture(storageRoot));
+          continue;
+        }
+        final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie =
+            freshState
+                ? wrapped.newAccountStorageTrie(Hash.EMPTY_TRIE_HASH)
+                : origin.storageTrie();
+        wrapped.updatedStorageTries.put(updated.getAddress(), storageTrie);
+        final Map<Hash, BytesValue> pendingSlots =
+            wrapped.pendingStorage.computeIfAbsent(updated.getAddress(), a -> new HashMap<>());
+        final Map<Hash, BytesValue> slotUpdates = new LinkedHashMap<>();
+        for (final Map.Entry<UInt256, UInt256> entry : updatedStorage.entrySet()) {
+          final UInt256 value = entry.getValue();
+          final Hash keyHash = Hash.hash(entry.getKey().getBytes());
+          slotUpdates.put(
+              keyHash,
+              value.isZero()
+                  ? BytesValue.EMPTY
+                  : RLP.encode(out -> out.writeUInt256Scalar(value)));
         }
+        pendingSlots.putAll(slotUpdates);
+        storageRoots.add(
+            parallelStorageUpdates
+                ? CompletableFuture.supplyAsync(
+                    () -> applyStorageUpdates(storageTrie, slotUpdates), TRIE_COMMIT_POOL)
+                : CompletableFuture.completedFuture(applyStorageUpdates(storageTrie, slotUpdates)));
+      }
 
-        // Lastly, save the new account.
+      // Lastly, save the new accounts.
+      int index = 0;
+      for (final UpdateTrackingAccount<AccountState> updated : updatedAccounts) {
         final BytesValue account =
             serializeAccount(
                 updated.getNonce(),
                 updated.getBalance(),
-                storageRoot,
-                codeHash,
+                joinCommit(storageRoots.get(index)),
+                codeHashes.get(index),
                 updated.getVersion());
+        index++;
 
         wrapped.accountStateTrie.put(updated.getAddressHash(), account);
       }
     }
+
+    private static Hash applyStorageUpdates(
+        final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie,
+        final Map<Hash, BytesValue> slotUpdates) {
+      slotUpdates.forEach(
+          (keyHash, value) -> {
+            if (value.isEmpty()) {
+              storageTrie.remove(keyHash);
+            } else {
+              storageTrie.put(keyHash, value);
+            }
+          });
+      return Hash.wrap(storageTrie.getRootHash());
+    }
   }
 }
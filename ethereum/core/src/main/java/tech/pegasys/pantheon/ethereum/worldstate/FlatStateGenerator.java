@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.MerkleTrieException;
+import tech.pegasys.pantheon.ethereum.trie.NodeLoader;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Fills the flat state with the accounts and storage of a world state by walking its tries.
+ *
+ * <p>Entries are written in batches as they are read, so a world state of any size can be
+ * generated without holding it in memory. The flat state is only complete once {@link #generate()}
+ * returns, and the caller is responsible for recording that.
+ */
+class FlatStateGenerator {
+
+  static final int DEFAULT_BATCH_SIZE = 10_000;
+
+  private final WorldStateStorage storage;
+  private final Hash rootHash;
+  private final int batchSize;
+  private final BooleanSupplier stopped;
+
+  FlatStateGenerator(
+      final WorldStateStorage storage,
+      final Hash rootHash,
+      final int batchSize,
+      final BooleanSupplier stopped) {
+    this.storage = storage;
+    this.rootHash = rootHash;
+    this.batchSize = batchSize;
+    this.stopped = stopped;
+  }
+
+  /**
+   * Writes every account and storage value of the world state to the flat state.
+   *
+   * @throws MerkleTrieException if a node of the world state is missing, for example because it
+   *     was pruned while being read.
+   * @throws CancellationException if generation was stopped before it completed.
+   */
+  void generate() {
+    forEachBatch(
+        storage::getAccountStateTrieNode,
+        rootHash,
+        (accounts, updater) ->
+            accounts.forEach(
+                (accountHash, account) -> {
+                  final Hash addressHash = Hash.wrap(accountHash);
+                  updater.putFlatAccount(addressHash, account);
+                  final Hash storageRoot =
+                      StateTrieAccountValue.readFrom(RLP.input(account)).getStorageRoot();
+                  if (!storageRoot.equals(Hash.EMPTY_TRIE_HASH)) {
+                    generateStorage(addressHash, storageRoot);
+                  }
+                }));
+  }
+
+  private void generateStorage(final Hash addressHash, final Hash storageRoot) {
+    forEachBatch(
+        storage::getAccountStorageTrieNode,
+        storageRoot,
+        (slots, updater) ->
+            slots.forEach(
+                (slotHash, value) ->
+                    updater.putFlatStorageValue(addressHash, Hash.wrap(slotHash), value)));
+  }
+
+  private void forEachBatch(
+      final NodeLoader nodeLoader,
+      final Bytes32 trieRoot,
+      final BiConsumer<Map<Bytes32, BytesValue>, WorldStateStorage.Updater> writer) {
+    final MerklePatriciaTrie<Bytes32, BytesValue> trie =
+        new StoredMerklePatriciaTrie<>(nodeLoader, trieRoot, b -> b, b -> b);
+    Bytes32 startKey = Bytes32.ZERO;
+    while (true) {
+      if (stopped.getAsBoolean()) {
+        throw new CancellationException("Flat state generation stopped");
+      }
+      // One extra entry is read to find where the next batch starts.
+      final NavigableMap<Bytes32, BytesValue> entries =
+          new TreeMap<>(trie.entriesFrom(startKey, batchSize + 1));
+      final Map.Entry<Bytes32, BytesValue> next =
+          entries.size() > batchSize ? entries.pollLastEntry() : null;
+      final WorldStateStorage.Updater updater = storage.updater();
+      writer.accept(entries, updater);
+      updater.commit();
+      if (next == null) {
+        return;
+      }
+      startKey = next.getKey();
+    }
+  }
+}
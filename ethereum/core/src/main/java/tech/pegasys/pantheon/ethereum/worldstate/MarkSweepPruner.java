@@ -0,0 +1,290 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.metrics.Counter;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.google.common.collect.Iterators;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Removes world state nodes that are no longer reachable from recent state roots.
+ *
+ * <p>Nodes reachable from the state root of a chosen block are marked by walking the trie, and
+ * every node written after {@link #prepare()} is marked as it is added. Marks are kept in a
+ * dedicated storage so they don't need to fit in memory. Sweeping then removes every unmarked node
+ * in small batches, pausing between batches so block import is not starved of IO.
+ */
+public class MarkSweepPruner {
+  private static final Logger LOG = LogManager.getLogger();
+  private static final BytesValue IN_USE = BytesValue.of(1);
+
+  private final WorldStateStorage worldStateStorage;
+  private final Blockchain blockchain;
+  private final KeyValueStorage markStorage;
+  private final int operationsPerBatch;
+  private final Duration pauseBetweenBatches;
+  private final Counter markedNodesCounter;
+  private final Counter markOperationCounter;
+  private final Counter sweepOperationCounter;
+  private final Counter sweptNodesCounter;
+  // Held while marking newly added nodes and while sweeping a batch so a node can't be removed
+  // between being checked and being written again.
+  private final ReentrantLock markLock = new ReentrantLock();
+  private final Set<Bytes32> pendingMarks = ConcurrentHashMap.newKeySet();
+  private volatile long nodeAddedListenerId;
+  private long lowestUnsweptBlockNumber = 0;
+  private int operationsSincePause = 0;
+
+  public MarkSweepPruner(
+      final WorldStateStorage worldStateStorage,
+      final Blockchain blockchain,
+      final KeyValueStorage markStorage,
+      final MetricsSystem metricsSystem,
+      final PrunerConfiguration prunerConfiguration) {
+    this.worldStateStorage = worldStateStorage;
+    this.blockchain = blockchain;
+    this.markStorage = markStorage;
+    this.operationsPerBatch = prunerConfiguration.getOperationsPerBatch();
+    this.pauseBetweenBatches = prunerConfiguration.getPauseBetweenBatches();
+
+    markedNodesCounter =
+        metricsSystem.createCounter(
+            PantheonMetricCategory.PRUNER, "marked_nodes_total", "Total number of nodes marked");
+    markOperationCounter =
+        metricsSystem.createCounter(
+            PantheonMetricCategory.PRUNER,
+            "mark_operations_total",
+            "Total number of mark operations performed");
+    sweptNodesCounter =
+        metricsSystem.createCounter(
+            PantheonMetricCategory.PRUNER,
+            "swept_nodes_total",
+            "Total number of unused nodes removed");
+    sweepOperationCounter =
+        metricsSystem.createCounter(
+            PantheonMetricCategory.PRUNER,
+            "sweep_operations_total",
+            "Total number of sweep operations performed");
+  }
+
+  /** Clears any previous marks and starts marking every node added to the world state storage. */
+  public void prepare() {
+    worldStateStorage.removeNodeAddedListener(nodeAddedListenerId); // Just in case.
+    markStorage.clear();
+    pendingMarks.clear();
+    nodeAddedListenerId = worldStateStorage.addNodeAddedListener(this::markNewNodes);
+  }
+
+  /**
+   * Marks every node and contract code reachable from the given state root.
+   *
+   * @param rootHash the state root to mark.
+   */
+  public void mark(final Hash rootHash) {
+    markOperationCounter.inc();
+    createStateTrie(rootHash)
+        .visitAll(
+            node -> {
+              markNode(node.getHash());
+              node.getValue().ifPresent(this::markAccountState);
+              pauseIfBatchComplete();
+            });
+    flushPendingMarks();
+    LOG.debug("Completed marking used nodes for pruning");
+  }
+
+  /**
+   * Removes every node that hasn't been marked since the last call to {@link #prepare()} and stops
+   * marking newly added nodes.
+   *
+   * @param markedBlockNumber the number of the block whose state was marked.
+   */
+  public void sweepBefore(final long markedBlockNumber) {
+    flushPendingMarks();
+    sweepOperationCounter.inc();
+    LOG.debug("Sweeping unused nodes");
+    // Remove old state roots first so that partially swept world states are reported as
+    // unavailable rather than failing part way through being read.
+    final long prunedNodeCount = sweepStateRoots(markedBlockNumber) + sweepAllNodes();
+    sweptNodesCounter.inc(prunedNodeCount);
+    lowestUnsweptBlockNumber = markedBlockNumber;
+    cleanup();
+    LOG.debug("Completed sweeping {} unused nodes", prunedNodeCount);
+  }
+
+  /** Stops marking newly added nodes and discards all existing marks. */
+  public void cleanup() {
+    worldStateStorage.removeNodeAddedListener(nodeAddedListenerId);
+    markStorage.clear();
+    pendingMarks.clear();
+  }
+
+  public boolean isWorldStateAvailable(final Hash rootHash) {
+    return worldStateStorage.isWorldStateAvailable(rootHash);
+  }
+
+  public boolean isMarked(final Bytes32 key) {
+    return pendingMarks.contains(key) || markStorage.containsKey(key);
+  }
+
+  private long sweepStateRoots(final long markedBlockNumber) {
+    long prunedNodeCount = 0;
+    final List<Bytes32> stateRoots = new ArrayList<>(operationsPerBatch);
+    for (long blockNumber = markedBlockNumber - 1;
+        blockNumber >= lowestUnsweptBlockNumber;
+        blockNumber--) {
+      final Hash stateRoot =
+          blockchain
+              .getBlockHeader(blockNumber)
+              .orElseThrow(() -> new IllegalStateException("Missing canonical block header"))
+              .getStateRoot();
+      if (!worldStateStorage.isWorldStateAvailable(stateRoot)) {
+        break;
+      }
+      stateRoots.add(stateRoot);
+      if (stateRoots.size() >= operationsPerBatch) {
+        prunedNodeCount += sweepBatch(stateRoots);
+        stateRoots.clear();
+      }
+    }
+    return prunedNodeCount + sweepBatch(stateRoots);
+  }
+
+  private long sweepAllNodes() {
+    long prunedNodeCount = 0;
+    try (final Stream<Bytes32> nodeHashes = worldStateStorage.streamNodeHashes()) {
+      final Iterator<List<Bytes32>> batches =
+          Iterators.partition(nodeHashes.iterator(), operationsPerBatch);
+      while (batches.hasNext()) {
+        prunedNodeCount += sweepBatch(batches.next());
+      }
+    }
+    return prunedNodeCount;
+  }
+
+  private long sweepBatch(final Collection<Bytes32> candidates) {
+    long prunedNodeCount = 0;
+    markLock.lock();
+    try {
+      final WorldStateStorage.Updater updater = worldStateStorage.updater();
+      for (final Bytes32 candidate : candidates) {
+        if (!isMarked(candidate)) {
+          updater.removeNodeData(candidate);
+          prunedNodeCount++;
+        }
+      }
+      updater.commit();
+    } finally {
+      markLock.unlock();
+    }
+    pause();
+    return prunedNodeCount;
+  }
+
+  private void markAccountState(final BytesValue accountStateValue) {
+    final StateTrieAccountValue accountValue =
+        StateTrieAccountValue.readFrom(RLP.input(accountStateValue));
+    markNode(accountValue.getCodeHash());
+
+    createStorageTrie(accountValue.getStorageRoot())
+        .visitAll(
+            storageNode -> {
+              markNode(storageNode.getHash());
+              pauseIfBatchComplete();
+            });
+  }
+
+  private MerklePatriciaTrie<Bytes32, BytesValue> createStateTrie(final Bytes32 rootHash) {
+    return new StoredMerklePatriciaTrie<>(
+        worldStateStorage::getAccountStateTrieNode,
+        rootHash,
+        Function.identity(),
+        Function.identity());
+  }
+
+  private MerklePatriciaTrie<Bytes32, BytesValue> createStorageTrie(final Bytes32 rootHash) {
+    return new StoredMerklePatriciaTrie<>(
+        worldStateStorage::getAccountStorageTrieNode,
+        rootHash,
+        Function.identity(),
+        Function.identity());
+  }
+
+  private void markNewNodes(final Collection<Bytes32> nodeHashes) {
+    markLock.lock();
+    try {
+      nodeHashes.forEach(this::markNode);
+    } finally {
+      markLock.unlock();
+    }
+  }
+
+  private void markNode(final Bytes32 hash) {
+    markedNodesCounter.inc();
+    pendingMarks.add(hash);
+    if (pendingMarks.size() >= operationsPerBatch) {
+      flushPendingMarks();
+    }
+  }
+
+  private void flushPendingMarks() {
+    final Set<Bytes32> marks = new HashSet<>(pendingMarks);
+    final KeyValueStorage.Transaction transaction = markStorage.startTransaction();
+    marks.forEach(hash -> transaction.put(hash, IN_USE));
+    transaction.commit();
+    // Only drop pending marks once they are persisted so a node is always seen as marked
+    pendingMarks.removeAll(marks);
+  }
+
+  private void pauseIfBatchComplete() {
+    operationsSincePause++;
+    if (operationsSincePause >= operationsPerBatch) {
+      pause();
+    }
+  }
+
+  private void pause() {
+    operationsSincePause = 0;
+    try {
+      Thread.sleep(pauseBetweenBatches.toMillis());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while pruning");
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.chain.BlockAddedEvent;
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.trie.MerkleTrieException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Drives a {@link MarkSweepPruner} from new chain heads so that the world state of the most recent
+ * blocks is retained and older state is removed in the background.
+ */
+public class Pruner {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private final MarkSweepPruner pruningStrategy;
+  private final Blockchain blockchain;
+  private final ExecutorService executorService;
+  private final long blocksRetained;
+  private final long blockConfirmations;
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+  private volatile long markBlockNumber = 0;
+  private volatile BlockHeader markedBlockHeader;
+  private Long blockAddedObserverId;
+
+  public Pruner(
+      final MarkSweepPruner pruningStrategy,
+      final Blockchain blockchain,
+      final ExecutorService executorService,
+      final PrunerConfiguration prunerConfiguration) {
+    this.pruningStrategy = pruningStrategy;
+    this.blockchain = blockchain;
+    this.executorService = executorService;
+    this.blocksRetained = prunerConfiguration.getBlocksRetained();
+    this.blockConfirmations = prunerConfiguration.getBlockConfirmations();
+  }
+
+  public void start() {
+    LOG.info("Starting world state pruning, retaining state for {} blocks", blocksRetained);
+    blockAddedObserverId =
+        blockchain.observeBlockAdded((event, blockchain) -> handleNewBlock(event));
+  }
+
+  public void stop() throws InterruptedException {
+    if (blockAddedObserverId != null) {
+      blockchain.removeObserver(blockAddedObserverId);
+    }
+    executorService.shutdownNow();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  private void handleNewBlock(final BlockAddedEvent event) {
+    if (!event.isNewCanonicalHead()) {
+      return;
+    }
+
+    final long blockNumber = event.getBlock().getHeader().getNumber();
+    if (state.compareAndSet(State.IDLE, State.TRANSIENT_FORK_OUTLIVING)) {
+      pruningStrategy.prepare();
+      markBlockNumber = blockNumber;
+    } else if (blockNumber >= markBlockNumber + blockConfirmations
+        && state.compareAndSet(State.TRANSIENT_FORK_OUTLIVING, State.MARKING)) {
+      markedBlockHeader =
+          blockchain
+              .getBlockHeader(markBlockNumber)
+              .orElseThrow(() -> new IllegalStateException("Missing canonical block header"));
+      execute(this::mark);
+    } else if (blockNumber >= markBlockNumber + blocksRetained
+        && state.compareAndSet(State.MARKING_COMPLETE, State.SWEEPING)) {
+      if (blockchain.blockIsOnCanonicalChain(markedBlockHeader.getHash())) {
+        execute(this::sweep);
+      } else {
+        // The marked state was reorganised away so there's no guarantee it covers the new chain
+        LOG.debug("Marked block is no longer canonical, restarting pruning");
+        abandon();
+      }
+    }
+  }
+
+  private void mark() {
+    if (!pruningStrategy.isWorldStateAvailable(markedBlockHeader.getStateRoot())) {
+      LOG.debug("World state for block {} is unavailable, skipping pruning", markBlockNumber);
+      abandon();
+      return;
+    }
+    LOG.debug("Begin marking used nodes for pruning. Block number: {}", markBlockNumber);
+    pruningStrategy.mark(markedBlockHeader.getStateRoot());
+    state.compareAndSet(State.MARKING, State.MARKING_COMPLETE);
+  }
+
+  private void sweep() {
+    LOG.debug("Begin sweeping unused nodes for pruning. Retention period: {}", blocksRetained);
+    pruningStrategy.sweepBefore(markBlockNumber);
+    state.compareAndSet(State.SWEEPING, State.IDLE);
+  }
+
+  private void execute(final Runnable action) {
+    executorService.execute(new PruningTask(action));
+  }
+
+  private void abandon() {
+    pruningStrategy.cleanup();
+    state.set(State.IDLE);
+  }
+
+  private class PruningTask implements Runnable {
+    private final Runnable action;
+
+    PruningTask(final Runnable action) {
+      this.action = action;
+    }
+
+    @Override
+    public void run() {
+      try {
+        action.run();
+      } catch (final MerkleTrieException e) {
+        // Typically because the world state is still being downloaded by fast sync
+        LOG.debug("World state is incomplete, abandoning pruning", e);
+        abandon();
+      } catch (final CancellationException e) {
+        LOG.debug("Pruning cancelled");
+        abandon();
+      } catch (final Throwable t) {
+        LOG.error("Pruning failed", t);
+        abandon();
+      }
+    }
+  }
+
+  private enum State {
+    IDLE,
+    TRANSIENT_FORK_OUTLIVING,
+    MARKING,
+    MARKING_COMPLETE,
+    SWEEPING
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+
+public class PrunerConfiguration {
+  public static final long DEFAULT_BLOCKS_RETAINED = 1024;
+  public static final long DEFAULT_BLOCK_CONFIRMATIONS = 10;
+  public static final int DEFAULT_OPERATIONS_PER_BATCH = 1000;
+  public static final Duration DEFAULT_PAUSE_BETWEEN_BATCHES = Duration.ofMillis(1);
+
+  private final long blocksRetained;
+  private final long blockConfirmations;
+  private final int operationsPerBatch;
+  private final Duration pauseBetweenBatches;
+
+  public PrunerConfiguration(
+      final long blocksRetained,
+      final long blockConfirmations,
+      final int operationsPerBatch,
+      final Duration pauseBetweenBatches) {
+    checkArgument(blockConfirmations >= 0, "Block confirmations must not be negative");
+    checkArgument(
+        blocksRetained > blockConfirmations,
+        "Blocks retained must be greater than block confirmations");
+    checkArgument(operationsPerBatch > 0, "Operations per batch must be positive");
+    this.blocksRetained = blocksRetained;
+    this.blockConfirmations = blockConfirmations;
+    this.operationsPerBatch = operationsPerBatch;
+    this.pauseBetweenBatches = pauseBetweenBatches;
+  }
+
+  public PrunerConfiguration(final long blocksRetained, final long blockConfirmations) {
+    this(
+        blocksRetained,
+        blockConfirmations,
+        DEFAULT_OPERATIONS_PER_BATCH,
+        DEFAULT_PAUSE_BETWEEN_BATCHES);
+  }
+
+  public static PrunerConfiguration getDefault() {
+    return new PrunerConfiguration(DEFAULT_BLOCKS_RETAINED, DEFAULT_BLOCK_CONFIRMATIONS);
+  }
+
+  /** @return the number of blocks behind the chain head for which state is always kept. */
+  public long getBlocksRetained() {
+    return blocksRetained;
+  }
+
+  /**
+   * @return the number of blocks a block must be buried under before its state is used as the
+   *     basis for marking, so that transient forks are not marked.
+   */
+  public long getBlockConfirmations() {
+    return blockConfirmations;
+  }
+
+  /** @return the maximum number of nodes marked or swept before the pruner pauses. */
+  public int getOperationsPerBatch() {
+    return operationsPerBatch;
+  }
+
+  public Duration getPauseBetweenBatches() {
+    return pauseBetweenBatches;
+  }
+}
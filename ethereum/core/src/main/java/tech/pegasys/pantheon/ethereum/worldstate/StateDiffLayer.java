@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
+import tech.pegasys.pantheon.ethereum.rlp.RLPOutput;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The flat state changes made by going from the world state at {@code parentRoot} to the world
+ * state at {@code rootHash}.
+ *
+ * <p>Accounts and storage slots are keyed by hash, and map to their new RLP encoded value. An empty
+ * value marks an account that was deleted, or a storage slot that was cleared. Accounts whose
+ * storage was wiped, because they were deleted or recreated, are recorded instead of every slot
+ * they used to have; their storage in this layer is only the slots set after the wipe. Layers are
+ * never modified once created.
+ */
+class StateDiffLayer {
+
+  private final Hash parentRoot;
+  private final Hash rootHash;
+  private final Map<Hash, BytesValue> accounts;
+  private final Set<Hash> wipedStorage;
+  private final Map<Hash, Map<Hash, BytesValue>> storage;
+
+  StateDiffLayer(
+      final Hash parentRoot,
+      final Hash rootHash,
+      final Map<Hash, BytesValue> accounts,
+      final Set<Hash> wipedStorage,
+      final Map<Hash, Map<Hash, BytesValue>> storage) {
+    this.parentRoot = parentRoot;
+    this.rootHash = rootHash;
+    this.accounts = Collections.unmodifiableMap(accounts);
+    this.wipedStorage = Collections.unmodifiableSet(wipedStorage);
+    this.storage = Collections.unmodifiableMap(storage);
+  }
+
+  Hash getParentRoot() {
+    return parentRoot;
+  }
+
+  Hash getRootHash() {
+    return rootHash;
+  }
+
+  /**
+   * Returns the accounts changed by this layer.
+   *
+   * @return The new encoded value of each changed account by account hash, empty if deleted.
+   */
+  Map<Hash, BytesValue> getAccounts() {
+    return accounts;
+  }
+
+  /**
+   * Returns the accounts whose storage was wiped by this layer. Slots of these accounts that aren't
+   * in {@link #getStorage()} are zero.
+   *
+   * @return The hashes of the accounts whose storage was wiped.
+   */
+  Set<Hash> getWipedStorage() {
+    return wipedStorage;
+  }
+
+  /**
+   * Returns the storage slots changed by this layer.
+   *
+   * @return The new encoded value of each changed slot by slot hash, grouped by account hash. Empty
+   *     values mark cleared slots.
+   */
+  Map<Hash, Map<Hash, BytesValue>> getStorage() {
+    return storage;
+  }
+
+  boolean isEmpty() {
+    return accounts.isEmpty() && wipedStorage.isEmpty() && storage.isEmpty();
+  }
+
+  void writeTo(final WorldStateStorage.Updater updater) {
+    // Wipes go first so that slots set after them are written over the removals.
+    wipedStorage.forEach(updater::removeFlatStorage);
+    accounts.forEach(
+        (accountHash, value) -> {
+          if (value.isEmpty()) {
+            updater.removeFlatAccount(accountHash);
+          } else {
+            updater.putFlatAccount(accountHash, value);
+          }
+        });
+    storage.forEach(
+        (accountHash, slots) ->
+            slots.forEach(
+                (slotHash, value) -> {
+                  if (value.isEmpty()) {
+                    updater.removeFlatStorageValue(accountHash, slotHash);
+                  } else {
+                    updater.putFlatStorageValue(accountHash, slotHash, value);
+                  }
+                }));
+  }
+
+  void writeTo(final RLPOutput out) {
+    out.startList();
+    out.writeBytesValue(parentRoot);
+    out.writeBytesValue(rootHash);
+
+    out.startList();
+    accounts.forEach(
+        (accountHash, value) -> {
+          out.startList();
+          out.writeBytesValue(accountHash);
+          out.writeBytesValue(value);
+          out.endList();
+        });
+    out.endList();
+
+    out.writeList(wipedStorage, (accountHash, hashOut) -> hashOut.writeBytesValue(accountHash));
+
+    out.startList();
+    storage.forEach(
+        (accountHash, slots) -> {
+          out.startList();
+          out.writeBytesValue(accountHash);
+          out.startList();
+          slots.forEach(
+              (slotHash, value) -> {
+                out.startList();
+                out.writeBytesValue(slotHash);
+                out.writeBytesValue(value);
+                out.endList();
+              });
+          out.endList();
+          out.endList();
+        });
+    out.endList();
+
+    out.endList();
+  }
+
+  static StateDiffLayer readFrom(final RLPInput in) {
+    in.enterList();
+    final Hash parentRoot = Hash.wrap(in.readBytes32());
+    final Hash rootHash = Hash.wrap(in.readBytes32());
+
+    final Map<Hash, BytesValue> accounts = new HashMap<>();
+    in.enterList();
+    while (!in.isEndOfCurrentList()) {
+      in.enterList();
+      accounts.put(Hash.wrap(in.readBytes32()), in.readBytesValue());
+      in.leaveList();
+    }
+    in.leaveList();
+
+    final Set<Hash> wipedStorage =
+        new HashSet<>(in.readList(hashIn -> Hash.wrap(hashIn.readBytes32())));
+
+    final Map<Hash, Map<Hash, BytesValue>> storage = new HashMap<>();
+    in.enterList();
+    while (!in.isEndOfCurrentList()) {
+      in.enterList();
+      final Hash accountHash = Hash.wrap(in.readBytes32());
+      final Map<Hash, BytesValue> slots = new HashMap<>();
+      in.enterList();
+      while (!in.isEndOfCurrentList()) {
+        in.enterList();
+        slots.put(Hash.wrap(in.readBytes32()), in.readBytesValue());
+        in.leaveList();
+      }
+      in.leaveList();
+      in.leaveList();
+      storage.put(accountHash, slots);
+    }
+    in.leaveList();
+
+    in.leaveList();
+    return new StateDiffLayer(parentRoot, rootHash, accounts, wipedStorage, storage);
+  }
+}
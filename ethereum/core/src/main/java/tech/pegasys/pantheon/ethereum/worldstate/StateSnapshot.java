@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A read-only view of the accounts and storage of a single world state, backed by the diff layers
+ * leading to that state on top of the flat state.
+ *
+ * <p>The flat state keeps moving forward as diff layers get merged into it, so a snapshot only
+ * stays usable while the flat state is at one of the states its layers go through. Reads throw
+ * {@link StaleSnapshotException} once that's no longer the case, and callers should fall back to
+ * the trie.
+ */
+class StateSnapshot {
+
+  private final WorldStateSnapshots snapshots;
+  private final Hash rootHash;
+  // Newest first, i.e. the layer producing rootHash comes first.
+  private final List<StateDiffLayer> layers;
+  private final Set<Hash> coveredRoots;
+
+  StateSnapshot(
+      final WorldStateSnapshots snapshots,
+      final Hash rootHash,
+      final List<StateDiffLayer> layers,
+      final Set<Hash> coveredRoots) {
+    this.snapshots = snapshots;
+    this.rootHash = rootHash;
+    this.layers = layers;
+    this.coveredRoots = coveredRoots;
+  }
+
+  Hash getRootHash() {
+    return rootHash;
+  }
+
+  /**
+   * Returns an account of this world state.
+   *
+   * @param accountHash The hash of the account address.
+   * @return The RLP encoded account, or empty if the account doesn't exist.
+   * @throws StaleSnapshotException if this snapshot can no longer be read from.
+   */
+  Optional<BytesValue> getAccount(final Hash accountHash) {
+    for (final StateDiffLayer layer : layers) {
+      final BytesValue value = layer.getAccounts().get(accountHash);
+      if (value != null) {
+        return value.isEmpty() ? Optional.empty() : Optional.of(value);
+      }
+    }
+    return snapshots.readFlatState(
+        rootHash, coveredRoots, storage -> storage.getFlatAccount(accountHash));
+  }
+
+  /**
+   * Returns a storage value of this world state.
+   *
+   * @param accountHash The hash of the account address.
+   * @param slotHash The hash of the storage slot.
+   * @return The RLP encoded storage value, or empty if the slot is zero.
+   * @throws StaleSnapshotException if this snapshot can no longer be read from.
+   */
+  Optional<BytesValue> getStorageValue(final Hash accountHash, final Hash slotHash) {
+    for (final StateDiffLayer layer : layers) {
+      final Map<Hash, BytesValue> slots = layer.getStorage().get(accountHash);
+      final BytesValue value = slots == null ? null : slots.get(slotHash);
+      if (value != null) {
+        return value.isEmpty() ? Optional.empty() : Optional.of(value);
+      }
+      if (layer.getWipedStorage().contains(accountHash)) {
+        return Optional.empty();
+      }
+    }
+    return snapshots.readFlatState(
+        rootHash, coveredRoots, storage -> storage.getFlatStorageValue(accountHash, slotHash));
+  }
+
+  static class StaleSnapshotException extends RuntimeException {
+    StaleSnapshotException(final Hash rootHash) {
+      super("Flat state has moved past the snapshot for world state " + rootHash);
+    }
+  }
+}
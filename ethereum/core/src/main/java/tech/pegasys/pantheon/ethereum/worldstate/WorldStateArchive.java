@@ -16,16 +16,38 @@ import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
 import tech.pegasys.pantheon.ethereum.core.WorldState;
 import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.TrieNodeCache;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Optional;
 
 public class WorldStateArchive {
   private final WorldStateStorage storage;
+  private final Optional<TrieNodeCache<BytesValue>> trieNodeCache;
+  private final Optional<WorldStateSnapshots> snapshots;
   private static final Hash EMPTY_ROOT_HASH = Hash.wrap(MerklePatriciaTrie.EMPTY_TRIE_NODE_HASH);
 
   public WorldStateArchive(final WorldStateStorage storage) {
+    this(storage, Optional.empty(), Optional.empty());
+  }
+
+  /**
+   * Create an archive whose world states optionally share decoded trie nodes and read from the flat
+   * state.
+   *
+   * @param storage The storage the world states are read from.
+   * @param trieNodeCache The cache of decoded trie nodes, if any, shared by every world state
+   *     returned by this archive. It must not be shared with archives over a different storage.
+   * @param snapshots The flat state maintained in {@code storage}, if any. Persisting world states
+   *     returned by this archive keeps it up to date.
+   */
+  public WorldStateArchive(
+      final WorldStateStorage storage,
+      final Optional<TrieNodeCache<BytesValue>> trieNodeCache,
+      final Optional<WorldStateSnapshots> snapshots) {
     this.storage = storage;
+    this.trieNodeCache = trieNodeCache;
+    this.snapshots = snapshots;
   }
 
   public Optional<WorldState> get(final Hash rootHash) {
@@ -40,7 +62,7 @@ public class WorldStateArchive {
     if (!storage.isWorldStateAvailable(rootHash)) {
       return Optional.empty();
     }
-    return Optional.of(new DefaultMutableWorldState(rootHash, storage));
+    return Optional.of(new DefaultMutableWorldState(rootHash, storage, trieNodeCache, snapshots));
   }
 
   public WorldState get() {
@@ -58,4 +80,8 @@ public class WorldStateArchive {
   public WorldStateStorage getStorage() {
     return storage;
   }
+
+  public Optional<WorldStateSnapshots> getSnapshots() {
+    return snapshots;
+  }
 }
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.worldstate.StateSnapshot.StaleSnapshotException;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Maintains a flat copy of the world state next to the trie, so that accounts and storage can be
+ * read with a single lookup by hash rather than by walking the trie.
+ *
+ * <p>The flat state in storage holds a single world state. Each world state persisted on top of it
+ * is recorded as a {@link StateDiffLayer}, so that recent states on any fork can be read through
+ * their layers and the flat state. When the canonical chain head moves more than the configured
+ * number of layers past the flat state, the oldest layers leading to it are merged into the flat
+ * state and the layers on forks it no longer leads to are dropped. Layers are journaled to storage
+ * so they survive restarts.
+ *
+ * <p>When the canonical head can't be reached from the flat state, for example after a fast sync,
+ * the flat state is generated again from the head's world state in the background. Layers
+ * persisted on top of that world state are tracked in the meantime, but nothing is read from the
+ * flat state until generation completes.
+ *
+ * <p>Generation runs on an executor owned by the snapshots, which must be closed before the storage
+ * is.
+ */
+public class WorldStateSnapshots implements AutoCloseable {
+  private static final Logger LOG = LogManager.getLogger();
+
+  public static final int DEFAULT_MAX_DIFF_LAYERS = 128;
+  private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+  private final WorldStateStorage storage;
+  private final int maxDiffLayers;
+  private final ExecutorService generationExecutor;
+  private final int generationBatchSize;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Hash, StateDiffLayer> diffLayers = new HashMap<>();
+  private Hash flatStateRoot;
+  // Whether the flat state still has to be generated from the world state at flatStateRoot.
+  private boolean generating;
+  private boolean generationRunning;
+  private Optional<Hash> canonicalHeadRoot = Optional.empty();
+  private volatile boolean closed;
+
+  /**
+   * Creates the snapshots of the flat state held in storage.
+   *
+   * @param storage The storage holding the flat state.
+   * @param generationExecutor Runs generation of the flat state, which may take hours on large
+   *     world states. It is shut down when the snapshots are closed.
+   */
+  public WorldStateSnapshots(
+      final WorldStateStorage storage, final ExecutorService generationExecutor) {
+    this(
+        storage,
+        DEFAULT_MAX_DIFF_LAYERS,
+        generationExecutor,
+        FlatStateGenerator.DEFAULT_BATCH_SIZE);
+  }
+
+  WorldStateSnapshots(
+      final WorldStateStorage storage,
+      final int maxDiffLayers,
+      final ExecutorService generationExecutor,
+      final int generationBatchSize) {
+    this.storage = storage;
+    this.maxDiffLayers = maxDiffLayers;
+    this.generationExecutor = generationExecutor;
+    this.generationBatchSize = generationBatchSize;
+    final Optional<Hash> generatingRoot = storage.getGeneratingFlatStateRoot();
+    // Generation that was interrupted can't be resumed, and starts over at the next chain head.
+    this.generating = generatingRoot.isPresent();
+    this.flatStateRoot =
+        generatingRoot.orElseGet(() -> storage.getFlatStateRoot().orElse(Hash.EMPTY_TRIE_HASH));
+    loadJournal();
+  }
+
+  private void loadJournal() {
+    final List<Hash> roots =
+        storage
+            .getFlatDiffLayerIndex()
+            .map(index -> RLP.input(index).readList(in -> Hash.wrap(in.readBytes32())))
+            .orElse(Collections.emptyList());
+    for (final Hash root : roots) {
+      storage
+          .getFlatDiffLayer(root)
+          .map(layer -> StateDiffLayer.readFrom(RLP.input(layer)))
+          .ifPresent(layer -> diffLayers.put(root, layer));
+    }
+
+    final Set<Hash> detachedRoots = detachedRoots(diffLayers, flatStateRoot);
+    if (!detachedRoots.isEmpty() || diffLayers.size() != roots.size()) {
+      diffLayers.keySet().removeAll(detachedRoots);
+      LOG.debug("Dropping {} journaled diff layers", roots.size() - diffLayers.size());
+      final WorldStateStorage.Updater updater = storage.updater();
+      for (final Hash root : roots) {
+        if (!diffLayers.containsKey(root)) {
+          updater.removeFlatDiffLayer(root);
+        }
+      }
+      updater.putFlatDiffLayerIndex(encodeIndex(diffLayers.keySet()));
+      updater.commit();
+    }
+  }
+
+  /**
+   * Returns a snapshot of a world state, if that world state can be read from the flat state.
+   *
+   * @param rootHash The root of the world state.
+   * @return A snapshot of the world state, or empty if it isn't reachable from the flat state or
+   *     the flat state is being generated.
+   */
+  Optional<StateSnapshot> get(final Hash rootHash) {
+    lock.readLock().lock();
+    try {
+      if (generating) {
+        return Optional.empty();
+      }
+      final List<StateDiffLayer> layers = chainToFlatState(diffLayers, rootHash, flatStateRoot);
+      if (layers == null) {
+        return Optional.empty();
+      }
+      final Set<Hash> coveredRoots = new HashSet<>();
+      coveredRoots.add(flatStateRoot);
+      layers.forEach(layer -> coveredRoots.add(layer.getRootHash()));
+      return Optional.of(new StateSnapshot(this, rootHash, layers, coveredRoots));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Whether diff layers on top of a world state are recorded, which they are if it is reachable
+   * from the flat state, including while the flat state is being generated.
+   *
+   * @param rootHash The root of the world state.
+   * @return true if layers persisted on top of the world state are recorded.
+   */
+  boolean isTracked(final Hash rootHash) {
+    lock.readLock().lock();
+    try {
+      return chainToFlatState(diffLayers, rootHash, flatStateRoot) != null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Records the changes made by a newly persisted world state.
+   *
+   * <p>Layers whose parent isn't tracked, or whose world state is already tracked, are ignored.
+   * Nothing is merged into the flat state until the world state becomes part of the canonical
+   * chain.
+   *
+   * @param layer The changes going from the parent world state to the persisted one.
+   */
+  void add(final StateDiffLayer layer) {
+    lock.writeLock().lock();
+    try {
+      final Hash rootHash = layer.getRootHash();
+      if (rootHash.equals(flatStateRoot) || diffLayers.containsKey(rootHash)) {
+        return;
+      }
+      final Hash parentRoot = layer.getParentRoot();
+      if (!parentRoot.equals(flatStateRoot) && !diffLayers.containsKey(parentRoot)) {
+        LOG.trace("Not tracking world state {}, its parent {} isn't tracked", rootHash, parentRoot);
+        return;
+      }
+
+      final Set<Hash> updatedRoots = new HashSet<>(diffLayers.keySet());
+      updatedRoots.add(rootHash);
+      final WorldStateStorage.Updater updater = storage.updater();
+      updater.putFlatDiffLayer(rootHash, RLP.encode(layer::writeTo));
+      updater.putFlatDiffLayerIndex(encodeIndex(updatedRoots));
+      updater.commit();
+
+      diffLayers.put(rootHash, layer);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Moves the flat state along the canonical chain.
+   *
+   * <p>If the world state of the new head is more than the maximum number of layers away from the
+   * flat state, the oldest layers leading to it are merged into the flat state. If it can't be
+   * reached from the flat state at all, the flat state is generated from it in the background.
+   *
+   * @param stateRoot The root of the world state of the new canonical chain head.
+   */
+  public void onNewCanonicalHead(final Hash stateRoot) {
+    lock.writeLock().lock();
+    try {
+      canonicalHeadRoot = Optional.of(stateRoot);
+      if (closed || generationRunning) {
+        return;
+      }
+      final List<StateDiffLayer> chain = chainToFlatState(diffLayers, stateRoot, flatStateRoot);
+      if (chain != null && !generating) {
+        mergeOldestLayers(chain);
+        return;
+      }
+      // Heads whose world state isn't stored yet, as during fast sync, can't be generated from.
+      if (storage.isWorldStateAvailable(stateRoot)) {
+        resetForGeneration(stateRoot);
+        // Submitted under the lock so that the executor can't have been shut down by close.
+        generationExecutor.execute(() -> generate(stateRoot));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Merges the oldest layers of the chain, newest first, until it's no longer than maxDiffLayers.
+  private void mergeOldestLayers(final List<StateDiffLayer> chain) {
+    if (chain.size() <= maxDiffLayers) {
+      return;
+    }
+    // Each layer is merged on its own so that wiping an account's storage only removes the slots
+    // merged before it.
+    while (chain.size() > maxDiffLayers) {
+      final StateDiffLayer oldest = chain.remove(chain.size() - 1);
+      final Map<Hash, StateDiffLayer> updatedLayers = new HashMap<>(diffLayers);
+      final Set<Hash> droppedRoots = detachedRoots(updatedLayers, oldest.getRootHash());
+      droppedRoots.add(oldest.getRootHash());
+      updatedLayers.keySet().removeAll(droppedRoots);
+
+      final WorldStateStorage.Updater updater = storage.updater();
+      oldest.writeTo(updater);
+      updater.putFlatStateRoot(oldest.getRootHash());
+      droppedRoots.forEach(updater::removeFlatDiffLayer);
+      updater.putFlatDiffLayerIndex(encodeIndex(updatedLayers.keySet()));
+      updater.commit();
+
+      diffLayers.keySet().removeAll(droppedRoots);
+      flatStateRoot = oldest.getRootHash();
+    }
+  }
+
+  private void resetForGeneration(final Hash rootHash) {
+    LOG.info("Generating flat state from world state {}", rootHash);
+    final WorldStateStorage.Updater updater = storage.updater();
+    diffLayers.keySet().forEach(updater::removeFlatDiffLayer);
+    updater.putFlatDiffLayerIndex(encodeIndex(Collections.emptySet()));
+    updater.putGeneratingFlatStateRoot(rootHash);
+    updater.commit();
+
+    diffLayers.clear();
+    flatStateRoot = rootHash;
+    generating = true;
+    generationRunning = true;
+  }
+
+  private void generate(final Hash rootHash) {
+    boolean generated = false;
+    try {
+      storage.clearFlatState();
+      new FlatStateGenerator(storage, rootHash, generationBatchSize, () -> closed).generate();
+      generated = true;
+    } catch (final CancellationException e) {
+      LOG.info("Stopped generating flat state from world state {}", rootHash);
+    } catch (final RuntimeException e) {
+      // Most likely the world state was pruned while it was read. Generation starts over at the
+      // next chain head.
+      LOG.warn("Failed to generate flat state from world state {}", rootHash, e);
+    }
+
+    final Optional<Hash> headRoot;
+    lock.writeLock().lock();
+    try {
+      generationRunning = false;
+      if (!generated) {
+        return;
+      }
+      final WorldStateStorage.Updater updater = storage.updater();
+      updater.putFlatStateRoot(rootHash);
+      updater.removeGeneratingFlatStateRoot();
+      updater.commit();
+      generating = false;
+      headRoot = canonicalHeadRoot;
+      LOG.info("Generated flat state from world state {}", rootHash);
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // Catch up with the heads that were imported during generation.
+    headRoot.ifPresent(this::onNewCanonicalHead);
+  }
+
+  /**
+   * Stops generating the flat state and waits for the generation executor to terminate. Generation
+   * that is stopped starts over at the first chain head after a restart.
+   */
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      closed = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    generationExecutor.shutdown();
+    try {
+      if (!generationExecutor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        LOG.warn("Timed out waiting for flat state generation to stop");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  Optional<BytesValue> readFlatState(
+      final Hash snapshotRoot,
+      final Set<Hash> coveredRoots,
+      final Function<WorldStateStorage, Optional<BytesValue>> read) {
+    lock.readLock().lock();
+    try {
+      if (generating || !coveredRoots.contains(flatStateRoot)) {
+        throw new StaleSnapshotException(snapshotRoot);
+      }
+      return read.apply(storage);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  Hash getFlatStateRoot() {
+    lock.readLock().lock();
+    try {
+      return flatStateRoot;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  boolean isGenerating() {
+    lock.readLock().lock();
+    try {
+      return generating;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  int getDiffLayerCount() {
+    lock.readLock().lock();
+    try {
+      return diffLayers.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Returns the layers leading from the flat state to rootHash, newest first, or null if rootHash
+  // can't be reached from the flat state.
+  private static List<StateDiffLayer> chainToFlatState(
+      final Map<Hash, StateDiffLayer> layers, final Hash rootHash, final Hash flatStateRoot) {
+    final List<StateDiffLayer> chain = new ArrayList<>();
+    Hash current = rootHash;
+    while (!current.equals(flatStateRoot)) {
+      final StateDiffLayer layer = layers.get(current);
+      if (layer == null) {
+        return null;
+      }
+      chain.add(layer);
+      current = layer.getParentRoot();
+    }
+    return chain;
+  }
+
+  private static Set<Hash> detachedRoots(
+      final Map<Hash, StateDiffLayer> layers, final Hash flatStateRoot) {
+    final Set<Hash> detached = new HashSet<>();
+    for (final Hash root : layers.keySet()) {
+      if (chainToFlatState(layers, root, flatStateRoot) == null) {
+        detached.add(root);
+      }
+    }
+    return detached;
+  }
+
+  private static BytesValue encodeIndex(final Set<Hash> roots) {
+    return RLP.encode(
+        out -> out.writeList(roots, (root, rootOut) -> rootOut.writeBytesValue(root)));
+  }
+}
@@ -19,6 +19,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public interface WorldStateStorage {
 
@@ -32,6 +33,53 @@ public interface WorldStateStorage {
 
   boolean isWorldStateAvailable(Bytes32 rootHash);
 
+  /**
+   * Returns the account stored in the flat state, which holds the accounts and storage of the
+   * world state whose root is {@link #getFlatStateRoot()} keyed directly by hash.
+   *
+   * @param accountHash The hash of the account address.
+   * @return The RLP encoded account, or empty if the account doesn't exist in the flat state.
+   */
+  Optional<BytesValue> getFlatAccount(Hash accountHash);
+
+  /**
+   * Returns a storage value stored in the flat state.
+   *
+   * @param accountHash The hash of the account address.
+   * @param slotHash The hash of the storage slot.
+   * @return The RLP encoded storage value, or empty if the slot is zero in the flat state.
+   */
+  Optional<BytesValue> getFlatStorageValue(Hash accountHash, Hash slotHash);
+
+  /** @return The root of the world state held in the flat state, if one was ever stored. */
+  Optional<Hash> getFlatStateRoot();
+
+  /**
+   * Returns the root of the world state the flat state is being generated from. While generation
+   * is in progress the flat state doesn't hold any complete world state.
+   *
+   * @return The root of the world state being generated, if generation hasn't completed.
+   */
+  Optional<Hash> getGeneratingFlatStateRoot();
+
+  /**
+   * Removes every account and storage value from the flat state. Keys are removed in batches, so
+   * the flat state must be marked as being generated before it is cleared.
+   */
+  void clearFlatState();
+
+  /**
+   * Returns a journaled diff layer, which records the flat state changes made by a world state that
+   * hasn't been merged into the flat state yet.
+   *
+   * @param rootHash The root of the world state produced by the diff layer.
+   * @return The encoded diff layer, if it is journaled.
+   */
+  Optional<BytesValue> getFlatDiffLayer(Hash rootHash);
+
+  /** @return The encoded list of roots of the journaled diff layers, if any were journaled. */
+  Optional<BytesValue> getFlatDiffLayerIndex();
+
   default boolean contains(final Bytes32 hash) {
     return getNodeData(hash).isPresent();
   }
@@ -40,6 +88,14 @@ public interface WorldStateStorage {
 
   long prune(Predicate<BytesValue> inUseCheck);
 
+  /**
+   * Streams the hashes of all trie nodes and code currently held in storage. The stream must be
+   * closed once it is no longer needed.
+   *
+   * @return A stream of the stored node and code hashes.
+   */
+  Stream<Bytes32> streamNodeHashes();
+
   long addNodeAddedListener(NodesAddedListener listener);
 
   void removeNodeAddedListener(long id);
@@ -58,6 +114,37 @@ public interface WorldStateStorage {
 
     Updater putAccountStorageTrieNode(Bytes32 nodeHash, BytesValue node);
 
+    Updater removeNodeData(Bytes32 hash);
+
+    Updater putFlatAccount(Hash accountHash, BytesValue account);
+
+    Updater removeFlatAccount(Hash accountHash);
+
+    Updater putFlatStorageValue(Hash accountHash, Hash slotHash, BytesValue value);
+
+    Updater removeFlatStorageValue(Hash accountHash, Hash slotHash);
+
+    /**
+     * Removes every storage value of an account from the flat state, as stored when this updater
+     * was created.
+     *
+     * @param accountHash The hash of the account address.
+     * @return This updater.
+     */
+    Updater removeFlatStorage(Hash accountHash);
+
+    Updater putFlatStateRoot(Hash rootHash);
+
+    Updater putGeneratingFlatStateRoot(Hash rootHash);
+
+    Updater removeGeneratingFlatStateRoot();
+
+    Updater putFlatDiffLayer(Hash rootHash, BytesValue layer);
+
+    Updater removeFlatDiffLayer(Hash rootHash);
+
+    Updater putFlatDiffLayerIndex(BytesValue index);
+
     void commit();
 
     void rollback();
@@ -12,9 +12,11 @@
  */
 package tech.pegasys.pantheon.ethereum.core;
 
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsStorage;
 import tech.pegasys.pantheon.ethereum.chain.BlockchainStorage;
 import tech.pegasys.pantheon.ethereum.chain.DefaultMutableBlockchain;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.freezer.BlockFreezerStorage;
 import tech.pegasys.pantheon.ethereum.mainnet.MainnetBlockHeaderFunctions;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.mainnet.ScheduleBasedBlockHeaderFunctions;
@@ -23,12 +25,15 @@ import tech.pegasys.pantheon.ethereum.privacy.PrivateStateStorage;
 import tech.pegasys.pantheon.ethereum.privacy.PrivateTransactionKeyValueStorage;
 import tech.pegasys.pantheon.ethereum.privacy.PrivateTransactionStorage;
 import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.BlockFreezerKeyValueStorage;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.BloomBitsKeyValueStorage;
 import tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueStoragePrefixedKeyBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.storage.keyvalue.WorldStateKeyValueStorage;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateArchive;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
 import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
 import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
 
 public class InMemoryStorageProvider implements StorageProvider {
 
@@ -60,6 +65,16 @@ public class InMemoryStorageProvider implements StorageProvider {
     return new WorldStateKeyValueStorage(new InMemoryKeyValueStorage());
   }
 
+  @Override
+  public BloomBitsStorage createBloomBitsStorage() {
+    return new BloomBitsKeyValueStorage(new InMemoryKeyValueStorage());
+  }
+
+  @Override
+  public BlockFreezerStorage createBlockFreezerStorage() {
+    return new BlockFreezerKeyValueStorage(new InMemoryKeyValueStorage());
+  }
+
   @Override
   public PrivateTransactionStorage createPrivateTransactionStorage() {
     return new PrivateTransactionKeyValueStorage(new InMemoryKeyValueStorage());
@@ -70,6 +85,16 @@ public class InMemoryStorageProvider implements StorageProvider {
     return new PrivateStateKeyValueStorage(new InMemoryKeyValueStorage());
   }
 
+  @Override
+  public KeyValueStorage createPruningStorage() {
+    return new InMemoryKeyValueStorage();
+  }
+
+  @Override
+  public boolean isWorldStateIterable() {
+    return true;
+  }
+
   @Override
   public void close() {}
 }
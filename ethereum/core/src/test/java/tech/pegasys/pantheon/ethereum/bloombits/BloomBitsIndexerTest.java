@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.bloombits;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static tech.pegasys.pantheon.ethereum.core.InMemoryStorageProvider.createInMemoryBlockchain;
+
+import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.LogsBloomFilter;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.BloomBitsKeyValueStorage;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomBitsIndexerTest {
+  private static final int SECTION_SIZE = 4;
+  private static final long CONFIRMATIONS = 2;
+
+  private final BlockDataGenerator gen = new BlockDataGenerator(1);
+  private final BloomBitsStorage storage =
+      new BloomBitsKeyValueStorage(new InMemoryKeyValueStorage());
+  private MutableBlockchain blockchain;
+  private BloomBitsIndex index;
+  private BloomBitsIndexer indexer;
+
+  @Before
+  public void setUp() {
+    final Block genesis = gen.genesisBlock();
+    blockchain = createInMemoryBlockchain(genesis);
+    index = new BloomBitsIndex(blockchain, storage, SECTION_SIZE);
+    indexer =
+        new BloomBitsIndexer(
+            blockchain,
+            storage,
+            index,
+            mock(ExecutorService.class),
+            new NoOpMetricsSystem(),
+            CONFIRMATIONS);
+  }
+
+  @Test
+  public void shouldOnlyIndexConfirmedCompleteSections() {
+    appendBlocks(10);
+
+    indexer.indexCompleteSections();
+
+    // Section 1 ends at block 7 which has 3 confirmations, section 2 ends at block 11
+    assertThat(storage.getIndexedSectionCount()).isEqualTo(2);
+    assertThat(index.getCandidateBlocks(1, Collections.emptyList())).isPresent();
+    assertThat(index.getCandidateBlocks(2, Collections.emptyList())).isEmpty();
+  }
+
+  @Test
+  public void candidateBlocksShouldMatchHeaderBlooms() {
+    appendBlocks(10);
+    indexer.indexCompleteSections();
+
+    final LogsBloomFilter filter = blockchain.getBlockHeader(5).get().getLogsBloom();
+    for (long section = 0; section < 2; section++) {
+      final BitSet candidates =
+          index.getCandidateBlocks(section, List.of(List.of(filter))).orElseThrow();
+      for (int offset = 0; offset < SECTION_SIZE; offset++) {
+        final BlockHeader header =
+            blockchain.getBlockHeader(index.getFirstBlockInSection(section) + offset).get();
+        assertThat(candidates.get(offset)).isEqualTo(header.getLogsBloom().couldContain(filter));
+      }
+    }
+  }
+
+  @Test
+  public void emptyQueryShouldMatchEveryBlock() {
+    appendBlocks(10);
+    indexer.indexCompleteSections();
+
+    final Optional<BitSet> candidates = index.getCandidateBlocks(0, Collections.emptyList());
+
+    assertThat(candidates).isPresent();
+    assertThat(candidates.get().cardinality()).isEqualTo(SECTION_SIZE);
+  }
+
+  @Test
+  public void shouldReindexSectionsNoLongerOnCanonicalChain() {
+    appendBlocks(10);
+    indexer.indexCompleteSections();
+
+    final BloomBitsStorage.Updater updater = storage.updater();
+    updater.putSectionHead(1, Hash.ZERO);
+    updater.commit();
+    assertThat(index.getCandidateBlocks(1, Collections.emptyList())).isEmpty();
+
+    indexer.indexCompleteSections();
+
+    assertThat(storage.getIndexedSectionCount()).isEqualTo(2);
+    assertThat(storage.getSectionHead(1)).isEqualTo(blockchain.getBlockHashByNumber(7));
+    assertThat(index.getCandidateBlocks(1, Collections.emptyList())).isPresent();
+  }
+
+  private void appendBlocks(final int count) {
+    final Block head = blockchain.getBlockByHash(blockchain.getChainHeadHash());
+    for (final Block block : gen.blockSequence(head, count)) {
+      blockchain.appendBlock(block, gen.receipts(block));
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.chain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetBlockHeaderFunctions;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueStoragePrefixedKeyBlockchainStorage;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class CachingBlockchainStorageTest {
+
+  private final BlockDataGenerator gen = new BlockDataGenerator();
+  private final BlockchainStorage delegate =
+      spy(
+          new KeyValueStoragePrefixedKeyBlockchainStorage(
+              new InMemoryKeyValueStorage(), new MainnetBlockHeaderFunctions()));
+  private final CachingBlockchainStorage storage =
+      new CachingBlockchainStorage(delegate, 16, new NoOpMetricsSystem());
+
+  @Test
+  public void committedBlocksAreServedWithoutReadingUnderlyingStorage() {
+    final Block block = gen.block();
+    final List<TransactionReceipt> receipts = gen.receipts(block);
+    writeBlock(storage.updater(), block, receipts);
+
+    assertThat(storage.getBlockHeader(block.getHash())).contains(block.getHeader());
+    assertThat(storage.getBlockBody(block.getHash())).contains(block.getBody());
+    assertThat(storage.getTransactionReceipts(block.getHash())).contains(receipts);
+    assertThat(storage.getTotalDifficulty(block.getHash())).contains(UInt256.ONE);
+    assertThat(storage.getBlockHash(block.getHeader().getNumber())).contains(block.getHash());
+
+    verify(delegate, never()).getBlockHeader(any());
+    verify(delegate, never()).getBlockBody(any());
+    verify(delegate, never()).getTransactionReceipts(any());
+    verify(delegate, never()).getTotalDifficulty(any());
+    verify(delegate, never()).getBlockHash(block.getHeader().getNumber());
+  }
+
+  @Test
+  public void readsAreCachedAfterTheFirstLoad() {
+    final Block block = gen.block();
+    writeBlock(delegate.updater(), block, gen.receipts(block));
+
+    assertThat(storage.getBlockHeader(block.getHash())).contains(block.getHeader());
+    assertThat(storage.getBlockHeader(block.getHash())).contains(block.getHeader());
+    assertThat(storage.getBlockHash(block.getHeader().getNumber())).contains(block.getHash());
+    assertThat(storage.getBlockHash(block.getHeader().getNumber())).contains(block.getHash());
+
+    verify(delegate, times(1)).getBlockHeader(block.getHash());
+    verify(delegate, times(1)).getBlockHash(block.getHeader().getNumber());
+  }
+
+  @Test
+  public void missingValuesAreNotCached() {
+    final Block block = gen.block();
+    assertThat(storage.getBlockHeader(block.getHash())).isEmpty();
+
+    writeBlock(delegate.updater(), block, gen.receipts(block));
+
+    assertThat(storage.getBlockHeader(block.getHash())).contains(block.getHeader());
+  }
+
+  @Test
+  public void canonicalBlockHashIsReplacedOnReorg() {
+    final Hash original = gen.hash();
+    final Hash replacement = gen.hash();
+
+    BlockchainStorage.Updater updater = storage.updater();
+    updater.putBlockHash(1, original);
+    updater.commit();
+    assertThat(storage.getBlockHash(1)).contains(original);
+
+    updater = storage.updater();
+    updater.putBlockHash(1, replacement);
+    updater.commit();
+    assertThat(storage.getBlockHash(1)).contains(replacement);
+
+    updater = storage.updater();
+    updater.removeBlockHash(1);
+    updater.commit();
+    assertThat(storage.getBlockHash(1)).isEmpty();
+  }
+
+  @Test
+  public void rolledBackUpdatesAreNotCached() {
+    final Block block = gen.block();
+    final BlockchainStorage.Updater updater = storage.updater();
+    updater.putBlockHeader(block.getHash(), block.getHeader());
+    updater.putBlockHash(block.getHeader().getNumber(), block.getHash());
+    updater.rollback();
+
+    assertThat(storage.getBlockHeader(block.getHash())).isEmpty();
+    assertThat(storage.getBlockHash(block.getHeader().getNumber())).isEmpty();
+  }
+
+  @Test
+  public void invalidateAllForcesReload() {
+    final Block block = gen.block();
+    writeBlock(storage.updater(), block, gen.receipts(block));
+
+    storage.invalidateAll();
+    assertThat(storage.getBlockHeader(block.getHash())).contains(block.getHeader());
+
+    verify(delegate, times(1)).getBlockHeader(block.getHash());
+  }
+
+  private void writeBlock(
+      final BlockchainStorage.Updater updater,
+      final Block block,
+      final List<TransactionReceipt> receipts) {
+    updater.putBlockHeader(block.getHash(), block.getHeader());
+    updater.putBlockBody(block.getHash(), block.getBody());
+    updater.putTransactionReceipts(block.getHash(), receipts);
+    updater.putTotalDifficulty(block.getHash(), UInt256.ONE);
+    updater.putBlockHash(block.getHeader().getNumber(), block.getHash());
+    updater.commit();
+  }
+}
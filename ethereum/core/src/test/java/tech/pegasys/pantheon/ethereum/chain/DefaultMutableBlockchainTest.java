@@ -13,6 +13,7 @@
 package tech.pegasys.pantheon.ethereum.chain;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.assertEquals;
 
 import tech.pegasys.pantheon.ethereum.core.Block;
@@ -158,6 +159,74 @@ public class DefaultMutableBlockchainTest {
     assertThat(blockchain.getForks()).isEmpty();
   }
 
+  @Test
+  public void appendBlocksInBatch() {
+    final BlockDataGenerator gen = new BlockDataGenerator();
+    final List<Block> chain = gen.blockSequence(4);
+    final List<List<TransactionReceipt>> blockReceipts =
+        chain.stream().map(gen::receipts).collect(Collectors.toList());
+
+    final KeyValueStorage kvStore = new InMemoryKeyValueStorage();
+    final DefaultMutableBlockchain blockchain = createBlockchain(kvStore, chain.get(0));
+    final BlockchainStorage persistedStorage =
+        new KeyValueStoragePrefixedKeyBlockchainStorage(kvStore, new MainnetBlockHeaderFunctions());
+    final List<BlockAddedEvent> events = new ArrayList<>();
+    blockchain.observeBlockAdded((event, observedChain) -> events.add(event));
+
+    blockchain.appendBlocksInBatch(
+        () -> {
+          for (int i = 1; i < chain.size(); i++) {
+            blockchain.appendBlock(chain.get(i), blockReceipts.get(i));
+            // Appended blocks are visible straight away but not yet written to storage.
+            assertBlockIsHead(blockchain, chain.get(i));
+            assertThat(persistedStorage.getBlockHeader(chain.get(i).getHash())).isEmpty();
+          }
+          assertThat(events).isEmpty();
+        });
+
+    for (int i = 1; i < chain.size(); i++) {
+      assertBlockDataIsStored(blockchain, chain.get(i), blockReceipts.get(i));
+      assertThat(persistedStorage.getBlockHeader(chain.get(i).getHash())).isPresent();
+    }
+    final Block head = chain.get(chain.size() - 1);
+    assertBlockIsHead(blockchain, head);
+    assertTotalDifficultiesAreConsistent(blockchain, head);
+    assertThat(persistedStorage.getChainHead()).contains(head.getHash());
+
+    final List<Transaction> addedTransactions =
+        chain.subList(1, chain.size()).stream()
+            .flatMap(block -> block.getBody().getTransactions().stream())
+            .collect(Collectors.toList());
+    assertThat(events).hasSize(1);
+    assertThat(events.get(0).getEventType()).isEqualTo(BlockAddedEvent.EventType.HEAD_ADVANCED);
+    assertThat(events.get(0).getBlock()).isEqualTo(head);
+    assertThat(events.get(0).getAddedTransactions()).isEqualTo(addedTransactions);
+  }
+
+  @Test
+  public void appendBlocksInBatchKeepsBlocksAppendedBeforeFailure() {
+    final BlockDataGenerator gen = new BlockDataGenerator();
+    final List<Block> chain = gen.blockSequence(2);
+    final Block block = chain.get(1);
+    final List<TransactionReceipt> receipts = gen.receipts(block);
+
+    final KeyValueStorage kvStore = new InMemoryKeyValueStorage();
+    final DefaultMutableBlockchain blockchain = createBlockchain(kvStore, chain.get(0));
+
+    assertThatThrownBy(
+            () ->
+                blockchain.appendBlocksInBatch(
+                    () -> {
+                      blockchain.appendBlock(block, receipts);
+                      throw new IllegalStateException("Import failed");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+
+    final DefaultMutableBlockchain reloadedBlockchain = createBlockchain(kvStore, chain.get(0));
+    assertBlockDataIsStored(reloadedBlockchain, block, receipts);
+    assertBlockIsHead(reloadedBlockchain, block);
+  }
+
   @Test
   public void appendBlockWithReorgToChainAtEqualHeight() {
     final BlockDataGenerator gen = new BlockDataGenerator(1);
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.core;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.crypto.SECP256K1;
+import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
+import tech.pegasys.pantheon.crypto.SECP256K1.Signature;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class SealRecoveryTest {
+
+  private final Hash dataHash = Hash.hash(BytesValue.fromHexString("0x01020304"));
+  private final List<KeyPair> signers =
+      IntStream.range(0, 21).mapToObj(i -> KeyPair.generate()).collect(toList());
+
+  @Test
+  public void shouldRecoverSignersOfAllSealsInOrder() {
+    final List<Signature> seals =
+        signers.stream().map(signer -> SECP256K1.sign(dataHash, signer)).collect(toList());
+
+    assertThat(SealRecovery.recoverAddresses(seals, dataHash))
+        .containsExactlyElementsOf(addresses());
+  }
+
+  @Test
+  public void shouldRecoverSameAddressesWhenSealsWereAlreadyRecovered() {
+    final List<Signature> seals =
+        signers.stream().map(signer -> SECP256K1.sign(dataHash, signer)).collect(toList());
+    SealRecovery.recoverAddress(seals.get(3), dataHash);
+    SealRecovery.recoverAddresses(seals.subList(0, 10), dataHash);
+
+    assertThat(SealRecovery.recoverAddresses(seals, dataHash))
+        .containsExactlyElementsOf(addresses());
+  }
+
+  @Test
+  public void shouldNotReuseAddressRecoveredForAnotherHash() {
+    final Signature seal = SECP256K1.sign(dataHash, signers.get(0));
+    final Hash otherHash = Hash.hash(BytesValue.fromHexString("0x05060708"));
+
+    assertThat(SealRecovery.recoverAddress(seal, dataHash))
+        .isEqualTo(Util.publicKeyToAddress(signers.get(0).getPublicKey()));
+    assertThat(SealRecovery.recoverAddress(seal, otherHash))
+        .isEqualTo(Util.signatureToAddress(seal, otherHash))
+        .isNotEqualTo(Util.publicKeyToAddress(signers.get(0).getPublicKey()));
+  }
+
+  private List<Address> addresses() {
+    return signers.stream()
+        .map(signer -> Util.publicKeyToAddress(signer.getPublicKey()))
+        .collect(toList());
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.core;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SenderRecoveryServiceTest {
+
+  private final BlockDataGenerator gen = new BlockDataGenerator();
+  private final SenderRecoveryService senderRecoveryService =
+      SenderRecoveryService.create(2, 3, new NoOpMetricsSystem());
+
+  @After
+  public void tearDown() {
+    senderRecoveryService.close();
+  }
+
+  @Test
+  public void shouldRecoverSendersOfAllTransactions() {
+    final List<Transaction> signedTransactions =
+        IntStream.range(0, 10).mapToObj(i -> gen.transaction()).collect(toList());
+    final List<Transaction> transactions =
+        signedTransactions.stream().map(this::withoutRecoveredSender).collect(toList());
+
+    senderRecoveryService.recoverSendersAndWait(transactions);
+
+    for (int i = 0; i < transactions.size(); i++) {
+      assertThat(transactions.get(i).sender).isEqualTo(signedTransactions.get(i).getSender());
+    }
+  }
+
+  @Test
+  public void shouldRecoverSendersOnCallingThreadWhenCallerRuns() {
+    final Transaction transaction = withoutRecoveredSender(gen.transaction());
+
+    final CompletableFuture<Void> result =
+        SenderRecoveryService.callerRuns().recoverSenders(List.of(transaction));
+
+    assertThat(result).isDone();
+    assertThat(transaction.sender).isNotNull();
+  }
+
+  private Transaction withoutRecoveredSender(final Transaction transaction) {
+    return Transaction.readFrom(RLP.input(RLP.encode(transaction::writeTo)));
+  }
+}
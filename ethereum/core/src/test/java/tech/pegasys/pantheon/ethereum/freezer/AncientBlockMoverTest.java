@@ -0,0 +1,211 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import tech.pegasys.pantheon.ethereum.chain.DefaultMutableBlockchain;
+import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
+import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
+import tech.pegasys.pantheon.ethereum.mainnet.MainnetBlockHeaderFunctions;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.BlockFreezerKeyValueStorage;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.KeyValueStoragePrefixedKeyBlockchainStorage;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AncientBlockMoverTest {
+  private static final long DEPTH = 3;
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  private final BlockDataGenerator gen = new BlockDataGenerator(1);
+  private final InMemoryKeyValueStorage keyValueStorage = new InMemoryKeyValueStorage();
+  private final BlockFreezerStorage freezerStorage =
+      new BlockFreezerKeyValueStorage(keyValueStorage);
+  private final List<Block> blocks = new ArrayList<>();
+  private final Map<Hash, List<TransactionReceipt>> receipts = new HashMap<>();
+  private BlockFreezer freezer;
+  private MutableBlockchain blockchain;
+
+  @Before
+  public void setUp() throws IOException {
+    freezer = BlockFreezer.open(tmp.getRoot().toPath());
+    final Block genesis = gen.genesisBlock();
+    blockchain = createBlockchain(genesis);
+    blocks.add(genesis);
+    receipts.put(genesis.getHash(), Collections.emptyList());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    freezer.close();
+  }
+
+  @Test
+  public void shouldOnlyFreezeBlocksAtLeastDepthBehindHead() {
+    appendBlocks(10);
+
+    createMover().moveAncientBlocks();
+
+    assertThat(freezer.getFrozenBlockCount()).isEqualTo(8);
+    assertThat(freezerStorage.getBlockHeaderRlp(blocks.get(7).getHash())).isEmpty();
+    assertThat(freezerStorage.getBlockHeaderRlp(blocks.get(8).getHash())).isPresent();
+    assertThat(freezer.getBlockHash(7)).contains(blocks.get(7).getHash());
+  }
+
+  @Test
+  public void shouldReadFrozenBlocksThroughBlockchain() {
+    appendBlocks(10);
+
+    createMover().moveAncientBlocks();
+
+    for (final Block block : blocks) {
+      final Hash hash = block.getHash();
+      assertThat(blockchain.getBlockHeader(hash)).contains(block.getHeader());
+      assertThat(blockchain.getBlockBody(hash)).contains(block.getBody());
+      assertThat(blockchain.getBlockHeaderRlp(hash))
+          .contains(RLP.encode(block.getHeader()::writeTo));
+      assertThat(blockchain.getBlockBodyRlp(hash)).contains(RLP.encode(block.getBody()::writeTo));
+      assertThat(blockchain.getTxReceipts(hash)).contains(receipts.get(hash));
+    }
+  }
+
+  @Test
+  public void shouldKeepFreezingAsTheChainGrows() throws IOException {
+    appendBlocks(10);
+    createMover().moveAncientBlocks();
+    appendBlocks(5);
+
+    createMover().moveAncientBlocks();
+
+    assertThat(freezer.getFrozenBlockCount()).isEqualTo(13);
+    freezer.close();
+    freezer = BlockFreezer.open(tmp.getRoot().toPath());
+    assertThat(freezer.getFrozenBlockCount()).isEqualTo(13);
+    blockchain = createBlockchain(blocks.get(0));
+    assertThat(blockchain.getBlockHeader(blocks.get(12).getHash()))
+        .contains(blocks.get(12).getHeader());
+  }
+
+  @Test
+  public void shouldRemoveBlocksLeftBehindByAnInterruptedMove() {
+    appendBlocks(10);
+    for (final Block block : blocks.subList(0, 4)) {
+      final Hash hash = block.getHash();
+      freezer.append(
+          hash,
+          freezerStorage.getBlockHeaderRlp(hash).get(),
+          freezerStorage.getBlockBodyRlp(hash).get(),
+          freezerStorage.getTransactionReceiptsRlp(hash).get());
+    }
+    freezer.commit();
+
+    createMover().moveAncientBlocks();
+
+    assertThat(freezer.getFrozenBlockCount()).isEqualTo(8);
+    for (final Block block : blocks.subList(0, 8)) {
+      assertThat(freezerStorage.getBlockHeaderRlp(block.getHash())).isEmpty();
+      assertThat(blockchain.getBlockHeader(block.getHash())).contains(block.getHeader());
+    }
+  }
+
+  @Test
+  public void shouldUnfreezeBlocksReorganisedOutOfTheCanonicalChain() {
+    appendBlocks(10);
+    createMover().moveAncientBlocks();
+    final List<Block> fork = appendFork(blocks.get(4), 8);
+
+    createMover().moveAncientBlocks();
+
+    assertThat(freezer.getFrozenBlockCount()).isEqualTo(10);
+    for (final Block block : blocks.subList(0, 5)) {
+      assertThat(freezer.getBlockHash(block.getHeader().getNumber())).contains(block.getHash());
+    }
+    for (final Block block : fork.subList(0, 5)) {
+      assertThat(freezer.getBlockHash(block.getHeader().getNumber())).contains(block.getHash());
+      assertThat(freezerStorage.getBlockHeaderRlp(block.getHash())).isEmpty();
+    }
+    for (final Block block : blocks.subList(5, 8)) {
+      assertThat(freezerStorage.getBlockHeaderRlp(block.getHash())).isPresent();
+      assertThat(blockchain.getBlockHeader(block.getHash())).contains(block.getHeader());
+      assertThat(blockchain.getTxReceipts(block.getHash())).contains(receipts.get(block.getHash()));
+    }
+  }
+
+  private AncientBlockMover createMover() {
+    return new AncientBlockMover(
+        blockchain,
+        freezer,
+        freezerStorage,
+        mock(ExecutorService.class),
+        new NoOpMetricsSystem(),
+        DEPTH);
+  }
+
+  private MutableBlockchain createBlockchain(final Block genesis) {
+    final MainnetBlockHeaderFunctions blockHeaderFunctions = new MainnetBlockHeaderFunctions();
+    return new DefaultMutableBlockchain(
+        genesis,
+        new FreezingBlockchainStorage(
+            new KeyValueStoragePrefixedKeyBlockchainStorage(keyValueStorage, blockHeaderFunctions),
+            freezer,
+            freezerStorage,
+            blockHeaderFunctions),
+        new NoOpMetricsSystem());
+  }
+
+  private List<Block> appendFork(final Block commonAncestor, final int count) {
+    final List<Block> fork = new ArrayList<>();
+    Block parent = commonAncestor;
+    for (int i = 0; i < count; i++) {
+      // Outweighs the current chain, so each fork block becomes the new chain head.
+      final Block block =
+          gen.block(
+              gen.nextBlockOptions(parent)
+                  .setDifficulty(blockchain.getChainHead().getTotalDifficulty()));
+      blockchain.appendBlock(block, gen.receipts(block));
+      fork.add(block);
+      parent = block;
+    }
+    return fork;
+  }
+
+  private void appendBlocks(final int count) {
+    final Block head = blocks.get(blocks.size() - 1);
+    for (final Block block : gen.blockSequence(head, count)) {
+      final List<TransactionReceipt> blockReceipts = gen.receipts(block);
+      blockchain.appendBlock(block, blockReceipts);
+      blocks.add(block);
+      receipts.put(block.getHash(), blockReceipts);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.freezer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FreezerTableTest {
+  private static final BytesValue ITEM1 = BytesValue.fromHexString("0x010203");
+  private static final BytesValue ITEM2 = BytesValue.fromHexString("0x0405");
+  private static final BytesValue ITEM3 = BytesValue.fromHexString("0x060708");
+
+  @Rule public final TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void shouldOnlyReadCommittedItems() throws IOException {
+    try (final FreezerTable table = FreezerTable.open(directory(), "test")) {
+      table.append(ITEM1);
+      assertThat(table.size()).isZero();
+      assertThat(table.get(0)).isEmpty();
+
+      table.commit();
+      table.append(ITEM2);
+
+      assertThat(table.size()).isEqualTo(1);
+      assertThat(table.get(0)).contains(ITEM1);
+      assertThat(table.get(1)).isEmpty();
+    }
+  }
+
+  @Test
+  public void shouldRollToNewFileWhenItemDoesNotFit() throws IOException {
+    final Path directory = directory();
+    try (final FreezerTable table = FreezerTable.open(directory, "test", 5)) {
+      table.append(ITEM1);
+      table.append(ITEM2);
+      table.append(ITEM3);
+      table.commit();
+
+      assertThat(table.get(0)).contains(ITEM1);
+      assertThat(table.get(1)).contains(ITEM2);
+      assertThat(table.get(2)).contains(ITEM3);
+    }
+    assertThat(Files.size(directory.resolve("test.0000.dat"))).isEqualTo(5);
+    assertThat(Files.size(directory.resolve("test.0001.dat"))).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldReadItemsAppendedAfterFileWasMapped() throws IOException {
+    try (final FreezerTable table = FreezerTable.open(directory(), "test")) {
+      table.append(ITEM1);
+      table.commit();
+      assertThat(table.get(0)).contains(ITEM1);
+
+      table.append(ITEM2);
+      table.commit();
+
+      assertThat(table.get(1)).contains(ITEM2);
+    }
+  }
+
+  @Test
+  public void shouldDiscardRolledBackItems() throws IOException {
+    try (final FreezerTable table = FreezerTable.open(directory(), "test", 5)) {
+      table.append(ITEM1);
+      table.commit();
+      table.append(ITEM2);
+      table.append(ITEM3);
+
+      table.rollback();
+      table.append(ITEM3);
+      table.commit();
+
+      assertThat(table.size()).isEqualTo(2);
+      assertThat(table.get(1)).contains(ITEM3);
+    }
+  }
+
+  @Test
+  public void shouldDropItemsWhoseDataIsMissingOnOpen() throws IOException {
+    final Path directory = directory();
+    try (final FreezerTable table = FreezerTable.open(directory, "test")) {
+      table.append(ITEM1);
+      table.append(ITEM2);
+      table.commit();
+    }
+    try (final FileChannel channel =
+        FileChannel.open(directory.resolve("test.0000.dat"), StandardOpenOption.WRITE)) {
+      channel.truncate(4);
+    }
+
+    try (final FreezerTable table = FreezerTable.open(directory, "test")) {
+      assertThat(table.size()).isEqualTo(1);
+      assertThat(table.get(0)).contains(ITEM1);
+      table.append(ITEM3);
+      table.commit();
+      assertThat(table.get(1)).contains(ITEM3);
+    }
+  }
+
+  @Test
+  public void shouldTruncateItems() throws IOException {
+    try (final FreezerTable table = FreezerTable.open(directory(), "test", 5)) {
+      table.append(ITEM1);
+      table.append(ITEM2);
+      table.append(ITEM3);
+      table.commit();
+
+      table.truncate(1);
+
+      assertThat(table.size()).isEqualTo(1);
+      assertThat(table.get(1)).isEmpty();
+      table.append(ITEM2);
+      table.commit();
+      assertThat(table.get(1)).contains(ITEM2);
+    }
+  }
+
+  @Test
+  public void shouldKeepItemsReadBeforeTruncation() throws IOException {
+    try (final FreezerTable table = FreezerTable.open(directory(), "test")) {
+      table.append(ITEM1);
+      table.append(ITEM2);
+      table.commit();
+      final BytesValue item = table.get(1).get();
+
+      table.truncate(0);
+
+      assertThat(item).isEqualTo(ITEM2);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectFilesTooLargeToIndex() throws IOException {
+    FreezerTable.open(directory(), "test", Integer.MAX_VALUE + 1L);
+  }
+
+  private Path directory() throws IOException {
+    return tmp.newFolder().toPath();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.vm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import org.junit.Test;
+
+public class CodeCacheTest {
+
+  private static final BytesValue CODE = BytesValue.fromHexString("0x5b600056");
+
+  private final CodeCache codeCache = new CodeCache(1024);
+
+  @Test
+  public void shouldReuseCodeForSameHashAndVersion() {
+    final Account account1 = account(CODE, Account.DEFAULT_VERSION);
+    final Account account2 = account(CODE, Account.DEFAULT_VERSION);
+
+    final Code code = codeCache.getCode(account1);
+
+    assertThat(code.getBytes()).isEqualTo(CODE);
+    assertThat(codeCache.getCode(account2)).isSameAs(code);
+    verify(account1, times(1)).getCode();
+    verify(account2, times(0)).getCode();
+    assertThat(codeCache.getStats().hitCount()).isEqualTo(1);
+    assertThat(codeCache.getStats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotShareCodeBetweenAccountVersions() {
+    final Code code = codeCache.getCode(account(CODE, Account.DEFAULT_VERSION));
+
+    assertThat(codeCache.getCode(account(CODE, Account.DEFAULT_VERSION + 1))).isNotSameAs(code);
+  }
+
+  @Test
+  public void shouldReturnEmptyCodeForMissingAccount() {
+    assertThat(codeCache.getCode(null).getSize()).isZero();
+  }
+
+  @Test
+  public void shouldEvictCodeWhenFull() {
+    final BytesValue largeCode = BytesValue.wrap(new byte[1000]);
+    final Code code = codeCache.getCode(account(largeCode, Account.DEFAULT_VERSION));
+    codeCache.getCode(account(BytesValue.wrap(new byte[1001]), Account.DEFAULT_VERSION));
+
+    assertThat(codeCache.getCode(account(largeCode, Account.DEFAULT_VERSION))).isNotSameAs(code);
+  }
+
+  private Account account(final BytesValue code, final int version) {
+    final Account account = mock(Account.class);
+    when(account.getCodeHash()).thenReturn(Hash.hash(code));
+    when(account.getCode()).thenReturn(code);
+    when(account.getVersion()).thenReturn(version);
+    return account;
+  }
+}
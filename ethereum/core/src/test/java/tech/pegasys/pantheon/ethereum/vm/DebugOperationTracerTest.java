@@ -28,14 +28,20 @@ import tech.pegasys.pantheon.ethereum.core.Wei;
 import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
 import tech.pegasys.pantheon.ethereum.debug.TraceFrame;
 import tech.pegasys.pantheon.ethereum.debug.TraceOptions;
+import tech.pegasys.pantheon.ethereum.mainnet.ConstantinopleGasCalculator;
 import tech.pegasys.pantheon.ethereum.vm.OperationTracer.ExecuteOperation;
 import tech.pegasys.pantheon.ethereum.vm.ehalt.ExceptionalHaltException;
+import tech.pegasys.pantheon.ethereum.vm.operations.SStoreOperation;
 import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.junit.Test;
@@ -172,6 +178,86 @@ public class DebugOperationTracerTest {
     assertThat(traceFrame.getStorage()).contains(updatedStorage);
   }
 
+  @Test
+  public void shouldRecordOnlyChangedMemoryWhenTracingDiffs() throws Exception {
+    final MessageFrame frame = validMessageFrame();
+    final Bytes32 word1 = Bytes32.fromHexString("0x01");
+    final Bytes32 word2 = Bytes32.fromHexString("0x02");
+    final Bytes32 word3 = Bytes32.fromHexString("0x03");
+    frame.writeMemory(UInt256.ZERO, UInt256.of(32), word1);
+    frame.writeMemory(UInt256.of(64), UInt256.of(32), word2);
+    final List<TraceFrame> traceFrames = new ArrayList<>();
+    final DebugOperationTracer tracer =
+        new DebugOperationTracer(new TraceOptions(false, true, false, true), traceFrames::add);
+
+    tracer.traceExecution(frame, Optional.of(Gas.ZERO), executeOperationAction);
+    frame.writeMemory(UInt256.of(64), UInt256.of(32), word3);
+    frame.expandMemory(0, 160);
+    tracer.traceExecution(frame, Optional.of(Gas.ZERO), executeOperationAction);
+
+    assertThat(traceFrames).hasSize(2);
+    assertThat(traceFrames.get(0).getMemory()).isEmpty();
+    assertThat(traceFrames.get(0).getMemorySize()).isEqualTo(96);
+    assertThat(traceFrames.get(0).getMemoryChanges()).contains(memoryChanges(0, word1, 2, word2));
+    // Newly expanded memory is zero so isn't reported as a change.
+    assertThat(traceFrames.get(1).getMemorySize()).isEqualTo(160);
+    assertThat(traceFrames.get(1).getMemoryChanges()).contains(memoryChanges(2, word3));
+    assertThat(tracer.getTraceFrames()).isEmpty();
+  }
+
+  @Test
+  public void shouldRecordAllMemoryOfNewCallWhenTracingDiffs() throws Exception {
+    final Bytes32 word = Bytes32.fromHexString("0x01");
+    final MessageFrame firstCall = validMessageFrame();
+    firstCall.writeMemory(UInt256.ZERO, UInt256.of(32), word);
+    final MessageFrame secondCall = validMessageFrame();
+    secondCall.writeMemory(UInt256.ZERO, UInt256.of(32), word);
+    final List<TraceFrame> traceFrames = new ArrayList<>();
+    final DebugOperationTracer tracer =
+        new DebugOperationTracer(new TraceOptions(false, true, false, true), traceFrames::add);
+
+    tracer.traceExecution(firstCall, Optional.of(Gas.ZERO), executeOperationAction);
+    tracer.traceExecution(secondCall, Optional.of(Gas.ZERO), executeOperationAction);
+
+    assertThat(traceFrames.get(0).getMemoryChanges()).contains(memoryChanges(0, word));
+    assertThat(traceFrames.get(1).getMemoryChanges()).contains(memoryChanges(0, word));
+  }
+
+  @Test
+  public void shouldRecordStorageWrittenBySStoreWhenTracingDiffs() throws Exception {
+    final MessageFrame frame = validMessageFrame();
+    frame.setCurrentOperation(
+        new SStoreOperation(new ConstantinopleGasCalculator(), SStoreOperation.FRONTIER_MINIMUM));
+    frame.pushStackItem(Bytes32.fromHexString("0x0a"));
+    frame.pushStackItem(Bytes32.fromHexString("0x05"));
+    final MutableAccount account = mock(MutableAccount.class);
+    when(worldUpdater.getMutable(frame.getRecipientAddress())).thenReturn(account);
+    when(account.getStorageValue(UInt256.of(5))).thenReturn(UInt256.of(10));
+
+    final TraceFrame traceFrame =
+        traceFrame(frame, Gas.ZERO, new TraceOptions(true, false, false, true));
+
+    assertThat(traceFrame.getStorage()).isEmpty();
+    assertThat(traceFrame.getStorageChanges())
+        .contains(Collections.singletonMap(UInt256.of(5), UInt256.of(10)));
+  }
+
+  @Test
+  public void shouldRecordNoStorageChangesForOtherOperationsWhenTracingDiffs() throws Exception {
+    final TraceFrame traceFrame =
+        traceFrame(validMessageFrame(), Gas.ZERO, new TraceOptions(true, false, false, true));
+
+    assertThat(traceFrame.getStorageChanges()).contains(Collections.emptyMap());
+  }
+
+  private SortedMap<Integer, Bytes32> memoryChanges(final Object... indexesAndWords) {
+    final SortedMap<Integer, Bytes32> changes = new TreeMap<>();
+    for (int i = 0; i < indexesAndWords.length; i += 2) {
+      changes.put((Integer) indexesAndWords[i], (Bytes32) indexesAndWords[i + 1]);
+    }
+    return changes;
+  }
+
   private TraceFrame traceFrame(final MessageFrame frame, final Gas currentGasCost)
       throws Exception {
     return traceFrame(frame, currentGasCost, new TraceOptions(false, false, false));
@@ -12,6 +12,7 @@
  */
 package tech.pegasys.pantheon.ethereum.vm;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import tech.pegasys.pantheon.util.bytes.Bytes32;
@@ -147,6 +148,53 @@ public class MemoryTest {
     assertThat(memory.getWord(UInt256.of(64))).isEqualTo(Bytes32.ZERO);
   }
 
+  @Test
+  public void shouldSetAndGetUnalignedWordAcrossPages() {
+    final UInt256 index = UInt256.of(4096 - 7);
+    memory.setWord(index, WORD1);
+    assertThat(memory.getWord(index)).isEqualTo(WORD1);
+    assertThat(memory.getActiveWords()).isEqualTo(UInt256.of(129));
+  }
+
+  @Test
+  public void shouldSetAndGetBytesSpanningSeveralPages() {
+    final byte[] array = new byte[10_000];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = (byte) i;
+    }
+    final BytesValue value = BytesValue.wrap(array);
+    memory.setBytes(UInt256.of(100), UInt256.of(value.size()), value);
+    assertThat(memory.getBytes(UInt256.of(100), UInt256.of(value.size()))).isEqualTo(value);
+    assertThat(memory.getBytes(UInt256.of(4000), UInt256.of(200)))
+        .isEqualTo(value.slice(3900, 200));
+  }
+
+  @Test
+  public void shouldClearBytesSpanningSeveralPages() {
+    final BytesValue value = BytesValue.wrap(Strings.repeat("a", 10_000).getBytes(UTF_8));
+    memory.setBytes(UInt256.ZERO, UInt256.of(value.size()), value);
+
+    memory.clearBytes(4000, 5000);
+
+    assertThat(memory.getBytes(UInt256.ZERO, UInt256.of(4000))).isEqualTo(value.slice(0, 4000));
+    assertThat(memory.getBytes(UInt256.of(4000), UInt256.of(5000)))
+        .isEqualTo(BytesValue.wrap(new byte[5000]));
+    assertThat(memory.getBytes(UInt256.of(9000), UInt256.of(1000)))
+        .isEqualTo(value.slice(9000, 1000));
+  }
+
+  @Test
+  public void shouldOnlyConsiderActiveWordsForEquality() {
+    final Memory other = new Memory();
+    memory.setWord(UInt256.of(64), WORD3);
+    other.setWord(UInt256.of(64), WORD3);
+    assertThat(memory).isEqualTo(other);
+    assertThat(memory.hashCode()).isEqualTo(other.hashCode());
+
+    other.setByte(UInt256.of(96), (byte) 0);
+    assertThat(memory).isNotEqualTo(other);
+  }
+
   private static Bytes32 fillBytes32(final long value) {
     return Bytes32.fromHexString(Strings.repeat(Long.toString(value), 64));
   }
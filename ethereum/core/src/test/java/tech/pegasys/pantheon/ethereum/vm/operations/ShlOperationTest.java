@@ -106,10 +106,9 @@ public class ShlOperationTest {
   @Test
   public void shiftOperation() {
     frame = mock(MessageFrame.class);
-    when(frame.popStackItem())
-        .thenReturn(Bytes32.fromHexStringLenient(shift))
-        .thenReturn(Bytes32.fromHexString(number));
+    when(frame.popStackItem()).thenReturn(Bytes32.fromHexStringLenient(shift));
+    when(frame.getStackItem(0)).thenReturn(Bytes32.fromHexString(number));
     operation.execute(frame);
-    verify(frame).pushStackItem(Bytes32.fromHexString(expectedResult));
+    verify(frame).setStackItem(0, Bytes32.fromHexString(expectedResult));
   }
 }
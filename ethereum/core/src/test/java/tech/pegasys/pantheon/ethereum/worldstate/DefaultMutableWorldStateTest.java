@@ -196,6 +196,56 @@ public class DefaultMutableWorldStateTest {
     assertEquals(newBalance, newWorldState.get(ADDRESS).getBalance());
   }
 
+  @Test
+  public void persistManyStorageTries() {
+    final KeyValueStorage storage = new InMemoryKeyValueStorage();
+    final MutableWorldState worldState = createEmpty(new WorldStateKeyValueStorage(storage));
+    final WorldUpdater updater = worldState.updater();
+    for (int i = 1; i <= 50; i++) {
+      final MutableAccount account = updater.createAccount(Address.fromHexString(toHex(i)));
+      for (int j = 1; j <= 10; j++) {
+        account.setStorageValue(UInt256.of(j), UInt256.of(i * j));
+      }
+    }
+    updater.commit();
+    final Hash expectedRootHash = worldState.rootHash();
+
+    worldState.persist();
+
+    assertThat(worldState.rootHash()).isEqualTo(expectedRootHash);
+    final MutableWorldState newWorldState =
+        new DefaultMutableWorldState(expectedRootHash, new WorldStateKeyValueStorage(storage));
+    for (int i = 1; i <= 50; i++) {
+      final Account account = newWorldState.get(Address.fromHexString(toHex(i)));
+      for (int j = 1; j <= 10; j++) {
+        assertThat(account.getStorageValue(UInt256.of(j))).isEqualTo(UInt256.of(i * j));
+      }
+    }
+  }
+
+  @Test
+  public void commitManyStorageUpdatesAtOnce() {
+    final MutableWorldState batched = createEmpty();
+    final WorldUpdater batchedUpdater = batched.updater();
+    final MutableWorldState oneByOne = createEmpty();
+    for (int i = 1; i <= 50; i++) {
+      final Address address = Address.fromHexString(toHex(i));
+      final WorldUpdater updater = oneByOne.updater();
+      final MutableAccount account = updater.createAccount(address);
+      final MutableAccount batchedAccount = batchedUpdater.createAccount(address);
+      for (int j = 1; j <= 10; j++) {
+        account.setStorageValue(UInt256.of(j), UInt256.of(i * j));
+        batchedAccount.setStorageValue(UInt256.of(j), UInt256.of(i * j));
+      }
+      updater.commit();
+    }
+    batchedUpdater.commit();
+
+    assertThat(batched.rootHash()).isEqualTo(oneByOne.rootHash());
+    assertThat(batched.get(Address.fromHexString(toHex(7))).getStorageValue(UInt256.of(3)))
+        .isEqualTo(UInt256.of(21));
+  }
+
   @Test
   public void getAccountNonce_AccountExists() {
     final MutableWorldState worldState = createEmpty();
@@ -558,6 +608,10 @@ public class DefaultMutableWorldStateTest {
     assertThat(storage).isEqualTo(expected);
   }
 
+  private static String toHex(final int i) {
+    return String.format("0x%040x", i);
+  }
+
   private Hash hash(final UInt256 key) {
     return Hash.hash(key.getBytes());
   }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.BlockHeaderTestFixture;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableAccount;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.WorldStateKeyValueStorage;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.Test;
+
+public class MarkSweepPrunerTest {
+
+  private static final Address ADDRESS =
+      Address.fromHexString("0xa94f5374fce5edbc8e2a8697c15331677e6ebf0b");
+
+  private final WorldStateStorage worldStateStorage =
+      new WorldStateKeyValueStorage(new InMemoryKeyValueStorage());
+  private final Blockchain blockchain = mock(Blockchain.class);
+  private final MarkSweepPruner pruner =
+      new MarkSweepPruner(
+          worldStateStorage,
+          blockchain,
+          new InMemoryKeyValueStorage(),
+          new NoOpMetricsSystem(),
+          new PrunerConfiguration(10, 1, 2, Duration.ZERO));
+
+  @Test
+  public void shouldRemoveStateNotReachableFromMarkedRoot() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(worldStateStorage);
+    final Hash oldRoot = updateAccount(worldState, 1, 1);
+    final Hash markedRoot = updateAccount(worldState, 2, 2);
+    givenStateRootAtBlock(0, oldRoot);
+
+    pruner.prepare();
+    pruner.mark(markedRoot);
+    pruner.sweepBefore(1);
+
+    assertThat(worldStateStorage.isWorldStateAvailable(oldRoot)).isFalse();
+    assertThat(worldStateStorage.isWorldStateAvailable(markedRoot)).isTrue();
+    assertAccountState(markedRoot, 2, 2);
+  }
+
+  @Test
+  public void shouldRetainNodesAddedAfterPrepare() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(worldStateStorage);
+    final Hash oldRoot = updateAccount(worldState, 1, 1);
+    final Hash markedRoot = updateAccount(worldState, 2, 2);
+    givenStateRootAtBlock(0, oldRoot);
+
+    pruner.prepare();
+    pruner.mark(markedRoot);
+    final Hash newRoot = updateAccount(worldState, 3, 3);
+    pruner.sweepBefore(1);
+
+    assertThat(worldStateStorage.isWorldStateAvailable(oldRoot)).isFalse();
+    assertAccountState(markedRoot, 2, 2);
+    assertAccountState(newRoot, 3, 3);
+  }
+
+  @Test
+  public void shouldClearMarksAfterSweeping() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(worldStateStorage);
+    final Hash root = updateAccount(worldState, 1, 1);
+
+    pruner.prepare();
+    pruner.mark(root);
+    assertThat(pruner.isMarked(root)).isTrue();
+
+    pruner.sweepBefore(0);
+    assertThat(pruner.isMarked(root)).isFalse();
+    assertAccountState(root, 1, 1);
+  }
+
+  private Hash updateAccount(
+      final MutableWorldState worldState, final long balance, final long storageValue) {
+    final WorldUpdater updater = worldState.updater();
+    final MutableAccount account = updater.getOrCreate(ADDRESS);
+    account.setBalance(Wei.of(balance));
+    account.setCode(BytesValue.of(1, 2, 3));
+    account.setStorageValue(UInt256.ONE, UInt256.of(storageValue));
+    updater.commit();
+    worldState.persist();
+    return worldState.rootHash();
+  }
+
+  private void assertAccountState(
+      final Hash rootHash, final long balance, final long storageValue) {
+    final Account account = new DefaultMutableWorldState(rootHash, worldStateStorage).get(ADDRESS);
+    assertThat(account.getBalance()).isEqualTo(Wei.of(balance));
+    assertThat(account.getCode()).isEqualTo(BytesValue.of(1, 2, 3));
+    assertThat(account.getStorageValue(UInt256.ONE)).isEqualTo(UInt256.of(storageValue));
+  }
+
+  private void givenStateRootAtBlock(final long blockNumber, final Hash stateRoot) {
+    final BlockHeader header =
+        new BlockHeaderTestFixture().number(blockNumber).stateRoot(stateRoot).buildHeader();
+    when(blockchain.getBlockHeader(blockNumber)).thenReturn(Optional.of(header));
+  }
+}
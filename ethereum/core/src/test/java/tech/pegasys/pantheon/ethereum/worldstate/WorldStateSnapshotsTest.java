@@ -0,0 +1,284 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.worldstate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Address;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableAccount;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.core.Wei;
+import tech.pegasys.pantheon.ethereum.core.WorldUpdater;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.WorldStateKeyValueStorage;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.Optional;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.Test;
+
+public class WorldStateSnapshotsTest {
+
+  private static final Address ADDRESS1 =
+      Address.fromHexString("0xa94f5374fce5edbc8e2a8697c15331677e6ebf0b");
+  private static final Address ADDRESS2 =
+      Address.fromHexString("0x095e7baea6a6c7c4c2dfeb977efac326af552d87");
+
+  private final WorldStateStorage storage =
+      new WorldStateKeyValueStorage(new InMemoryKeyValueStorage());
+
+  @Test
+  public void shouldReadPersistedStateThroughSnapshot() {
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+    final MutableWorldState worldState = createWorldState(Hash.EMPTY_TRIE_HASH, snapshots);
+    final WorldUpdater updater = worldState.updater();
+    final MutableAccount account = updater.createAccount(ADDRESS1);
+    account.setBalance(Wei.of(100));
+    account.setStorageValue(UInt256.ONE, UInt256.of(2));
+    updater.commit();
+    worldState.persist();
+
+    assertThat(snapshots.isTracked(worldState.rootHash())).isTrue();
+    final Optional<StateSnapshot> snapshot = snapshots.get(worldState.rootHash());
+    assertThat(snapshot).isPresent();
+    assertThat(snapshot.get().getAccount(Hash.hash(ADDRESS1))).isPresent();
+    assertThat(snapshot.get().getAccount(Hash.hash(ADDRESS2))).isEmpty();
+
+    final MutableWorldState reloaded = createWorldState(worldState.rootHash(), snapshots);
+    assertThat(reloaded.get(ADDRESS1).getBalance()).isEqualTo(Wei.of(100));
+    assertThat(reloaded.get(ADDRESS1).getStorageValue(UInt256.ONE)).isEqualTo(UInt256.of(2));
+    assertThat(reloaded.get(ADDRESS2)).isNull();
+  }
+
+  @Test
+  public void shouldMergeOldestLayersIntoFlatState() {
+    final WorldStateSnapshots snapshots = createSnapshots(1);
+    final MutableWorldState worldState = createWorldState(Hash.EMPTY_TRIE_HASH, snapshots);
+
+    WorldUpdater updater = worldState.updater();
+    MutableAccount account = updater.createAccount(ADDRESS1);
+    account.setBalance(Wei.of(100));
+    account.setStorageValue(UInt256.ONE, UInt256.of(2));
+    account.setStorageValue(UInt256.of(2), UInt256.of(3));
+    updater.createAccount(ADDRESS2).setBalance(Wei.of(5));
+    updater.commit();
+    worldState.persist();
+    final Hash firstRoot = worldState.rootHash();
+
+    updater = worldState.updater();
+    account = updater.getMutable(ADDRESS1);
+    account.clearStorage();
+    account.setStorageValue(UInt256.of(2), UInt256.of(4));
+    updater.deleteAccount(ADDRESS2);
+    updater.commit();
+    worldState.persist();
+    final Hash secondRoot = worldState.rootHash();
+    snapshots.onNewCanonicalHead(secondRoot);
+
+    assertThat(storage.getFlatStateRoot()).contains(firstRoot);
+    assertThat(snapshots.getDiffLayerCount()).isEqualTo(1);
+
+    // Push the second layer into the flat state too.
+    updater = worldState.updater();
+    updater.getMutable(ADDRESS1).setBalance(Wei.of(200));
+    updater.commit();
+    worldState.persist();
+    snapshots.onNewCanonicalHead(worldState.rootHash());
+
+    assertThat(storage.getFlatStateRoot()).contains(secondRoot);
+    assertThat(snapshots.isTracked(firstRoot)).isFalse();
+    final Hash addressHash = Hash.hash(ADDRESS1);
+    assertThat(storage.getFlatAccount(Hash.hash(ADDRESS2))).isEmpty();
+    assertThat(storage.getFlatStorageValue(addressHash, slotHash(UInt256.ONE))).isEmpty();
+    assertThat(storage.getFlatStorageValue(addressHash, slotHash(UInt256.of(2)))).isPresent();
+
+    final MutableWorldState reloaded = createWorldState(worldState.rootHash(), snapshots);
+    assertThat(reloaded.get(ADDRESS1).getBalance()).isEqualTo(Wei.of(200));
+    assertThat(reloaded.get(ADDRESS1).getStorageValue(UInt256.ONE)).isEqualTo(UInt256.ZERO);
+    assertThat(reloaded.get(ADDRESS1).getStorageValue(UInt256.of(2))).isEqualTo(UInt256.of(4));
+    assertThat(reloaded.get(ADDRESS2)).isNull();
+  }
+
+  @Test
+  public void shouldTrackForksUntilTheFlatStateMovesPastThem() {
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+    final Hash parentRoot = persistBalance(Hash.EMPTY_TRIE_HASH, snapshots, 1);
+    final Hash forkRoot = persistBalance(parentRoot, snapshots, 2);
+    final Hash canonicalRoot = persistBalance(parentRoot, snapshots, 3);
+
+    assertThat(snapshots.isTracked(forkRoot)).isTrue();
+    assertThat(snapshots.isTracked(canonicalRoot)).isTrue();
+    final MutableWorldState fork = createWorldState(forkRoot, snapshots);
+    assertThat(fork.get(ADDRESS1).getBalance()).isEqualTo(Wei.of(2));
+    assertThat(createWorldState(canonicalRoot, snapshots).get(ADDRESS1).getBalance())
+        .isEqualTo(Wei.of(3));
+
+    // Merging the canonical chain leaves the fork behind, which is then read from the trie.
+    snapshots.onNewCanonicalHead(
+        persistBalance(persistBalance(canonicalRoot, snapshots, 4), snapshots, 5));
+
+    assertThat(snapshots.isTracked(forkRoot)).isFalse();
+    assertThat(fork.get(ADDRESS1).getBalance()).isEqualTo(Wei.of(2));
+    assertThat(createWorldState(forkRoot, snapshots).get(ADDRESS1).getBalance())
+        .isEqualTo(Wei.of(2));
+  }
+
+  @Test
+  public void shouldOnlyMergeLayersOfTheCanonicalChain() {
+    final WorldStateSnapshots snapshots = createSnapshots(1);
+    final Hash canonicalRoot = persistBalance(Hash.EMPTY_TRIE_HASH, snapshots, 1);
+    snapshots.onNewCanonicalHead(canonicalRoot);
+    Hash forkRoot = persistBalance(Hash.EMPTY_TRIE_HASH, snapshots, 2);
+    for (int i = 3; i <= 5; i++) {
+      forkRoot = persistBalance(forkRoot, snapshots, i);
+    }
+
+    // The fork is deeper than the number of layers kept, but isn't canonical.
+    assertThat(snapshots.getFlatStateRoot()).isEqualTo(Hash.EMPTY_TRIE_HASH);
+    assertThat(snapshots.isTracked(canonicalRoot)).isTrue();
+    assertThat(snapshots.isTracked(forkRoot)).isTrue();
+
+    // Once the fork becomes canonical, the flat state moves along it.
+    snapshots.onNewCanonicalHead(forkRoot);
+
+    assertThat(snapshots.isTracked(canonicalRoot)).isFalse();
+    assertThat(snapshots.getDiffLayerCount()).isEqualTo(1);
+    assertThat(createWorldState(forkRoot, snapshots).get(ADDRESS1).getBalance())
+        .isEqualTo(Wei.of(5));
+  }
+
+  @Test
+  public void shouldReloadJournaledLayers() {
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+    final Hash parentRoot = persistBalance(Hash.EMPTY_TRIE_HASH, snapshots, 1);
+    final Hash headRoot = persistBalance(parentRoot, snapshots, 2);
+
+    final WorldStateSnapshots reloaded = createSnapshots(2);
+
+    assertThat(reloaded.getFlatStateRoot()).isEqualTo(snapshots.getFlatStateRoot());
+    assertThat(reloaded.getDiffLayerCount()).isEqualTo(2);
+    assertThat(reloaded.isTracked(headRoot)).isTrue();
+    assertThat(createWorldState(headRoot, reloaded).get(ADDRESS1).getBalance())
+        .isEqualTo(Wei.of(2));
+  }
+
+  @Test
+  public void shouldNotTrackStatesPersistedOutsideOfTheFlatState() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(storage);
+    final WorldUpdater updater = worldState.updater();
+    updater.createAccount(ADDRESS1).setBalance(Wei.of(1));
+    updater.commit();
+    worldState.persist();
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+
+    final Hash childRoot = persistBalance(worldState.rootHash(), snapshots, 2);
+
+    assertThat(snapshots.isTracked(childRoot)).isFalse();
+    assertThat(createWorldState(childRoot, snapshots).get(ADDRESS1).getBalance())
+        .isEqualTo(Wei.of(2));
+  }
+
+  @Test
+  public void shouldGenerateFlatStateFromCanonicalHead() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(storage);
+    final WorldUpdater updater = worldState.updater();
+    final MutableAccount account = updater.createAccount(ADDRESS1);
+    account.setBalance(Wei.of(1));
+    account.setStorageValue(UInt256.ONE, UInt256.of(2));
+    account.setStorageValue(UInt256.of(2), UInt256.of(3));
+    updater.createAccount(ADDRESS2).setBalance(Wei.of(4));
+    updater.commit();
+    worldState.persist();
+    final Hash headRoot = worldState.rootHash();
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+
+    snapshots.onNewCanonicalHead(headRoot);
+
+    assertThat(snapshots.isGenerating()).isFalse();
+    assertThat(storage.getFlatStateRoot()).contains(headRoot);
+    assertThat(storage.getGeneratingFlatStateRoot()).isEmpty();
+    final Hash addressHash = Hash.hash(ADDRESS1);
+    assertThat(storage.getFlatAccount(Hash.hash(ADDRESS2))).isPresent();
+    assertThat(storage.getFlatStorageValue(addressHash, slotHash(UInt256.ONE))).isPresent();
+    assertThat(storage.getFlatStorageValue(addressHash, slotHash(UInt256.of(2)))).isPresent();
+
+    final Hash childRoot = persistBalance(headRoot, snapshots, 5);
+    assertThat(snapshots.get(childRoot)).isPresent();
+    final MutableWorldState child = createWorldState(childRoot, snapshots);
+    assertThat(child.get(ADDRESS1).getBalance()).isEqualTo(Wei.of(5));
+    assertThat(child.get(ADDRESS1).getStorageValue(UInt256.of(2))).isEqualTo(UInt256.of(3));
+    assertThat(child.get(ADDRESS2).getBalance()).isEqualTo(Wei.of(4));
+  }
+
+  @Test
+  public void shouldRestartInterruptedGenerationAtNextHead() {
+    final Hash root = persistBalance(Hash.EMPTY_TRIE_HASH, createSnapshots(2), 1);
+    final WorldStateStorage.Updater updater = storage.updater();
+    updater.putGeneratingFlatStateRoot(root);
+    updater.commit();
+
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+    assertThat(snapshots.isGenerating()).isTrue();
+    assertThat(snapshots.get(root)).isEmpty();
+
+    snapshots.onNewCanonicalHead(root);
+
+    assertThat(snapshots.isGenerating()).isFalse();
+    assertThat(snapshots.get(root)).isPresent();
+  }
+
+  @Test
+  public void shouldNotGenerateFlatStateOnceClosed() {
+    final MutableWorldState worldState = new DefaultMutableWorldState(storage);
+    final WorldUpdater updater = worldState.updater();
+    updater.createAccount(ADDRESS1).setBalance(Wei.of(1));
+    updater.commit();
+    worldState.persist();
+    final WorldStateSnapshots snapshots = createSnapshots(2);
+    snapshots.close();
+
+    snapshots.onNewCanonicalHead(worldState.rootHash());
+
+    assertThat(snapshots.isGenerating()).isFalse();
+    assertThat(storage.getGeneratingFlatStateRoot()).isEmpty();
+    assertThat(snapshots.get(worldState.rootHash())).isEmpty();
+  }
+
+  private Hash persistBalance(
+      final Hash parentRoot, final WorldStateSnapshots snapshots, final long balance) {
+    final MutableWorldState worldState = createWorldState(parentRoot, snapshots);
+    final WorldUpdater updater = worldState.updater();
+    final MutableAccount account = updater.getOrCreate(ADDRESS1);
+    account.setBalance(Wei.of(balance));
+    updater.commit();
+    worldState.persist();
+    return worldState.rootHash();
+  }
+
+  private WorldStateSnapshots createSnapshots(final int maxDiffLayers) {
+    return new WorldStateSnapshots(
+        storage, maxDiffLayers, MoreExecutors.newDirectExecutorService(), 1);
+  }
+
+  private MutableWorldState createWorldState(
+      final Hash rootHash, final WorldStateSnapshots snapshots) {
+    return new DefaultMutableWorldState(
+        rootHash, storage, Optional.empty(), Optional.of(snapshots));
+  }
+
+  private static Hash slotHash(final UInt256 key) {
+    return Hash.hash(key.getBytes());
+  }
+}
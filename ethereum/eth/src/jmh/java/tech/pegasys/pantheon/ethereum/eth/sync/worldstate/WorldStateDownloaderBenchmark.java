@@ -49,6 +49,7 @@ import com.google.common.io.MoreFiles;
 import com.google.common.io.RecursiveDeleteOption;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -57,6 +58,11 @@ import org.openjdk.jmh.annotations.TearDown;
 @State(Scope.Thread)
 public class WorldStateDownloaderBenchmark {
 
+  // With no cache every request goes through the flat file in the order it was added, otherwise
+  // cached requests are downloaded deepest first.
+  @Param({"0", "1000000"})
+  public int requestCacheSize;
+
   private final BlockDataGenerator dataGen = new BlockDataGenerator();
   private Path tempDir;
   private BlockHeader blockHeader;
@@ -101,7 +107,8 @@ public class WorldStateDownloaderBenchmark {
                 tempDir.resolve("fastsync"),
                 NodeDataRequest::serialize,
                 NodeDataRequest::deserialize),
-            0);
+            requestCacheSize,
+            NodeDataRequest.DEEPEST_FIRST);
     worldStateDownloader =
         new WorldStateDownloader(
             ethContext,
@@ -13,7 +13,6 @@
 package tech.pegasys.pantheon.ethereum.eth.manager;
 
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
-import tech.pegasys.pantheon.ethereum.core.BlockBody;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.TransactionReceipt;
@@ -31,6 +30,7 @@ import tech.pegasys.pantheon.ethereum.eth.messages.ReceiptsMessage;
 import tech.pegasys.pantheon.ethereum.p2p.rlpx.connections.PeerConnection.PeerNotConnected;
 import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.MessageData;
 import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.messages.DisconnectMessage.DisconnectReason;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
 import tech.pegasys.pantheon.ethereum.rlp.RLPException;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateArchive;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
@@ -149,18 +149,21 @@ class EthServer {
       final long firstNumber = getHeaders.blockNumber().getAsLong();
       firstHeader = blockchain.getBlockHeader(firstNumber).orElse(null);
     }
-    final Collection<BlockHeader> resp;
+    // Headers are sent as stored, so that blocks served from the freezer aren't decoded and
+    // re-encoded.
+    final Collection<BytesValue> resp;
     if (firstHeader == null) {
       resp = Collections.emptyList();
     } else {
-      resp = Lists.newArrayList(firstHeader);
+      resp = Lists.newArrayList(RLP.encode(firstHeader::writeTo));
       final long numberDelta = reversed ? -(skip + 1) : (skip + 1);
       for (int i = 1; i < maxHeaders; i++) {
         final long blockNumber = firstHeader.getNumber() + i * numberDelta;
         if (blockNumber < BlockHeader.GENESIS_BLOCK_NUMBER) {
           break;
         }
-        final Optional<BlockHeader> maybeHeader = blockchain.getBlockHeader(blockNumber);
+        final Optional<BytesValue> maybeHeader =
+            blockchain.getBlockHashByNumber(blockNumber).flatMap(blockchain::getBlockHeaderRlp);
         if (maybeHeader.isPresent()) {
           resp.add(maybeHeader.get());
         } else {
@@ -168,7 +171,7 @@ class EthServer {
         }
       }
     }
-    return BlockHeadersMessage.create(resp);
+    return BlockHeadersMessage.createFromRlp(resp);
   }
 
   static MessageData constructGetBodiesResponse(
@@ -176,20 +179,20 @@ class EthServer {
     final GetBlockBodiesMessage getBlockBodiesMessage = GetBlockBodiesMessage.readFrom(message);
     final Iterable<Hash> hashes = getBlockBodiesMessage.hashes();
 
-    final Collection<BlockBody> bodies = new ArrayList<>();
+    final Collection<BytesValue> bodies = new ArrayList<>();
     int count = 0;
     for (final Hash hash : hashes) {
       if (count >= requestLimit) {
         break;
       }
       count++;
-      final Optional<BlockBody> maybeBody = blockchain.getBlockBody(hash);
+      final Optional<BytesValue> maybeBody = blockchain.getBlockBodyRlp(hash);
       if (!maybeBody.isPresent()) {
         continue;
       }
       bodies.add(maybeBody.get());
     }
-    return BlockBodiesMessage.create(bodies);
+    return BlockBodiesMessage.createFromRlp(bodies);
   }
 
   static MessageData constructGetReceiptsResponse(
@@ -19,7 +19,6 @@ import tech.pegasys.pantheon.metrics.LabelledMetric;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.metrics.OperationTimer;
 import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
-import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
 
 import java.util.Collection;
 import java.util.concurrent.CancellationException;
@@ -51,19 +50,7 @@ public abstract class AbstractEthTask<T> implements EthTask<T> {
     final LabelledMetric<OperationTimer> ethTasksTimer =
         metricsSystem.createLabelledTimer(
             PantheonMetricCategory.SYNCHRONIZER, "task", "Internal processing tasks", "taskName");
-    if (ethTasksTimer == NoOpMetricsSystem.NO_OP_LABELLED_1_OPERATION_TIMER) {
-      return () ->
-          new OperationTimer.TimingContext() {
-            final Stopwatch stopwatch = Stopwatch.createStarted();
-
-            @Override
-            public double stopTimer() {
-              return stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000.0;
-            }
-          };
-    } else {
-      return ethTasksTimer.labels(AbstractEthTask.class.getSimpleName());
-    }
+    return ethTasksTimer.labels(AbstractEthTask.class.getSimpleName());
   }
 
   @Override
@@ -148,10 +135,13 @@ public abstract class AbstractEthTask<T> implements EthTask<T> {
   /** Executes the task while timed by a timer. */
   public void executeTaskTimed() {
     final OperationTimer.TimingContext timingContext = taskTimer.startTimer();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
     try {
       executeTask();
     } finally {
-      taskTimeInSec = timingContext.stopTimer();
+      timingContext.stopTimer();
+      // Timers may be disabled or only time some operations, so the task time is measured here.
+      taskTimeInSec = stopwatch.elapsed(TimeUnit.MILLISECONDS) / 1000.0;
     }
   }
 
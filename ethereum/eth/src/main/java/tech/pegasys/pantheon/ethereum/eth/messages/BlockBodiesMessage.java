@@ -46,6 +46,21 @@ public final class BlockBodiesMessage extends AbstractMessageData {
     return new BlockBodiesMessage(tmp.encoded());
   }
 
+  /**
+   * Creates a message from block bodies that are already RLP encoded, so they don't need to be
+   * decoded first.
+   *
+   * @param bodies The RLP encoded block bodies.
+   * @return The message.
+   */
+  public static BlockBodiesMessage createFromRlp(final Iterable<BytesValue> bodies) {
+    final BytesValueRLPOutput tmp = new BytesValueRLPOutput();
+    tmp.startList();
+    bodies.forEach(tmp::writeRLPUnsafe);
+    tmp.endList();
+    return new BlockBodiesMessage(tmp.encoded());
+  }
+
   private BlockBodiesMessage(final BytesValue data) {
     super(data);
   }
@@ -53,6 +53,21 @@ public final class BlockHeadersMessage extends AbstractMessageData {
     return new BlockHeadersMessage(tmp.encoded());
   }
 
+  /**
+   * Creates a message from block headers that are already RLP encoded, so they don't need to be
+   * decoded first.
+   *
+   * @param headers The RLP encoded block headers.
+   * @return The message.
+   */
+  public static BlockHeadersMessage createFromRlp(final Iterable<BytesValue> headers) {
+    final BytesValueRLPOutput tmp = new BytesValueRLPOutput();
+    tmp.startList();
+    headers.forEach(tmp::writeRLPUnsafe);
+    tmp.endList();
+    return new BlockHeadersMessage(tmp.encoded());
+  }
+
   private BlockHeadersMessage(final BytesValue data) {
     super(data);
   }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.messages;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.AbstractMessageData;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.MessageData;
+import tech.pegasys.pantheon.ethereum.rlp.BytesValueRLPInput;
+import tech.pegasys.pantheon.ethereum.rlp.BytesValueRLPOutput;
+import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+/**
+ * Requests up to {@code limit} leaves of a trie, starting from the first key equal to or greater
+ * than {@code startKey}.
+ *
+ * <p>Account ranges are requested from a state root, storage ranges from the storage root of an
+ * account.
+ */
+public final class GetTrieRangeMessage extends AbstractMessageData {
+
+  private final int code;
+
+  public static GetTrieRangeMessage readFrom(final MessageData message) {
+    if (message instanceof GetTrieRangeMessage) {
+      return (GetTrieRangeMessage) message;
+    }
+    final int code = message.getCode();
+    if (code != StateRangePV1.GET_ACCOUNT_RANGE && code != StateRangePV1.GET_STORAGE_RANGE) {
+      throw new IllegalArgumentException(
+          String.format("Message has code %d and thus is not a GetTrieRangeMessage.", code));
+    }
+    return new GetTrieRangeMessage(code, message.getData());
+  }
+
+  public static GetTrieRangeMessage createAccountRangeRequest(
+      final long requestId, final Hash stateRoot, final Bytes32 startKey, final int limit) {
+    return create(StateRangePV1.GET_ACCOUNT_RANGE, requestId, stateRoot, startKey, limit);
+  }
+
+  public static GetTrieRangeMessage createStorageRangeRequest(
+      final long requestId, final Hash storageRoot, final Bytes32 startKey, final int limit) {
+    return create(StateRangePV1.GET_STORAGE_RANGE, requestId, storageRoot, startKey, limit);
+  }
+
+  private static GetTrieRangeMessage create(
+      final int code,
+      final long requestId,
+      final Hash rootHash,
+      final Bytes32 startKey,
+      final int limit) {
+    final BytesValueRLPOutput tmp = new BytesValueRLPOutput();
+    tmp.startList();
+    tmp.writeLongScalar(requestId);
+    tmp.writeBytesValue(rootHash);
+    tmp.writeBytesValue(startKey);
+    tmp.writeIntScalar(limit);
+    tmp.endList();
+    return new GetTrieRangeMessage(code, tmp.encoded());
+  }
+
+  private GetTrieRangeMessage(final int code, final BytesValue data) {
+    super(data);
+    this.code = code;
+  }
+
+  @Override
+  public int getCode() {
+    return code;
+  }
+
+  public boolean isStorageRange() {
+    return code == StateRangePV1.GET_STORAGE_RANGE;
+  }
+
+  public long requestId() {
+    return fields().readLongScalar();
+  }
+
+  public Hash rootHash() {
+    final RLPInput input = fields();
+    input.skipNext();
+    return Hash.wrap(input.readBytes32());
+  }
+
+  public Bytes32 startKey() {
+    final RLPInput input = fields();
+    input.skipNext();
+    input.skipNext();
+    return input.readBytes32();
+  }
+
+  public int limit() {
+    final RLPInput input = fields();
+    input.skipNext();
+    input.skipNext();
+    input.skipNext();
+    return input.readIntScalar();
+  }
+
+  private RLPInput fields() {
+    final RLPInput input = new BytesValueRLPInput(data, false);
+    input.enterList();
+    return input;
+  }
+}
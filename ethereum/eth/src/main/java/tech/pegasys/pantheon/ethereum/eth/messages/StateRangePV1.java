@@ -0,0 +1,28 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.messages;
+
+public final class StateRangePV1 {
+
+  public static final int GET_ACCOUNT_RANGE = 0x00;
+
+  public static final int ACCOUNT_RANGE = 0x01;
+
+  public static final int GET_STORAGE_RANGE = 0x02;
+
+  public static final int STORAGE_RANGE = 0x03;
+
+  private StateRangePV1() {
+    // Holder for constants only
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.messages;
+
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.AbstractMessageData;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.MessageData;
+import tech.pegasys.pantheon.ethereum.rlp.BytesValueRLPInput;
+import tech.pegasys.pantheon.ethereum.rlp.BytesValueRLPOutput;
+import tech.pegasys.pantheon.ethereum.rlp.RLPInput;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A range of trie leaves, in key order, along with the trie nodes proving the first and last of
+ * them. An empty range comes with the nodes proving that the requested start key is absent.
+ */
+public final class TrieRangeMessage extends AbstractMessageData {
+
+  private final int code;
+
+  public static TrieRangeMessage readFrom(final MessageData message) {
+    if (message instanceof TrieRangeMessage) {
+      return (TrieRangeMessage) message;
+    }
+    final int code = message.getCode();
+    if (code != StateRangePV1.ACCOUNT_RANGE && code != StateRangePV1.STORAGE_RANGE) {
+      throw new IllegalArgumentException(
+          String.format("Message has code %d and thus is not a TrieRangeMessage.", code));
+    }
+    return new TrieRangeMessage(code, message.getData());
+  }
+
+  public static TrieRangeMessage createAccountRange(
+      final long requestId,
+      final Map<Bytes32, BytesValue> entries,
+      final Collection<BytesValue> proof) {
+    return create(StateRangePV1.ACCOUNT_RANGE, requestId, entries, proof);
+  }
+
+  public static TrieRangeMessage createStorageRange(
+      final long requestId,
+      final Map<Bytes32, BytesValue> entries,
+      final Collection<BytesValue> proof) {
+    return create(StateRangePV1.STORAGE_RANGE, requestId, entries, proof);
+  }
+
+  private static TrieRangeMessage create(
+      final int code,
+      final long requestId,
+      final Map<Bytes32, BytesValue> entries,
+      final Collection<BytesValue> proof) {
+    final BytesValueRLPOutput tmp = new BytesValueRLPOutput();
+    tmp.startList();
+    tmp.writeLongScalar(requestId);
+    tmp.startList();
+    entries.forEach(
+        (key, value) -> {
+          tmp.startList();
+          tmp.writeBytesValue(key);
+          tmp.writeBytesValue(value);
+          tmp.endList();
+        });
+    tmp.endList();
+    tmp.startList();
+    proof.forEach(tmp::writeBytesValue);
+    tmp.endList();
+    tmp.endList();
+    return new TrieRangeMessage(code, tmp.encoded());
+  }
+
+  private TrieRangeMessage(final int code, final BytesValue data) {
+    super(data);
+    this.code = code;
+  }
+
+  @Override
+  public int getCode() {
+    return code;
+  }
+
+  public boolean isStorageRange() {
+    return code == StateRangePV1.STORAGE_RANGE;
+  }
+
+  public long requestId() {
+    final RLPInput input = new BytesValueRLPInput(data, false);
+    input.enterList();
+    return input.readLongScalar();
+  }
+
+  /** @return The leaves of the range as key and value pairs, in the order they were sent. */
+  public List<Map.Entry<Bytes32, BytesValue>> entries() {
+    final RLPInput input = new BytesValueRLPInput(data, false);
+    input.enterList();
+    input.skipNext();
+    input.enterList();
+    final List<Map.Entry<Bytes32, BytesValue>> entries = new ArrayList<>();
+    while (!input.isEndOfCurrentList()) {
+      input.enterList();
+      entries.add(new SimpleImmutableEntry<>(input.readBytes32(), input.readBytesValue()));
+      input.leaveList();
+    }
+    input.leaveList();
+    return entries;
+  }
+
+  public List<BytesValue> proof() {
+    final RLPInput input = new BytesValueRLPInput(data, false);
+    input.enterList();
+    input.skipNext();
+    input.skipNext();
+    input.enterList();
+    final List<BytesValue> proof = new ArrayList<>();
+    while (!input.isEndOfCurrentList()) {
+      proof.add(input.readBytesValue());
+    }
+    input.leaveList();
+    return proof;
+  }
+}
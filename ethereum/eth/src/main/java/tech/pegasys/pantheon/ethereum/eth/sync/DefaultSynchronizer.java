@@ -25,6 +25,7 @@ import tech.pegasys.pantheon.ethereum.eth.sync.fastsync.FastSyncState;
 import tech.pegasys.pantheon.ethereum.eth.sync.fullsync.FullSyncDownloader;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.PendingBlocks;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.SyncState;
+import tech.pegasys.pantheon.ethereum.eth.sync.staterange.StateRangeProtocolManager;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
@@ -58,6 +59,7 @@ public class DefaultSynchronizer<C> implements Synchronizer {
       final WorldStateStorage worldStateStorage,
       final BlockBroadcaster blockBroadcaster,
       final EthContext ethContext,
+      final StateRangeProtocolManager stateRangeProtocolManager,
       final SyncState syncState,
       final Path dataDirectory,
       final Clock clock,
@@ -93,6 +95,7 @@ public class DefaultSynchronizer<C> implements Synchronizer {
             protocolContext,
             metricsSystem,
             ethContext,
+            stateRangeProtocolManager,
             worldStateStorage,
             syncState,
             clock);
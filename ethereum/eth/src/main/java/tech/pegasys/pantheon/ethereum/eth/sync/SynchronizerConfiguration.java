@@ -49,6 +49,7 @@ public class SynchronizerConfiguration {
   private final int worldStateHashCountPerRequest;
   private final int worldStateRequestParallelism;
   private final int worldStateMaxRequestsWithoutProgress;
+  private final boolean fastSyncRangeState;
 
   // Block propagation config
   private final Range<Long> blockPropagationRange;
@@ -76,6 +77,7 @@ public class SynchronizerConfiguration {
       final int worldStateRequestParallelism,
       final int worldStateMaxRequestsWithoutProgress,
       final long worldStateMinMillisBeforeStalling,
+      final boolean fastSyncRangeState,
       final Range<Long> blockPropagationRange,
       final SyncMode syncMode,
       final long downloaderChangeTargetThresholdByHeight,
@@ -94,6 +96,7 @@ public class SynchronizerConfiguration {
     this.worldStateRequestParallelism = worldStateRequestParallelism;
     this.worldStateMaxRequestsWithoutProgress = worldStateMaxRequestsWithoutProgress;
     this.worldStateMinMillisBeforeStalling = worldStateMinMillisBeforeStalling;
+    this.fastSyncRangeState = fastSyncRangeState;
     this.blockPropagationRange = blockPropagationRange;
     this.syncMode = syncMode;
     this.downloaderChangeTargetThresholdByHeight = downloaderChangeTargetThresholdByHeight;
@@ -203,6 +206,16 @@ public class SynchronizerConfiguration {
     return worldStateMinMillisBeforeStalling;
   }
 
+  /**
+   * Whether fast sync downloads the world state as ranges of accounts and storage from peers that
+   * support it, before fetching whatever is still missing node by node.
+   *
+   * @return true if world state ranges should be downloaded during fast sync.
+   */
+  public boolean isFastSyncRangeState() {
+    return fastSyncRangeState;
+  }
+
   public int getMaxTrailingPeers() {
     return maxTrailingPeers;
   }
@@ -230,6 +243,7 @@ public class SynchronizerConfiguration {
     private int worldStateMaxRequestsWithoutProgress =
         DEFAULT_WORLD_STATE_MAX_REQUESTS_WITHOUT_PROGRESS;
     private long worldStateMinMillisBeforeStalling = DEFAULT_WORLD_STATE_MIN_MILLIS_BEFORE_STALLING;
+    private boolean fastSyncRangeState = false;
 
     public Builder fastSyncPivotDistance(final int distance) {
       fastSyncPivotDistance = distance;
@@ -327,6 +341,11 @@ public class SynchronizerConfiguration {
       return this;
     }
 
+    public Builder fastSyncRangeState(final boolean fastSyncRangeState) {
+      this.fastSyncRangeState = fastSyncRangeState;
+      return this;
+    }
+
     public Builder maxTrailingPeers(final int maxTailingPeers) {
       this.maxTrailingPeers = maxTailingPeers;
       return this;
@@ -341,6 +360,7 @@ public class SynchronizerConfiguration {
           worldStateRequestParallelism,
           worldStateMaxRequestsWithoutProgress,
           worldStateMinMillisBeforeStalling,
+          fastSyncRangeState,
           blockPropagationRange,
           syncMode,
           downloaderChangeTargetThresholdByHeight,
@@ -18,6 +18,8 @@ import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
 import tech.pegasys.pantheon.ethereum.eth.sync.SyncMode;
 import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.SyncState;
+import tech.pegasys.pantheon.ethereum.eth.sync.staterange.StateRangeDownloader;
+import tech.pegasys.pantheon.ethereum.eth.sync.staterange.StateRangeProtocolManager;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.NodeDataRequest;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.WorldStateDownloader;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
@@ -46,6 +48,7 @@ public class FastDownloaderFactory {
       final ProtocolContext<C> protocolContext,
       final MetricsSystem metricsSystem,
       final EthContext ethContext,
+      final StateRangeProtocolManager stateRangeProtocolManager,
       final WorldStateStorage worldStateStorage,
       final SyncState syncState,
       final Clock clock) {
@@ -80,6 +83,17 @@ public class FastDownloaderFactory {
             syncConfig.getWorldStateMinMillisBeforeStalling(),
             clock,
             metricsSystem);
+    final Optional<StateRangeDownloader> stateRangeDownloader =
+        syncConfig.isFastSyncRangeState()
+            ? Optional.of(
+                new StateRangeDownloader(
+                    stateRangeProtocolManager,
+                    worldStateStorage,
+                    worldStateDownloader::run,
+                    ethContext.getScheduler()::scheduleSyncWorkerTask,
+                    StateRangeProtocolManager.MAX_RANGE_SIZE,
+                    syncConfig.getWorldStateRequestParallelism()))
+            : Optional.empty();
     final FastSyncDownloader<C> fastSyncDownloader =
         new FastSyncDownloader<>(
             new FastSyncActions<>(
@@ -90,6 +104,7 @@ public class FastDownloaderFactory {
                 syncState,
                 metricsSystem),
             worldStateDownloader,
+            stateRangeDownloader,
             fastSyncStateStorage,
             taskCollection,
             fastSyncDataDirectory,
@@ -120,7 +135,9 @@ public class FastDownloaderFactory {
     final CachingTaskCollection<NodeDataRequest> taskCollection =
         new CachingTaskCollection<>(
             new FlatFileTaskCollection<>(
-                dataDirectory, NodeDataRequest::serialize, NodeDataRequest::deserialize));
+                dataDirectory, NodeDataRequest::serialize, NodeDataRequest::deserialize),
+            CachingTaskCollection.DEFAULT_CACHE_SIZE,
+            NodeDataRequest.DEEPEST_FIRST);
 
     metricsSystem.createLongGauge(
         PantheonMetricCategory.SYNCHRONIZER,
@@ -44,6 +44,14 @@ public class FastImportBlocksStep<C> implements Consumer<List<BlockWithReceipts>
 
   @Override
   public void accept(final List<BlockWithReceipts> blocksWithReceipts) {
+    // Write the whole segment to storage at once and update the chain head a single time.
+    protocolContext.getBlockchain().appendBlocksInBatch(() -> importBlocks(blocksWithReceipts));
+    final long firstBlock = blocksWithReceipts.get(0).getNumber();
+    final long lastBlock = blocksWithReceipts.get(blocksWithReceipts.size() - 1).getNumber();
+    LOG.info("Completed importing chain segment {} to {}", firstBlock, lastBlock);
+  }
+
+  private void importBlocks(final List<BlockWithReceipts> blocksWithReceipts) {
     for (final BlockWithReceipts blockWithReceipts : blocksWithReceipts) {
       if (!importBlock(blockWithReceipts)) {
         throw new InvalidBlockException(
@@ -52,9 +60,6 @@ public class FastImportBlocksStep<C> implements Consumer<List<BlockWithReceipts>
             blockWithReceipts.getHash());
       }
     }
-    final long firstBlock = blocksWithReceipts.get(0).getNumber();
-    final long lastBlock = blocksWithReceipts.get(blocksWithReceipts.size() - 1).getNumber();
-    LOG.info("Completed importing chain segment {} to {}", firstBlock, lastBlock);
   }
 
   private boolean importBlock(final BlockWithReceipts blockWithReceipts) {
@@ -15,8 +15,10 @@ package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
 import static tech.pegasys.pantheon.util.FutureUtils.completedExceptionally;
 import static tech.pegasys.pantheon.util.FutureUtils.exceptionallyCompose;
 
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.eth.sync.ChainDownloader;
 import tech.pegasys.pantheon.ethereum.eth.sync.TrailingPeerRequirements;
+import tech.pegasys.pantheon.ethereum.eth.sync.staterange.StateRangeDownloader;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.NodeDataRequest;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.StalledDownloadException;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.WorldStateDownloader;
@@ -39,6 +41,7 @@ public class FastSyncDownloader<C> {
   private static final Logger LOG = LogManager.getLogger();
   private final FastSyncActions<C> fastSyncActions;
   private final WorldStateDownloader worldStateDownloader;
+  private final Optional<StateRangeDownloader> stateRangeDownloader;
   private final FastSyncStateStorage fastSyncStateStorage;
   private final TaskCollection<NodeDataRequest> taskCollection;
   private final Path fastSyncDataDirectory;
@@ -49,12 +52,14 @@ public class FastSyncDownloader<C> {
   public FastSyncDownloader(
       final FastSyncActions<C> fastSyncActions,
       final WorldStateDownloader worldStateDownloader,
+      final Optional<StateRangeDownloader> stateRangeDownloader,
       final FastSyncStateStorage fastSyncStateStorage,
       final TaskCollection<NodeDataRequest> taskCollection,
       final Path fastSyncDataDirectory,
       final FastSyncState initialFastSyncState) {
     this.fastSyncActions = fastSyncActions;
     this.worldStateDownloader = worldStateDownloader;
+    this.stateRangeDownloader = stateRangeDownloader;
     this.fastSyncStateStorage = fastSyncStateStorage;
     this.taskCollection = taskCollection;
     this.fastSyncDataDirectory = fastSyncDataDirectory;
@@ -95,6 +100,7 @@ public class FastSyncDownloader<C> {
     synchronized (this) {
       if (running.compareAndSet(true, false)) {
         // Cancelling the world state download will also cause the chain download to be cancelled.
+        stateRangeDownloader.ifPresent(StateRangeDownloader::cancel);
         worldStateDownloader.cancel();
       }
     }
@@ -102,6 +108,7 @@ public class FastSyncDownloader<C> {
 
   public void deleteFastSyncState() {
     // Make sure downloader is stopped before we start cleaning up its dependencies
+    stateRangeDownloader.ifPresent(StateRangeDownloader::cancel);
     worldStateDownloader.cancel();
     try {
       taskCollection.close();
@@ -138,8 +145,11 @@ public class FastSyncDownloader<C> {
       if (!running.get()) {
         return completedExceptionally(new CancellationException("FastSyncDownloader stopped"));
       }
+      final BlockHeader pivotBlockHeader = currentState.getPivotBlockHeader().get();
       final CompletableFuture<Void> worldStateFuture =
-          worldStateDownloader.run(currentState.getPivotBlockHeader().get());
+          stateRangeDownloader.isPresent()
+              ? stateRangeDownloader.get().run(pivotBlockHeader)
+              : worldStateDownloader.run(pivotBlockHeader);
       final ChainDownloader chainDownloader = fastSyncActions.createChainDownloader(currentState);
       final CompletableFuture<Void> chainFuture = chainDownloader.start();
 
@@ -147,6 +157,7 @@ public class FastSyncDownloader<C> {
       chainFuture.exceptionally(
           error -> {
             worldStateFuture.cancel(true);
+            stateRangeDownloader.ifPresent(StateRangeDownloader::cancel);
             return null;
           });
       worldStateFuture.exceptionally(
@@ -12,7 +12,10 @@
  */
 package tech.pegasys.pantheon.ethereum.eth.sync.fullsync;
 
+import static java.util.stream.Collectors.toList;
+
 import tech.pegasys.pantheon.ethereum.core.Block;
+import tech.pegasys.pantheon.ethereum.core.SenderRecoveryService;
 import tech.pegasys.pantheon.ethereum.core.Transaction;
 
 import java.util.List;
@@ -21,13 +24,19 @@ import java.util.stream.Stream;
 
 public class ExtractTxSignaturesStep implements Function<List<Block>, Stream<Block>> {
 
-  @Override
-  public Stream<Block> apply(final List<Block> blocks) {
-    return blocks.stream().map(this::extractSignatures);
+  private final SenderRecoveryService senderRecoveryService;
+
+  public ExtractTxSignaturesStep(final SenderRecoveryService senderRecoveryService) {
+    this.senderRecoveryService = senderRecoveryService;
   }
 
-  private Block extractSignatures(final Block block) {
-    block.getBody().getTransactions().forEach(Transaction::getSender);
-    return block;
+  @Override
+  public Stream<Block> apply(final List<Block> blocks) {
+    final List<Transaction> transactions =
+        blocks.stream()
+            .flatMap(block -> block.getBody().getTransactions().stream())
+            .collect(toList());
+    senderRecoveryService.recoverSendersAndWait(transactions);
+    return blocks.stream();
   }
 }
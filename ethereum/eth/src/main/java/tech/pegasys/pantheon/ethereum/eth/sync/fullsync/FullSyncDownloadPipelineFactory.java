@@ -86,7 +86,8 @@ public class FullSyncDownloadPipelineFactory<C> implements DownloadPipelineFacto
             protocolSchedule, protocolContext, detachedValidationPolicy);
     final DownloadBodiesStep<C> downloadBodiesStep =
         new DownloadBodiesStep<>(protocolSchedule, ethContext, metricsSystem);
-    final ExtractTxSignaturesStep extractTxSignaturesStep = new ExtractTxSignaturesStep();
+    final ExtractTxSignaturesStep extractTxSignaturesStep =
+        new ExtractTxSignaturesStep(protocolContext.getSenderRecoveryService());
     final FullImportBlockStep<C> importBlockStep =
         new FullImportBlockStep<>(protocolSchedule, protocolContext);
 
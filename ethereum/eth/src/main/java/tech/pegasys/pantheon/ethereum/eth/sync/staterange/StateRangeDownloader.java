@@ -0,0 +1,308 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.staterange;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static tech.pegasys.pantheon.util.FutureUtils.completedExceptionally;
+
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.MaxRetriesReachedException;
+import tech.pegasys.pantheon.ethereum.eth.manager.exceptions.NoAvailablePeersException;
+import tech.pegasys.pantheon.ethereum.eth.messages.TrieRangeMessage;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.connections.PeerConnection;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.worldstate.StateTrieAccountValue;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Downloads world state as contiguous ranges of accounts and storage slots rather than node by
+ * node, rebuilding the tries locally from the leaves.
+ *
+ * <p>The account key space is split into segments that are downloaded in parallel. The storage of
+ * each account is downloaded along with the range holding the account.
+ *
+ * <p>Ranges are only checked at their boundaries, the state may change between requests and code
+ * isn't part of any range, so the rebuilt state can't be trusted as is. The node for the state
+ * root is held back from storage, and once the ranges are downloaded the healer is run against the
+ * real state root. The healer is expected to walk the state from its root, skipping nodes already
+ * stored locally and fetching the rest, which is what {@code WorldStateDownloader} does.
+ */
+public class StateRangeDownloader {
+  private static final Logger LOG = LogManager.getLogger();
+
+  private static final int MAX_ATTEMPTS_PER_RANGE = 4;
+  private static final UInt256 MAX_KEY = UInt256.ZERO.not();
+
+  private final StateRangeProtocolManager protocolManager;
+  private final WorldStateStorage worldStateStorage;
+  private final Function<BlockHeader, CompletableFuture<Void>> healer;
+  private final Executor executor;
+  private final int rangeSize;
+  private final int parallelism;
+  private final AtomicInteger nextPeer = new AtomicInteger();
+  private volatile boolean cancelled;
+  private volatile Optional<CompletableFuture<Void>> healing = Optional.empty();
+
+  public StateRangeDownloader(
+      final StateRangeProtocolManager protocolManager,
+      final WorldStateStorage worldStateStorage,
+      final Function<BlockHeader, CompletableFuture<Void>> healer,
+      final Executor executor,
+      final int rangeSize,
+      final int parallelism) {
+    checkArgument(
+        rangeSize > 0 && rangeSize <= StateRangeProtocolManager.MAX_RANGE_SIZE,
+        "Range size must be between 1 and %s",
+        StateRangeProtocolManager.MAX_RANGE_SIZE);
+    checkArgument(parallelism > 0, "Parallelism must be positive");
+    this.protocolManager = protocolManager;
+    this.worldStateStorage = worldStateStorage;
+    this.healer = healer;
+    this.executor = executor;
+    this.rangeSize = rangeSize;
+    this.parallelism = parallelism;
+  }
+
+  public CompletableFuture<Void> run(final BlockHeader header) {
+    cancelled = false;
+    healing = Optional.empty();
+    final Hash stateRoot = header.getStateRoot();
+    if (stateRoot.equals(Hash.EMPTY_TRIE_HASH)
+        || worldStateStorage.isWorldStateAvailable(stateRoot)) {
+      return heal(header);
+    }
+    LOG.info(
+        "Begin downloading world state ranges from peers for block {} ({}). State root {}",
+        header.getNumber(),
+        header.getHash(),
+        stateRoot);
+
+    final AccountTrieBuilder accountTrie = new AccountTrieBuilder(stateRoot);
+    final UInt256 segmentSize = MAX_KEY.dividedBy(parallelism);
+    final List<CompletableFuture<Void>> segments = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      final Bytes32 start = segmentSize.times(i).getBytes();
+      final Bytes32 end =
+          i == parallelism - 1 ? MAX_KEY.getBytes() : segmentSize.times(i + 1).minus(1).getBytes();
+      segments.add(
+          CompletableFuture.supplyAsync(() -> downloadAccounts(accountTrie, start, end), executor)
+              .thenCompose(Function.identity()));
+    }
+
+    return CompletableFuture.allOf(segments.toArray(new CompletableFuture<?>[0]))
+        .handle(
+            (result, error) -> {
+              if (error != null) {
+                LOG.info(
+                    "Unable to download all world state ranges, healing the rest node by node: {}",
+                    error.getMessage());
+              } else {
+                LOG.info(
+                    "Finished downloading world state ranges, healing state root {}", stateRoot);
+              }
+              return null;
+            })
+        .thenCompose(ignored -> heal(header));
+  }
+
+  /** Stops requesting ranges, and cancels the healer if it has already started. */
+  public synchronized void cancel() {
+    cancelled = true;
+    healing.ifPresent(future -> future.cancel(true));
+  }
+
+  private synchronized CompletableFuture<Void> heal(final BlockHeader header) {
+    if (cancelled) {
+      return completedExceptionally(new CancellationException("Download cancelled"));
+    }
+    final CompletableFuture<Void> future = healer.apply(header);
+    healing = Optional.of(future);
+    return future;
+  }
+
+  private CompletableFuture<Void> downloadAccounts(
+      final AccountTrieBuilder accountTrie, final Bytes32 start, final Bytes32 end) {
+    final Hash stateRoot = accountTrie.stateRoot;
+    return requestRange(
+            peer -> protocolManager.requestAccountRange(peer, stateRoot, start, rangeSize),
+            stateRoot,
+            start,
+            0)
+        .thenComposeAsync(
+            entries -> {
+              final List<Map.Entry<Bytes32, BytesValue>> segmentEntries = new ArrayList<>();
+              for (final Map.Entry<Bytes32, BytesValue> entry : entries) {
+                // Ranges run past the end of the segment, the next segment takes it from there.
+                if (entry.getKey().compareTo(end) <= 0) {
+                  segmentEntries.add(entry);
+                }
+              }
+              accountTrie.putAll(segmentEntries);
+
+              CompletableFuture<Void> storage = CompletableFuture.completedFuture(null);
+              for (final Map.Entry<Bytes32, BytesValue> entry : segmentEntries) {
+                final Hash storageRoot =
+                    StateTrieAccountValue.readFrom(RLP.input(entry.getValue())).getStorageRoot();
+                if (!storageRoot.equals(Hash.EMPTY_TRIE_HASH)) {
+                  storage = storage.thenCompose(ignored -> downloadStorage(storageRoot));
+                }
+              }
+
+              if (entries.size() < rangeSize
+                  || entries.get(entries.size() - 1).getKey().compareTo(end) >= 0) {
+                return storage;
+              }
+              final Bytes32 next = nextKey(entries.get(entries.size() - 1).getKey());
+              return storage.thenCompose(ignored -> downloadAccounts(accountTrie, next, end));
+            },
+            executor);
+  }
+
+  private CompletableFuture<Void> downloadStorage(final Hash storageRoot) {
+    if (worldStateStorage.getAccountStorageTrieNode(storageRoot).isPresent()) {
+      // Accounts with identical storage share a storage trie.
+      return CompletableFuture.completedFuture(null);
+    }
+    final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie =
+        new StoredMerklePatriciaTrie<>(
+            worldStateStorage::getAccountStorageTrieNode, b -> b, b -> b);
+    return downloadStorage(storageRoot, storageTrie, Bytes32.ZERO)
+        .exceptionally(
+            error -> {
+              // Left for the healer to fetch.
+              LOG.debug("Unable to download storage range for {}", storageRoot, error);
+              return null;
+            });
+  }
+
+  private CompletableFuture<Void> downloadStorage(
+      final Hash storageRoot,
+      final MerklePatriciaTrie<Bytes32, BytesValue> storageTrie,
+      final Bytes32 start) {
+    return requestRange(
+            peer -> protocolManager.requestStorageRange(peer, storageRoot, start, rangeSize),
+            storageRoot,
+            start,
+            0)
+        .thenComposeAsync(
+            entries -> {
+              entries.forEach(entry -> storageTrie.put(entry.getKey(), entry.getValue()));
+              final WorldStateStorage.Updater updater = worldStateStorage.updater();
+              storageTrie.commit(updater::putAccountStorageTrieNode);
+              updater.commit();
+
+              if (entries.size() < rangeSize) {
+                return CompletableFuture.completedFuture(null);
+              }
+              final Bytes32 next = nextKey(entries.get(entries.size() - 1).getKey());
+              return downloadStorage(storageRoot, storageTrie, next);
+            },
+            executor);
+  }
+
+  private CompletableFuture<List<Map.Entry<Bytes32, BytesValue>>> requestRange(
+      final Function<PeerConnection, CompletableFuture<TrieRangeMessage>> request,
+      final Hash rootHash,
+      final Bytes32 startKey,
+      final int attempt) {
+    if (cancelled) {
+      return completedExceptionally(new CancellationException("Download cancelled"));
+    }
+    final List<PeerConnection> peers = protocolManager.getPeers();
+    if (peers.isEmpty()) {
+      return completedExceptionally(new NoAvailablePeersException());
+    }
+    final PeerConnection peer = peers.get(Math.floorMod(nextPeer.getAndIncrement(), peers.size()));
+    return request
+        .apply(peer)
+        .handle(
+            (response, error) -> {
+              if (error == null
+                  && TrieRangeValidator.isValid(rootHash, startKey, rangeSize, response)) {
+                return Optional.of(response.entries());
+              }
+              LOG.debug("Invalid or missing trie range for {} from {}", rootHash, peer, error);
+              return Optional.<List<Map.Entry<Bytes32, BytesValue>>>empty();
+            })
+        .thenCompose(
+            entries -> {
+              if (entries.isPresent()) {
+                return CompletableFuture.completedFuture(entries.get());
+              }
+              if (attempt + 1 >= MAX_ATTEMPTS_PER_RANGE) {
+                return completedExceptionally(new MaxRetriesReachedException());
+              }
+              return requestRange(request, rootHash, startKey, attempt + 1);
+            });
+  }
+
+  private static Bytes32 nextKey(final Bytes32 key) {
+    return UInt256.wrap(key).plus(1).getBytes();
+  }
+
+  /**
+   * The account trie being rebuilt, shared by all segments.
+   *
+   * <p>The trie is committed after every range so that memory use stays bounded. Whenever its root
+   * is the real state root, that node is kept in memory rather than stored.
+   */
+  private class AccountTrieBuilder {
+    private final Hash stateRoot;
+    private final MerklePatriciaTrie<Bytes32, BytesValue> trie;
+    private Optional<BytesValue> stateRootNode = Optional.empty();
+
+    private AccountTrieBuilder(final Hash stateRoot) {
+      this.stateRoot = stateRoot;
+      this.trie = new StoredMerklePatriciaTrie<>(this::getNode, b -> b, b -> b);
+    }
+
+    private Optional<BytesValue> getNode(final Bytes32 hash) {
+      return hash.equals(stateRoot)
+          ? stateRootNode
+          : worldStateStorage.getAccountStateTrieNode(hash);
+    }
+
+    private synchronized void putAll(final List<Map.Entry<Bytes32, BytesValue>> entries) {
+      entries.forEach(entry -> trie.put(entry.getKey(), entry.getValue()));
+      final WorldStateStorage.Updater updater = worldStateStorage.updater();
+      trie.commit(
+          (hash, node) -> {
+            if (hash.equals(stateRoot)) {
+              stateRootNode = Optional.of(node);
+            } else {
+              updater.putAccountStateTrieNode(hash, node);
+            }
+          });
+      updater.commit();
+    }
+  }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.staterange;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.StateRangeProtocol;
+import tech.pegasys.pantheon.ethereum.eth.messages.GetTrieRangeMessage;
+import tech.pegasys.pantheon.ethereum.eth.messages.StateRangePV1;
+import tech.pegasys.pantheon.ethereum.eth.messages.TrieRangeMessage;
+import tech.pegasys.pantheon.ethereum.p2p.network.ProtocolManager;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.connections.PeerConnection;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.connections.PeerConnection.PeerNotConnected;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.Capability;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.Message;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.MessageData;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.messages.DisconnectMessage.DisconnectReason;
+import tech.pegasys.pantheon.ethereum.rlp.RLPException;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.MerkleTrieException;
+import tech.pegasys.pantheon.ethereum.trie.NodeLoader;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Serves account and storage trie ranges from local world state, and sends range requests to
+ * peers that support {@link StateRangeProtocol}.
+ *
+ * <p>Responses are matched to requests by request id. A request fails if its peer disconnects or
+ * doesn't respond within the request timeout.
+ */
+public class StateRangeProtocolManager implements ProtocolManager {
+  private static final Logger LOG = LogManager.getLogger();
+
+  /** The most entries a single range response holds, regardless of the limit requested. */
+  public static final int MAX_RANGE_SIZE = 1024;
+
+  public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+  private final WorldStateStorage worldStateStorage;
+  private final Duration requestTimeout;
+  private final Set<PeerConnection> peers = ConcurrentHashMap.newKeySet();
+  private final Map<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+  private final AtomicLong nextRequestId = new AtomicLong();
+  private final AtomicBoolean stopped = new AtomicBoolean(false);
+  private final CountDownLatch shutdown = new CountDownLatch(1);
+
+  public StateRangeProtocolManager(final WorldStateStorage worldStateStorage) {
+    this(worldStateStorage, DEFAULT_REQUEST_TIMEOUT);
+  }
+
+  public StateRangeProtocolManager(
+      final WorldStateStorage worldStateStorage, final Duration requestTimeout) {
+    this.worldStateStorage = worldStateStorage;
+    this.requestTimeout = requestTimeout;
+  }
+
+  @Override
+  public String getSupportedProtocol() {
+    return StateRangeProtocol.NAME;
+  }
+
+  @Override
+  public List<Capability> getSupportedCapabilities() {
+    return Collections.singletonList(StateRangeProtocol.RANGE1);
+  }
+
+  @Override
+  public void stop() {
+    if (stopped.compareAndSet(false, true)) {
+      LOG.info("Stopping {} Subprotocol.", getSupportedProtocol());
+      pendingRequests.values().forEach(request -> request.fail("Protocol manager stopped"));
+      pendingRequests.clear();
+      shutdown.countDown();
+    } else {
+      LOG.error("Attempted to stop already stopped {} Subprotocol.", getSupportedProtocol());
+    }
+  }
+
+  @Override
+  public void awaitStop() throws InterruptedException {
+    shutdown.await();
+    LOG.info("{} Subprotocol stopped.", getSupportedProtocol());
+  }
+
+  /** @return The connected peers that support range requests. */
+  public List<PeerConnection> getPeers() {
+    return new ArrayList<>(peers);
+  }
+
+  public CompletableFuture<TrieRangeMessage> requestAccountRange(
+      final PeerConnection peer, final Hash stateRoot, final Bytes32 startKey, final int limit) {
+    final long requestId = nextRequestId.getAndIncrement();
+    return sendRequest(
+        peer,
+        requestId,
+        GetTrieRangeMessage.createAccountRangeRequest(requestId, stateRoot, startKey, limit));
+  }
+
+  public CompletableFuture<TrieRangeMessage> requestStorageRange(
+      final PeerConnection peer, final Hash storageRoot, final Bytes32 startKey, final int limit) {
+    final long requestId = nextRequestId.getAndIncrement();
+    return sendRequest(
+        peer,
+        requestId,
+        GetTrieRangeMessage.createStorageRangeRequest(requestId, storageRoot, startKey, limit));
+  }
+
+  private CompletableFuture<TrieRangeMessage> sendRequest(
+      final PeerConnection peer, final long requestId, final MessageData request) {
+    final PendingRequest pendingRequest = new PendingRequest(peer);
+    pendingRequests.put(requestId, pendingRequest);
+    try {
+      peer.send(StateRangeProtocol.RANGE1, request);
+    } catch (final PeerNotConnected e) {
+      pendingRequests.remove(requestId);
+      pendingRequest.response.completeExceptionally(e);
+      return pendingRequest.response;
+    }
+    return pendingRequest
+        .response
+        .orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+        .whenComplete((response, error) -> pendingRequests.remove(requestId));
+  }
+
+  @Override
+  public void processMessage(final Capability cap, final Message message) {
+    final MessageData data = message.getData();
+    final PeerConnection connection = message.getConnection();
+    switch (data.getCode()) {
+      case StateRangePV1.GET_ACCOUNT_RANGE:
+      case StateRangePV1.GET_STORAGE_RANGE:
+        handleRangeRequest(connection, data);
+        break;
+      case StateRangePV1.ACCOUNT_RANGE:
+      case StateRangePV1.STORAGE_RANGE:
+        handleRangeResponse(connection, data);
+        break;
+      default:
+        LOG.debug("Ignoring unexpected {} message {}", cap, data.getCode());
+    }
+  }
+
+  private void handleRangeRequest(final PeerConnection connection, final MessageData data) {
+    LOG.trace("Responding to trie range request");
+    try {
+      connection.send(
+          StateRangeProtocol.RANGE1,
+          constructRangeResponse(worldStateStorage, GetTrieRangeMessage.readFrom(data)));
+    } catch (final RLPException e) {
+      connection.disconnect(DisconnectReason.BREACH_OF_PROTOCOL);
+    } catch (final PeerNotConnected peerNotConnected) {
+      // Peer disconnected before we could respond - nothing to do
+    }
+  }
+
+  private void handleRangeResponse(final PeerConnection connection, final MessageData data) {
+    final TrieRangeMessage response = TrieRangeMessage.readFrom(data);
+    final long requestId;
+    try {
+      requestId = response.requestId();
+    } catch (final RLPException e) {
+      connection.disconnect(DisconnectReason.BREACH_OF_PROTOCOL);
+      return;
+    }
+    final PendingRequest pendingRequest = pendingRequests.get(requestId);
+    // Only the peer a request was sent to can answer it.
+    if (pendingRequest != null && pendingRequest.peer.equals(connection)) {
+      pendingRequest.response.complete(response);
+    } else {
+      LOG.debug("Ignoring unrequested trie range {} from {}", requestId, connection);
+    }
+  }
+
+  static TrieRangeMessage constructRangeResponse(
+      final WorldStateStorage worldStateStorage, final GetTrieRangeMessage request) {
+    final long requestId = request.requestId();
+    final Bytes32 startKey = request.startKey();
+    final int limit = Math.min(request.limit(), MAX_RANGE_SIZE);
+    final NodeLoader nodeLoader =
+        request.isStorageRange()
+            ? worldStateStorage::getAccountStorageTrieNode
+            : worldStateStorage::getAccountStateTrieNode;
+    final MerklePatriciaTrie<Bytes32, BytesValue> trie =
+        new StoredMerklePatriciaTrie<>(nodeLoader, request.rootHash(), b -> b, b -> b);
+
+    Map<Bytes32, BytesValue> entries = Collections.emptyMap();
+    final Set<BytesValue> proof = new LinkedHashSet<>();
+    try {
+      if (limit > 0) {
+        entries = trie.entriesFrom(startKey, limit);
+      }
+      if (entries.isEmpty()) {
+        proof.addAll(trie.getValueWithProof(startKey).getProofRelatedNodes());
+      } else {
+        final List<Bytes32> keys = new ArrayList<>(entries.keySet());
+        proof.addAll(trie.getValueWithProof(keys.get(0)).getProofRelatedNodes());
+        proof.addAll(trie.getValueWithProof(keys.get(keys.size() - 1)).getProofRelatedNodes());
+      }
+    } catch (final MerkleTrieException e) {
+      // We don't have this trie, which is signalled by sending no entries and no proof.
+      LOG.trace("Unable to serve trie range from {}", request.rootHash(), e);
+      entries = Collections.emptyMap();
+      proof.clear();
+    }
+
+    return request.isStorageRange()
+        ? TrieRangeMessage.createStorageRange(requestId, entries, proof)
+        : TrieRangeMessage.createAccountRange(requestId, entries, proof);
+  }
+
+  @Override
+  public void handleNewConnection(final PeerConnection connection) {
+    if (connection.getAgreedCapabilities().contains(StateRangeProtocol.RANGE1)) {
+      peers.add(connection);
+    }
+  }
+
+  @Override
+  public void handleDisconnect(
+      final PeerConnection connection,
+      final DisconnectReason reason,
+      final boolean initiatedByPeer) {
+    peers.remove(connection);
+    pendingRequests.values().stream()
+        .filter(request -> request.peer.equals(connection))
+        .forEach(request -> request.fail("Peer disconnected"));
+  }
+
+  private static class PendingRequest {
+    private final PeerConnection peer;
+    private final CompletableFuture<TrieRangeMessage> response = new CompletableFuture<>();
+
+    private PendingRequest(final PeerConnection peer) {
+      this.peer = peer;
+    }
+
+    private void fail(final String reason) {
+      response.completeExceptionally(new PeerNotConnected(reason));
+    }
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.staterange;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.messages.TrieRangeMessage;
+import tech.pegasys.pantheon.ethereum.rlp.RLPException;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.MerkleTrieException;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Checks a trie range response against the root it was requested from.
+ *
+ * <p>Entries must be in strictly ascending key order, start at or after the requested start key
+ * and respect the requested limit. The proof must show that the first and last entries are in the
+ * trie, or that the start key isn't when the range is empty.
+ *
+ * <p>The proof doesn't show that no entries were left out between the first and last ones. Ranges
+ * are only used to build tries locally, and anything missing is healed against the real root
+ * once range sync finishes.
+ */
+class TrieRangeValidator {
+
+  static boolean isValid(
+      final Hash rootHash,
+      final Bytes32 startKey,
+      final int limit,
+      final TrieRangeMessage response) {
+    final List<Map.Entry<Bytes32, BytesValue>> entries;
+    final List<BytesValue> proof;
+    try {
+      entries = response.entries();
+      proof = response.proof();
+    } catch (final RLPException e) {
+      return false;
+    }
+    // A peer that doesn't have the trie sends back no proof.
+    if (proof.isEmpty() || entries.size() > limit) {
+      return false;
+    }
+
+    Bytes32 previousKey = null;
+    for (final Map.Entry<Bytes32, BytesValue> entry : entries) {
+      final Bytes32 key = entry.getKey();
+      if (key.compareTo(startKey) < 0
+          || (previousKey != null && key.compareTo(previousKey) <= 0)) {
+        return false;
+      }
+      previousKey = key;
+    }
+
+    final Map<Bytes32, BytesValue> proofNodes = new HashMap<>();
+    proof.forEach(node -> proofNodes.put(Hash.hash(node), node));
+    final MerklePatriciaTrie<Bytes32, BytesValue> proofTrie =
+        new StoredMerklePatriciaTrie<>(
+            hash -> Optional.ofNullable(proofNodes.get(hash)), rootHash, b -> b, b -> b);
+    try {
+      if (entries.isEmpty()) {
+        return !proofTrie.get(startKey).isPresent();
+      }
+      return isProven(proofTrie, entries.get(0))
+          && isProven(proofTrie, entries.get(entries.size() - 1));
+    } catch (final MerkleTrieException | RLPException e) {
+      // The proof is missing nodes on the path to the key, or holds nodes that can't be decoded.
+      return false;
+    }
+  }
+
+  private static boolean isProven(
+      final MerklePatriciaTrie<Bytes32, BytesValue> proofTrie,
+      final Map.Entry<Bytes32, BytesValue> entry) {
+    return proofTrie.get(entry.getKey()).equals(Optional.of(entry.getValue()));
+  }
+}
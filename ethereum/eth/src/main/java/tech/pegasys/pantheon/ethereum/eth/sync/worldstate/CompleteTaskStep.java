@@ -63,6 +63,7 @@ public class CompleteTaskStep {
       final Task<NodeDataRequest> task) {
     if (task.getData().getData() != null) {
       enqueueChildren(task, header, downloadState);
+      downloadState.markRequestCompleted(task.getData());
       completedRequestsCounter.inc();
       task.markCompleted();
       downloadState.checkCompletion(worldStateStorage, header);
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.metrics.Counter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Skips node data requests for nodes that another request already covers, such as storage tries
+ * shared between contracts or identical contract code.
+ *
+ * <p>Requests are only skipped when that's certain. Nodes that are queued or being downloaded are
+ * tracked exactly until their request completes. Code that's already been downloaded is found
+ * through a bloom filter, and only skipped once it's confirmed to be in storage. Trie nodes that
+ * have already been downloaded aren't skipped: nodes are persisted before their children, so the
+ * node being in storage doesn't mean the trie below it is.
+ */
+class DuplicateRequestFilter {
+  static final int DEFAULT_MAX_TRACKED_REQUESTS = 1_000_000;
+  private static final int EXPECTED_CODE_COUNT = 2_000_000;
+  private static final double CODE_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+  private final WorldStateStorage worldStateStorage;
+  private final Counter skippedRequestsCounter;
+  private final int maxTrackedRequests;
+  private final Map<Hash, RequestType> inFlightRequests = new HashMap<>();
+  private final BloomFilter<byte[]> downloadedCode =
+      BloomFilter.create(
+          Funnels.byteArrayFunnel(), EXPECTED_CODE_COUNT, CODE_FALSE_POSITIVE_PROBABILITY);
+
+  DuplicateRequestFilter(
+      final WorldStateStorage worldStateStorage, final Counter skippedRequestsCounter) {
+    this(worldStateStorage, skippedRequestsCounter, DEFAULT_MAX_TRACKED_REQUESTS);
+  }
+
+  DuplicateRequestFilter(
+      final WorldStateStorage worldStateStorage,
+      final Counter skippedRequestsCounter,
+      final int maxTrackedRequests) {
+    this.worldStateStorage = worldStateStorage;
+    this.skippedRequestsCounter = skippedRequestsCounter;
+    this.maxTrackedRequests = maxTrackedRequests;
+  }
+
+  /**
+   * Checks whether a request needs to be queued, and if so starts tracking it as in flight.
+   *
+   * @param request The request about to be queued.
+   * @return False if the node is already covered by another request.
+   */
+  boolean shouldEnqueue(final NodeDataRequest request) {
+    final Hash hash = request.getHash();
+    final RequestType requestType = request.getRequestType();
+    if (inFlightRequests.get(hash) == requestType || isDownloadedCode(request)) {
+      skippedRequestsCounter.inc();
+      return false;
+    }
+    // Requests that aren't tracked are just never skipped, so cap the memory used for tracking.
+    if (inFlightRequests.size() < maxTrackedRequests) {
+      inFlightRequests.putIfAbsent(hash, requestType);
+    }
+    return true;
+  }
+
+  /**
+   * Stops tracking a request. Must only be called once the request's children have been queued.
+   *
+   * @param request The completed request.
+   */
+  void markCompleted(final NodeDataRequest request) {
+    inFlightRequests.remove(request.getHash(), request.getRequestType());
+    if (request.getRequestType() == RequestType.CODE) {
+      downloadedCode.put(request.getHash().getArrayUnsafe());
+    }
+  }
+
+  private boolean isDownloadedCode(final NodeDataRequest request) {
+    return request.getRequestType() == RequestType.CODE
+        && downloadedCode.mightContain(request.getHash().getArrayUnsafe())
+        && request.getExistingData(worldStateStorage).isPresent();
+  }
+
+  /** @return The number of distinct nodes queued or being downloaded that are tracked. */
+  int getInFlightCount() {
+    return inFlightRequests.size();
+  }
+
+  void clear() {
+    inFlightRequests.clear();
+  }
+}
@@ -21,12 +21,22 @@ import tech.pegasys.pantheon.ethereum.rlp.RLPOutput;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
+import java.util.Comparator;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 public abstract class NodeDataRequest {
+  /**
+   * Orders requests so the deepest node comes first. Working through the deepest nodes first
+   * finishes off subtries before starting new ones, which keeps the number of pending requests
+   * down to roughly the trie depth times its branching factor.
+   */
+  public static final Comparator<NodeDataRequest> DEEPEST_FIRST =
+      Comparator.comparingInt(NodeDataRequest::getDepth).reversed();
+
   private final RequestType requestType;
   private final Hash hash;
+  private int depth;
   private BytesValue data;
   private boolean requiresPersisting = true;
 
@@ -56,6 +66,8 @@ public abstract class NodeDataRequest {
     in.enterList();
     final RequestType requestType = RequestType.fromValue(in.readByte());
     final Hash hash = Hash.wrap(in.readBytes32());
+    // Requests queued before depths were tracked don't have one.
+    final int depth = in.isEndOfCurrentList() ? 0 : in.readIntScalar();
     in.leaveList();
 
     final NodeDataRequest deserialized;
@@ -75,13 +87,14 @@ public abstract class NodeDataRequest {
                 + NodeDataRequest.class.getSimpleName());
     }
 
-    return deserialized;
+    return deserialized.setDepth(depth);
   }
 
   private void writeTo(final RLPOutput out) {
     out.startList();
     out.writeByte(requestType.getValue());
     out.writeBytesValue(hash);
+    out.writeIntScalar(depth);
     out.endList();
   }
 
@@ -93,6 +106,16 @@ public abstract class NodeDataRequest {
     return hash;
   }
 
+  /** @return The number of requests between this one and the world state root. */
+  public int getDepth() {
+    return depth;
+  }
+
+  public NodeDataRequest setDepth(final int depth) {
+    this.depth = depth;
+    return this;
+  }
+
   public BytesValue getData() {
     return data;
   }
@@ -38,6 +38,7 @@ class WorldDownloadState {
 
   private final boolean downloadWasResumed;
   private final CachingTaskCollection<NodeDataRequest> pendingRequests;
+  private final DuplicateRequestFilter duplicateRequestFilter;
   private final int maxRequestsWithoutProgress;
   private final Clock clock;
   private final Set<EthTask<?>> outstandingRequests =
@@ -53,6 +54,7 @@ class WorldDownloadState {
 
   public WorldDownloadState(
       final CachingTaskCollection<NodeDataRequest> pendingRequests,
+      final DuplicateRequestFilter duplicateRequestFilter,
       final int maxRequestsWithoutProgress,
       final long minMillisBeforeStalling,
       final Clock clock) {
@@ -60,6 +62,7 @@ class WorldDownloadState {
     this.timestampOfLastProgress = clock.millis();
     this.downloadWasResumed = !pendingRequests.isEmpty();
     this.pendingRequests = pendingRequests;
+    this.duplicateRequestFilter = duplicateRequestFilter;
     this.maxRequestsWithoutProgress = maxRequestsWithoutProgress;
     this.clock = clock;
     this.internalFuture = new CompletableFuture<>();
@@ -88,6 +91,7 @@ class WorldDownloadState {
       outstandingRequest.cancel();
     }
     pendingRequests.clear();
+    duplicateRequestFilter.clear();
 
     if (error != null) {
       if (worldStateDownloadProcess != null) {
@@ -120,7 +124,7 @@ class WorldDownloadState {
   }
 
   public synchronized void enqueueRequest(final NodeDataRequest request) {
-    if (!internalFuture.isDone()) {
+    if (!internalFuture.isDone() && duplicateRequestFilter.shouldEnqueue(request)) {
       pendingRequests.add(request);
       notifyAll();
     }
@@ -128,11 +132,19 @@ class WorldDownloadState {
 
   public synchronized void enqueueRequests(final Stream<NodeDataRequest> requests) {
     if (!internalFuture.isDone()) {
-      requests.forEach(pendingRequests::add);
+      requests.filter(duplicateRequestFilter::shouldEnqueue).forEach(pendingRequests::add);
       notifyAll();
     }
   }
 
+  public synchronized void markRequestCompleted(final NodeDataRequest request) {
+    duplicateRequestFilter.markCompleted(request);
+  }
+
+  public synchronized int getFrontierSize() {
+    return duplicateRequestFilter.getInFlightCount();
+  }
+
   public synchronized Task<NodeDataRequest> dequeueRequestBlocking() {
     while (!internalFuture.isDone()) {
       final Task<NodeDataRequest> task = pendingRequests.remove();
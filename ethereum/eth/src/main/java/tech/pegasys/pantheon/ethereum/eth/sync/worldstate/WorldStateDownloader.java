@@ -16,6 +16,7 @@ import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.metrics.Counter;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 import tech.pegasys.pantheon.services.tasks.CachingTaskCollection;
@@ -42,6 +43,7 @@ public class WorldStateDownloader {
   private final int maxOutstandingRequests;
   private final int maxNodeRequestsWithoutProgress;
   private final WorldStateStorage worldStateStorage;
+  private final Counter duplicateRequestsCounter;
 
   private final AtomicReference<WorldDownloadState> downloadState = new AtomicReference<>();
 
@@ -76,6 +78,18 @@ public class WorldStateDownloader {
         "world_state_inflight_requests_current",
         "Number of in progress requests for world state data",
         downloadStateValue(WorldDownloadState::getOutstandingTaskCount));
+
+    metricsSystem.createIntegerGauge(
+        PantheonMetricCategory.SYNCHRONIZER,
+        "world_state_frontier_size_current",
+        "Number of distinct world state nodes queued or being downloaded",
+        downloadStateValue(WorldDownloadState::getFrontierSize));
+
+    duplicateRequestsCounter =
+        metricsSystem.createCounter(
+            PantheonMetricCategory.SYNCHRONIZER,
+            "world_state_duplicate_requests_skipped_total",
+            "Total number of node data requests skipped because the node was already covered");
   }
 
   private IntSupplier downloadStateValue(final Function<WorldDownloadState, Integer> getter) {
@@ -113,7 +127,11 @@ public class WorldStateDownloader {
 
       final WorldDownloadState newDownloadState =
           new WorldDownloadState(
-              taskCollection, maxNodeRequestsWithoutProgress, minMillisBeforeStalling, clock);
+              taskCollection,
+              new DuplicateRequestFilter(worldStateStorage, duplicateRequestsCounter),
+              maxNodeRequestsWithoutProgress,
+              minMillisBeforeStalling,
+              clock);
       this.downloadState.set(newDownloadState);
 
       if (!newDownloadState.downloadWasResumed()) {
@@ -18,6 +18,7 @@ import tech.pegasys.pantheon.ethereum.core.AccountTransactionOrder;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.core.Transaction;
+import tech.pegasys.pantheon.ethereum.core.Wei;
 import tech.pegasys.pantheon.metrics.Counter;
 import tech.pegasys.pantheon.metrics.LabelledMetric;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
@@ -28,18 +29,19 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.OptionalLong;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -47,7 +49,15 @@ import java.util.stream.Collectors;
  * Holds the current set of pending transactions with the ability to iterate them based on priority
  * for mining or look-up by hash.
  *
- * <p>This class is safe for use across multiple threads.
+ * <p>Transactions are prioritized by source (local first), then by gas price, then by arrival. Each
+ * sender's transactions are additionally kept in nonce order so that mining never executes a
+ * transaction before the ones preceding it. When the pool is full the sender of the lowest priority
+ * transaction has its highest nonce transaction evicted, so that no sender is left with a nonce gap
+ * that would keep its later transactions in the pool forever. A new transaction that would be
+ * evicted straight away is rejected instead.
+ *
+ * <p>This class is safe for use across multiple threads. Look-ups by hash and sender don't take the
+ * pool lock, and mining iterates over a snapshot so that it doesn't block incoming transactions.
  */
 public class PendingTransactions {
 
@@ -55,13 +65,17 @@ public class PendingTransactions {
   private final Clock clock;
 
   private final Map<Hash, TransactionInfo> pendingTransactions = new ConcurrentHashMap<>();
-  private final SortedSet<TransactionInfo> prioritizedTransactions =
-      new TreeSet<>(
-          comparing(TransactionInfo::isReceivedFromLocalSource)
-              .thenComparing(TransactionInfo::getSequence)
-              .reversed());
-  private final Map<Address, SortedMap<Long, TransactionInfo>> transactionsBySender =
-      new HashMap<>();
+  private static final Comparator<TransactionInfo> PRIORITY_ORDER =
+      comparing(TransactionInfo::isReceivedFromLocalSource)
+          .thenComparing(TransactionInfo::getGasPrice)
+          .thenComparing(TransactionInfo::getSequence)
+          .reversed();
+
+  private final NavigableSet<TransactionInfo> prioritizedTransactions =
+      new TreeSet<>(PRIORITY_ORDER);
+  // Modified only while holding the pendingTransactions lock, but readable without it.
+  private final Map<Address, NavigableMap<Long, TransactionInfo>> transactionsBySender =
+      new ConcurrentHashMap<>();
 
   private final Subscribers<PendingTransactionListener> listeners = Subscribers.create();
 
@@ -146,23 +160,28 @@ public class PendingTransactions {
 
   private void doRemoveTransaction(final Transaction transaction, final boolean addedToBlock) {
     synchronized (pendingTransactions) {
-      final TransactionInfo removedTransactionInfo = pendingTransactions.remove(transaction.hash());
+      final TransactionInfo removedTransactionInfo = pendingTransactions.get(transaction.hash());
       if (removedTransactionInfo != null) {
-        prioritizedTransactions.remove(removedTransactionInfo);
-        Optional.ofNullable(transactionsBySender.get(transaction.getSender()))
-            .ifPresent(
-                transactionsForSender -> {
-                  transactionsForSender.remove(transaction.getNonce());
-                  if (transactionsForSender.isEmpty()) {
-                    transactionsBySender.remove(transaction.getSender());
-                  }
-                });
+        removeFromPool(removedTransactionInfo);
         incrementTransactionRemovedCounter(
             removedTransactionInfo.isReceivedFromLocalSource(), addedToBlock);
       }
     }
   }
 
+  private void removeFromPool(final TransactionInfo transactionInfo) {
+    pendingTransactions.remove(transactionInfo.getHash());
+    prioritizedTransactions.remove(transactionInfo);
+    Optional.ofNullable(transactionsBySender.get(transactionInfo.getSender()))
+        .ifPresent(
+            transactionsForSender -> {
+              transactionsForSender.remove(transactionInfo.getNonce());
+              if (transactionsForSender.isEmpty()) {
+                transactionsBySender.remove(transactionInfo.getSender());
+              }
+            });
+  }
+
   private void incrementTransactionRemovedCounter(
       final boolean receivedFromLocalSource, final boolean addedToBlock) {
     final String location = receivedFromLocalSource ? "local" : "remote";
@@ -171,45 +190,51 @@ public class PendingTransactions {
   }
 
   /*
-   * The BlockTransaction selection process (part of block mining) requires synchronised access to
-   * all pendingTransactions - this allows it to iterate over the available transactions without
-   * releasing the lock in between items.
-   *
+   * The BlockTransaction selection process (part of block mining) iterates over a snapshot of the
+   * pending transactions taken under the lock, so that evaluating transactions, which executes
+   * them, doesn't block transactions being added or removed in the meantime. Transactions added
+   * after the snapshot is taken are picked up by the next block.
    */
   public void selectTransactions(final TransactionSelector selector) {
+    final List<TransactionInfo> snapshot;
     synchronized (pendingTransactions) {
-      final List<Transaction> transactionsToRemove = new ArrayList<>();
-      final Map<Address, AccountTransactionOrder> accountTransactions = new HashMap<>();
-      for (final TransactionInfo transactionInfo : prioritizedTransactions) {
-        final AccountTransactionOrder accountTransactionOrder =
-            accountTransactions.computeIfAbsent(
-                transactionInfo.getSender(), this::createSenderTransactionOrder);
-
-        for (final Transaction transactionToProcess :
-            accountTransactionOrder.transactionsToProcess(transactionInfo.getTransaction())) {
-          final TransactionSelectionResult result =
-              selector.evaluateTransaction(transactionToProcess);
-          switch (result) {
-            case DELETE_TRANSACTION_AND_CONTINUE:
-              transactionsToRemove.add(transactionToProcess);
-              break;
-            case CONTINUE:
-              break;
-            case COMPLETE_OPERATION:
-              transactionsToRemove.forEach(this::removeTransaction);
-              return;
-            default:
-              throw new RuntimeException("Illegal value for TransactionSelectionResult.");
-          }
+      snapshot = new ArrayList<>(prioritizedTransactions);
+    }
+
+    final Map<Address, List<Transaction>> snapshotBySender = new HashMap<>();
+    snapshot.forEach(
+        transactionInfo ->
+            snapshotBySender
+                .computeIfAbsent(transactionInfo.getSender(), sender -> new ArrayList<>())
+                .add(transactionInfo.getTransaction()));
+
+    final List<Transaction> transactionsToRemove = new ArrayList<>();
+    final Map<Address, AccountTransactionOrder> accountTransactions = new HashMap<>();
+    for (final TransactionInfo transactionInfo : snapshot) {
+      final AccountTransactionOrder accountTransactionOrder =
+          accountTransactions.computeIfAbsent(
+              transactionInfo.getSender(),
+              sender -> new AccountTransactionOrder(snapshotBySender.get(sender).stream()));
+
+      for (final Transaction transactionToProcess :
+          accountTransactionOrder.transactionsToProcess(transactionInfo.getTransaction())) {
+        final TransactionSelectionResult result =
+            selector.evaluateTransaction(transactionToProcess);
+        switch (result) {
+          case DELETE_TRANSACTION_AND_CONTINUE:
+            transactionsToRemove.add(transactionToProcess);
+            break;
+          case CONTINUE:
+            break;
+          case COMPLETE_OPERATION:
+            transactionsToRemove.forEach(this::removeTransaction);
+            return;
+          default:
+            throw new RuntimeException("Illegal value for TransactionSelectionResult.");
         }
       }
-      transactionsToRemove.forEach(this::removeTransaction);
     }
-  }
-
-  private AccountTransactionOrder createSenderTransactionOrder(final Address address) {
-    return new AccountTransactionOrder(
-        transactionsBySender.get(address).values().stream().map(TransactionInfo::getTransaction));
+    transactionsToRemove.forEach(this::removeTransaction);
   }
 
   private boolean addTransaction(final TransactionInfo transactionInfo) {
@@ -226,7 +251,12 @@ public class PendingTransactions {
       pendingTransactions.put(transactionInfo.getHash(), transactionInfo);
 
       if (pendingTransactions.size() > maxPendingTransactions) {
-        final TransactionInfo toRemove = prioritizedTransactions.last();
+        final TransactionInfo toRemove = transactionToEvict();
+        if (toRemove == transactionInfo) {
+          // The pool is full of transactions that are all more valuable than this one.
+          removeFromPool(transactionInfo);
+          return false;
+        }
         doRemoveTransaction(toRemove.getTransaction(), false);
         droppedTransaction = Optional.of(toRemove.getTransaction());
       }
@@ -236,9 +266,17 @@ public class PendingTransactions {
     return true;
   }
 
+  // Evicting anything but a sender's highest nonce transaction would leave its later transactions
+  // unexecutable, so the sender of the lowest priority transaction loses its last one instead.
+  private TransactionInfo transactionToEvict() {
+    final Address sender = prioritizedTransactions.last().getSender();
+    return transactionsBySender.get(sender).lastEntry().getValue();
+  }
+
   private boolean addTransactionForSenderAndNonce(final TransactionInfo transactionInfo) {
     final Map<Long, TransactionInfo> transactionsForSender =
-        transactionsBySender.computeIfAbsent(transactionInfo.getSender(), key -> new TreeMap<>());
+        transactionsBySender.computeIfAbsent(
+            transactionInfo.getSender(), key -> new ConcurrentSkipListMap<>());
     final TransactionInfo existingTransaction =
         transactionsForSender.get(transactionInfo.getNonce());
     if (existingTransaction != null) {
@@ -298,14 +336,14 @@ public class PendingTransactions {
   }
 
   public OptionalLong getNextNonceForSender(final Address sender) {
-    synchronized (pendingTransactions) {
-      final SortedMap<Long, TransactionInfo> transactionsForSender =
-          transactionsBySender.get(sender);
-      if (transactionsForSender == null) {
-        return OptionalLong.empty();
-      }
-      return OptionalLong.of(transactionsForSender.lastKey() + 1);
+    final NavigableMap<Long, TransactionInfo> transactionsForSender =
+        transactionsBySender.get(sender);
+    if (transactionsForSender == null) {
+      return OptionalLong.empty();
     }
+    // The map may be emptied concurrently, just before it is removed.
+    final Map.Entry<Long, TransactionInfo> lastEntry = transactionsForSender.lastEntry();
+    return lastEntry == null ? OptionalLong.empty() : OptionalLong.of(lastEntry.getKey() + 1);
   }
 
   /**
@@ -342,6 +380,10 @@ public class PendingTransactions {
       return transaction.getNonce();
     }
 
+    public Wei getGasPrice() {
+      return transaction.getGasPrice();
+    }
+
     public Address getSender() {
       return transaction.getSender();
     }
@@ -38,6 +38,7 @@ import tech.pegasys.pantheon.metrics.LabelledMetric;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -131,7 +132,7 @@ public class TransactionPool implements BlockAddedObserver {
     if (!syncState.isInSync(SYNC_TOLERANCE)) {
       return;
     }
-    final Set<Transaction> addedTransactions = new HashSet<>();
+    final List<Transaction> candidateTransactions = new ArrayList<>(transactions.size());
     for (final Transaction transaction : transactions) {
       if (pendingTransactions.containsTransaction(transaction.hash())) {
         // We already have this transaction, don't even validate it.
@@ -141,6 +142,13 @@ public class TransactionPool implements BlockAddedObserver {
       if (transaction.getGasPrice().compareTo(minTransactionGasPrice) < 0) {
         continue;
       }
+      candidateTransactions.add(transaction);
+    }
+    // Recover all senders up front, in parallel, rather than one at a time during validation.
+    protocolContext.getSenderRecoveryService().recoverSendersAndWait(candidateTransactions);
+
+    final Set<Transaction> addedTransactions = new HashSet<>();
+    for (final Transaction transaction : candidateTransactions) {
       final ValidationResult<TransactionInvalidReason> validationResult =
           validateTransaction(transaction);
       if (validationResult.isValid()) {
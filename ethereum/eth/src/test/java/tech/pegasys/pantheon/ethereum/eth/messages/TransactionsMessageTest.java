@@ -50,4 +50,26 @@ public class TransactionsMessageTest {
     }
     Assertions.assertThat(readTransactions.hasNext()).isFalse();
   }
+
+  @Test
+  public void decodedTransactionsReencodeToTheReceivedBytes() {
+    final BlockDataGenerator gen = new BlockDataGenerator(1);
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 5; ++i) {
+      transactions.add(gen.transaction());
+    }
+    final MessageData initialMessage = TransactionsMessage.create(transactions);
+    final TransactionsMessage message =
+        TransactionsMessage.readFrom(
+            new RawMessage(EthPV62.TRANSACTIONS, initialMessage.getData()));
+
+    final List<Transaction> readTransactions = new ArrayList<>();
+    message.transactions(Transaction::readFrom).forEachRemaining(readTransactions::add);
+
+    Assertions.assertThat(TransactionsMessage.create(readTransactions).getData())
+        .isEqualTo(initialMessage.getData());
+    for (int i = 0; i < transactions.size(); ++i) {
+      Assertions.assertThat(readTransactions.get(i).hash()).isEqualTo(transactions.get(i).hash());
+    }
+  }
 }
@@ -15,7 +15,9 @@ package tech.pegasys.pantheon.ethereum.eth.sync.fastsync;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,6 +25,7 @@ import static tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode.FULL;
 import static tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode.LIGHT;
 
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
+import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockDataGenerator;
 import tech.pegasys.pantheon.ethereum.core.BlockImporter;
@@ -45,6 +48,7 @@ public class FastImportBlocksStepTest {
   @Mock private ProtocolSchedule<Void> protocolSchedule;
   @Mock private ProtocolSpec<Void> protocolSpec;
   @Mock private ProtocolContext<Void> protocolContext;
+  @Mock private MutableBlockchain blockchain;
   @Mock private BlockImporter<Void> blockImporter;
   @Mock private ValidationPolicy validationPolicy;
   @Mock private ValidationPolicy ommerValidationPolicy;
@@ -58,6 +62,14 @@ public class FastImportBlocksStepTest {
     when(protocolSpec.getBlockImporter()).thenReturn(blockImporter);
     when(validationPolicy.getValidationModeForNextBlock()).thenReturn(FULL);
     when(ommerValidationPolicy.getValidationModeForNextBlock()).thenReturn(LIGHT);
+    when(protocolContext.getBlockchain()).thenReturn(blockchain);
+    doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .when(blockchain)
+        .appendBlocksInBatch(any());
 
     importBlocksStep =
         new FastImportBlocksStep<>(
@@ -87,6 +99,7 @@ public class FastImportBlocksStepTest {
       verify(protocolSchedule).getByBlockNumber(blockWithReceipts.getNumber());
     }
     verify(validationPolicy, times(blocks.size())).getValidationModeForNextBlock();
+    verify(blockchain).appendBlocksInBatch(any());
   }
 
   @Test
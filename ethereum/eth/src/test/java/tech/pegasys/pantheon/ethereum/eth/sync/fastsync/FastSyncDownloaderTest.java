@@ -27,12 +27,14 @@ import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.BlockHeaderTestFixture;
 import tech.pegasys.pantheon.ethereum.eth.sync.ChainDownloader;
 import tech.pegasys.pantheon.ethereum.eth.sync.TrailingPeerRequirements;
+import tech.pegasys.pantheon.ethereum.eth.sync.staterange.StateRangeDownloader;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.NodeDataRequest;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.StalledDownloadException;
 import tech.pegasys.pantheon.ethereum.eth.sync.worldstate.WorldStateDownloader;
 import tech.pegasys.pantheon.services.tasks.TaskCollection;
 
 import java.nio.file.Path;
+import java.util.Optional;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 
@@ -60,6 +62,7 @@ public class FastSyncDownloaderTest {
       new FastSyncDownloader<>(
           fastSyncActions,
           worldStateDownloader,
+          Optional.empty(),
           storage,
           taskCollection,
           fastSyncDataDirectory,
@@ -93,6 +96,40 @@ public class FastSyncDownloaderTest {
     assertThat(result).isCompletedWithValue(downloadPivotBlockHeaderState);
   }
 
+  @Test
+  public void shouldDownloadWorldStateRangesWhenEnabled() {
+    final StateRangeDownloader stateRangeDownloader = mock(StateRangeDownloader.class);
+    final BlockHeader pivotBlockHeader = new BlockHeaderTestFixture().number(50).buildHeader();
+    final FastSyncState fastSyncState = new FastSyncState(pivotBlockHeader);
+    final CompletableFuture<FastSyncState> complete = completedFuture(fastSyncState);
+    when(fastSyncActions.waitForSuitablePeers(fastSyncState)).thenReturn(complete);
+    when(fastSyncActions.selectPivotBlock(fastSyncState)).thenReturn(complete);
+    when(fastSyncActions.downloadPivotBlockHeader(fastSyncState)).thenReturn(complete);
+    when(fastSyncActions.createChainDownloader(fastSyncState)).thenReturn(chainDownloader);
+    when(chainDownloader.start()).thenReturn(completedFuture(null));
+    when(stateRangeDownloader.run(pivotBlockHeader)).thenReturn(completedFuture(null));
+
+    final FastSyncDownloader<Void> rangeDownloader =
+        new FastSyncDownloader<>(
+            fastSyncActions,
+            worldStateDownloader,
+            Optional.of(stateRangeDownloader),
+            storage,
+            taskCollection,
+            fastSyncDataDirectory,
+            fastSyncState);
+
+    final CompletableFuture<FastSyncState> result = rangeDownloader.start();
+
+    verify(stateRangeDownloader).run(pivotBlockHeader);
+    verifyNoMoreInteractions(worldStateDownloader);
+    assertThat(result).isCompletedWithValue(fastSyncState);
+
+    rangeDownloader.stop();
+    verify(stateRangeDownloader).cancel();
+    verify(worldStateDownloader).cancel();
+  }
+
   @Test
   public void shouldResumeFastSync() {
     final BlockHeader pivotBlockHeader = new BlockHeaderTestFixture().number(50).buildHeader();
@@ -109,6 +146,7 @@ public class FastSyncDownloaderTest {
         new FastSyncDownloader<>(
             fastSyncActions,
             worldStateDownloader,
+            Optional.empty(),
             storage,
             taskCollection,
             fastSyncDataDirectory,
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.staterange;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Account;
+import tech.pegasys.pantheon.ethereum.core.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.core.BlockHeader;
+import tech.pegasys.pantheon.ethereum.core.BlockHeaderTestFixture;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MutableWorldState;
+import tech.pegasys.pantheon.ethereum.eth.StateRangeProtocol;
+import tech.pegasys.pantheon.ethereum.p2p.network.NetworkRunner;
+import tech.pegasys.pantheon.ethereum.p2p.peers.DefaultPeer;
+import tech.pegasys.pantheon.ethereum.p2p.peers.EnodeURL;
+import tech.pegasys.pantheon.ethereum.p2p.peers.Peer;
+import tech.pegasys.pantheon.ethereum.p2p.testing.MockNetwork;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.WorldStateKeyValueStorage;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.NodeLoader;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.worldstate.StateTrieAccountValue;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateArchive;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class StateRangeDownloaderTest {
+
+  private static final int RANGE_SIZE = 10;
+  private static final int PARALLELISM = 3;
+
+  private final BlockDataGenerator dataGen = new BlockDataGenerator(1);
+  private final MockNetwork network = new MockNetwork(singletonList(StateRangeProtocol.RANGE1));
+  private final ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+  private final List<NetworkRunner> runners = new ArrayList<>();
+
+  private final WorldStateStorage localStorage =
+      new WorldStateKeyValueStorage(new InMemoryKeyValueStorage());
+  private final StateRangeProtocolManager localProtocolManager =
+      new StateRangeProtocolManager(localStorage);
+  private final Peer localPeer = createPeer("192.168.1.1");
+  private final NetworkRunner localRunner = startNode(localPeer, localProtocolManager);
+
+  @After
+  public void tearDown() {
+    runners.forEach(NetworkRunner::stop);
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldRebuildWorldStateFromRangesAndHealTheRest() throws Exception {
+    final WorldStateStorage remoteStorage = createRemoteStorage();
+    final MutableWorldState remoteWorldState = new WorldStateArchive(remoteStorage).getMutable();
+    final List<Account> accounts = dataGen.createRandomAccounts(remoteWorldState, 100);
+    final Hash stateRoot = remoteWorldState.rootHash();
+    connectTo(remoteStorage);
+
+    final AtomicBoolean availableBeforeHealing = new AtomicBoolean(true);
+    final StateRangeDownloader downloader =
+        createDownloader(
+            header -> {
+              availableBeforeHealing.set(localStorage.isWorldStateAvailable(stateRoot));
+              // Stands in for healing, which fetches the one node range sync holds back.
+              final WorldStateStorage.Updater updater = localStorage.updater();
+              updater.putAccountStateTrieNode(
+                  stateRoot, remoteStorage.getAccountStateTrieNode(stateRoot).get());
+              updater.commit();
+              return CompletableFuture.completedFuture(null);
+            });
+
+    downloader.run(header(stateRoot)).get(30, TimeUnit.SECONDS);
+
+    assertThat(availableBeforeHealing).isFalse();
+    final Map<Bytes32, BytesValue> remoteAccounts = allEntries(remoteStorage, stateRoot, false);
+    assertThat(remoteAccounts).hasSize(accounts.size());
+    assertThat(allEntries(localStorage, stateRoot, false)).isEqualTo(remoteAccounts);
+    for (final BytesValue account : remoteAccounts.values()) {
+      final Hash storageRoot = StateTrieAccountValue.readFrom(RLP.input(account)).getStorageRoot();
+      assertThat(allEntries(localStorage, storageRoot, true))
+          .isEqualTo(allEntries(remoteStorage, storageRoot, true));
+    }
+  }
+
+  @Test
+  public void shouldSkipPeersWithoutTheRequestedState() throws Exception {
+    final WorldStateStorage remoteStorage = createRemoteStorage();
+    final MutableWorldState remoteWorldState = new WorldStateArchive(remoteStorage).getMutable();
+    dataGen.createRandomAccounts(remoteWorldState, 50);
+    final Hash stateRoot = remoteWorldState.rootHash();
+    connectTo(createRemoteStorage());
+    connectTo(remoteStorage);
+
+    final AtomicReference<Hash> healedRoot = new AtomicReference<>();
+    final StateRangeDownloader downloader =
+        createDownloader(
+            header -> {
+              healedRoot.set(header.getStateRoot());
+              return CompletableFuture.completedFuture(null);
+            });
+
+    downloader.run(header(stateRoot)).get(30, TimeUnit.SECONDS);
+
+    assertThat(healedRoot).hasValue(stateRoot);
+    final MerklePatriciaTrie<Bytes32, BytesValue> remoteTrie =
+        new StoredMerklePatriciaTrie<>(
+            remoteStorage::getAccountStateTrieNode, stateRoot, b -> b, b -> b);
+    // Everything apart from the root node was downloaded.
+    remoteTrie.visitAll(
+        node -> {
+          if (node.isReferencedByHash() && !node.getHash().equals(stateRoot)) {
+            assertThat(localStorage.getAccountStateTrieNode(node.getHash()))
+                .contains(node.getRlp());
+          }
+        });
+  }
+
+  @Test
+  public void shouldHealEverythingWhenNoPeersServeRanges() throws Exception {
+    final WorldStateStorage remoteStorage = createRemoteStorage();
+    final MutableWorldState remoteWorldState = new WorldStateArchive(remoteStorage).getMutable();
+    dataGen.createRandomAccounts(remoteWorldState, 10);
+    final Hash stateRoot = remoteWorldState.rootHash();
+
+    final AtomicReference<Hash> healedRoot = new AtomicReference<>();
+    final StateRangeDownloader downloader =
+        createDownloader(
+            header -> {
+              healedRoot.set(header.getStateRoot());
+              return CompletableFuture.completedFuture(null);
+            });
+
+    downloader.run(header(stateRoot)).get(30, TimeUnit.SECONDS);
+
+    assertThat(healedRoot).hasValue(stateRoot);
+    assertThat(localStorage.isWorldStateAvailable(stateRoot)).isFalse();
+  }
+
+  @Test
+  public void shouldCancelHealingWhenCancelled() {
+    final CompletableFuture<Void> healing = new CompletableFuture<>();
+    final StateRangeDownloader downloader = createDownloader(header -> healing);
+
+    final CompletableFuture<Void> result = downloader.run(header(Hash.EMPTY_TRIE_HASH));
+    downloader.cancel();
+
+    assertThat(healing).isCancelled();
+    assertThat(result).isCompletedExceptionally();
+  }
+
+  private StateRangeDownloader createDownloader(
+      final Function<BlockHeader, CompletableFuture<Void>> healer) {
+    return new StateRangeDownloader(
+        localProtocolManager, localStorage, healer, executor, RANGE_SIZE, PARALLELISM);
+  }
+
+  private WorldStateStorage createRemoteStorage() {
+    return new WorldStateKeyValueStorage(new InMemoryKeyValueStorage());
+  }
+
+  private void connectTo(final WorldStateStorage remoteStorage) throws Exception {
+    final Peer remotePeer = createPeer("192.168.1." + (runners.size() + 1));
+    startNode(remotePeer, new StateRangeProtocolManager(remoteStorage));
+    localRunner.getNetwork().connect(remotePeer).get();
+  }
+
+  private NetworkRunner startNode(final Peer peer, final StateRangeProtocolManager manager) {
+    final NetworkRunner runner =
+        NetworkRunner.builder()
+            .protocolManagers(singletonList(manager))
+            .subProtocols(StateRangeProtocol.get())
+            .network(capabilities -> network.setup(peer))
+            .metricsSystem(new NoOpMetricsSystem())
+            .build();
+    runner.start();
+    runners.add(runner);
+    return runner;
+  }
+
+  private static Map<Bytes32, BytesValue> allEntries(
+      final WorldStateStorage storage, final Hash rootHash, final boolean isStorageTrie) {
+    final NodeLoader nodeLoader =
+        isStorageTrie ? storage::getAccountStorageTrieNode : storage::getAccountStateTrieNode;
+    final MerklePatriciaTrie<Bytes32, BytesValue> trie =
+        new StoredMerklePatriciaTrie<>(nodeLoader, rootHash, b -> b, b -> b);
+    return trie.entriesFrom(Bytes32.ZERO, Integer.MAX_VALUE);
+  }
+
+  private static BlockHeader header(final Hash stateRoot) {
+    return new BlockHeaderTestFixture().stateRoot(stateRoot).number(10).buildHeader();
+  }
+
+  private static Peer createPeer(final String ipAddress) {
+    return DefaultPeer.fromEnodeURL(
+        EnodeURL.builder()
+            .nodeId(Peer.randomId())
+            .ipAddress(ipAddress)
+            .discoveryPort(30303)
+            .listeningPort(30303)
+            .build());
+  }
+}
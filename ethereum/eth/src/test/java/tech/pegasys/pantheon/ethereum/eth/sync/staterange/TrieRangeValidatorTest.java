@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.eth.sync.staterange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.eth.messages.GetTrieRangeMessage;
+import tech.pegasys.pantheon.ethereum.eth.messages.TrieRangeMessage;
+import tech.pegasys.pantheon.ethereum.storage.keyvalue.WorldStateKeyValueStorage;
+import tech.pegasys.pantheon.ethereum.trie.MerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.trie.StoredMerklePatriciaTrie;
+import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrieRangeValidatorTest {
+
+  private static final int LIMIT = 10;
+
+  private final WorldStateStorage storage =
+      new WorldStateKeyValueStorage(new InMemoryKeyValueStorage());
+  private Hash rootHash;
+
+  @Before
+  public void setUp() {
+    final MerklePatriciaTrie<Bytes32, BytesValue> trie =
+        new StoredMerklePatriciaTrie<>(storage::getAccountStateTrieNode, b -> b, b -> b);
+    for (int i = 0; i < 100; i++) {
+      trie.put(Hash.hash(BytesValue.of(i)), BytesValue.of(i, i, i));
+    }
+    final WorldStateStorage.Updater updater = storage.updater();
+    trie.commit(updater::putAccountStateTrieNode);
+    updater.commit();
+    rootHash = Hash.wrap(trie.getRootHash());
+  }
+
+  @Test
+  public void shouldAcceptServedRange() {
+    final TrieRangeMessage response = serveRange(Bytes32.ZERO);
+
+    assertThat(response.entries()).hasSize(LIMIT);
+    assertThat(TrieRangeValidator.isValid(rootHash, Bytes32.ZERO, LIMIT, response)).isTrue();
+  }
+
+  @Test
+  public void shouldAcceptEmptyRangePastTheLastKey() {
+    final Bytes32 startKey =
+        Bytes32.fromHexString("0xffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff");
+    final TrieRangeMessage response = serveRange(startKey);
+
+    assertThat(response.entries()).isEmpty();
+    assertThat(TrieRangeValidator.isValid(rootHash, startKey, LIMIT, response)).isTrue();
+  }
+
+  @Test
+  public void shouldRejectTamperedBoundaryValue() {
+    final TrieRangeMessage response = serveRange(Bytes32.ZERO);
+    final Map<Bytes32, BytesValue> entries = entries(response);
+    final Bytes32 lastKey = response.entries().get(LIMIT - 1).getKey();
+    entries.put(lastKey, BytesValue.of(1, 2, 3, 4));
+
+    final TrieRangeMessage tampered =
+        TrieRangeMessage.createAccountRange(1, entries, response.proof());
+    assertThat(TrieRangeValidator.isValid(rootHash, Bytes32.ZERO, LIMIT, tampered)).isFalse();
+  }
+
+  @Test
+  public void shouldRejectRangeWithoutProof() {
+    final TrieRangeMessage response = serveRange(Bytes32.ZERO);
+
+    final TrieRangeMessage unproven =
+        TrieRangeMessage.createAccountRange(1, entries(response), Collections.emptyList());
+    assertThat(TrieRangeValidator.isValid(rootHash, Bytes32.ZERO, LIMIT, unproven)).isFalse();
+  }
+
+  @Test
+  public void shouldRejectRangeLargerThanLimit() {
+    final TrieRangeMessage response = serveRange(Bytes32.ZERO);
+
+    assertThat(TrieRangeValidator.isValid(rootHash, Bytes32.ZERO, LIMIT - 1, response)).isFalse();
+  }
+
+  @Test
+  public void shouldRejectEntriesOutOfOrder() {
+    final List<Map.Entry<Bytes32, BytesValue>> served = serveRange(Bytes32.ZERO).entries();
+    final Map<Bytes32, BytesValue> entries = new LinkedHashMap<>();
+    entries.put(served.get(1).getKey(), served.get(1).getValue());
+    entries.put(served.get(0).getKey(), served.get(0).getValue());
+
+    final TrieRangeMessage reordered =
+        TrieRangeMessage.createAccountRange(1, entries, serveRange(Bytes32.ZERO).proof());
+    assertThat(TrieRangeValidator.isValid(rootHash, Bytes32.ZERO, LIMIT, reordered)).isFalse();
+  }
+
+  @Test
+  public void shouldRejectEntriesBeforeStartKey() {
+    final List<Map.Entry<Bytes32, BytesValue>> served = serveRange(Bytes32.ZERO).entries();
+    final Bytes32 startKey = served.get(1).getKey();
+
+    assertThat(TrieRangeValidator.isValid(rootHash, startKey, LIMIT, serveRange(Bytes32.ZERO)))
+        .isFalse();
+  }
+
+  private TrieRangeMessage serveRange(final Bytes32 startKey) {
+    return StateRangeProtocolManager.constructRangeResponse(
+        storage, GetTrieRangeMessage.createAccountRangeRequest(1, rootHash, startKey, LIMIT));
+  }
+
+  private static Map<Bytes32, BytesValue> entries(final TrieRangeMessage response) {
+    final Map<Bytes32, BytesValue> entries = new LinkedHashMap<>();
+    response.entries().forEach(entry -> entries.put(entry.getKey(), entry.getValue()));
+    return entries;
+  }
+}
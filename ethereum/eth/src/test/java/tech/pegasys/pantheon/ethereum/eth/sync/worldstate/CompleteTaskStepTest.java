@@ -53,6 +53,7 @@ public class CompleteTaskStepTest {
     assertThat(task.isCompleted()).isFalse();
     assertThat(task.isFailed()).isTrue();
     verify(downloadState).notifyTaskAvailable();
+    verify(downloadState, never()).markRequestCompleted(task.getData());
     verify(downloadState, never()).checkCompletion(worldStateStorage, blockHeader);
   }
 
@@ -69,6 +70,7 @@ public class CompleteTaskStepTest {
     assertThat(streamCaptor.getValue())
         .usingRecursiveFieldByFieldElementComparator()
         .containsExactlyInAnyOrderElementsOf(() -> task.getData().getChildRequests().iterator());
+    verify(downloadState).markRequestCompleted(task.getData());
 
     verify(downloadState).checkCompletion(worldStateStorage, blockHeader);
   }
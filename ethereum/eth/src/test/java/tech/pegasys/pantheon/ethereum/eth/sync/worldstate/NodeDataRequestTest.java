@@ -15,6 +15,9 @@ package tech.pegasys.pantheon.ethereum.eth.sync.worldstate;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import tech.pegasys.pantheon.ethereum.core.BlockDataGenerator;
+import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import org.junit.Test;
 
@@ -47,6 +50,43 @@ public class NodeDataRequestTest {
     assertThat(sedeRequest).isInstanceOf(CodeNodeDataRequest.class);
   }
 
+  @Test
+  public void serializesRequestDepth() {
+    BlockDataGenerator gen = new BlockDataGenerator(0);
+    NodeDataRequest request = NodeDataRequest.createStorageDataRequest(gen.hash()).setDepth(12);
+    assertThat(serializeThenDeserialize(request).getDepth()).isEqualTo(12);
+  }
+
+  @Test
+  public void deserializesRequestsWithoutDepth() {
+    BlockDataGenerator gen = new BlockDataGenerator(0);
+    Hash hash = gen.hash();
+    BytesValue encoded =
+        RLP.encode(
+            out -> {
+              out.startList();
+              out.writeByte(RequestType.CODE.getValue());
+              out.writeBytesValue(hash);
+              out.endList();
+            });
+    NodeDataRequest request = NodeDataRequest.deserialize(encoded);
+    assertThat(request.getHash()).isEqualTo(hash);
+    assertThat(request.getDepth()).isZero();
+  }
+
+  @Test
+  public void childRequestsAreOneLevelDeeper() {
+    NodeDataRequest request =
+        NodeDataRequest.createAccountDataRequest(
+                Hash.fromHexString(
+                    "0x601a7b0d0267209790cf4c4d9e0cab11b26c537e2ade006412f48b070010e847"))
+            .setDepth(3)
+            .setData(
+                BytesValue.fromHexString(
+                    "0xf85180808080a05ac6993e3fbca0bfbd30173396dd5c2412657fae0bad92e401d17b2aa9a3698f80808080a012f96a0812be538c302416dc6e8df19ce18f1cc7b06a3c7a16831d766c87a9b580808080808080"));
+    assertThat(request.getChildRequests()).isNotEmpty().allMatch(child -> child.getDepth() == 4);
+  }
+
   private NodeDataRequest serializeThenDeserialize(final NodeDataRequest request) {
     return NodeDataRequest.deserialize(NodeDataRequest.serialize(request));
   }
@@ -55,5 +95,6 @@ public class NodeDataRequestTest {
     assertThat(actual.getRequestType()).isEqualTo(expected.getRequestType());
     assertThat(actual.getHash()).isEqualTo(expected.getHash());
     assertThat(actual.getData()).isEqualTo(expected.getData());
+    assertThat(actual.getDepth()).isEqualTo(expected.getDepth());
   }
 }
@@ -17,6 +17,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static tech.pegasys.pantheon.ethereum.eth.sync.worldstate.NodeDataRequest.createAccountDataRequest;
+import static tech.pegasys.pantheon.ethereum.eth.sync.worldstate.NodeDataRequest.createCodeRequest;
 
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.BlockHeaderTestFixture;
@@ -24,6 +25,7 @@ import tech.pegasys.pantheon.ethereum.core.Hash;
 import tech.pegasys.pantheon.ethereum.eth.manager.task.EthTask;
 import tech.pegasys.pantheon.ethereum.storage.keyvalue.WorldStateKeyValueStorage;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateStorage;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
 import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
 import tech.pegasys.pantheon.services.tasks.CachingTaskCollection;
 import tech.pegasys.pantheon.services.tasks.InMemoryTaskQueue;
@@ -57,7 +59,11 @@ public class WorldDownloadStateTest {
   private final TestClock clock = new TestClock();
   private final WorldDownloadState downloadState =
       new WorldDownloadState(
-          pendingRequests, MAX_REQUESTS_WITHOUT_PROGRESS, MIN_MILLIS_BEFORE_STALLING, clock);
+          pendingRequests,
+          new DuplicateRequestFilter(worldStateStorage, NoOpMetricsSystem.NO_OP_COUNTER),
+          MAX_REQUESTS_WITHOUT_PROGRESS,
+          MIN_MILLIS_BEFORE_STALLING,
+          clock);
 
   private final CompletableFuture<Void> future = downloadState.getDownloadFuture();
 
@@ -187,6 +193,41 @@ public class WorldDownloadStateTest {
     assertThat(pendingRequests.isEmpty()).isTrue();
   }
 
+  @Test
+  public void shouldSkipRequestsForNodesAlreadyInFlight() {
+    downloadState.enqueueRequest(createAccountDataRequest(Hash.EMPTY_TRIE_HASH));
+    downloadState.enqueueRequests(
+        Stream.of(
+            createAccountDataRequest(Hash.EMPTY_TRIE_HASH),
+            createCodeRequest(Hash.EMPTY_TRIE_HASH)));
+
+    assertThat(pendingRequests.size()).isEqualTo(2);
+    assertThat(downloadState.getFrontierSize()).isEqualTo(1);
+
+    final NodeDataRequest request = pendingRequests.remove().getData();
+    downloadState.markRequestCompleted(request);
+    downloadState.enqueueRequest(createAccountDataRequest(Hash.EMPTY_TRIE_HASH));
+
+    assertThat(pendingRequests.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldSkipRequestsForCodeAlreadyDownloaded() {
+    final BytesValue code = BytesValue.of(5, 6, 7);
+    final NodeDataRequest request = createCodeRequest(Hash.hash(code));
+    downloadState.enqueueRequest(request);
+    pendingRequests.remove();
+    request.setData(code);
+    final WorldStateStorage.Updater updater = worldStateStorage.updater();
+    request.persist(updater);
+    updater.commit();
+    downloadState.markRequestCompleted(request);
+
+    downloadState.enqueueRequest(createCodeRequest(Hash.hash(code)));
+
+    assertThat(pendingRequests.isEmpty()).isTrue();
+  }
+
   private void assertWorldStateStalled(final WorldDownloadState state) {
     final CompletableFuture<Void> future = state.getDownloadFuture();
     assertThat(future).isCompletedExceptionally();
@@ -104,7 +104,7 @@ public class PendingTransactionsTest {
 
   @Test
   public void shouldDropOldestTransactionWhenLimitExceeded() {
-    final Transaction oldestTransaction = createTransaction(0);
+    final Transaction oldestTransaction = transactionWithNonceAndSender(0, KEYS2);
     transactions.addRemoteTransaction(oldestTransaction);
     for (int i = 1; i < MAX_TRANSACTIONS; i++) {
       transactions.addRemoteTransaction(createTransaction(i));
@@ -147,7 +147,7 @@ public class PendingTransactionsTest {
 
   @Test
   public void shouldStartDroppingLocalTransactionsWhenPoolIsFullOfLocalTransactions() {
-    final Transaction firstLocalTransaction = createTransaction(0);
+    final Transaction firstLocalTransaction = transactionWithNonceAndSender(0, KEYS2);
     transactions.addLocalTransaction(firstLocalTransaction);
 
     for (int i = 1; i <= MAX_TRANSACTIONS; i++) {
@@ -397,6 +397,116 @@ public class PendingTransactionsTest {
         .containsExactly(transaction4, transaction1, transaction2, transaction3);
   }
 
+  @Test
+  public void shouldSelectHigherGasPriceTransactionsFirst() {
+    final Transaction cheapTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS1, 1);
+    final Transaction expensiveTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 10);
+
+    transactions.addRemoteTransaction(expensiveTransaction);
+    transactions.addRemoteTransaction(cheapTransaction);
+
+    final List<Transaction> iterationOrder = new ArrayList<>();
+    transactions.selectTransactions(
+        transaction -> {
+          iterationOrder.add(transaction);
+          return TransactionSelectionResult.CONTINUE;
+        });
+
+    assertThat(iterationOrder).containsExactly(expensiveTransaction, cheapTransaction);
+  }
+
+  @Test
+  public void shouldEvictLowestGasPriceTransactionWhenLimitExceeded() {
+    final Transaction cheapestTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    transactions.addRemoteTransaction(cheapestTransaction);
+    for (int i = 0; i < MAX_TRANSACTIONS - 1; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 10));
+    }
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+
+    final Transaction newTransaction =
+        transactionWithNonceSenderAndGasPrice(MAX_TRANSACTIONS, KEYS1, 5);
+    assertThat(transactions.addRemoteTransaction(newTransaction)).isTrue();
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionPending(newTransaction);
+    assertTransactionNotPending(cheapestTransaction);
+    assertThat(metricsSystem.getCounterValue(REMOVED_COUNTER, REMOTE, DROPPED)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRejectTransactionWithLowerGasPriceThanAllPendingWhenFull() {
+    for (int i = 0; i < MAX_TRANSACTIONS; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 10));
+    }
+    transactions.addTransactionListener(listener);
+    transactions.addTransactionDroppedListener(droppedListener);
+
+    final Transaction cheapTransaction = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    assertThat(transactions.addRemoteTransaction(cheapTransaction)).isFalse();
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionNotPending(cheapTransaction);
+    assertThat(metricsSystem.getCounterValue(REMOVED_COUNTER, REMOTE, DROPPED)).isZero();
+    verifyZeroInteractions(listener, droppedListener);
+  }
+
+  @Test
+  public void shouldEvictHighestNonceTransactionOfLowestGasPriceSender() {
+    final Transaction cheapTransaction0 = transactionWithNonceSenderAndGasPrice(0, KEYS2, 1);
+    final Transaction cheapTransaction1 = transactionWithNonceSenderAndGasPrice(1, KEYS2, 5);
+    transactions.addRemoteTransaction(cheapTransaction0);
+    transactions.addRemoteTransaction(cheapTransaction1);
+    for (int i = 0; i < MAX_TRANSACTIONS - 2; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 3));
+    }
+
+    final Transaction newTransaction =
+        transactionWithNonceSenderAndGasPrice(MAX_TRANSACTIONS, KEYS1, 3);
+    assertThat(transactions.addRemoteTransaction(newTransaction)).isTrue();
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionPending(cheapTransaction0);
+    assertTransactionNotPending(cheapTransaction1);
+    assertTransactionPending(newTransaction);
+    assertMaximumNonceForSender(SENDER2, 1);
+  }
+
+  @Test
+  public void shouldRejectTransactionThatWouldBeEvictedWhenFull() {
+    for (int i = 0; i < MAX_TRANSACTIONS; i++) {
+      transactions.addRemoteTransaction(transactionWithNonceSenderAndGasPrice(i, KEYS1, 1));
+    }
+    transactions.addTransactionListener(listener);
+    transactions.addTransactionDroppedListener(droppedListener);
+
+    final Transaction nextTransaction =
+        transactionWithNonceSenderAndGasPrice(MAX_TRANSACTIONS, KEYS1, 10);
+    assertThat(transactions.addRemoteTransaction(nextTransaction)).isFalse();
+
+    assertThat(transactions.size()).isEqualTo(MAX_TRANSACTIONS);
+    assertTransactionNotPending(nextTransaction);
+    assertMaximumNonceForSender(SENDER1, MAX_TRANSACTIONS);
+    assertThat(metricsSystem.getCounterValue(REMOVED_COUNTER, REMOTE, DROPPED)).isZero();
+    verifyZeroInteractions(listener, droppedListener);
+  }
+
+  @Test
+  public void shouldAcceptTransactionsAddedWhileSelectingTransactions() {
+    transactions.addRemoteTransaction(transaction1);
+
+    final List<Transaction> iterationOrder = new ArrayList<>();
+    transactions.selectTransactions(
+        transaction -> {
+          iterationOrder.add(transaction);
+          assertThat(transactions.addRemoteTransaction(transaction2)).isTrue();
+          return TransactionSelectionResult.CONTINUE;
+        });
+
+    assertThat(iterationOrder).containsExactly(transaction1);
+    assertTransactionPending(transaction2);
+  }
+
   private void assertMaximumNonceForSender(final Address sender1, final int i) {
     assertThat(transactions.getNextNonceForSender(sender1)).isEqualTo(OptionalLong.of(i));
   }
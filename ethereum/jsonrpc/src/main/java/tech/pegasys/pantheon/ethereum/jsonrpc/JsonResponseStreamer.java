@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.jsonrpc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+
+/**
+ * An {@link OutputStream} which writes to a chunked {@link HttpServerResponse}, so large JSON-RPC
+ * responses can be serialised directly to the client instead of into memory first.
+ *
+ * <p>Output is buffered and sent in fixed size chunks. When the response's write queue is full the
+ * writing thread blocks until the client catches up, so this must never be used on an event loop
+ * thread. A client that doesn't read for longer than the write timeout has its connection closed,
+ * so that it can't hold on to the writing thread indefinitely. Closing the stream ends the
+ * response; if serialisation fails part way through the stream should not be closed and the
+ * connection should be reset instead.
+ */
+class JsonResponseStreamer extends OutputStream {
+
+  static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+  static final long DEFAULT_WRITE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+  private final HttpServerResponse response;
+  private final byte[] chunk;
+  private final long writeTimeoutMillis;
+  private int chunkLength;
+  private boolean closed;
+
+  private volatile boolean connectionClosed;
+  private volatile CompletableFuture<Void> pendingDrain;
+
+  JsonResponseStreamer(final HttpServerResponse response) {
+    this(response, DEFAULT_CHUNK_SIZE);
+  }
+
+  JsonResponseStreamer(final HttpServerResponse response, final int chunkSize) {
+    this(response, chunkSize, DEFAULT_WRITE_TIMEOUT_MILLIS);
+  }
+
+  JsonResponseStreamer(
+      final HttpServerResponse response, final int chunkSize, final long writeTimeoutMillis) {
+    checkArgument(chunkSize > 0, "Chunk size must be positive");
+    checkArgument(writeTimeoutMillis > 0, "Write timeout must be positive");
+    this.response = response;
+    this.chunk = new byte[chunkSize];
+    this.writeTimeoutMillis = writeTimeoutMillis;
+    response.setChunked(true);
+    response.closeHandler(this::onConnectionClosed);
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    ensureOpen();
+    if (chunkLength == chunk.length) {
+      writeChunk();
+    }
+    chunk[chunkLength++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    ensureOpen();
+    int position = offset;
+    int remaining = length;
+    while (remaining > 0) {
+      if (chunkLength == chunk.length) {
+        writeChunk();
+      }
+      final int toCopy = Math.min(remaining, chunk.length - chunkLength);
+      System.arraycopy(bytes, position, chunk, chunkLength, toCopy);
+      chunkLength += toCopy;
+      position += toCopy;
+      remaining -= toCopy;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    if (chunkLength > 0) {
+      writeChunk();
+    }
+    closed = true;
+    response.end();
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private void writeChunk() throws IOException {
+    awaitWritable();
+    try {
+      response.write(Buffer.buffer(chunkLength).appendBytes(chunk, 0, chunkLength));
+    } catch (final IllegalStateException e) {
+      throw new IOException("Response closed", e);
+    }
+    chunkLength = 0;
+  }
+
+  private void awaitWritable() throws IOException {
+    while (response.writeQueueFull()) {
+      checkConnectionOpen();
+      final CompletableFuture<Void> drained = new CompletableFuture<>();
+      pendingDrain = drained;
+      response.drainHandler(ignored -> drained.complete(null));
+      // The queue may have drained, or the connection closed, before the handlers saw the future.
+      if (!response.writeQueueFull() || isConnectionClosed()) {
+        continue;
+      }
+      try {
+        drained.get(writeTimeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (final TimeoutException e) {
+        response.close();
+        throw new IOException("Timed out waiting for client to read response");
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for client to read response");
+      } catch (final ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+    }
+    checkConnectionOpen();
+  }
+
+  private void checkConnectionOpen() throws IOException {
+    if (isConnectionClosed()) {
+      throw new IOException("Connection closed by client");
+    }
+  }
+
+  private boolean isConnectionClosed() {
+    return connectionClosed || response.closed();
+  }
+
+  private void onConnectionClosed(final Void ignored) {
+    connectionClosed = true;
+    final CompletableFuture<Void> drain = pendingDrain;
+    if (drain != null) {
+      drain.completeExceptionally(new IOException("Connection closed by client"));
+    }
+  }
+}
@@ -38,6 +38,8 @@ import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 import tech.pegasys.pantheon.nat.upnp.UpnpNatManager;
 import tech.pegasys.pantheon.util.NetworkUtility;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.file.Path;
@@ -47,6 +49,8 @@ import java.util.Optional;
 import java.util.StringJoiner;
 import java.util.concurrent.CompletableFuture;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
@@ -79,6 +83,9 @@ public class JsonRpcHttpService {
   private static final String APPLICATION_JSON = "application/json";
   private static final JsonRpcResponse NO_RESPONSE = new JsonRpcNoResponse();
   private static final String EMPTY_RESPONSE = "";
+  // The response stream is only closed, ending the response, once serialisation succeeds.
+  private static final ObjectWriter JSON_WRITER =
+      Json.mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
   private final Vertx vertx;
   private final JsonRpcConfiguration config;
@@ -369,19 +376,20 @@ public class JsonRpcHttpService {
     vertx.executeBlocking(
         future -> {
           final JsonRpcResponse jsonRpcResponse = process(request, user);
-          future.complete(jsonRpcResponse);
+          response.setStatusCode(status(jsonRpcResponse).code());
+          response.putHeader("Content-Type", APPLICATION_JSON);
+          if (jsonRpcResponse.getType() == JsonRpcResponseType.NONE) {
+            response.end(EMPTY_RESPONSE);
+          } else {
+            streamResponse(response, jsonRpcResponse);
+          }
+          future.complete();
         },
         false,
         (res) -> {
           if (res.failed()) {
-            response.setStatusCode(HttpResponseStatus.INTERNAL_SERVER_ERROR.code()).end();
-            return;
+            handleResponseFailure(response, res.cause());
           }
-
-          final JsonRpcResponse jsonRpcResponse = (JsonRpcResponse) res.result();
-          response.setStatusCode(status(jsonRpcResponse).code());
-          response.putHeader("Content-Type", APPLICATION_JSON);
-          response.end(serialise(jsonRpcResponse));
         });
   }
 
@@ -399,13 +407,32 @@ public class JsonRpcHttpService {
     }
   }
 
-  private String serialise(final JsonRpcResponse response) {
-
-    if (response.getType() == JsonRpcResponseType.NONE) {
-      return EMPTY_RESPONSE;
+  /*
+   * Serialises the response straight into the HTTP response in chunks, blocking while the client
+   * falls behind, so must only be called from a worker thread.
+   */
+  private void streamResponse(final HttpServerResponse response, final Object value) {
+    final JsonResponseStreamer streamer = new JsonResponseStreamer(response);
+    try {
+      JSON_WRITER.writeValue(streamer, value);
+      streamer.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
     }
+  }
 
-    return Json.encodePrettily(response);
+  private void handleResponseFailure(final HttpServerResponse response, final Throwable cause) {
+    if (response.closed() || response.ended()) {
+      LOG.debug("Unable to send JSON-RPC response", cause);
+    } else if (!response.headWritten()) {
+      LOG.error("Error processing JSON-RPC request", cause);
+      response.setStatusCode(HttpResponseStatus.INTERNAL_SERVER_ERROR.code()).end();
+    } else {
+      // Part of the response has already been sent so the status can't change, but resetting the
+      // connection stops the client treating a truncated response as complete.
+      LOG.error("Error sending JSON-RPC response", cause);
+      response.close();
+    }
   }
 
   @SuppressWarnings("rawtypes")
@@ -453,7 +480,18 @@ public class JsonRpcHttpService {
                       .filter(this::isNonEmptyResponses)
                       .toArray(JsonRpcResponse[]::new);
 
-              routingContext.response().end(Json.encode(completed));
+              final HttpServerResponse response = routingContext.response();
+              vertx.executeBlocking(
+                  future -> {
+                    streamResponse(response, completed);
+                    future.complete();
+                  },
+                  false,
+                  streamed -> {
+                    if (streamed.failed()) {
+                      handleResponseFailure(response, streamed.cause());
+                    }
+                  });
             });
   }
 
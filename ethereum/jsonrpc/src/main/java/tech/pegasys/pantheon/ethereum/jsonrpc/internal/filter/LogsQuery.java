@@ -15,10 +15,14 @@ package tech.pegasys.pantheon.ethereum.jsonrpc.internal.filter;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.Log;
 import tech.pegasys.pantheon.ethereum.core.LogTopic;
+import tech.pegasys.pantheon.ethereum.core.LogsBloomFilter;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.parameters.TopicsParameter;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.Lists;
 
@@ -26,16 +30,62 @@ public class LogsQuery {
 
   private final List<Address> queryAddresses;
   private final List<List<LogTopic>> queryTopics;
+  private final List<List<LogsBloomFilter>> queryBlooms;
 
   private LogsQuery(final List<Address> addresses, final List<List<LogTopic>> topics) {
     this.queryAddresses = addresses;
     this.queryTopics = topics;
+    this.queryBlooms = buildQueryBlooms(addresses, topics);
   }
 
   public boolean matches(final Log log) {
     return matchesAddresses(log.getLogger()) && matchesTopics(log.getTopics());
   }
 
+  /**
+   * Checks whether a block with the given logs bloom could contain logs matching this query.
+   *
+   * @param logsBloom the logs bloom of the block.
+   * @return false if no log in the block can match, true otherwise.
+   */
+  public boolean couldMatch(final LogsBloomFilter logsBloom) {
+    for (final List<LogsBloomFilter> group : queryBlooms) {
+      if (!group.isEmpty() && group.stream().noneMatch(logsBloom::couldContain)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the blooms a block must contain to have logs matching this query. The block must
+   * contain at least one bloom from each group, and an empty group places no constraint.
+   *
+   * @return the groups of single address or topic blooms.
+   */
+  public List<List<LogsBloomFilter>> getQueryBlooms() {
+    return queryBlooms;
+  }
+
+  private static List<List<LogsBloomFilter>> buildQueryBlooms(
+      final List<Address> addresses, final List<List<LogTopic>> topics) {
+    final List<List<LogsBloomFilter>> blooms = Lists.newArrayList();
+    blooms.add(addresses.stream().map(LogsQuery::bloomOf).collect(Collectors.toList()));
+    for (final List<LogTopic> topicCriteria : topics) {
+      // A null entry matches any topic in this position, so the position can't rule out a block
+      if (topicCriteria.stream().noneMatch(Objects::isNull)) {
+        blooms.add(topicCriteria.stream().map(LogsQuery::bloomOf).collect(Collectors.toList()));
+      }
+    }
+    return blooms;
+  }
+
+  private static LogsBloomFilter bloomOf(final BytesValue value) {
+    final LogsBloomFilter bloom = new LogsBloomFilter();
+    bloom.insertBytes(value);
+    return bloom;
+  }
+
   private boolean matchesAddresses(final Address address) {
     return queryAddresses.isEmpty() || queryAddresses.contains(address);
   }
@@ -27,12 +27,14 @@ import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcErrorResp
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcSuccessResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.DebugTraceTransactionResult;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.StreamingDebugTraceBlockResult;
 import tech.pegasys.pantheon.ethereum.rlp.RLP;
 import tech.pegasys.pantheon.ethereum.rlp.RLPException;
 import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Collection;
+import java.util.Optional;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -71,13 +73,20 @@ public class DebugTraceBlock implements JsonRpcMethod {
       LOG.debug("Failed to parse block RLP", e);
       return new JsonRpcErrorResponse(request.getId(), JsonRpcError.INVALID_PARAMS);
     }
+    final Optional<TransactionTraceParams> traceParams =
+        parameters.optional(request.getParams(), 1, TransactionTraceParams.class);
     final TraceOptions traceOptions =
-        parameters
-            .optional(request.getParams(), 1, TransactionTraceParams.class)
-            .map(TransactionTraceParams::traceOptions)
-            .orElse(TraceOptions.DEFAULT);
+        traceParams.map(TransactionTraceParams::traceOptions).orElse(TraceOptions.DEFAULT);
 
     if (this.blockchain.blockByHash(block.getHeader().getParentHash()).isPresent()) {
+      if (traceParams.map(TransactionTraceParams::isStreaming).orElse(false)) {
+        return new JsonRpcSuccessResponse(
+            request.getId(),
+            new StreamingDebugTraceBlockResult(
+                traceOptions,
+                (tracer, transactionTraceListener) ->
+                    blockTracer.trace(block, tracer, transactionTraceListener)));
+      }
       final Collection<DebugTraceTransactionResult> results =
           blockTracer
               .trace(block, new DebugOperationTracer(traceOptions))
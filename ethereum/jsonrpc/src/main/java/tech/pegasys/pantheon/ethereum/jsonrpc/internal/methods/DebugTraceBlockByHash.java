@@ -23,9 +23,11 @@ import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.BlockTracer;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcSuccessResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.DebugTraceTransactionResult;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.StreamingDebugTraceBlockResult;
 import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
 
 import java.util.Collection;
+import java.util.Optional;
 
 public class DebugTraceBlockByHash implements JsonRpcMethod {
 
@@ -45,11 +47,19 @@ public class DebugTraceBlockByHash implements JsonRpcMethod {
   @Override
   public JsonRpcResponse response(final JsonRpcRequest request) {
     final Hash blockHash = parameters.required(request.getParams(), 0, Hash.class);
+    final Optional<TransactionTraceParams> traceParams =
+        parameters.optional(request.getParams(), 1, TransactionTraceParams.class);
     final TraceOptions traceOptions =
-        parameters
-            .optional(request.getParams(), 1, TransactionTraceParams.class)
-            .map(TransactionTraceParams::traceOptions)
-            .orElse(TraceOptions.DEFAULT);
+        traceParams.map(TransactionTraceParams::traceOptions).orElse(TraceOptions.DEFAULT);
+
+    if (traceParams.map(TransactionTraceParams::isStreaming).orElse(false)) {
+      return new JsonRpcSuccessResponse(
+          request.getId(),
+          new StreamingDebugTraceBlockResult(
+              traceOptions,
+              (tracer, transactionTraceListener) ->
+                  blockTracer.trace(blockHash, tracer, transactionTraceListener)));
+    }
 
     final Collection<DebugTraceTransactionResult> results =
         blockTracer
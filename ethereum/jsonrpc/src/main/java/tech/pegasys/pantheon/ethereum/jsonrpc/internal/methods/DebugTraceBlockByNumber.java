@@ -23,6 +23,7 @@ import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.BlockTrace;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.BlockTracer;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.queries.BlockchainQueries;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.DebugTraceTransactionResult;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.StreamingDebugTraceBlockResult;
 import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
 
 import java.util.Optional;
@@ -56,12 +57,21 @@ public class DebugTraceBlockByNumber extends AbstractBlockParameterMethod {
   @Override
   protected Object resultByBlockNumber(final JsonRpcRequest request, final long blockNumber) {
     final Optional<Hash> blockHash = this.blockchain.getBlockHashByNumber(blockNumber);
+    final Optional<TransactionTraceParams> traceParams =
+        parameters.optional(request.getParams(), 1, TransactionTraceParams.class);
     final TraceOptions traceOptions =
-        parameters
-            .optional(request.getParams(), 1, TransactionTraceParams.class)
-            .map(TransactionTraceParams::traceOptions)
-            .orElse(TraceOptions.DEFAULT);
+        traceParams.map(TransactionTraceParams::traceOptions).orElse(TraceOptions.DEFAULT);
 
+    if (traceParams.map(TransactionTraceParams::isStreaming).orElse(false)) {
+      return blockHash
+          .map(
+              hash ->
+                  new StreamingDebugTraceBlockResult(
+                      traceOptions,
+                      (tracer, transactionTraceListener) ->
+                          blockTracer.trace(hash, tracer, transactionTraceListener)))
+          .orElse(null);
+    }
     return blockHash
         .flatMap(
             hash ->
@@ -24,6 +24,7 @@ import tech.pegasys.pantheon.ethereum.jsonrpc.internal.queries.TransactionWithMe
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcSuccessResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.DebugTraceTransactionResult;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.StreamingDebugTraceTransactionResult;
 import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
 
 import java.util.Optional;
@@ -54,11 +55,18 @@ public class DebugTraceTransaction implements JsonRpcMethod {
     final Optional<TransactionWithMetadata> transactionWithMetadata =
         blockchain.transactionByHash(hash);
     if (transactionWithMetadata.isPresent()) {
+      final Optional<TransactionTraceParams> traceParams =
+          parameters.optional(request.getParams(), 1, TransactionTraceParams.class);
       final TraceOptions traceOptions =
-          parameters
-              .optional(request.getParams(), 1, TransactionTraceParams.class)
-              .map(TransactionTraceParams::traceOptions)
-              .orElse(TraceOptions.DEFAULT);
+          traceParams.map(TransactionTraceParams::traceOptions).orElse(TraceOptions.DEFAULT);
+      if (traceParams.map(TransactionTraceParams::isStreaming).orElse(false)) {
+        final Hash blockHash = transactionWithMetadata.get().getBlockHash();
+        return new JsonRpcSuccessResponse(
+            request.getId(),
+            new StreamingDebugTraceTransactionResult(
+                traceOptions,
+                tracer -> transactionTracer.traceTransaction(blockHash, hash, tracer)));
+      }
       final DebugTraceTransactionResult debugTraceTransactionResult =
           debugTraceTransactionResult(hash, transactionWithMetadata.get(), traceOptions);
 
@@ -24,18 +24,32 @@ public class TransactionTraceParams {
   private final boolean disableStorage;
   private final boolean disableMemory;
   private final boolean disableStack;
+  private final boolean diffs;
+  private final boolean streaming;
 
   @JsonCreator()
   public TransactionTraceParams(
       @JsonProperty("disableStorage") final boolean disableStorage,
       @JsonProperty("disableMemory") final boolean disableMemory,
-      @JsonProperty("disableStack") final boolean disableStack) {
+      @JsonProperty("disableStack") final boolean disableStack,
+      @JsonProperty("diffs") final boolean diffs,
+      @JsonProperty("streaming") final boolean streaming) {
     this.disableStorage = disableStorage;
     this.disableMemory = disableMemory;
     this.disableStack = disableStack;
+    this.diffs = diffs;
+    this.streaming = streaming;
   }
 
   public TraceOptions traceOptions() {
-    return new TraceOptions(!disableStorage, !disableMemory, !disableStack);
+    return new TraceOptions(!disableStorage, !disableMemory, !disableStack, diffs);
+  }
+
+  /**
+   * @return whether struct logs should be written to the response as the trace runs, rather than
+   *     collected in memory first
+   */
+  public boolean isStreaming() {
+    return streaming;
   }
 }
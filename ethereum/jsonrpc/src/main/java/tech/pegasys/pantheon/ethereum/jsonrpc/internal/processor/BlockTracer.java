@@ -20,6 +20,7 @@ import tech.pegasys.pantheon.ethereum.vm.BlockHashLookup;
 import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /** Used to produce debug traces of blocks */
 public class BlockTracer {
@@ -31,15 +32,40 @@ public class BlockTracer {
   }
 
   public Optional<BlockTrace> trace(final Hash blockHash, final DebugOperationTracer tracer) {
-    return Optional.of(blockReplay.block(blockHash, prepareReplayAction(tracer)));
+    return trace(blockHash, tracer, transactionTrace -> {});
   }
 
   public Optional<BlockTrace> trace(final Block block, final DebugOperationTracer tracer) {
-    return Optional.of(blockReplay.block(block, prepareReplayAction(tracer)));
+    return trace(block, tracer, transactionTrace -> {});
+  }
+
+  /**
+   * Traces the block, passing each transaction's trace to the listener as soon as the transaction
+   * has been processed.
+   */
+  public Optional<BlockTrace> trace(
+      final Hash blockHash,
+      final DebugOperationTracer tracer,
+      final Consumer<TransactionTrace> transactionTraceListener) {
+    return Optional.of(
+        blockReplay.block(blockHash, prepareReplayAction(tracer, transactionTraceListener)));
+  }
+
+  /**
+   * Traces the block, passing each transaction's trace to the listener as soon as the transaction
+   * has been processed.
+   */
+  public Optional<BlockTrace> trace(
+      final Block block,
+      final DebugOperationTracer tracer,
+      final Consumer<TransactionTrace> transactionTraceListener) {
+    return Optional.of(
+        blockReplay.block(block, prepareReplayAction(tracer, transactionTraceListener)));
   }
 
   private TransactionAction<TransactionTrace> prepareReplayAction(
-      final DebugOperationTracer tracer) {
+      final DebugOperationTracer tracer,
+      final Consumer<TransactionTrace> transactionTraceListener) {
     return (transaction, header, blockchain, mutableWorldState, transactionProcessor) -> {
       final TransactionProcessor.Result result =
           transactionProcessor.processTransaction(
@@ -51,7 +77,10 @@ public class BlockTracer {
               tracer,
               new BlockHashLookup(header, blockchain),
               false);
-      return new TransactionTrace(transaction, result, tracer.getTraceFrames());
+      final TransactionTrace transactionTrace =
+          new TransactionTrace(transaction, result, tracer.getTraceFrames());
+      transactionTraceListener.accept(transactionTrace);
+      return transactionTrace;
     };
   }
 }
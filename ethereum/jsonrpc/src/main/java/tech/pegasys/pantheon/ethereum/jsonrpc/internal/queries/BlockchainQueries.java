@@ -14,6 +14,7 @@ package tech.pegasys.pantheon.ethereum.jsonrpc.internal.queries;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsIndex;
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
 import tech.pegasys.pantheon.ethereum.chain.TransactionLocation;
 import tech.pegasys.pantheon.ethereum.core.Account;
@@ -33,6 +34,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
@@ -44,10 +46,19 @@ public class BlockchainQueries {
 
   private final WorldStateArchive worldStateArchive;
   private final Blockchain blockchain;
+  private final Optional<BloomBitsIndex> bloomBitsIndex;
 
   public BlockchainQueries(final Blockchain blockchain, final WorldStateArchive worldStateArchive) {
+    this(blockchain, worldStateArchive, Optional.empty());
+  }
+
+  public BlockchainQueries(
+      final Blockchain blockchain,
+      final WorldStateArchive worldStateArchive,
+      final Optional<BloomBitsIndex> bloomBitsIndex) {
     this.blockchain = blockchain;
     this.worldStateArchive = worldStateArchive;
+    this.bloomBitsIndex = bloomBitsIndex;
   }
 
   public Blockchain getBlockchain() {
@@ -485,26 +496,63 @@ public class BlockchainQueries {
     if (fromBlockNumber > toBlockNumber || toBlockNumber > headBlockNumber()) {
       return Lists.newArrayList();
     }
-    List<LogWithMetadata> matchingLogs = Lists.newArrayList();
-    for (long blockNumber = fromBlockNumber; blockNumber <= toBlockNumber; blockNumber++) {
-      final Hash blockhash = blockchain.getBlockHashByNumber(blockNumber).get();
-      final boolean logHasBeenRemoved = !blockchain.blockIsOnCanonicalChain(blockhash);
-      final List<TransactionReceipt> receipts = blockchain.getTxReceipts(blockhash).get();
-      final List<Transaction> transaction =
-          blockchain.getBlockBody(blockhash).get().getTransactions();
-      matchingLogs =
-          generateLogWithMetadata(
-              receipts,
-              blockNumber,
-              query,
-              blockhash,
-              matchingLogs,
-              transaction,
-              logHasBeenRemoved);
+    final List<LogWithMetadata> matchingLogs = Lists.newArrayList();
+    if (bloomBitsIndex.isPresent()) {
+      final BloomBitsIndex index = bloomBitsIndex.get();
+      long blockNumber = fromBlockNumber;
+      while (blockNumber <= toBlockNumber) {
+        final long section = index.getSection(blockNumber);
+        final long lastBlockNumber = Math.min(toBlockNumber, index.getLastBlockInSection(section));
+        final Optional<BitSet> candidates =
+            index.getCandidateBlocks(section, query.getQueryBlooms());
+        if (candidates.isPresent()) {
+          final long firstBlockInSection = index.getFirstBlockInSection(section);
+          final BitSet candidateBlocks = candidates.get();
+          for (int offset = candidateBlocks.nextSetBit((int) (blockNumber - firstBlockInSection));
+              offset >= 0 && firstBlockInSection + offset <= lastBlockNumber;
+              offset = candidateBlocks.nextSetBit(offset + 1)) {
+            final long candidate = firstBlockInSection + offset;
+            final Hash blockhash = blockchain.getBlockHashByNumber(candidate).get();
+            addMatchingLogs(candidate, blockhash, query, matchingLogs);
+          }
+        } else {
+          addMatchingLogsFromHeaders(blockNumber, lastBlockNumber, query, matchingLogs);
+        }
+        blockNumber = lastBlockNumber + 1;
+      }
+    } else {
+      addMatchingLogsFromHeaders(fromBlockNumber, toBlockNumber, query, matchingLogs);
     }
     return matchingLogs;
   }
 
+  private void addMatchingLogsFromHeaders(
+      final long fromBlockNumber,
+      final long toBlockNumber,
+      final LogsQuery query,
+      final List<LogWithMetadata> matchingLogs) {
+    for (long blockNumber = fromBlockNumber; blockNumber <= toBlockNumber; blockNumber++) {
+      final BlockHeader header = blockchain.getBlockHeader(blockNumber).get();
+      // Only blocks whose logs bloom could match need their receipts loaded
+      if (query.couldMatch(header.getLogsBloom())) {
+        addMatchingLogs(blockNumber, header.getHash(), query, matchingLogs);
+      }
+    }
+  }
+
+  private void addMatchingLogs(
+      final long blockNumber,
+      final Hash blockhash,
+      final LogsQuery query,
+      final List<LogWithMetadata> matchingLogs) {
+    final boolean logHasBeenRemoved = !blockchain.blockIsOnCanonicalChain(blockhash);
+    final List<TransactionReceipt> receipts = blockchain.getTxReceipts(blockhash).get();
+    final List<Transaction> transaction =
+        blockchain.getBlockBody(blockhash).get().getTransactions();
+    generateLogWithMetadata(
+        receipts, blockNumber, query, blockhash, matchingLogs, transaction, logHasBeenRemoved);
+  }
+
   public List<LogWithMetadata> matchingLogs(final Hash blockhash, final LogsQuery query) {
     final List<LogWithMetadata> matchingLogs = Lists.newArrayList();
     Optional<BlockHeader> blockHeader = blockchain.getBlockHeader(blockhash);
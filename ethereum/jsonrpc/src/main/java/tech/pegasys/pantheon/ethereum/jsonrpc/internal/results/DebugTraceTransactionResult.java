@@ -45,7 +45,7 @@ public class DebugTraceTransactionResult {
     return traces.stream().map(DebugTraceTransactionResult::new).collect(Collectors.toList());
   }
 
-  private static StructLog createStructLog(final TraceFrame frame) {
+  static StructLog createStructLog(final TraceFrame frame) {
     return frame.getExceptionalHaltReasons().isEmpty()
         ? new StructLog(frame)
         : new StructLogWithError(frame);
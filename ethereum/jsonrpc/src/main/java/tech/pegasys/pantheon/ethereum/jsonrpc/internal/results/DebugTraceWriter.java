@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.jsonrpc.internal.results;
+
+import tech.pegasys.pantheon.ethereum.debug.TraceFrame;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.TransactionTrace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Writes debug trace results for one or more transactions to a {@link JsonGenerator} as they are
+ * produced. Each transaction is written as an object with its struct logs first, followed by the
+ * gas, failed and returnValue fields, which are only known once the transaction has executed.
+ */
+class DebugTraceWriter {
+
+  private final JsonGenerator generator;
+  private final SerializerProvider provider;
+  private boolean transactionOpen;
+
+  DebugTraceWriter(final JsonGenerator generator, final SerializerProvider provider) {
+    this.generator = generator;
+    this.provider = provider;
+  }
+
+  /**
+   * Writes a trace frame as a struct log. Called from inside the EVM, so write failures are thrown
+   * as {@link UncheckedIOException} to abort execution.
+   *
+   * @param traceFrame the trace frame to write
+   */
+  void writeTraceFrame(final TraceFrame traceFrame) {
+    try {
+      openTransaction();
+      provider.defaultSerializeValue(
+          DebugTraceTransactionResult.createStructLog(traceFrame), generator);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  void writeTransactionResult(final TransactionTrace transactionTrace) throws IOException {
+    openTransaction();
+    // The struct logs have already been written, so the summary result won't contain any.
+    final DebugTraceTransactionResult result = new DebugTraceTransactionResult(transactionTrace);
+    generator.writeEndArray();
+    generator.writeNumberField("gas", result.getGas());
+    generator.writeBooleanField("failed", result.failed());
+    generator.writeStringField("returnValue", result.getReturnValue());
+    generator.writeEndObject();
+    transactionOpen = false;
+  }
+
+  boolean isTransactionOpen() {
+    return transactionOpen;
+  }
+
+  private void openTransaction() throws IOException {
+    if (!transactionOpen) {
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("structLogs");
+      transactionOpen = true;
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.jsonrpc.internal.results;
+
+import tech.pegasys.pantheon.ethereum.debug.TraceOptions;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.BlockTrace;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.TransactionTrace;
+import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * A debug trace of every transaction in a block which replays the block while it is being
+ * serialised, writing each struct log as soon as its operation has executed and each transaction's
+ * result as soon as it completes.
+ */
+public class StreamingDebugTraceBlockResult extends JsonSerializable.Base {
+
+  @FunctionalInterface
+  public interface BlockTraceRunner {
+    Optional<BlockTrace> trace(
+        DebugOperationTracer tracer, Consumer<TransactionTrace> transactionTraceListener);
+  }
+
+  private final TraceOptions traceOptions;
+  private final BlockTraceRunner blockTracer;
+
+  /**
+   * @param traceOptions what to record for each operation
+   * @param blockTracer traces the block using the supplied tracer, passing each transaction's
+   *     trace to the listener as soon as it completes
+   */
+  public StreamingDebugTraceBlockResult(
+      final TraceOptions traceOptions, final BlockTraceRunner blockTracer) {
+    this.traceOptions = traceOptions;
+    this.blockTracer = blockTracer;
+  }
+
+  @Override
+  public void serialize(final JsonGenerator generator, final SerializerProvider provider)
+      throws IOException {
+    final DebugTraceWriter writer = new DebugTraceWriter(generator, provider);
+    generator.writeStartArray();
+    try {
+      blockTracer.trace(
+          new DebugOperationTracer(traceOptions, writer::writeTraceFrame),
+          transactionTrace -> {
+            try {
+              writer.writeTransactionResult(transactionTrace);
+            } catch (final IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          });
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+    generator.writeEndArray();
+  }
+
+  @Override
+  public void serializeWithType(
+      final JsonGenerator generator,
+      final SerializerProvider provider,
+      final TypeSerializer typeSerializer)
+      throws IOException {
+    serialize(generator, provider);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.jsonrpc.internal.results;
+
+import tech.pegasys.pantheon.ethereum.debug.TraceOptions;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.processor.TransactionTrace;
+import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+/**
+ * A debug trace of a single transaction which executes the transaction while it is being
+ * serialised, writing each struct log as soon as its operation has executed. Unlike {@link
+ * DebugTraceTransactionResult} the trace is never held in memory, so the response size doesn't
+ * affect heap usage.
+ */
+public class StreamingDebugTraceTransactionResult extends JsonSerializable.Base {
+
+  private final TraceOptions traceOptions;
+  private final Function<DebugOperationTracer, Optional<TransactionTrace>> transactionTracer;
+
+  /**
+   * @param traceOptions what to record for each operation
+   * @param transactionTracer traces the transaction using the supplied tracer
+   */
+  public StreamingDebugTraceTransactionResult(
+      final TraceOptions traceOptions,
+      final Function<DebugOperationTracer, Optional<TransactionTrace>> transactionTracer) {
+    this.traceOptions = traceOptions;
+    this.transactionTracer = transactionTracer;
+  }
+
+  @Override
+  public void serialize(final JsonGenerator generator, final SerializerProvider provider)
+      throws IOException {
+    final DebugTraceWriter writer = new DebugTraceWriter(generator, provider);
+    final Optional<TransactionTrace> transactionTrace;
+    try {
+      transactionTrace =
+          transactionTracer.apply(new DebugOperationTracer(traceOptions, writer::writeTraceFrame));
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    if (transactionTrace.isPresent()) {
+      writer.writeTransactionResult(transactionTrace.get());
+    } else if (writer.isTransactionOpen()) {
+      throw new IllegalStateException("Transaction traced but no result returned");
+    } else {
+      generator.writeNull();
+    }
+  }
+
+  @Override
+  public void serializeWithType(
+      final JsonGenerator generator,
+      final SerializerProvider provider,
+      final TypeSerializer typeSerializer)
+      throws IOException {
+    serialize(generator, provider);
+  }
+}
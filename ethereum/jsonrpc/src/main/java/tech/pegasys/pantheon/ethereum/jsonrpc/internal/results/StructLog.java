@@ -14,18 +14,34 @@ package tech.pegasys.pantheon.ethereum.jsonrpc.internal.results;
 
 import tech.pegasys.pantheon.ethereum.core.Gas;
 import tech.pegasys.pantheon.ethereum.debug.TraceFrame;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.Bytes32s;
 import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
 
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
-@JsonPropertyOrder({"pc", "op", "gas", "gasCost", "depth", "stack", "memory", "storage"})
+@JsonPropertyOrder({
+  "pc",
+  "op",
+  "gas",
+  "gasCost",
+  "depth",
+  "stack",
+  "memory",
+  "storage",
+  "memSize",
+  "memoryChanges",
+  "storageChanges"
+})
 public class StructLog {
 
   private final int depth;
@@ -37,6 +53,9 @@ public class StructLog {
   private final String[] stack;
   private final Object storage;
   private final String reason;
+  private final Long memSize;
+  private final Map<String, String> memoryChanges;
+  private final Map<String, String> storageChanges;
 
   public StructLog(final TraceFrame traceFrame) {
     depth = traceFrame.getDepth() + 1;
@@ -56,6 +75,17 @@ public class StructLog {
             .orElse(null);
     storage = traceFrame.getStorage().map(StructLog::formatStorage).orElse(null);
     reason = traceFrame.getRevertReason();
+    memSize = traceFrame.getMemoryChanges().isPresent() ? traceFrame.getMemorySize() : null;
+    memoryChanges = traceFrame.getMemoryChanges().map(StructLog::formatMemoryChanges).orElse(null);
+    storageChanges = traceFrame.getStorageChanges().map(StructLog::formatStorage).orElse(null);
+  }
+
+  private static Map<String, String> formatMemoryChanges(final Map<Integer, Bytes32> changes) {
+    final Map<String, String> formattedChanges = new LinkedHashMap<>();
+    changes.forEach(
+        (index, word) ->
+            formattedChanges.put(String.valueOf(index), Bytes32s.unprefixedHexString(word)));
+    return formattedChanges;
   }
 
   private static Map<String, String> formatStorage(final Map<UInt256, UInt256> storage) {
@@ -111,6 +141,24 @@ public class StructLog {
     return reason;
   }
 
+  @JsonGetter("memSize")
+  @JsonInclude(Include.NON_NULL)
+  public Long memSize() {
+    return memSize;
+  }
+
+  @JsonGetter("memoryChanges")
+  @JsonInclude(Include.NON_NULL)
+  public Map<String, String> memoryChanges() {
+    return memoryChanges;
+  }
+
+  @JsonGetter("storageChanges")
+  @JsonInclude(Include.NON_NULL)
+  public Map<String, String> storageChanges() {
+    return storageChanges;
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
@@ -127,12 +175,17 @@ public class StructLog {
         && Arrays.equals(memory, structLog.memory)
         && Objects.equals(op, structLog.op)
         && Arrays.equals(stack, structLog.stack)
-        && Objects.equals(storage, structLog.storage);
+        && Objects.equals(storage, structLog.storage)
+        && Objects.equals(memSize, structLog.memSize)
+        && Objects.equals(memoryChanges, structLog.memoryChanges)
+        && Objects.equals(storageChanges, structLog.storageChanges);
   }
 
   @Override
   public int hashCode() {
-    int result = Objects.hash(depth, gas, gasCost, op, pc, storage);
+    int result =
+        Objects.hash(
+            depth, gas, gasCost, op, pc, storage, memSize, memoryChanges, storageChanges);
     result = 31 * result + Arrays.hashCode(memory);
     result = 31 * result + Arrays.hashCode(stack);
     return result;
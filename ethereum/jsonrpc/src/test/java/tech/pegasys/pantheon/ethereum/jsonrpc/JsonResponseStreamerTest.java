@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.jsonrpc;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class JsonResponseStreamerTest {
+
+  private final HttpServerResponse response = mock(HttpServerResponse.class);
+  private final List<String> chunks = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    when(response.write(any(Buffer.class)))
+        .thenAnswer(
+            invocation -> {
+              chunks.add(invocation.<Buffer>getArgument(0).toString(UTF_8));
+              return response;
+            });
+  }
+
+  @Test
+  public void shouldWriteOutputInChunksAndEndResponseOnClose() throws IOException {
+    final JsonResponseStreamer streamer = new JsonResponseStreamer(response, 4);
+
+    streamer.write("{\"result\":".getBytes(UTF_8));
+    streamer.write('1');
+    streamer.write('}');
+    verify(response, never()).end();
+
+    streamer.close();
+
+    verify(response).setChunked(true);
+    assertThat(chunks).containsExactly("{\"re", "sult", "\":1}");
+    assertThat(String.join("", chunks)).isEqualTo("{\"result\":1}");
+    verify(response).end();
+  }
+
+  @Test
+  public void shouldOnlyEndResponseOnce() throws IOException {
+    final JsonResponseStreamer streamer = new JsonResponseStreamer(response, 4);
+    streamer.write('1');
+
+    streamer.close();
+    streamer.close();
+
+    verify(response).end();
+    assertThatThrownBy(() -> streamer.write('2')).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  public void shouldWaitForWriteQueueToDrainBeforeWritingMore() throws Exception {
+    final AtomicReference<Handler<Void>> drainHandler = new AtomicReference<>();
+    when(response.drainHandler(any()))
+        .thenAnswer(
+            invocation -> {
+              drainHandler.set(invocation.getArgument(0));
+              return response;
+            });
+    when(response.writeQueueFull()).thenReturn(true);
+    final JsonResponseStreamer streamer = new JsonResponseStreamer(response, 2);
+
+    final CompletableFuture<Void> written =
+        CompletableFuture.runAsync(
+            () -> {
+              try {
+                streamer.write("abcd".getBytes(UTF_8));
+              } catch (final IOException e) {
+                throw new RuntimeException(e);
+              }
+            });
+
+    while (drainHandler.get() == null) {
+      Thread.sleep(10);
+    }
+    assertThat(written).isNotDone();
+    assertThat(chunks).isEmpty();
+
+    when(response.writeQueueFull()).thenReturn(false);
+    drainHandler.get().handle(null);
+
+    written.get(10, TimeUnit.SECONDS);
+    assertThat(chunks).containsExactly("ab");
+  }
+
+  @Test
+  public void shouldCloseConnectionWhenClientDoesNotReadWithinWriteTimeout() {
+    when(response.writeQueueFull()).thenReturn(true);
+    final JsonResponseStreamer streamer = new JsonResponseStreamer(response, 2, 10);
+
+    assertThatThrownBy(() -> streamer.write("abcd".getBytes(UTF_8)))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Timed out waiting for client to read response");
+    verify(response).close();
+    assertThat(chunks).isEmpty();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void shouldFailWritesOnceConnectionIsClosed() {
+    final ArgumentCaptor<Handler<Void>> closeHandler = ArgumentCaptor.forClass(Handler.class);
+    final JsonResponseStreamer streamer = new JsonResponseStreamer(response, 2);
+    verify(response).closeHandler(closeHandler.capture());
+    when(response.writeQueueFull()).thenReturn(true);
+
+    closeHandler.getValue().handle(null);
+
+    assertThatThrownBy(() -> streamer.write("abcd".getBytes(UTF_8)))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Connection closed by client");
+    assertThat(chunks).isEmpty();
+    verify(response, never()).end();
+  }
+}
@@ -17,9 +17,12 @@ import static org.assertj.core.api.Assertions.assertThat;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.Log;
 import tech.pegasys.pantheon.ethereum.core.LogTopic;
+import tech.pegasys.pantheon.ethereum.core.LogsBloomFilter;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.google.common.collect.Lists;
@@ -414,4 +417,56 @@ public class LogsQueryTest {
 
     assertThat(query.matches(log)).isTrue();
   }
+
+  @Test
+  public void couldMatchBloomContainingLog() {
+    final Address address = Address.fromHexString("0x1111111111111111111111111111111111111111");
+    final LogTopic topic =
+        LogTopic.fromHexString(
+            "0xaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+    final Log log =
+        new Log(address, BytesValue.fromHexString("0x0102"), Collections.singletonList(topic));
+    final LogsQuery query =
+        new LogsQuery.Builder()
+            .address(address)
+            .topics(Collections.singletonList(Collections.singletonList(topic)))
+            .build();
+
+    assertThat(query.couldMatch(LogsBloomFilter.compute(Collections.singletonList(log)))).isTrue();
+  }
+
+  @Test
+  public void couldNotMatchBloomWithoutQueriedAddress() {
+    final Address address1 = Address.fromHexString("0x1111111111111111111111111111111111111111");
+    final Address address2 = Address.fromHexString("0x2222222222222222222222222222222222222222");
+    final Log log = new Log(address2, BytesValue.fromHexString("0x0102"), new ArrayList<>());
+    final LogsQuery query = new LogsQuery.Builder().address(address1).build();
+
+    assertThat(query.couldMatch(LogsBloomFilter.compute(Collections.singletonList(log))))
+        .isFalse();
+  }
+
+  @Test
+  public void wildcardTopicDoesNotConstrainBloom() {
+    final Address address = Address.fromHexString("0x1111111111111111111111111111111111111111");
+    final LogTopic topic =
+        LogTopic.fromHexString(
+            "0xaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+    final Log log = new Log(address, BytesValue.fromHexString("0x0102"), new ArrayList<>());
+    final LogsQuery query =
+        new LogsQuery.Builder()
+            .address(address)
+            .topics(Collections.singletonList(Arrays.asList(topic, null)))
+            .build();
+
+    assertThat(query.getQueryBlooms()).hasSize(1);
+    assertThat(query.couldMatch(LogsBloomFilter.compute(Collections.singletonList(log)))).isTrue();
+  }
+
+  @Test
+  public void emptyQueryCouldMatchEmptyBloom() {
+    final LogsQuery query = new LogsQuery.Builder().build();
+
+    assertThat(query.couldMatch(LogsBloomFilter.empty())).isTrue();
+  }
 }
@@ -12,16 +12,21 @@
  */
 package tech.pegasys.pantheon.ethereum.jsonrpc.internal.methods;
 
+import static java.util.Collections.emptyList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
 import tech.pegasys.pantheon.ethereum.core.Gas;
 import tech.pegasys.pantheon.ethereum.core.Hash;
+import tech.pegasys.pantheon.ethereum.core.MessageFrameTestFixture;
 import tech.pegasys.pantheon.ethereum.core.Transaction;
 import tech.pegasys.pantheon.ethereum.debug.TraceFrame;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.JsonRpcRequest;
@@ -32,10 +37,17 @@ import tech.pegasys.pantheon.ethereum.jsonrpc.internal.queries.BlockchainQueries
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.queries.TransactionWithMetadata;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.response.JsonRpcSuccessResponse;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.DebugTraceTransactionResult;
+import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.StreamingDebugTraceTransactionResult;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.results.StructLog;
+import tech.pegasys.pantheon.ethereum.mainnet.ConstantinopleGasCalculator;
 import tech.pegasys.pantheon.ethereum.mainnet.TransactionProcessor.Result;
+import tech.pegasys.pantheon.ethereum.vm.DebugOperationTracer;
 import tech.pegasys.pantheon.ethereum.vm.ExceptionalHaltReason;
+import tech.pegasys.pantheon.ethereum.vm.MessageFrame;
+import tech.pegasys.pantheon.ethereum.vm.operations.StopOperation;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
+import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.util.Collections;
 import java.util.EnumSet;
@@ -44,6 +56,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import org.junit.Test;
 
 public class DebugTraceTransactionTest {
@@ -147,4 +162,66 @@ public class DebugTraceTransactionTest {
 
     assertNull(response.getResult());
   }
+
+  @Test
+  public void shouldStreamTraceWhenRequested() throws Exception {
+    final TransactionWithMetadata transactionWithMetadata =
+        new TransactionWithMetadata(transaction, 12L, blockHash, 2);
+    final Map<String, Boolean> map = new HashMap<>();
+    map.put("disableStack", true);
+    map.put("disableStorage", true);
+    map.put("diffs", true);
+    map.put("streaming", true);
+    final Object[] params = new Object[] {transactionHash, map};
+    final JsonRpcRequest request = new JsonRpcRequest("2.0", "debug_traceTransaction", params);
+    final Result result = mock(Result.class);
+    final MessageFrame frame = new MessageFrameTestFixture().build();
+    frame.setCurrentOperation(new StopOperation(new ConstantinopleGasCalculator()));
+    final Bytes32 word = Bytes32.fromHexString("0x01");
+    frame.writeMemory(UInt256.of(32), UInt256.of(32), word);
+
+    when(transaction.getGasLimit()).thenReturn(100L);
+    when(result.getGasRemaining()).thenReturn(27L);
+    when(result.getOutput()).thenReturn(BytesValue.fromHexString("1234"));
+    when(result.isSuccessful()).thenReturn(true);
+    when(blockchain.transactionByHash(transactionHash))
+        .thenReturn(Optional.of(transactionWithMetadata));
+    when(transactionTracer.traceTransaction(eq(blockHash), eq(transactionHash), any()))
+        .thenAnswer(
+            invocation -> {
+              final DebugOperationTracer tracer = invocation.getArgument(2);
+              tracer.traceExecution(frame, Optional.of(Gas.ZERO), () -> {});
+              return Optional.of(new TransactionTrace(transaction, result, emptyList()));
+            });
+
+    final JsonRpcSuccessResponse response =
+        (JsonRpcSuccessResponse) debugTraceTransaction.response(request);
+    // The transaction is only traced as the response is serialised.
+    verify(transactionTracer, never()).traceTransaction(any(), any(), any());
+    assertTrue(response.getResult() instanceof StreamingDebugTraceTransactionResult);
+
+    final JsonObject json = new JsonObject(Json.encode(response.getResult()));
+    assertEquals(
+        new JsonObject()
+            .put(
+                "structLogs",
+                new JsonArray()
+                    .add(
+                        new JsonObject()
+                            .put("pc", 0)
+                            .put("op", "STOP")
+                            .put("gas", frame.getRemainingGas().toLong())
+                            .put("gasCost", 0)
+                            .put("depth", 1)
+                            .putNull("stack")
+                            .putNull("memory")
+                            .putNull("storage")
+                            .put("memSize", 64)
+                            .put("memoryChanges", new JsonObject().put("1", word.toUnprefixedString()))
+                            .putNull("reason")))
+            .put("gas", 73)
+            .put("failed", false)
+            .put("returnValue", "1234"),
+        json);
+  }
 }
@@ -70,10 +70,15 @@ public class Framer {
   private static final SnappyCompressor compressor = new SnappyCompressor();
   private final StreamCipher encryptor;
   private final StreamCipher decryptor;
-  private final BlockCipher macEncryptor;
+  private final BlockCipher ingressMacEncryptor;
+  private final BlockCipher egressMacEncryptor;
+  // Deframing and framing use separate ciphers, MACs and MAC ciphers, so they only need to be
+  // serialised with themselves.
+  private final Object ingressLock = new Object();
+  private final Object egressLock = new Object();
   private boolean headerProcessed;
   private int frameSize;
-  private boolean compressionEnabled = false;
+  private volatile boolean compressionEnabled = false;
 
   /**
    * Creates a new framer out of the handshake secrets derived during the cryptographic handshake.
@@ -92,8 +97,11 @@ public class Framer {
     decryptor = new SICBlockCipher(new AESEngine());
     decryptor.init(false, new ParametersWithIV(aesKey, IV));
 
-    macEncryptor = new AESEngine();
-    macEncryptor.init(true, macKey);
+    ingressMacEncryptor = new AESEngine();
+    ingressMacEncryptor.init(true, macKey);
+
+    egressMacEncryptor = new AESEngine();
+    egressMacEncryptor.init(true, macKey);
   }
 
   public void enableCompression() {
@@ -130,30 +138,32 @@ public class Framer {
    *     could be extracted yet.
    * @throws FramingException Thrown when a decryption or internal error occurs.
    */
-  public synchronized MessageData deframe(final ByteBuf buf) throws FramingException {
+  public MessageData deframe(final ByteBuf buf) throws FramingException {
     if (buf == null || !buf.isReadable()) {
       return null;
     }
 
-    if (!headerProcessed) {
-      // We don't have enough bytes to read the header.
-      if (buf.readableBytes() < LENGTH_FULL_HEADER) {
+    synchronized (ingressLock) {
+      if (!headerProcessed) {
+        // We don't have enough bytes to read the header.
+        if (buf.readableBytes() < LENGTH_FULL_HEADER) {
+          return null;
+        }
+        frameSize = processHeader(buf.readSlice(LENGTH_FULL_HEADER));
+        headerProcessed = true;
+        buf.discardReadBytes();
+      }
+
+      final int size = frameSize + padding16(frameSize) + LENGTH_MAC;
+      if (buf.readableBytes() < size) {
         return null;
       }
-      frameSize = processHeader(buf.readSlice(LENGTH_FULL_HEADER));
-      headerProcessed = true;
-      buf.discardReadBytes();
-    }
 
-    final int size = frameSize + padding16(frameSize) + LENGTH_MAC;
-    if (buf.readableBytes() < size) {
-      return null;
+      final MessageData msg = processFrame(buf.readSlice(size), frameSize);
+      buf.discardReadBytes();
+      headerProcessed = false;
+      return msg;
     }
-
-    final MessageData msg = processFrame(buf.readSlice(size), frameSize);
-    buf.discardReadBytes();
-    headerProcessed = false;
-    return msg;
   }
 
   /**
@@ -179,12 +189,9 @@ public class Framer {
     encryptedHeader.readBytes(hCipher).readBytes(hMac);
 
     // Header MAC validation.
-    byte[] expectedMac = new byte[16];
-    macEncryptor.processBlock(secrets.getIngressMac(), 0, expectedMac, 0);
-    expectedMac = secrets.updateIngress(xor(expectedMac, hCipher)).getIngressMac();
-    expectedMac = Arrays.copyOf(expectedMac, LENGTH_MAC);
-
-    validateMac(hMac, expectedMac);
+    final byte[] macSeed = new byte[16];
+    ingressMacEncryptor.processBlock(secrets.getIngressMac(), 0, macSeed, 0);
+    validateMac(hMac, secrets.updateIngress(xor(macSeed, hCipher)).getIngressMac());
 
     // Perform the header decryption.
     decryptor.processBytes(hCipher, 0, hCipher.length, hCipher, 0);
@@ -236,6 +243,8 @@ public class Framer {
       throw error("Expected %s bytes in header, got %s", expectedSize, f.readableBytes());
     }
 
+    // The frame is copied out of the connection's buffer once, as that buffer gets reused. It is
+    // then authenticated, decrypted and decompressed from that copy without copying it again.
     final byte[] frameData = new byte[frameSize + pad];
     final byte[] fMac = new byte[LENGTH_MAC];
     f.readBytes(frameData).readBytes(fMac);
@@ -243,13 +252,10 @@ public class Framer {
     // Validate the frame's MAC.
     final byte[] fMacSeed = secrets.updateIngress(frameData).getIngressMac();
     final byte[] fMacSeedEnc = new byte[16];
-    macEncryptor.processBlock(fMacSeed, 0, fMacSeedEnc, 0);
-    byte[] expectedMac = secrets.updateIngress(xor(fMacSeedEnc, fMacSeed)).getIngressMac();
-    expectedMac = Arrays.copyOf(expectedMac, LENGTH_MAC);
+    ingressMacEncryptor.processBlock(fMacSeed, 0, fMacSeedEnc, 0);
+    validateMac(fMac, secrets.updateIngress(xor(fMacSeedEnc, fMacSeed)).getIngressMac());
 
-    validateMac(fMac, expectedMac);
-
-    // Decrypt frame data.
+    // Decrypt frame data in place.
     decryptor.processBytes(frameData, 0, frameData.length, frameData, 0);
 
     // Read the id.
@@ -257,29 +263,34 @@ public class Framer {
     final int id = idbv.isZero() || idbv.size() == 0 ? 0 : idbv.get(0);
 
     // Write message data to ByteBuf, decompressing as necessary
+    final int messageLength = frameSize - LENGTH_MESSAGE_ID;
     final BytesValue data;
     if (compressionEnabled) {
-      final byte[] compressedMessageData = Arrays.copyOfRange(frameData, 1, frameData.length - pad);
-      final int uncompressedLength = compressor.uncompressedLength(compressedMessageData);
+      final int uncompressedLength =
+          compressor.uncompressedLength(frameData, LENGTH_MESSAGE_ID, messageLength);
       if (uncompressedLength >= LENGTH_MAX_MESSAGE_FRAME) {
         throw error("Message size %s in excess of maximum length.", uncompressedLength);
       }
-      final byte[] decompressedMessageData = compressor.decompress(compressedMessageData);
+      final byte[] decompressedMessageData = new byte[uncompressedLength];
+      compressor.decompress(frameData, LENGTH_MESSAGE_ID, messageLength, decompressedMessageData);
       data = BytesValue.wrap(decompressedMessageData);
     } else {
-      // Move data to a ByteBuf
-      final int messageLength = frameSize - LENGTH_MESSAGE_ID;
-      data = BytesValue.wrap(frameData, 1, messageLength);
+      data = BytesValue.wrap(frameData, LENGTH_MESSAGE_ID, messageLength);
     }
 
     return new RawMessage(id, data);
   }
 
+  // Only the first LENGTH_MAC bytes of the expected MAC, which is a full digest snapshot, are used.
   private void validateMac(final byte[] candidateMac, final byte[] expectedMac) {
-    if (!Arrays.equals(expectedMac, candidateMac)) {
+    int diff = 0;
+    for (int i = 0; i < LENGTH_MAC; i++) {
+      diff |= candidateMac[i] ^ expectedMac[i];
+    }
+    if (diff != 0) {
       throw error(
           "Frame MAC did not match expected MAC; expected: %s, received: %s",
-          hexDump(expectedMac), hexDump(candidateMac));
+          hexDump(expectedMac, 0, LENGTH_MAC), hexDump(candidateMac));
     }
   }
 
@@ -290,27 +301,54 @@ public class Framer {
    * @param message The message to frame.
    * @param output The {@link ByteBuf} to write framed data to.
    */
-  public synchronized void frame(final MessageData message, final ByteBuf output) {
+  public void frame(final MessageData message, final ByteBuf output) {
     Preconditions.checkArgument(
         message.getSize() < LENGTH_MAX_MESSAGE_FRAME, "Message size in excess of maximum length.");
-    // Compress message
-    if (compressionEnabled) {
-      // Extract data from message
-      // Compress data
-      final byte[] compressed = compressor.compress(message.getData().getArrayUnsafe());
-      // Construct new, compressed message
-      frameMessage(new RawMessage(message.getCode(), BytesValue.wrap(compressed)), output);
-    } else {
-      frameMessage(message, output);
+    synchronized (egressLock) {
+      if (compressionEnabled) {
+        // Compress straight into the frame, after the message id, rather than into a separate
+        // array that then gets copied into the frame.
+        final byte[] uncompressed = message.getData().getArrayUnsafe();
+        final byte[] f =
+            new byte[frameCapacity(compressor.maxCompressedLength(uncompressed.length))];
+        final int compressedLength =
+            compressor.compress(uncompressed, 0, uncompressed.length, f, LENGTH_MESSAGE_ID);
+        writeFrame(message.getCode(), f, compressedLength, output);
+      } else {
+        frameMessage(message, output);
+      }
     }
   }
 
   @VisibleForTesting
   void frameMessage(final MessageData message, final ByteBuf buf) {
-    final int frameSize = message.getSize() + LENGTH_MESSAGE_ID;
+    final byte[] f = new byte[frameCapacity(message.getSize())];
+    message.getData().copyTo(f, 0, LENGTH_MESSAGE_ID);
+    writeFrame(message.getCode(), f, message.getSize(), buf);
+  }
+
+  // The size of an array that can hold a frame for a message of the given size, including the
+  // message id and padding.
+  private static int frameCapacity(final int messageSize) {
+    final int frameSize = messageSize + LENGTH_MESSAGE_ID;
+    return frameSize + padding16(frameSize);
+  }
+
+  /**
+   * Encrypts a frame in place and writes it, along with its header and MACs, to the buffer.
+   *
+   * @param code The message code.
+   * @param f The frame, holding the message data after the message id. It may be larger than the
+   *     padded frame.
+   * @param messageSize The size of the message data in {@code f}.
+   * @param buf The {@link ByteBuf} to write framed data to.
+   */
+  private void writeFrame(final int code, final byte[] f, final int messageSize, final ByteBuf buf) {
+    final int frameSize = messageSize + LENGTH_MESSAGE_ID;
     final int pad = padding16(frameSize);
+    final int paddedSize = frameSize + pad;
 
-    final byte id = (byte) message.getCode();
+    final byte id = (byte) code;
 
     // Generate the header data.
     final byte[] h = new byte[LENGTH_HEADER_DATA];
@@ -323,29 +361,28 @@ public class Framer {
 
     // Generate the header MAC.
     byte[] hMac = Arrays.copyOf(secrets.getEgressMac(), LENGTH_MAC);
-    macEncryptor.processBlock(hMac, 0, hMac, 0);
+    egressMacEncryptor.processBlock(hMac, 0, hMac, 0);
     hMac = secrets.updateEgress(xor(h, hMac)).getEgressMac();
     hMac = Arrays.copyOf(hMac, LENGTH_MAC);
     buf.writeBytes(h).writeBytes(hMac);
 
     // Encrypt payload.
-    final byte[] f = new byte[frameSize + pad];
-
     final BytesValue bv = id == 0 ? RLP.NULL : RLP.encodeOne(BytesValue.of(id));
     assert bv.size() == 1;
     f[0] = bv.get(0);
 
     // Zero-padded to 16-byte boundary.
-    message.getData().copyTo(f, 0, 1);
-    encryptor.processBytes(f, 0, f.length, f, 0);
+    Arrays.fill(f, frameSize, paddedSize, (byte) 0x00);
+    encryptor.processBytes(f, 0, paddedSize, f, 0);
 
     // Calculate the frame MAC.
-    final byte[] fMacSeed = Arrays.copyOf(secrets.updateEgress(f).getEgressMac(), LENGTH_MAC);
+    final byte[] fMacSeed =
+        Arrays.copyOf(secrets.updateEgress(f, 0, paddedSize).getEgressMac(), LENGTH_MAC);
     byte[] fMac = new byte[16];
-    macEncryptor.processBlock(fMacSeed, 0, fMac, 0);
+    egressMacEncryptor.processBlock(fMacSeed, 0, fMac, 0);
     fMac = Arrays.copyOf(secrets.updateEgress(xor(fMac, fMacSeed)).getEgressMac(), LENGTH_MAC);
 
-    buf.writeBytes(f).writeBytes(fMac);
+    buf.writeBytes(f, 0, paddedSize).writeBytes(fMac);
   }
 
   private static int padding16(final int size) {
@@ -34,6 +34,35 @@ public class SnappyCompressor {
     }
   }
 
+  /**
+   * Compresses a range of bytes into the provided array.
+   *
+   * @param uncompressed The array holding the data to compress.
+   * @param offset The offset of the data to compress.
+   * @param length The length of the data to compress.
+   * @param output The array to write compressed data to, which must have at least {@link
+   *     #maxCompressedLength(int)} bytes available from {@code outputOffset}.
+   * @param outputOffset The offset in {@code output} to write compressed data at.
+   * @return The length of the compressed data.
+   */
+  public int compress(
+      final byte[] uncompressed,
+      final int offset,
+      final int length,
+      final byte[] output,
+      final int outputOffset) {
+    checkNotNull(uncompressed, "input data must not be null");
+    try {
+      return Snappy.compress(uncompressed, offset, length, output, outputOffset);
+    } catch (final IOException e) {
+      throw new FramingException("Snappy compression failed", e);
+    }
+  }
+
+  public int maxCompressedLength(final int uncompressedLength) {
+    return Snappy.maxCompressedLength(uncompressedLength);
+  }
+
   public byte[] decompress(final byte[] compressed) {
     checkNotNull(compressed, "input data must not be null");
     try {
@@ -43,6 +72,26 @@ public class SnappyCompressor {
     }
   }
 
+  /**
+   * Decompresses a range of bytes into the provided array.
+   *
+   * @param compressed The array holding the compressed data.
+   * @param offset The offset of the compressed data.
+   * @param length The length of the compressed data.
+   * @param output The array to write uncompressed data to, which must have at least {@link
+   *     #uncompressedLength(byte[], int, int)} bytes.
+   * @return The length of the uncompressed data.
+   */
+  public int decompress(
+      final byte[] compressed, final int offset, final int length, final byte[] output) {
+    checkNotNull(compressed, "input data must not be null");
+    try {
+      return Snappy.uncompress(compressed, offset, length, output, 0);
+    } catch (final IOException e) {
+      throw new FramingException("Snappy decompression failed", e);
+    }
+  }
+
   public int uncompressedLength(final byte[] compressed) {
     checkNotNull(compressed, "input data must not be null");
     try {
@@ -51,4 +100,13 @@ public class SnappyCompressor {
       throw new FramingException("Snappy uncompressedLength failed", e);
     }
   }
+
+  public int uncompressedLength(final byte[] compressed, final int offset, final int length) {
+    checkNotNull(compressed, "input data must not be null");
+    try {
+      return Snappy.uncompressedLength(compressed, offset, length);
+    } catch (final IOException e) {
+      throw new FramingException("Snappy uncompressedLength failed", e);
+    }
+  }
 }
@@ -240,6 +240,29 @@ public class FramerTest {
     assertThatThrownBy(() -> receivingFramer.deframe(out)).isInstanceOf(FramingException.class);
   }
 
+  @Test
+  public void compressedFramesShouldRoundTrip() throws IOException {
+    final JsonNode td = MAPPER.readTree(FramerTest.class.getResource("/peer1.json"));
+    final Framer framer = new Framer(secretsFrom(td, false));
+    final Framer deframer = new Framer(secretsFrom(td, true));
+    framer.enableCompression();
+    deframer.enableCompression();
+
+    final ByteBuf buf = Unpooled.buffer();
+    final byte[] data = new byte[1000];
+    for (final int size : new int[] {0, 1, 15, 16, 17, 1000}) {
+      new Random().nextBytes(data);
+      final MessageData message = new RawMessage(0x10, BytesValue.wrap(data, 0, size));
+      framer.frame(message, buf);
+
+      final MessageData deframed = deframer.deframe(buf);
+
+      assertThat(deframed.getCode()).isEqualTo(0x10);
+      assertThat(deframed.getData()).isEqualTo(message.getData());
+    }
+    assertThat(buf.isReadable()).isFalse();
+  }
+
   private HandshakeSecrets secretsFrom(final JsonNode td, final boolean swap) {
     final byte[] aes = decodeHexDump(td.get("aes_secret").asText());
     final byte[] mac = decodeHexDump(td.get("mac_secret").asText());
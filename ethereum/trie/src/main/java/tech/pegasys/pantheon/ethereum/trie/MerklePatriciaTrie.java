@@ -20,6 +20,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /** An Merkle Patricial Trie. */
 public interface MerklePatriciaTrie<K, V> {
@@ -35,6 +36,15 @@ public interface MerklePatriciaTrie<K, V> {
    */
   Optional<V> get(K key);
 
+  /**
+   * Returns the value mapped to a key along with the nodes proving it, or proving that the key
+   * isn't mapped to any value.
+   *
+   * @param key The key for the value.
+   * @return the value, if any, and the nodes on the path to the key.
+   */
+  Proof<V> getValueWithProof(K key);
+
   /**
    * Updates the value mapped to the specified key, creating the mapping if one does not already
    * exist.
@@ -74,4 +84,12 @@ public interface MerklePatriciaTrie<K, V> {
    * @return the requested storage entries as a map of key hash to value.
    */
   Map<Bytes32, V> entriesFrom(Bytes32 startKeyHash, int limit);
+
+  /**
+   * Visits every node in the trie, parents before children. Nodes loaded from storage are released
+   * once their subtree has been visited.
+   *
+   * @param visitor the handler invoked for each node.
+   */
+  void visitAll(Consumer<Node<V>> visitor);
 }
@@ -55,5 +55,8 @@ public interface Node<V> {
   /** @return True if the node needs to be persisted. */
   boolean isDirty();
 
+  /** Release any decoded data held by this node so it can be garbage collected. */
+  default void unload() {}
+
   String print();
 }
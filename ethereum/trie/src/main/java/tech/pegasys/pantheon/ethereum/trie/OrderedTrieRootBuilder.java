@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import static tech.pegasys.pantheon.ethereum.trie.CompactEncoding.bytesToPath;
+
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+
+/**
+ * Computes the root hash of a trie keyed by the RLP encoded index of each value in a list, such as
+ * the transactions and receipts tries of a block.
+ *
+ * <p>Values are appended in list order, so the builder can be fed while the list is being produced
+ * and asked for the root at any point. Nodes keep their hashes once computed, so asking for the
+ * root again only rehashes the nodes leading to values appended since.
+ *
+ * <p>For larger lists, the subtries near the root are hashed in parallel. Index keys don't spread
+ * evenly over the trie (every index from 128 up starts with the same nibble), so forking goes a
+ * few levels down rather than stopping at the root's children.
+ */
+public class OrderedTrieRootBuilder {
+  private static final int PARALLEL_HASHING_THRESHOLD = 64;
+  private static final int PARALLEL_HASHING_DEPTH = 3;
+  private static final ForkJoinPool HASHING_POOL = createHashingPool();
+
+  private final NodeFactory<BytesValue> nodeFactory = new DefaultNodeFactory<>(Function.identity());
+  private Node<BytesValue> root = NullNode.instance();
+  private int size = 0;
+
+  /**
+   * Computes the root hash of the trie for a list of values.
+   *
+   * @param values The encoded values, in list order.
+   * @return The root hash of the trie.
+   */
+  public static Bytes32 rootHash(final List<BytesValue> values) {
+    final OrderedTrieRootBuilder builder = new OrderedTrieRootBuilder();
+    values.forEach(builder::append);
+    return builder.rootHash();
+  }
+
+  /**
+   * Appends a value, keyed by the index following the last appended value.
+   *
+   * @param value The encoded value.
+   * @return This builder.
+   */
+  public OrderedTrieRootBuilder append(final BytesValue value) {
+    final BytesValue key = RLP.encode(out -> out.writeIntScalar(size));
+    root = root.accept(new PutVisitor<>(nodeFactory, value), bytesToPath(key));
+    size++;
+    return this;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the root hash of the trie holding the values appended so far.
+   *
+   * @return The root hash of the trie.
+   */
+  public Bytes32 rootHash() {
+    if (size >= PARALLEL_HASHING_THRESHOLD) {
+      HASHING_POOL.invoke(ForkJoinTask.adapt(() -> hashSubtries(root, 0)));
+    }
+    return root.getHash();
+  }
+
+  // Computes the references of the children of a node, in parallel, so that computing the node's
+  // own hash afterwards finds them cached.
+  private static void hashSubtries(final Node<BytesValue> node, final int depth) {
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (final Node<BytesValue> child : node.getChildren()) {
+      if (child instanceof BranchNode || child instanceof ExtensionNode) {
+        tasks.add(
+            ForkJoinTask.adapt(
+                () -> {
+                  if (depth + 1 < PARALLEL_HASHING_DEPTH) {
+                    hashSubtries(child, depth + 1);
+                  }
+                  child.getRlpRef();
+                }));
+      }
+    }
+    ForkJoinTask.invokeAll(tasks);
+  }
+
+  private static ForkJoinPool createHashingPool() {
+    return new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors(),
+        pool -> {
+          final ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("TrieHashing-" + thread.getPoolIndex());
+          return thread;
+        },
+        null,
+        false);
+  }
+}
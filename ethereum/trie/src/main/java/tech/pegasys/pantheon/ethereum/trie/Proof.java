@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A value read from a trie, along with the trie nodes on the path to its key.
+ *
+ * <p>Given the root hash of the trie, the nodes prove that the key maps to the value, or that the
+ * key isn't in the trie when the value is empty.
+ *
+ * @param <V> The type of values stored by the trie.
+ */
+public class Proof<V> {
+
+  private final Optional<V> value;
+  private final List<BytesValue> proofRelatedNodes;
+
+  public Proof(final Optional<V> value, final List<BytesValue> proofRelatedNodes) {
+    this.value = value;
+    this.proofRelatedNodes = proofRelatedNodes;
+  }
+
+  public Optional<V> getValue() {
+    return value;
+  }
+
+  /** @return The RLP of the root node, followed by every hash referenced node on the path. */
+  public List<BytesValue> getProofRelatedNodes() {
+    return proofRelatedNodes;
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Looks up a value like {@link GetVisitor}, collecting the nodes needed to prove the result. */
+class ProofVisitor<V> extends GetVisitor<V> {
+
+  private final List<BytesValue> proof = new ArrayList<>();
+
+  @Override
+  public Node<V> visit(final ExtensionNode<V> extensionNode, final BytesValue path) {
+    trackNode(extensionNode);
+    return super.visit(extensionNode, path);
+  }
+
+  @Override
+  public Node<V> visit(final BranchNode<V> branchNode, final BytesValue path) {
+    trackNode(branchNode);
+    return super.visit(branchNode, path);
+  }
+
+  @Override
+  public Node<V> visit(final LeafNode<V> leafNode, final BytesValue path) {
+    trackNode(leafNode);
+    return super.visit(leafNode, path);
+  }
+
+  private void trackNode(final Node<V> node) {
+    // The root is always looked up by hash. Other nodes are only looked up by hash if they're too
+    // large to be embedded in their parent, and are otherwise part of a node already tracked.
+    if (proof.isEmpty() || node.isReferencedByHash()) {
+      proof.add(node.getRlp());
+    }
+  }
+
+  List<BytesValue> getProof() {
+    return proof;
+  }
+}
@@ -20,6 +20,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -50,6 +51,14 @@ public class SimpleMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
     return root.accept(getVisitor, bytesToPath(key)).getValue();
   }
 
+  @Override
+  public Proof<V> getValueWithProof(final K key) {
+    checkNotNull(key);
+    final ProofVisitor<V> proofVisitor = new ProofVisitor<>();
+    final Optional<V> value = root.accept(proofVisitor, bytesToPath(key)).getValue();
+    return new Proof<>(value, proofVisitor.getProof());
+  }
+
   @Override
   public void put(final K key, final V value) {
     checkNotNull(key);
@@ -63,6 +72,11 @@ public class SimpleMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
     this.root = root.accept(removeVisitor, bytesToPath(key));
   }
 
+  @Override
+  public void visitAll(final Consumer<Node<V>> visitor) {
+    root.accept(new AllNodesVisitor<>(visitor));
+  }
+
   @Override
   public Bytes32 getRootHash() {
     return root.getHash();
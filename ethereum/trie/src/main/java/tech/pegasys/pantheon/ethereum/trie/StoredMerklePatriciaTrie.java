@@ -20,6 +20,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -62,7 +63,29 @@ public class StoredMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
       final Bytes32 rootHash,
       final Function<V, BytesValue> valueSerializer,
       final Function<BytesValue, V> valueDeserializer) {
-    this.nodeFactory = new StoredNodeFactory<>(nodeLoader, valueSerializer, valueDeserializer);
+    this(nodeLoader, rootHash, valueSerializer, valueDeserializer, Optional.empty());
+  }
+
+  /**
+   * Create a trie, optionally sharing decoded nodes with other tries through a {@link
+   * TrieNodeCache}.
+   *
+   * @param nodeLoader The {@link NodeLoader} to retrieve node data from.
+   * @param rootHash The initial root has for the trie, which should be already present in {@code
+   *     storage}.
+   * @param valueSerializer A function for serializing values to bytes.
+   * @param valueDeserializer A function for deserializing values from bytes.
+   * @param nodeCache The cache of decoded nodes, if any. A cache must only be shared by tries
+   *     reading from the same storage with the same value serialization.
+   */
+  public StoredMerklePatriciaTrie(
+      final NodeLoader nodeLoader,
+      final Bytes32 rootHash,
+      final Function<V, BytesValue> valueSerializer,
+      final Function<BytesValue, V> valueDeserializer,
+      final Optional<TrieNodeCache<V>> nodeCache) {
+    this.nodeFactory =
+        new StoredNodeFactory<>(nodeLoader, valueSerializer, valueDeserializer, nodeCache);
     this.root =
         rootHash.equals(MerklePatriciaTrie.EMPTY_TRIE_NODE_HASH)
             ? NullNode.instance()
@@ -75,6 +98,14 @@ public class StoredMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
     return root.accept(getVisitor, bytesToPath(key)).getValue();
   }
 
+  @Override
+  public Proof<V> getValueWithProof(final K key) {
+    checkNotNull(key);
+    final ProofVisitor<V> proofVisitor = new ProofVisitor<>();
+    final Optional<V> value = root.accept(proofVisitor, bytesToPath(key)).getValue();
+    return new Proof<>(value, proofVisitor.getProof());
+  }
+
   @Override
   public void put(final K key, final V value) {
     checkNotNull(key);
@@ -109,6 +140,11 @@ public class StoredMerklePatriciaTrie<K extends BytesValue, V> implements Merkle
     return StorageEntriesCollector.collectEntries(root, startKeyHash, limit);
   }
 
+  @Override
+  public void visitAll(final Consumer<Node<V>> visitor) {
+    root.accept(new AllNodesVisitor<>(visitor));
+  }
+
   @Override
   public Bytes32 getRootHash() {
     return root.getHash();
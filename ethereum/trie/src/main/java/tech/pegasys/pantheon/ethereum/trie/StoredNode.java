@@ -22,7 +22,8 @@ import java.util.Optional;
 class StoredNode<V> implements Node<V> {
   private final StoredNodeFactory<V> nodeFactory;
   private final Bytes32 hash;
-  private Node<V> loaded;
+  // Stored nodes that are children of a cached node are shared by every trie reading that node.
+  private volatile Node<V> loaded;
 
   StoredNode(final StoredNodeFactory<V> nodeFactory, final Bytes32 hash) {
     this.nodeFactory = nodeFactory;
@@ -96,16 +97,24 @@ class StoredNode<V> implements Node<V> {
     return load().replacePath(path);
   }
 
+  @Override
+  public void unload() {
+    loaded = null;
+  }
+
   private Node<V> load() {
-    if (loaded == null) {
-      loaded =
+    Node<V> node = loaded;
+    if (node == null) {
+      // Loaded nodes are never modified, so threads racing to load the same node may each keep
+      // their own copy.
+      node =
           nodeFactory
               .retrieve(hash)
               .orElseThrow(
                   () -> new MerkleTrieException("Unable to load trie node value for hash " + hash));
+      loaded = node;
     }
-
-    return loaded;
+    return node;
   }
 
   @Override
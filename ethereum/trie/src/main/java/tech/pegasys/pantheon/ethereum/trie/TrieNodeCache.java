@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+
+import java.util.Optional;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Caches decoded trie nodes by hash so that nodes read from storage are only RLP decoded once,
+ * rather than once per {@link StoredMerklePatriciaTrie} instance.
+ *
+ * <p>Nodes are content addressed, so a cache can be shared by any number of tries (and threads) as
+ * long as they all read from the same storage and serialize values the same way. The cached nodes
+ * are never modified: updating a trie creates new nodes.
+ *
+ * <p>Stored children of a cached node keep the nodes they load, as they do without a cache, so the
+ * maximum size bounds the nodes held by the cache itself. Subtrees loaded through a cached node
+ * stay reachable until that node is evicted.
+ *
+ * @param <V> The type of values stored by the tries sharing this cache.
+ */
+public class TrieNodeCache<V> {
+  public static final long DEFAULT_MAXIMUM_SIZE_BYTES = 64 * 1024 * 1024;
+
+  private final Cache<Bytes32, CachedNode<V>> cache;
+
+  public TrieNodeCache(final long maximumSizeBytes) {
+    cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumSizeBytes)
+            .<Bytes32, CachedNode<V>>weigher((hash, cached) -> cached.rlpSize)
+            .recordStats()
+            .build();
+  }
+
+  Optional<Node<V>> get(final Bytes32 hash) {
+    final CachedNode<V> cached = cache.getIfPresent(hash);
+    return cached == null ? Optional.empty() : Optional.of(cached.node);
+  }
+
+  void put(final Bytes32 hash, final Node<V> node, final int rlpSize) {
+    cache.put(hash, new CachedNode<>(node, rlpSize));
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public void registerMetrics(final MetricsSystem metricsSystem) {
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "world_state_trie_node_cache_hits",
+        "Number of world state trie node lookups served from the decoded node cache",
+        () -> cache.stats().hitCount());
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "world_state_trie_node_cache_misses",
+        "Number of world state trie node lookups that had to read and decode the node",
+        () -> cache.stats().missCount());
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "world_state_trie_node_cache_evictions",
+        "Number of decoded world state trie nodes evicted from the cache",
+        () -> cache.stats().evictionCount());
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.BLOCKCHAIN,
+        "world_state_trie_node_cache_size",
+        "Number of decoded world state trie nodes held in the cache",
+        cache::size);
+  }
+
+  private static class CachedNode<V> {
+    private final Node<V> node;
+    private final int rlpSize;
+
+    private CachedNode(final Node<V> node, final int rlpSize) {
+      this.node = node;
+      this.rlpSize = rlpSize;
+    }
+  }
+}
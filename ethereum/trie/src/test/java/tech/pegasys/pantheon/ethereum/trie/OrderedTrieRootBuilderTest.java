@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.rlp.RLP;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class OrderedTrieRootBuilderTest {
+  private final Random random = new Random(1);
+
+  @Test
+  public void emptyListHasEmptyTrieRoot() {
+    assertThat(new OrderedTrieRootBuilder().rootHash())
+        .isEqualTo(NullNode.<BytesValue>instance().getHash());
+  }
+
+  @Test
+  public void rootMatchesTrieForSmallAndLargeLists() {
+    for (final int size : new int[] {1, 2, 16, 63, 64, 127, 128, 129, 300, 1000}) {
+      final List<BytesValue> values = randomValues(size);
+      assertThat(OrderedTrieRootBuilder.rootHash(values)).isEqualTo(expectedRoot(values));
+    }
+  }
+
+  @Test
+  public void rootIsUpdatedAsValuesAreAppended() {
+    final List<BytesValue> values = randomValues(400);
+    final OrderedTrieRootBuilder builder = new OrderedTrieRootBuilder();
+    for (int i = 0; i < values.size(); i++) {
+      builder.append(values.get(i));
+      if (i % 37 == 0) {
+        assertThat(builder.rootHash()).isEqualTo(expectedRoot(values.subList(0, i + 1)));
+      }
+    }
+    assertThat(builder.size()).isEqualTo(values.size());
+    assertThat(builder.rootHash()).isEqualTo(expectedRoot(values));
+  }
+
+  private List<BytesValue> randomValues(final int size) {
+    final List<BytesValue> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      // Mix values short enough to be inlined in their parent node with ones referenced by hash.
+      final byte[] bytes = new byte[1 + random.nextInt(100)];
+      random.nextBytes(bytes);
+      values.add(BytesValue.wrap(bytes));
+    }
+    return values;
+  }
+
+  private static Bytes32 expectedRoot(final List<BytesValue> values) {
+    final MerklePatriciaTrie<BytesValue, BytesValue> trie =
+        new SimpleMerklePatriciaTrie<>(Function.identity());
+    for (int i = 0; i < values.size(); i++) {
+      final int index = i;
+      trie.put(RLP.encode(out -> out.writeIntScalar(index)), values.get(i));
+    }
+    return trie.getRootHash();
+  }
+}
@@ -14,6 +14,7 @@ package tech.pegasys.pantheon.ethereum.trie;
 
 import static junit.framework.TestCase.assertFalse;
 import static org.assertj.core.api.Assertions.assertThat;
+import static tech.pegasys.pantheon.crypto.Hash.keccak256;
 
 import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
 import tech.pegasys.pantheon.services.kvstore.KeyValueStorage;
@@ -21,6 +22,8 @@ import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 
@@ -417,4 +420,43 @@ public class StoredMerklePatriciaTrieTest {
 
     newTrie.get(BytesValue.fromHexString("0x0401"));
   }
+
+  @Test
+  public void getValueWithProofReturnsNodesProvingTheValue() {
+    for (int i = 0; i < 64; i++) {
+      trie.put(BytesValue.of(i, 0, 0, 0, i), "value" + i);
+    }
+    trie.commit(merkleStorage::put);
+
+    final BytesValue key = BytesValue.of(17, 0, 0, 0, 17);
+    final Proof<String> proof = trie.getValueWithProof(key);
+    assertThat(proof.getValue()).contains("value17");
+    assertThat(proof.getProofRelatedNodes()).hasSizeGreaterThan(1);
+
+    // The proof alone is enough to look the key up from the root hash.
+    final StoredMerklePatriciaTrie<BytesValue, String> proofTrie =
+        proofTrie(proof, trie.getRootHash());
+    assertThat(proofTrie.get(key)).contains("value17");
+  }
+
+  @Test
+  public void getValueWithProofReturnsNodesProvingAbsence() {
+    for (int i = 0; i < 64; i++) {
+      trie.put(BytesValue.of(i, 0, 0, 0, i), "value" + i);
+    }
+    trie.commit(merkleStorage::put);
+
+    final BytesValue key = BytesValue.of(17, 0, 0, 0, 18);
+    final Proof<String> proof = trie.getValueWithProof(key);
+    assertThat(proof.getValue()).isEmpty();
+    assertThat(proofTrie(proof, trie.getRootHash()).get(key)).isEmpty();
+  }
+
+  private StoredMerklePatriciaTrie<BytesValue, String> proofTrie(
+      final Proof<String> proof, final Bytes32 rootHash) {
+    final Map<Bytes32, BytesValue> nodes = new HashMap<>();
+    proof.getProofRelatedNodes().forEach(node -> nodes.put(keccak256(node), node));
+    return new StoredMerklePatriciaTrie<>(
+        hash -> Optional.ofNullable(nodes.get(hash)), rootHash, valueSerializer, valueDeserializer);
+  }
 }
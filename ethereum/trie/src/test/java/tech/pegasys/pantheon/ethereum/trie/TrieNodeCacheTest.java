@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.ethereum.trie;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.services.kvstore.InMemoryKeyValueStorage;
+import tech.pegasys.pantheon.util.bytes.Bytes32;
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrieNodeCacheTest {
+
+  private static final int KEY_COUNT = 100;
+
+  private final MerkleStorage merkleStorage =
+      new KeyValueMerkleStorage(new InMemoryKeyValueStorage());
+  private final AtomicInteger nodeReads = new AtomicInteger();
+  private final NodeLoader countingLoader =
+      hash -> {
+        nodeReads.incrementAndGet();
+        return merkleStorage.get(hash);
+      };
+
+  private Bytes32 rootHash;
+
+  @Before
+  public void setup() {
+    final StoredMerklePatriciaTrie<BytesValue, BytesValue> trie =
+        new StoredMerklePatriciaTrie<>(merkleStorage::get, b -> b, b -> b);
+    for (int i = 0; i < KEY_COUNT; i++) {
+      trie.put(key(i), value(i));
+    }
+    trie.commit(merkleStorage::put);
+    merkleStorage.commit();
+    rootHash = trie.getRootHash();
+  }
+
+  @Test
+  public void shouldOnlyReadNodesOnceAcrossTries() {
+    final TrieNodeCache<BytesValue> cache = new TrieNodeCache<>(1024 * 1024);
+
+    readAllKeys(newTrie(cache));
+    final int readsForFirstTrie = nodeReads.get();
+    readAllKeys(newTrie(cache));
+
+    assertThat(readsForFirstTrie).isGreaterThan(0);
+    assertThat(nodeReads.get()).isEqualTo(readsForFirstTrie);
+    assertThat(cache.size()).isEqualTo(readsForFirstTrie);
+    assertThat(cache.getStats().hitCount()).isGreaterThan(0);
+  }
+
+  @Test
+  public void shouldKeepLoadedNodesWithinATrie() {
+    final TrieNodeCache<BytesValue> cache = new TrieNodeCache<>(1024 * 1024);
+    final StoredMerklePatriciaTrie<BytesValue, BytesValue> trie = newTrie(cache);
+
+    readAllKeys(trie);
+    final long lookups = cache.getStats().requestCount();
+    readAllKeys(trie);
+
+    assertThat(cache.getStats().requestCount()).isEqualTo(lookups);
+  }
+
+  @Test
+  public void shouldNotAffectOtherTriesWhenUpdatingCachedNodes() {
+    final TrieNodeCache<BytesValue> cache = new TrieNodeCache<>(1024 * 1024);
+    final StoredMerklePatriciaTrie<BytesValue, BytesValue> reader = newTrie(cache);
+    readAllKeys(reader);
+
+    final StoredMerklePatriciaTrie<BytesValue, BytesValue> writer = newTrie(cache);
+    writer.put(key(1), value(1000));
+    writer.remove(key(2));
+    writer.commit(merkleStorage::put);
+
+    readAllKeys(reader);
+    readAllKeys(newTrie(cache));
+    assertThat(writer.get(key(1))).contains(value(1000));
+    assertThat(writer.get(key(2))).isEmpty();
+    assertThat(reader.getRootHash()).isEqualTo(rootHash);
+  }
+
+  @Test
+  public void shouldReadNodesAgainOnceEvicted() {
+    final TrieNodeCache<BytesValue> cache = new TrieNodeCache<>(0);
+
+    readAllKeys(newTrie(cache));
+    final int readsForFirstTrie = nodeReads.get();
+    readAllKeys(newTrie(cache));
+
+    assertThat(nodeReads.get()).isEqualTo(2 * readsForFirstTrie);
+    assertThat(cache.size()).isZero();
+  }
+
+  private StoredMerklePatriciaTrie<BytesValue, BytesValue> newTrie(
+      final TrieNodeCache<BytesValue> cache) {
+    return new StoredMerklePatriciaTrie<>(
+        countingLoader, rootHash, b -> b, b -> b, Optional.of(cache));
+  }
+
+  private static void readAllKeys(final StoredMerklePatriciaTrie<BytesValue, BytesValue> trie) {
+    for (int i = 0; i < KEY_COUNT; i++) {
+      assertThat(trie.get(key(i))).contains(value(i));
+    }
+  }
+
+  private static BytesValue key(final int i) {
+    return Bytes32.leftPad(BytesValue.of(i));
+  }
+
+  private static BytesValue value(final int i) {
+    return Bytes32.leftPad(BytesValue.of(i % 256, i / 256));
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.metrics.prometheus;
+
+import static tech.pegasys.pantheon.metrics.PantheonMetricCategory.DEFAULT_METRIC_CATEGORIES;
+import static tech.pegasys.pantheon.metrics.PantheonMetricCategory.KVSTORE_ROCKSDB;
+
+import tech.pegasys.pantheon.metrics.MetricCategory;
+import tech.pegasys.pantheon.metrics.MetricsSystem;
+import tech.pegasys.pantheon.metrics.OperationTimer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the cost of timing an empty operation, which is the overhead timers add to the
+ * operations they time. A sampling interval of 0 uses the summary backed timers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OperationTimerBenchmark {
+
+  @Param({"0", "1", "16"})
+  public int samplingInterval;
+
+  private OperationTimer timer;
+
+  @Setup(Level.Trial)
+  public void prepare() {
+    final Set<MetricCategory> categories =
+        ImmutableSet.<MetricCategory>builder()
+            .addAll(DEFAULT_METRIC_CATEGORIES)
+            .add(KVSTORE_ROCKSDB)
+            .build();
+    final Map<MetricCategory, Integer> samplingIntervals =
+        samplingInterval == 0
+            ? Collections.emptyMap()
+            : Collections.singletonMap(KVSTORE_ROCKSDB, samplingInterval);
+    final MetricsSystem metricsSystem = new PrometheusMetricsSystem(categories, samplingIntervals);
+    timer =
+        metricsSystem
+            .createLabelledTimer(KVSTORE_ROCKSDB, "read_latency_seconds", "Help", "database")
+            .labels("blockchain");
+  }
+
+  @Benchmark
+  public double timeOperation() {
+    return timer.startTimer().stopTimer();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public double timeOperationConcurrently() {
+    return timer.startTimer().stopTimer();
+  }
+}
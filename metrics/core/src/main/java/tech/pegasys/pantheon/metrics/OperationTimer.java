@@ -19,7 +19,7 @@ public interface OperationTimer {
   TimingContext startTimer();
 
   interface TimingContext extends Closeable {
-    /** @return Elapsed time in seconds. */
+    /** @return Elapsed time in seconds, or 0 if the timer didn't time this operation. */
     double stopTimer();
 
     @Override
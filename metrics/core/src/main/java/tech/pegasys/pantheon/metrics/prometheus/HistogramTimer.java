@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.metrics.prometheus;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.singletonList;
+
+import tech.pegasys.pantheon.metrics.LabelledMetric;
+import tech.pegasys.pantheon.metrics.OperationTimer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.prometheus.client.Collector;
+
+/**
+ * A timer recording durations into fixed buckets, two per power of two nanoseconds, from about a
+ * microsecond up to about a minute, and exported as a Prometheus histogram.
+ *
+ * <p>Recording a duration adds to an atomic bucket counter and a sum without locking, which keeps
+ * timing cheap enough for operations run millions of times per block. A timer can also time only
+ * one operation in {@code samplingInterval}, picked at random. Each sampled duration then counts
+ * for {@code samplingInterval} operations, and timing contexts of the operations that aren't
+ * sampled return 0 from {@link OperationTimer.TimingContext#stopTimer()}.
+ */
+class HistogramTimer extends Collector implements LabelledMetric<OperationTimer> {
+  private static final int MIN_EXPONENT = 10;
+  private static final int MAX_EXPONENT = 36;
+  // One bucket below 2^MIN_EXPONENT ns, two per power of two up to 2^MAX_EXPONENT ns, and one for
+  // anything longer.
+  static final int BUCKET_COUNT = 2 + 2 * (MAX_EXPONENT - MIN_EXPONENT);
+  private static final double[] UPPER_BOUNDS_SECONDS = upperBoundsSeconds();
+  private static final String[] UPPER_BOUND_LABELS =
+      Arrays.stream(UPPER_BOUNDS_SECONDS)
+          .mapToObj(Collector::doubleToGoString)
+          .toArray(String[]::new);
+  private static final OperationTimer.TimingContext NOT_SAMPLED = () -> 0;
+
+  private final String metricName;
+  private final String help;
+  private final List<String> labelNames;
+  private final int samplingInterval;
+  private final Map<List<String>, Histogram> histograms = new ConcurrentHashMap<>();
+
+  HistogramTimer(
+      final String metricName,
+      final String help,
+      final int samplingInterval,
+      final String... labelNames) {
+    checkArgument(samplingInterval >= 1, "Sampling interval must be at least 1");
+    this.metricName = metricName;
+    this.help = help;
+    this.samplingInterval = samplingInterval;
+    this.labelNames = Arrays.asList(labelNames);
+  }
+
+  @Override
+  public OperationTimer labels(final String... labels) {
+    checkArgument(labels.length == labelNames.size(), "Incorrect number of labels.");
+    final Histogram histogram =
+        histograms.computeIfAbsent(Arrays.asList(labels), key -> new Histogram());
+    return () -> startTimer(histogram);
+  }
+
+  private OperationTimer.TimingContext startTimer(final Histogram histogram) {
+    if (samplingInterval > 1 && ThreadLocalRandom.current().nextInt(samplingInterval) != 0) {
+      return NOT_SAMPLED;
+    }
+    final long start = System.nanoTime();
+    return () -> {
+      final long elapsed = System.nanoTime() - start;
+      histogram.observe(elapsed, samplingInterval);
+      return elapsed / 1e9;
+    };
+  }
+
+  static int bucketIndex(final long nanos) {
+    if (nanos < (1L << MIN_EXPONENT)) {
+      return 0;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    if (exponent >= MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    // The bit below the leading one tells which half of [2^exponent, 2^(exponent + 1)) this is in.
+    final int half = (int) (nanos >>> (exponent - 1)) & 1;
+    return 1 + 2 * (exponent - MIN_EXPONENT) + half;
+  }
+
+  static double upperBoundSeconds(final int bucketIndex) {
+    return UPPER_BOUNDS_SECONDS[bucketIndex];
+  }
+
+  private static double[] upperBoundsSeconds() {
+    final double[] bounds = new double[BUCKET_COUNT];
+    bounds[0] = (1L << MIN_EXPONENT) / 1e9;
+    for (int exponent = MIN_EXPONENT; exponent < MAX_EXPONENT; exponent++) {
+      final int index = 1 + 2 * (exponent - MIN_EXPONENT);
+      bounds[index] = ((1L << exponent) + (1L << (exponent - 1))) / 1e9;
+      bounds[index + 1] = (1L << (exponent + 1)) / 1e9;
+    }
+    bounds[BUCKET_COUNT - 1] = Double.POSITIVE_INFINITY;
+    return bounds;
+  }
+
+  @Override
+  public List<MetricFamilySamples> collect() {
+    final List<String> bucketLabelNames = new ArrayList<>(labelNames);
+    bucketLabelNames.add("le");
+    final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+    histograms.forEach(
+        (labelValues, histogram) -> {
+          long count = 0;
+          for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += histogram.buckets.get(i);
+            final List<String> bucketLabelValues = new ArrayList<>(labelValues);
+            bucketLabelValues.add(UPPER_BOUND_LABELS[i]);
+            samples.add(
+                new MetricFamilySamples.Sample(
+                    metricName + "_bucket", bucketLabelNames, bucketLabelValues, count));
+          }
+          samples.add(
+              new MetricFamilySamples.Sample(
+                  metricName + "_count", labelNames, labelValues, count));
+          samples.add(
+              new MetricFamilySamples.Sample(
+                  metricName + "_sum", labelNames, labelValues, histogram.sumNanos.sum() / 1e9));
+        });
+    return singletonList(new MetricFamilySamples(metricName, Type.HISTOGRAM, help, samples));
+  }
+
+  private static class Histogram {
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sumNanos = new LongAdder();
+
+    private void observe(final long nanos, final long weight) {
+      buckets.getAndAdd(bucketIndex(nanos), weight);
+      sumNanos.add(nanos * weight);
+    }
+  }
+}
@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -32,6 +33,10 @@ public class MetricsConfiguration {
   private static final String DEFAULT_METRICS_PUSH_HOST = "127.0.0.1";
   public static final int DEFAULT_METRICS_PUSH_PORT = 9001;
 
+  // Timers keep exporting summaries unless a category is opted in to sampled histograms.
+  public static final Map<MetricCategory, Integer> DEFAULT_TIMER_SAMPLING_INTERVALS =
+      Collections.emptyMap();
+
   private final boolean enabled;
   private final int port;
   private final String host;
@@ -42,6 +47,7 @@ public class MetricsConfiguration {
   private final int pushInterval;
   private final String prometheusJob;
   private final List<String> hostsWhitelist;
+  private final Map<MetricCategory, Integer> timerSamplingIntervals;
 
   public static Builder builder() {
     return new Builder();
@@ -57,7 +63,8 @@ public class MetricsConfiguration {
       final String pushHost,
       final int pushInterval,
       final String prometheusJob,
-      final List<String> hostsWhitelist) {
+      final List<String> hostsWhitelist,
+      final Map<MetricCategory, Integer> timerSamplingIntervals) {
     this.enabled = enabled;
     this.port = port;
     this.host = host;
@@ -68,6 +75,7 @@ public class MetricsConfiguration {
     this.pushInterval = pushInterval;
     this.prometheusJob = prometheusJob;
     this.hostsWhitelist = hostsWhitelist;
+    this.timerSamplingIntervals = timerSamplingIntervals;
   }
 
   public boolean isEnabled() {
@@ -110,6 +118,16 @@ public class MetricsConfiguration {
     return Collections.unmodifiableCollection(this.hostsWhitelist);
   }
 
+  /**
+   * Returns the categories whose timers record into histograms, rather than summaries.
+   *
+   * @return The interval at which operations are sampled by the timers of each category, 1 to time
+   *     every operation.
+   */
+  public Map<MetricCategory, Integer> getTimerSamplingIntervals() {
+    return timerSamplingIntervals;
+  }
+
   @Override
   public String toString() {
     return MoreObjects.toStringHelper(this)
@@ -123,6 +141,7 @@ public class MetricsConfiguration {
         .add("pushInterval", pushInterval)
         .add("prometheusJob", prometheusJob)
         .add("hostsWhitelist", hostsWhitelist)
+        .add("timerSamplingIntervals", timerSamplingIntervals)
         .toString();
   }
 
@@ -144,7 +163,8 @@ public class MetricsConfiguration {
         && Objects.equals(metricCategories, that.metricCategories)
         && Objects.equals(pushHost, that.pushHost)
         && Objects.equals(prometheusJob, that.prometheusJob)
-        && Objects.equals(hostsWhitelist, that.hostsWhitelist);
+        && Objects.equals(hostsWhitelist, that.hostsWhitelist)
+        && Objects.equals(timerSamplingIntervals, that.timerSamplingIntervals);
   }
 
   @Override
@@ -159,7 +179,8 @@ public class MetricsConfiguration {
         pushHost,
         pushInterval,
         prometheusJob,
-        hostsWhitelist);
+        hostsWhitelist,
+        timerSamplingIntervals);
   }
 
   public static class Builder {
@@ -173,6 +194,7 @@ public class MetricsConfiguration {
     private int pushInterval = 15;
     private String prometheusJob = "pantheon-client";
     private List<String> hostsWhitelist = Arrays.asList("localhost", "127.0.0.1");
+    private Map<MetricCategory, Integer> timerSamplingIntervals = DEFAULT_TIMER_SAMPLING_INTERVALS;
 
     private Builder() {}
 
@@ -226,6 +248,12 @@ public class MetricsConfiguration {
       return this;
     }
 
+    public Builder timerSamplingIntervals(
+        final Map<MetricCategory, Integer> timerSamplingIntervals) {
+      this.timerSamplingIntervals = timerSamplingIntervals;
+      return this;
+    }
+
     public MetricsConfiguration build() {
       return new MetricsConfiguration(
           enabled,
@@ -237,7 +265,8 @@ public class MetricsConfiguration {
           pushHost,
           pushInterval,
           prometheusJob,
-          hostsWhitelist);
+          hostsWhitelist,
+          timerSamplingIntervals);
     }
   }
 }
@@ -33,6 +33,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.DoubleSupplier;
 import java.util.stream.Stream;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import io.prometheus.client.Collector;
 import io.prometheus.client.Collector.MetricFamilySamples;
@@ -58,9 +59,17 @@ public class PrometheusMetricsSystem implements MetricsSystem {
       cachedTimers = new ConcurrentHashMap<>();
 
   private final Set<MetricCategory> enabledCategories;
+  private final Map<MetricCategory, Integer> timerSamplingIntervals;
 
   PrometheusMetricsSystem(final Set<MetricCategory> enabledCategories) {
+    this(enabledCategories, Collections.emptyMap());
+  }
+
+  PrometheusMetricsSystem(
+      final Set<MetricCategory> enabledCategories,
+      final Map<MetricCategory, Integer> timerSamplingIntervals) {
     this.enabledCategories = ImmutableSet.copyOf(enabledCategories);
+    this.timerSamplingIntervals = ImmutableMap.copyOf(timerSamplingIntervals);
   }
 
   public static MetricsSystem init(final MetricsConfiguration metricsConfiguration) {
@@ -68,7 +77,9 @@ public class PrometheusMetricsSystem implements MetricsSystem {
       return new NoOpMetricsSystem();
     }
     final PrometheusMetricsSystem metricsSystem =
-        new PrometheusMetricsSystem(metricsConfiguration.getMetricCategories());
+        new PrometheusMetricsSystem(
+            metricsConfiguration.getMetricCategories(),
+            metricsConfiguration.getTimerSamplingIntervals());
     if (metricsSystem.isCategoryEnabled(StandardMetricCategory.PROCESS)) {
       metricsSystem.collectors.put(
           StandardMetricCategory.PROCESS,
@@ -117,7 +128,15 @@ public class PrometheusMetricsSystem implements MetricsSystem {
     return cachedTimers.computeIfAbsent(
         metricName,
         (k) -> {
-          if (isCategoryEnabled(category)) {
+          final Integer samplingInterval = timerSamplingIntervals.get(category);
+          if (isCategoryEnabled(category) && samplingInterval != null) {
+            // Timers in these categories are on hot paths, and are recorded into lock-free
+            // histograms rather than summaries, which synchronize on every observation.
+            final HistogramTimer timer =
+                new HistogramTimer(metricName, help, samplingInterval, labelNames);
+            addCollectorUnchecked(category, timer);
+            return timer;
+          } else if (isCategoryEnabled(category)) {
             final Summary summary =
                 Summary.build(metricName, help)
                     .quantile(0.2, 0.02)
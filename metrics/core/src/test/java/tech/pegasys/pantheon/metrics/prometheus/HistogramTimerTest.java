@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.metrics.prometheus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.metrics.OperationTimer;
+
+import java.util.List;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import io.prometheus.client.Collector.Type;
+import org.junit.Test;
+
+public class HistogramTimerTest {
+
+  @Test
+  public void bucketsCoverDurationsUpToTheirUpperBound() {
+    assertThat(HistogramTimer.bucketIndex(0)).isEqualTo(0);
+    assertThat(HistogramTimer.bucketIndex(Long.MAX_VALUE))
+        .isEqualTo(HistogramTimer.BUCKET_COUNT - 1);
+
+    for (long nanos = 1; nanos > 0 && nanos < (1L << 40); nanos = nanos * 3 / 2 + 1) {
+      final int index = HistogramTimer.bucketIndex(nanos);
+      final double seconds = nanos / 1e9;
+      assertThat(seconds).isLessThanOrEqualTo(HistogramTimer.upperBoundSeconds(index));
+      if (index > 0) {
+        assertThat(seconds).isGreaterThanOrEqualTo(HistogramTimer.upperBoundSeconds(index - 1));
+      }
+    }
+  }
+
+  @Test
+  public void exportsCumulativeBucketsCountAndSum() {
+    final HistogramTimer timer = new HistogramTimer("latency", "Help", 1, "database");
+    final OperationTimer operationTimer = timer.labels("blockchain");
+    for (int i = 0; i < 10; i++) {
+      operationTimer.startTimer().stopTimer();
+    }
+
+    final List<Sample> samples = samplesOf(timer);
+    assertThat(samples).hasSize(HistogramTimer.BUCKET_COUNT + 2);
+    final Sample lastBucket = samples.get(HistogramTimer.BUCKET_COUNT - 1);
+    assertThat(lastBucket.name).isEqualTo("latency_bucket");
+    assertThat(lastBucket.labelNames).containsExactly("database", "le");
+    assertThat(lastBucket.labelValues).containsExactly("blockchain", "+Inf");
+    assertThat(lastBucket.value).isEqualTo(10);
+    for (int i = 1; i < HistogramTimer.BUCKET_COUNT; i++) {
+      assertThat(samples.get(i).value).isGreaterThanOrEqualTo(samples.get(i - 1).value);
+    }
+    assertThat(samples.get(HistogramTimer.BUCKET_COUNT).name).isEqualTo("latency_count");
+    assertThat(samples.get(HistogramTimer.BUCKET_COUNT).value).isEqualTo(10);
+    assertThat(samples.get(HistogramTimer.BUCKET_COUNT + 1).name).isEqualTo("latency_sum");
+  }
+
+  @Test
+  public void sampledOperationsCountForTheWholeInterval() {
+    final HistogramTimer timer = new HistogramTimer("latency", "Help", 4);
+    final OperationTimer operationTimer = timer.labels();
+    for (int i = 0; i < 1000; i++) {
+      operationTimer.startTimer().stopTimer();
+    }
+
+    // Around 250 of the operations are sampled, each counting for 4.
+    final double count = samplesOf(timer).get(HistogramTimer.BUCKET_COUNT).value;
+    assertThat(count % 4).isEqualTo(0);
+    assertThat(count).isGreaterThan(0).isLessThan(4000);
+  }
+
+  private static List<Sample> samplesOf(final HistogramTimer timer) {
+    final List<MetricFamilySamples> families = timer.collect();
+    assertThat(families).hasSize(1);
+    assertThat(families.get(0).type).isEqualTo(Type.HISTOGRAM);
+    return families.get(0).samples;
+  }
+}
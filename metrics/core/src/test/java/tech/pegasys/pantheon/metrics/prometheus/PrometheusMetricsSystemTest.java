@@ -33,7 +33,10 @@ import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
 
 import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
 
@@ -155,6 +158,31 @@ public class PrometheusMetricsSystemTest {
             new Observation(RPC, "request", null, asList("method", "count")));
   }
 
+  @Test
+  public void shouldRecordTimersOfSampledCategoriesIntoHistograms() {
+    final MetricsSystem histogramMetricsSystem =
+        new PrometheusMetricsSystem(DEFAULT_METRIC_CATEGORIES, ImmutableMap.of(RPC, 1));
+    final LabelledMetric<OperationTimer> timer =
+        histogramMetricsSystem.createLabelledTimer(RPC, "request", "Some help", "methodName");
+
+    timer.labels("method").startTimer().stopTimer();
+
+    final List<Observation> observations =
+        histogramMetricsSystem.streamObservations().collect(Collectors.toList());
+    assertThat(observations)
+        .filteredOn(observation -> observation.getLabels().contains("bucket"))
+        .hasSize(HistogramTimer.BUCKET_COUNT);
+    assertThat(observations)
+        .usingElementComparator(IGNORE_VALUES)
+        .contains(
+            new Observation(RPC, "request", null, asList("method", "sum")),
+            new Observation(RPC, "request", null, asList("method", "count")));
+    assertThat(observations)
+        .filteredOn(observation -> observation.getLabels().equals(asList("method", "count")))
+        .extracting(Observation::getValue)
+        .containsExactly(1.0);
+  }
+
   @Test
   public void shouldCreateObservationFromGauge() {
     metricsSystem.createGauge(JVM, "myValue", "Help", () -> 7d);
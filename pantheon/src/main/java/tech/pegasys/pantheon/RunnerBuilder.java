@@ -335,7 +335,13 @@ public class RunnerBuilder {
     final MiningCoordinator miningCoordinator = pantheonController.getMiningCoordinator();
 
     final PrivacyParameters privacyParameters = pantheonController.getPrivacyParameters();
-    final FilterManager filterManager = createFilterManager(vertx, context, transactionPool);
+    final BlockchainQueries blockchainQueries =
+        new BlockchainQueries(
+            context.getBlockchain(),
+            context.getWorldStateArchive(),
+            Optional.of(pantheonController.getBloomBitsIndex()));
+    final FilterManager filterManager =
+        createFilterManager(vertx, blockchainQueries, transactionPool);
 
     final P2PNetwork peerNetwork = networkRunner.getNetwork();
 
@@ -359,7 +365,7 @@ public class RunnerBuilder {
     if (jsonRpcConfiguration.isEnabled()) {
       final Map<String, JsonRpcMethod> jsonRpcMethods =
           jsonRpcMethods(
-              context,
+              blockchainQueries,
               protocolSchedule,
               pantheonController,
               peerNetwork,
@@ -417,7 +423,7 @@ public class RunnerBuilder {
     if (webSocketConfiguration.isEnabled()) {
       final Map<String, JsonRpcMethod> webSocketsJsonRpcMethods =
           jsonRpcMethods(
-              context,
+              blockchainQueries,
               protocolSchedule,
               pantheonController,
               peerNetwork,
@@ -535,10 +541,12 @@ public class RunnerBuilder {
   }
 
   private FilterManager createFilterManager(
-      final Vertx vertx, final ProtocolContext<?> context, final TransactionPool transactionPool) {
+      final Vertx vertx,
+      final BlockchainQueries blockchainQueries,
+      final TransactionPool transactionPool) {
     final FilterManager filterManager =
         new FilterManager(
-            new BlockchainQueries(context.getBlockchain(), context.getWorldStateArchive()),
+            blockchainQueries,
             transactionPool,
             new FilterIdGenerator(),
             new FilterRepository());
@@ -547,7 +555,7 @@ public class RunnerBuilder {
   }
 
   private Map<String, JsonRpcMethod> jsonRpcMethods(
-      final ProtocolContext<?> context,
+      final BlockchainQueries blockchainQueries,
       final ProtocolSchedule<?> protocolSchedule,
       final PantheonController<?> pantheonController,
       final P2PNetwork network,
@@ -571,18 +579,17 @@ public class RunnerBuilder {
                 ethNetworkConfig.getNetworkId(),
                 pantheonController.getGenesisConfigOptions(),
                 network,
-                context.getBlockchain(),
-                context.getWorldStateArchive(),
+                blockchainQueries,
                 synchronizer,
-                transactionPool,
                 protocolSchedule,
+                filterManager,
+                transactionPool,
                 miningCoordinator,
                 metricsSystem,
                 supportedCapabilities,
-                jsonRpcApis,
-                filterManager,
                 accountWhitelistController,
                 nodeWhitelistController,
+                jsonRpcApis,
                 privacyParameters,
                 jsonRpcConfiguration,
                 webSocketConfiguration,
@@ -27,6 +27,7 @@ import static tech.pegasys.pantheon.ethereum.jsonrpc.websocket.WebSocketConfigur
 import static tech.pegasys.pantheon.metrics.PantheonMetricCategory.DEFAULT_METRIC_CATEGORIES;
 import static tech.pegasys.pantheon.metrics.prometheus.MetricsConfiguration.DEFAULT_METRICS_PORT;
 import static tech.pegasys.pantheon.metrics.prometheus.MetricsConfiguration.DEFAULT_METRICS_PUSH_PORT;
+import static tech.pegasys.pantheon.metrics.prometheus.MetricsConfiguration.DEFAULT_TIMER_SAMPLING_INTERVALS;
 
 import tech.pegasys.pantheon.PantheonInfo;
 import tech.pegasys.pantheon.Runner;
@@ -42,6 +43,7 @@ import tech.pegasys.pantheon.cli.custom.RpcAuthFileValidator;
 import tech.pegasys.pantheon.cli.error.PantheonExceptionHandler;
 import tech.pegasys.pantheon.cli.options.EthProtocolOptions;
 import tech.pegasys.pantheon.cli.options.NetworkingOptions;
+import tech.pegasys.pantheon.cli.options.PruningOptions;
 import tech.pegasys.pantheon.cli.options.RocksDBOptions;
 import tech.pegasys.pantheon.cli.options.SynchronizerOptions;
 import tech.pegasys.pantheon.cli.options.TransactionPoolOptions;
@@ -56,6 +58,7 @@ import tech.pegasys.pantheon.cli.util.VersionProvider;
 import tech.pegasys.pantheon.config.GenesisConfigFile;
 import tech.pegasys.pantheon.controller.KeyPairUtil;
 import tech.pegasys.pantheon.controller.PantheonController;
+import tech.pegasys.pantheon.ethereum.chain.CachingBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.MiningParameters;
 import tech.pegasys.pantheon.ethereum.core.PrivacyParameters;
@@ -63,6 +66,7 @@ import tech.pegasys.pantheon.ethereum.core.Wei;
 import tech.pegasys.pantheon.ethereum.eth.sync.SyncMode;
 import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
 import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPoolConfiguration;
+import tech.pegasys.pantheon.ethereum.freezer.AncientBlockMover;
 import tech.pegasys.pantheon.ethereum.graphql.GraphQLConfiguration;
 import tech.pegasys.pantheon.ethereum.jsonrpc.JsonRpcConfiguration;
 import tech.pegasys.pantheon.ethereum.jsonrpc.RpcApi;
@@ -75,6 +79,7 @@ import tech.pegasys.pantheon.ethereum.permissioning.LocalPermissioningConfigurat
 import tech.pegasys.pantheon.ethereum.permissioning.PermissioningConfiguration;
 import tech.pegasys.pantheon.ethereum.permissioning.PermissioningConfigurationBuilder;
 import tech.pegasys.pantheon.ethereum.permissioning.SmartContractPermissioningConfiguration;
+import tech.pegasys.pantheon.ethereum.trie.TrieNodeCache;
 import tech.pegasys.pantheon.metrics.MetricCategory;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
@@ -161,6 +166,7 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
   final EthProtocolOptions ethProtocolOptions = EthProtocolOptions.create();
   final RocksDBOptions rocksDBOptions = RocksDBOptions.create();
   final TransactionPoolOptions transactionPoolOptions = TransactionPoolOptions.create();
+  final PruningOptions pruningOptions = PruningOptions.create();
   private final RunnerBuilder runnerBuilder;
   private final PantheonController.Builder controllerBuilderFactory;
   private final PantheonPluginContextImpl pantheonPluginContext;
@@ -498,6 +504,19 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
       arity = "1")
   private String metricsPrometheusJob = "pantheon-client";
 
+  @Option(
+      names = {"--Xmetrics-timer-sampling"},
+      hidden = true,
+      paramLabel = "<category name>=<interval>",
+      split = ",",
+      arity = "1..*",
+      description =
+          "Comma separated list of categories whose timers record into lock-free histograms, each "
+              + "with the interval at which operations are sampled, 1 to time every operation "
+              + "(default: ${DEFAULT-VALUE})")
+  private final Map<MetricCategory, Integer> metricsTimerSamplingIntervals =
+      DEFAULT_TIMER_SAMPLING_INTERVALS;
+
   @Option(
       names = {"--host-whitelist"},
       paramLabel = "<hostname>[,<hostname>...]... or * or all",
@@ -586,6 +605,52 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
           "Enable passing the revert reason back through TransactionReceipts (default: ${DEFAULT-VALUE})")
   private final Boolean isRevertReasonEnabled = false;
 
+  @Option(
+      names = {"--pruning-enabled"},
+      hidden = true,
+      description = "Enable pruning of old world state (default: ${DEFAULT-VALUE})")
+  private final Boolean isPruningEnabled = false;
+
+  @Option(
+      names = {"--Xblockchain-cache-size"},
+      hidden = true,
+      paramLabel = MANDATORY_LONG_FORMAT_HELP,
+      description =
+          "Number of recent blocks cached in memory, 0 to disable (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  private final Long blockchainCacheSize = CachingBlockchainStorage.DEFAULT_CACHE_SIZE;
+
+  @Option(
+      names = {"--Xblockchain-freezer-depth"},
+      hidden = true,
+      paramLabel = MANDATORY_LONG_FORMAT_HELP,
+      description =
+          "Number of blocks behind the chain head after which canonical blocks are moved to "
+              + "flat files, 0 to disable or at least "
+              + AncientBlockMover.MINIMUM_DEPTH
+              + " (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  private final Long blockchainFreezerDepth = 0L;
+
+  @Option(
+      names = {"--Xtrie-node-cache-size"},
+      hidden = true,
+      paramLabel = MANDATORY_LONG_FORMAT_HELP,
+      description =
+          "Size in bytes of the cache of decoded world state trie nodes, 0 to disable "
+              + "(default: ${DEFAULT-VALUE})",
+      arity = "1")
+  private final Long trieNodeCacheSize = TrieNodeCache.DEFAULT_MAXIMUM_SIZE_BYTES;
+
+  @Option(
+      names = {"--Xflat-state-enabled"},
+      hidden = true,
+      description =
+          "Read accounts and storage of recent world states from a flat copy of the world state "
+              + "(default: ${DEFAULT-VALUE})",
+      arity = "1")
+  private final Boolean isFlatStateEnabled = true;
+
   @Option(
       names = {"--privacy-url"},
       description = "The URL on which the enclave is running")
@@ -715,17 +780,14 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
     // Add unstable options
     UnstableOptionsSubCommand.createUnstableOptions(
         commandLine,
-        ImmutableMap.of(
-            "P2P Network",
-            networkingOptions,
-            "Synchronizer",
-            synchronizerOptions,
-            "RocksDB",
-            rocksDBOptions,
-            "Ethereum Wire Protocol",
-            ethProtocolOptions,
-            "TransactionPool",
-            transactionPoolOptions));
+        ImmutableMap.<String, Object>builder()
+            .put("P2P Network", networkingOptions)
+            .put("Synchronizer", synchronizerOptions)
+            .put("RocksDB", rocksDBOptions)
+            .put("Ethereum Wire Protocol", ethProtocolOptions)
+            .put("TransactionPool", transactionPoolOptions)
+            .put("Pruning", pruningOptions)
+            .build());
     return this;
   }
 
@@ -819,6 +881,18 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
           "Unable to mine without a valid coinbase. Either disable mining (remove --miner-enabled)"
               + "or specify the beneficiary of mining (via --miner-coinbase <Address>)");
     }
+
+    if (blockchainFreezerDepth != 0 && blockchainFreezerDepth < AncientBlockMover.MINIMUM_DEPTH) {
+      throw new ParameterException(
+          this.commandLine,
+          "--Xblockchain-freezer-depth must be 0 to disable the block freezer or at least "
+              + AncientBlockMover.MINIMUM_DEPTH);
+    }
+
+    if (trieNodeCacheSize < 0) {
+      throw new ParameterException(
+          this.commandLine, "--Xtrie-node-cache-size must be 0 to disable the cache or positive");
+    }
     return this;
   }
 
@@ -885,6 +959,12 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
           .privacyParameters(privacyParameters())
           .clock(Clock.systemUTC())
           .isRevertReasonEnabled(isRevertReasonEnabled)
+          .isPruningEnabled(isPruningEnabled)
+          .pruningConfiguration(pruningOptions.toDomainObject())
+          .blockchainCacheSize(blockchainCacheSize)
+          .blockchainFreezerDepth(blockchainFreezerDepth)
+          .trieNodeCacheSize(trieNodeCacheSize)
+          .flatStateEnabled(isFlatStateEnabled)
           .build();
     } catch (final InvalidConfigurationException e) {
       throw new ExecutionException(this.commandLine, e.getMessage());
@@ -1004,6 +1084,11 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
             "--metrics-push-interval",
             "--metrics-push-prometheus-job"));
 
+    if (metricsTimerSamplingIntervals.values().stream().anyMatch(interval -> interval < 1)) {
+      throw new ParameterException(
+          this.commandLine, "--Xmetrics-timer-sampling intervals must be at least 1.");
+    }
+
     return MetricsConfiguration.builder()
         .enabled(isMetricsEnabled)
         .host(metricsHost)
@@ -1015,6 +1100,7 @@ public class PantheonCommand implements DefaultCommandValues, Runnable {
         .pushInterval(metricsPushInterval)
         .hostsWhitelist(hostsWhitelist)
         .prometheusJob(metricsPrometheusJob)
+        .timerSamplingIntervals(metricsTimerSamplingIntervals)
         .build();
   }
 
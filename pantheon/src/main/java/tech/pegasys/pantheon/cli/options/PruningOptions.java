@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.cli.options;
+
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+
+import java.util.Arrays;
+import java.util.List;
+
+import picocli.CommandLine;
+
+public class PruningOptions implements CLIOptions<PrunerConfiguration> {
+  private static final String BLOCKS_RETAINED_FLAG = "--Xpruning-blocks-retained";
+  private static final String BLOCK_CONFIRMATIONS_FLAG = "--Xpruning-block-confirmations";
+
+  @CommandLine.Option(
+      names = {BLOCKS_RETAINED_FLAG},
+      hidden = true,
+      paramLabel = "<LONG>",
+      description =
+          "Number of recent blocks for which to keep all state (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  private long blocksRetained = PrunerConfiguration.DEFAULT_BLOCKS_RETAINED;
+
+  @CommandLine.Option(
+      names = {BLOCK_CONFIRMATIONS_FLAG},
+      hidden = true,
+      paramLabel = "<LONG>",
+      description =
+          "Confirmations before a block state is marked for pruning (default: ${DEFAULT-VALUE})",
+      arity = "1")
+  private long blockConfirmations = PrunerConfiguration.DEFAULT_BLOCK_CONFIRMATIONS;
+
+  private PruningOptions() {}
+
+  public static PruningOptions create() {
+    return new PruningOptions();
+  }
+
+  public static PruningOptions fromConfig(final PrunerConfiguration config) {
+    final PruningOptions options = PruningOptions.create();
+    options.blocksRetained = config.getBlocksRetained();
+    options.blockConfirmations = config.getBlockConfirmations();
+    return options;
+  }
+
+  @Override
+  public PrunerConfiguration toDomainObject() {
+    return new PrunerConfiguration(blocksRetained, blockConfirmations);
+  }
+
+  @Override
+  public List<String> getCLIOptions() {
+    return Arrays.asList(
+        BLOCKS_RETAINED_FLAG,
+        OptionParser.format(blocksRetained),
+        BLOCK_CONFIRMATIONS_FLAG,
+        OptionParser.format(blockConfirmations));
+  }
+}
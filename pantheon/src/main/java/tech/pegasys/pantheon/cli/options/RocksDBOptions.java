@@ -14,8 +14,12 @@ package tech.pegasys.pantheon.cli.options;
 
 import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import picocli.CommandLine;
 
@@ -25,6 +29,10 @@ public class RocksDBOptions implements CLIOptions<RocksDbConfiguration.Builder>
   private static final String MAX_BACKGROUND_COMPACTIONS_FLAG =
       "--Xrocksdb-max-background-compactions";
   private static final String BACKGROUND_THREAD_COUNT_FLAG = "--Xrocksdb-background-thread-count";
+  private static final String TRANSACTION_DB_FLAG = "--Xrocksdb-transaction-db";
+  private static final String BLOOM_FILTER_BITS_PER_KEY_FLAG =
+      "--Xrocksdb-bloom-filter-bits-per-key";
+  private static final String LEVEL_COMPRESSION_FLAG = "--Xrocksdb-level-compression";
 
   @CommandLine.Option(
       names = {MAX_OPEN_FILES_FLAG},
@@ -58,6 +66,38 @@ public class RocksDBOptions implements CLIOptions<RocksDbConfiguration.Builder>
       description = "Number of RocksDB background threads (default: ${DEFAULT-VALUE})")
   int backgroundThreadCount;
 
+  @CommandLine.Option(
+      names = {TRANSACTION_DB_FLAG},
+      hidden = true,
+      defaultValue = "true",
+      arity = "1",
+      paramLabel = "<BOOLEAN>",
+      description =
+          "Open RocksDB as a transaction database rather than committing through write batches (default: ${DEFAULT-VALUE})")
+  boolean useTransactionDb;
+
+  @CommandLine.Option(
+      names = {BLOOM_FILTER_BITS_PER_KEY_FLAG},
+      hidden = true,
+      paramLabel = "<segment name>=<INTEGER>",
+      split = ",",
+      arity = "1..*",
+      description =
+          "Comma separated list of columns whose bloom filter bits per key override the column's "
+              + "default, 0 to disable bloom filters")
+  Map<String, Integer> bloomFilterBitsPerKey = new HashMap<>();
+
+  @CommandLine.Option(
+      names = {LEVEL_COMPRESSION_FLAG},
+      hidden = true,
+      paramLabel = "<segment name>=<BOOLEAN>",
+      split = ",",
+      arity = "1..*",
+      description =
+          "Comma separated list of columns that override whether the top RocksDB levels are left "
+              + "uncompressed and the rest compressed with LZ4")
+  Map<String, Boolean> levelCompression = new HashMap<>();
+
   private RocksDBOptions() {}
 
   public static RocksDBOptions create() {
@@ -70,28 +110,55 @@ public class RocksDBOptions implements CLIOptions<RocksDbConfiguration.Builder>
     options.cacheCapacity = config.getCacheCapacity();
     options.maxBackgroundCompactions = config.getMaxBackgroundCompactions();
     options.backgroundThreadCount = config.getBackgroundThreadCount();
+    options.useTransactionDb = config.useTransactionDb();
+    options.bloomFilterBitsPerKey = new HashMap<>(config.getBloomFilterBitsPerKey());
+    options.levelCompression = new HashMap<>(config.getLevelCompression());
     return options;
   }
 
   @Override
   public RocksDbConfiguration.Builder toDomainObject() {
-    return RocksDbConfiguration.builder()
-        .maxOpenFiles(maxOpenFiles)
-        .cacheCapacity(cacheCapacity)
-        .maxBackgroundCompactions(maxBackgroundCompactions)
-        .backgroundThreadCount(backgroundThreadCount);
+    final RocksDbConfiguration.Builder builder =
+        RocksDbConfiguration.builder()
+            .maxOpenFiles(maxOpenFiles)
+            .cacheCapacity(cacheCapacity)
+            .maxBackgroundCompactions(maxBackgroundCompactions)
+            .backgroundThreadCount(backgroundThreadCount)
+            .useTransactionDb(useTransactionDb);
+    bloomFilterBitsPerKey.forEach(builder::bloomFilterBitsPerKey);
+    levelCompression.forEach(builder::levelCompression);
+    return builder;
   }
 
   @Override
   public List<String> getCLIOptions() {
-    return Arrays.asList(
-        MAX_OPEN_FILES_FLAG,
-        OptionParser.format(maxOpenFiles),
-        CACHE_CAPACITY_FLAG,
-        OptionParser.format(cacheCapacity),
-        MAX_BACKGROUND_COMPACTIONS_FLAG,
-        OptionParser.format(maxBackgroundCompactions),
-        BACKGROUND_THREAD_COUNT_FLAG,
-        OptionParser.format(backgroundThreadCount));
+    final List<String> cliOptions =
+        new ArrayList<>(
+            Arrays.asList(
+                MAX_OPEN_FILES_FLAG,
+                OptionParser.format(maxOpenFiles),
+                CACHE_CAPACITY_FLAG,
+                OptionParser.format(cacheCapacity),
+                MAX_BACKGROUND_COMPACTIONS_FLAG,
+                OptionParser.format(maxBackgroundCompactions),
+                BACKGROUND_THREAD_COUNT_FLAG,
+                OptionParser.format(backgroundThreadCount),
+                TRANSACTION_DB_FLAG,
+                Boolean.toString(useTransactionDb)));
+    if (!bloomFilterBitsPerKey.isEmpty()) {
+      cliOptions.add(BLOOM_FILTER_BITS_PER_KEY_FLAG);
+      cliOptions.add(formatSegmentOverrides(bloomFilterBitsPerKey));
+    }
+    if (!levelCompression.isEmpty()) {
+      cliOptions.add(LEVEL_COMPRESSION_FLAG);
+      cliOptions.add(formatSegmentOverrides(levelCompression));
+    }
+    return cliOptions;
+  }
+
+  private static String formatSegmentOverrides(final Map<String, ?> overrides) {
+    return overrides.entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + entry.getValue())
+        .collect(Collectors.joining(","));
   }
 }
@@ -52,6 +52,7 @@ public class SynchronizerOptions implements CLIOptions<SynchronizerConfiguration
       "--Xsynchronizer-world-state-max-requests-without-progress";
   private static final String WORLD_STATE_MIN_MILLIS_BEFORE_STALLING_FLAG =
       "--Xsynchronizer-world-state-min-millis-before-stalling";
+  private static final String FAST_SYNC_RANGE_STATE_FLAG = "--Xsynchronizer-fast-sync-range-state";
 
   @CommandLine.Option(
       names = BLOCK_PROPAGATION_RANGE_FLAG,
@@ -196,6 +197,16 @@ public class SynchronizerOptions implements CLIOptions<SynchronizerConfiguration
   private long worldStateMinMillisBeforeStalling =
       SynchronizerConfiguration.DEFAULT_WORLD_STATE_MIN_MILLIS_BEFORE_STALLING;
 
+  @CommandLine.Option(
+      names = FAST_SYNC_RANGE_STATE_FLAG,
+      hidden = true,
+      defaultValue = "false",
+      arity = "1",
+      paramLabel = "<BOOLEAN>",
+      description =
+          "Download fast sync world state as account and storage ranges from peers that support it (default: ${DEFAULT-VALUE})")
+  private boolean fastSyncRangeState = false;
+
   private SynchronizerOptions() {}
 
   public static SynchronizerOptions create() {
@@ -221,6 +232,7 @@ public class SynchronizerOptions implements CLIOptions<SynchronizerConfiguration
     options.worldStateRequestParallelism = config.getWorldStateRequestParallelism();
     options.worldStateMaxRequestsWithoutProgress = config.getWorldStateMaxRequestsWithoutProgress();
     options.worldStateMinMillisBeforeStalling = config.getWorldStateMinMillisBeforeStalling();
+    options.fastSyncRangeState = config.isFastSyncRangeState();
     return options;
   }
 
@@ -242,6 +254,7 @@ public class SynchronizerOptions implements CLIOptions<SynchronizerConfiguration
     builder.worldStateRequestParallelism(worldStateRequestParallelism);
     builder.worldStateMaxRequestsWithoutProgress(worldStateMaxRequestsWithoutProgress);
     builder.worldStateMinMillisBeforeStalling(worldStateMinMillisBeforeStalling);
+    builder.fastSyncRangeState(fastSyncRangeState);
     return builder;
   }
 
@@ -277,6 +290,8 @@ public class SynchronizerOptions implements CLIOptions<SynchronizerConfiguration
         WORLD_STATE_MAX_REQUESTS_WITHOUT_PROGRESS_FLAG,
         OptionParser.format(worldStateMaxRequestsWithoutProgress),
         WORLD_STATE_MIN_MILLIS_BEFORE_STALLING_FLAG,
-        OptionParser.format(worldStateMinMillisBeforeStalling));
+        OptionParser.format(worldStateMinMillisBeforeStalling),
+        FAST_SYNC_RANGE_STATE_FLAG,
+        Boolean.toString(fastSyncRangeState));
   }
 }
@@ -18,6 +18,7 @@ import tech.pegasys.pantheon.config.GenesisConfigOptions;
 import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.blockcreation.MiningCoordinator;
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsIndex;
 import tech.pegasys.pantheon.ethereum.core.PrivacyParameters;
 import tech.pegasys.pantheon.ethereum.core.Synchronizer;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManager;
@@ -46,6 +47,7 @@ public class PantheonController<C> implements java.io.Closeable {
   private final TransactionPool transactionPool;
   private final MiningCoordinator miningCoordinator;
   private final PrivacyParameters privacyParameters;
+  private final BloomBitsIndex bloomBitsIndex;
   private final Runnable close;
 
   PantheonController(
@@ -60,6 +62,7 @@ public class PantheonController<C> implements java.io.Closeable {
       final TransactionPool transactionPool,
       final MiningCoordinator miningCoordinator,
       final PrivacyParameters privacyParameters,
+      final BloomBitsIndex bloomBitsIndex,
       final Runnable close) {
     this.protocolSchedule = protocolSchedule;
     this.protocolContext = protocolContext;
@@ -72,6 +75,7 @@ public class PantheonController<C> implements java.io.Closeable {
     this.transactionPool = transactionPool;
     this.miningCoordinator = miningCoordinator;
     this.privacyParameters = privacyParameters;
+    this.bloomBitsIndex = bloomBitsIndex;
     this.close = close;
   }
 
@@ -120,6 +124,10 @@ public class PantheonController<C> implements java.io.Closeable {
     return privacyParameters;
   }
 
+  public BloomBitsIndex getBloomBitsIndex() {
+    return bloomBitsIndex;
+  }
+
   public Map<String, JsonRpcMethod> getAdditionalJsonRpcMethods(
       final Collection<RpcApi> enabledRpcApis) {
     return additionalJsonRpcMethodsFactory.createJsonRpcMethods(enabledRpcApis);
@@ -20,7 +20,11 @@ import tech.pegasys.pantheon.config.GenesisConfigFile;
 import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
 import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.blockcreation.MiningCoordinator;
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsIndex;
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsIndexer;
+import tech.pegasys.pantheon.ethereum.bloombits.BloomBitsStorage;
 import tech.pegasys.pantheon.ethereum.chain.Blockchain;
+import tech.pegasys.pantheon.ethereum.chain.CachingBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.chain.GenesisState;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
 import tech.pegasys.pantheon.ethereum.core.MiningParameters;
@@ -28,22 +32,32 @@ import tech.pegasys.pantheon.ethereum.core.PrivacyParameters;
 import tech.pegasys.pantheon.ethereum.core.Synchronizer;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
 import tech.pegasys.pantheon.ethereum.eth.EthProtocolConfiguration;
+import tech.pegasys.pantheon.ethereum.eth.StateRangeProtocol;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthContext;
 import tech.pegasys.pantheon.ethereum.eth.manager.EthProtocolManager;
+import tech.pegasys.pantheon.ethereum.eth.manager.MonitoredExecutors;
 import tech.pegasys.pantheon.ethereum.eth.peervalidation.DaoForkPeerValidator;
 import tech.pegasys.pantheon.ethereum.eth.peervalidation.PeerValidatorRunner;
 import tech.pegasys.pantheon.ethereum.eth.sync.DefaultSynchronizer;
 import tech.pegasys.pantheon.ethereum.eth.sync.SyncMode;
 import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
 import tech.pegasys.pantheon.ethereum.eth.sync.state.SyncState;
+import tech.pegasys.pantheon.ethereum.eth.sync.staterange.StateRangeProtocolManager;
 import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPool;
 import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPoolConfiguration;
 import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPoolFactory;
+import tech.pegasys.pantheon.ethereum.freezer.AncientBlockMover;
+import tech.pegasys.pantheon.ethereum.freezer.BlockFreezer;
 import tech.pegasys.pantheon.ethereum.jsonrpc.internal.methods.JsonRpcMethodFactory;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
 import tech.pegasys.pantheon.ethereum.p2p.config.SubProtocolConfiguration;
 import tech.pegasys.pantheon.ethereum.storage.StorageProvider;
 import tech.pegasys.pantheon.ethereum.storage.keyvalue.RocksDbStorageProvider;
+import tech.pegasys.pantheon.ethereum.trie.TrieNodeCache;
+import tech.pegasys.pantheon.ethereum.vm.CodeCache;
+import tech.pegasys.pantheon.ethereum.worldstate.MarkSweepPruner;
+import tech.pegasys.pantheon.ethereum.worldstate.Pruner;
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
 import tech.pegasys.pantheon.ethereum.worldstate.WorldStateArchive;
 import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.services.kvstore.RocksDbConfiguration;
@@ -55,7 +69,9 @@ import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -76,6 +92,12 @@ public abstract class PantheonControllerBuilder<C> {
   protected Clock clock;
   protected KeyPair nodeKeys;
   protected boolean isRevertReasonEnabled;
+  private boolean isPruningEnabled;
+  private PrunerConfiguration prunerConfiguration = PrunerConfiguration.getDefault();
+  private long blockchainCacheSize = CachingBlockchainStorage.DEFAULT_CACHE_SIZE;
+  private long blockchainFreezerDepth = 0;
+  private long trieNodeCacheSize = TrieNodeCache.DEFAULT_MAXIMUM_SIZE_BYTES;
+  private boolean flatStateEnabled = true;
   private StorageProvider storageProvider;
   private final List<Runnable> shutdownActions = new ArrayList<>();
   private RocksDbConfiguration rocksDbConfiguration;
@@ -160,6 +182,37 @@ public abstract class PantheonControllerBuilder<C> {
     return this;
   }
 
+  public PantheonControllerBuilder<C> isPruningEnabled(final boolean pruningEnabled) {
+    this.isPruningEnabled = pruningEnabled;
+    return this;
+  }
+
+  public PantheonControllerBuilder<C> pruningConfiguration(
+      final PrunerConfiguration prunerConfiguration) {
+    this.prunerConfiguration = prunerConfiguration;
+    return this;
+  }
+
+  public PantheonControllerBuilder<C> blockchainCacheSize(final long blockchainCacheSize) {
+    this.blockchainCacheSize = blockchainCacheSize;
+    return this;
+  }
+
+  public PantheonControllerBuilder<C> blockchainFreezerDepth(final long blockchainFreezerDepth) {
+    this.blockchainFreezerDepth = blockchainFreezerDepth;
+    return this;
+  }
+
+  public PantheonControllerBuilder<C> trieNodeCacheSize(final long trieNodeCacheSize) {
+    this.trieNodeCacheSize = trieNodeCacheSize;
+    return this;
+  }
+
+  public PantheonControllerBuilder<C> flatStateEnabled(final boolean flatStateEnabled) {
+    this.flatStateEnabled = flatStateEnabled;
+    return this;
+  }
+
   public PantheonController<C> build() throws IOException {
     checkNotNull(genesisConfig, "Missing genesis config");
     checkNotNull(syncConfig, "Missing sync config");
@@ -185,24 +238,108 @@ public abstract class PantheonControllerBuilder<C> {
     }
 
     prepForBuild();
+    CodeCache.shared().registerMetrics(metricsSystem);
 
     final ProtocolSchedule<C> protocolSchedule = createProtocolSchedule();
     final GenesisState genesisState = GenesisState.fromConfig(genesisConfig, protocolSchedule);
+    final Optional<BlockFreezer> blockFreezer =
+        blockchainFreezerDepth > 0
+            ? Optional.of(BlockFreezer.open(dataDirectory.resolve(BlockFreezer.DIRECTORY_NAME)))
+            : Optional.empty();
+    final Optional<ExecutorService> flatStateGenerationExecutor =
+        flatStateEnabled
+            ? Optional.of(
+                MonitoredExecutors.newFixedThreadPool("FlatStateGeneration", 1, metricsSystem))
+            : Optional.empty();
     final ProtocolContext<C> protocolContext =
         ProtocolContext.init(
             storageProvider,
             genesisState,
             protocolSchedule,
             metricsSystem,
+            blockchainCacheSize,
+            trieNodeCacheSize,
+            blockFreezer,
+            flatStateGenerationExecutor,
             this::createConsensusContext);
     validateContext(protocolContext);
+    addShutdownAction(protocolContext.getSenderRecoveryService()::close);
+    // Stops flat state generation, which writes to the world state storage, before it's closed.
+    protocolContext
+        .getWorldStateArchive()
+        .getSnapshots()
+        .ifPresent(snapshots -> addShutdownAction(snapshots::close));
 
     final MutableBlockchain blockchain = protocolContext.getBlockchain();
 
+    if (blockFreezer.isPresent()) {
+      final AncientBlockMover ancientBlockMover =
+          new AncientBlockMover(
+              blockchain,
+              blockFreezer.get(),
+              storageProvider.createBlockFreezerStorage(),
+              MonitoredExecutors.newFixedThreadPool("BlockFreezer", 1, metricsSystem),
+              metricsSystem,
+              blockchainFreezerDepth);
+      ancientBlockMover.start();
+      addShutdownAction(ancientBlockMover::stop);
+      addShutdownAction(
+          () -> {
+            try {
+              blockFreezer.get().close();
+            } catch (final IOException e) {
+              LOG.error("Failed to close block freezer", e);
+            }
+          });
+    }
+
+    if (isPruningEnabled) {
+      if (storageProvider.isWorldStateIterable()) {
+        final Pruner pruner =
+            new Pruner(
+                new MarkSweepPruner(
+                    protocolContext.getWorldStateArchive().getStorage(),
+                    blockchain,
+                    storageProvider.createPruningStorage(),
+                    metricsSystem,
+                    prunerConfiguration),
+                blockchain,
+                MonitoredExecutors.newFixedThreadPool("StatePruning", 1, metricsSystem),
+                prunerConfiguration);
+        pruner.start();
+        addShutdownAction(
+            () -> {
+              try {
+                pruner.stop();
+              } catch (final InterruptedException e) {
+                LOG.error("Failed to stop world state pruner", e);
+              }
+            });
+      } else {
+        LOG.warn(
+            "Pruning requires world state to be stored in its own column family, "
+                + "pruning disabled");
+      }
+    }
+
+    final BloomBitsStorage bloomBitsStorage = storageProvider.createBloomBitsStorage();
+    final BloomBitsIndex bloomBitsIndex = new BloomBitsIndex(blockchain, bloomBitsStorage);
+    final BloomBitsIndexer bloomBitsIndexer =
+        new BloomBitsIndexer(
+            blockchain,
+            bloomBitsStorage,
+            bloomBitsIndex,
+            MonitoredExecutors.newFixedThreadPool("LogBloomIndexer", 1, metricsSystem),
+            metricsSystem);
+    bloomBitsIndexer.start();
+    addShutdownAction(bloomBitsIndexer::stop);
+
     final boolean fastSyncEnabled = syncConfig.getSyncMode().equals(SyncMode.FAST);
     ethProtocolManager = createEthProtocolManager(protocolContext, fastSyncEnabled);
     final SyncState syncState =
         new SyncState(blockchain, ethProtocolManager.ethContext().getEthPeers());
+    final StateRangeProtocolManager stateRangeProtocolManager =
+        new StateRangeProtocolManager(protocolContext.getWorldStateArchive().getStorage());
     final Synchronizer synchronizer =
         new DefaultSynchronizer<>(
             syncConfig,
@@ -211,6 +348,7 @@ public abstract class PantheonControllerBuilder<C> {
             protocolContext.getWorldStateArchive().getStorage(),
             ethProtocolManager.getBlockBroadcaster(),
             ethProtocolManager.ethContext(),
+            stateRangeProtocolManager,
             syncState,
             dataDirectory,
             clock,
@@ -248,6 +386,10 @@ public abstract class PantheonControllerBuilder<C> {
 
     final SubProtocolConfiguration subProtocolConfiguration =
         createSubProtocolConfiguration(ethProtocolManager);
+    // Only nodes that sync state by range advertise range/1, so that serving it is opt-in too.
+    if (syncConfig.isFastSyncRangeState()) {
+      subProtocolConfiguration.withSubProtocol(StateRangeProtocol.get(), stateRangeProtocolManager);
+    }
 
     final JsonRpcMethodFactory additionalJsonRpcMethodFactory =
         createAdditionalJsonRpcMethodFactory(protocolContext);
@@ -263,6 +405,7 @@ public abstract class PantheonControllerBuilder<C> {
         transactionPool,
         miningCoordinator,
         privacyParameters,
+        bloomBitsIndex,
         () -> {
           shutdownActions.forEach(Runnable::run);
           try {
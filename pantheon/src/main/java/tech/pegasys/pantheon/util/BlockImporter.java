@@ -20,7 +20,6 @@ import tech.pegasys.pantheon.ethereum.ProtocolContext;
 import tech.pegasys.pantheon.ethereum.chain.MutableBlockchain;
 import tech.pegasys.pantheon.ethereum.core.Block;
 import tech.pegasys.pantheon.ethereum.core.BlockHeader;
-import tech.pegasys.pantheon.ethereum.core.Transaction;
 import tech.pegasys.pantheon.ethereum.mainnet.BlockHeaderValidator;
 import tech.pegasys.pantheon.ethereum.mainnet.HeaderValidationMode;
 import tech.pegasys.pantheon.ethereum.mainnet.ProtocolSchedule;
@@ -31,8 +30,6 @@ import tech.pegasys.pantheon.util.uint.UInt256;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -98,7 +95,7 @@ public class BlockImporter {
                 () -> validateBlock(protocolSpec, context, lastHeader, header), validationExecutor);
 
         final CompletableFuture<Void> extractingFuture =
-            CompletableFuture.runAsync(() -> extractSignatures(block));
+            context.getSenderRecoveryService().recoverSenders(block.getBody().getTransactions());
 
         final CompletableFuture<Void> calculationFutures;
         if (previousBlockFuture == null) {
@@ -143,17 +140,6 @@ public class BlockImporter {
     }
   }
 
-  private void extractSignatures(final Block block) {
-    final List<CompletableFuture<Void>> futures =
-        new ArrayList<>(block.getBody().getTransactions().size());
-    for (final Transaction tx : block.getBody().getTransactions()) {
-      futures.add(CompletableFuture.runAsync(tx::getSender, validationExecutor));
-    }
-    for (final CompletableFuture<Void> future : futures) {
-      future.join();
-    }
-  }
-
   private <C> void validateBlock(
       final ProtocolSpec<C> protocolSpec,
       final ProtocolContext<C> context,
@@ -15,6 +15,7 @@ package tech.pegasys.pantheon.cli;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.eq;
@@ -36,6 +37,7 @@ import static tech.pegasys.pantheon.ethereum.p2p.config.DiscoveryConfiguration.M
 import tech.pegasys.pantheon.PantheonInfo;
 import tech.pegasys.pantheon.cli.config.EthNetworkConfig;
 import tech.pegasys.pantheon.config.GenesisConfigFile;
+import tech.pegasys.pantheon.ethereum.chain.CachingBlockchainStorage;
 import tech.pegasys.pantheon.ethereum.core.Address;
 import tech.pegasys.pantheon.ethereum.core.MiningParameters;
 import tech.pegasys.pantheon.ethereum.core.PrivacyParameters;
@@ -50,6 +52,8 @@ import tech.pegasys.pantheon.ethereum.p2p.peers.EnodeURL;
 import tech.pegasys.pantheon.ethereum.permissioning.LocalPermissioningConfiguration;
 import tech.pegasys.pantheon.ethereum.permissioning.PermissioningConfiguration;
 import tech.pegasys.pantheon.ethereum.permissioning.SmartContractPermissioningConfiguration;
+import tech.pegasys.pantheon.ethereum.trie.TrieNodeCache;
+import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 import tech.pegasys.pantheon.metrics.StandardMetricCategory;
 import tech.pegasys.pantheon.metrics.prometheus.MetricsConfiguration;
 import tech.pegasys.pantheon.nat.NatMethod;
@@ -1343,6 +1347,93 @@ public class PantheonCommandTest extends CommandTestAbstract {
         .contains("Invalid value for option '--fast-sync-min-peers': 'ten' is not an int");
   }
 
+  @Test
+  public void blockchainCacheSizeDefaultsToCachingBlockchainStorageDefault() {
+    parseCommand();
+    verify(mockControllerBuilder)
+        .blockchainCacheSize(eq(CachingBlockchainStorage.DEFAULT_CACHE_SIZE));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void parsesValidBlockchainCacheSizeOption() {
+    parseCommand("--Xblockchain-cache-size", "2048");
+    verify(mockControllerBuilder).blockchainCacheSize(eq(2048L));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void blockchainFreezerIsDisabledByDefault() {
+    parseCommand();
+    verify(mockControllerBuilder).blockchainFreezerDepth(eq(0L));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void parsesValidBlockchainFreezerDepthOption() {
+    parseCommand("--Xblockchain-freezer-depth", "90000");
+    verify(mockControllerBuilder).blockchainFreezerDepth(eq(90000L));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void trieNodeCacheSizeDefaultsToCacheDefault() {
+    parseCommand();
+    verify(mockControllerBuilder).trieNodeCacheSize(eq(TrieNodeCache.DEFAULT_MAXIMUM_SIZE_BYTES));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void parsesValidTrieNodeCacheSizeOption() {
+    parseCommand("--Xtrie-node-cache-size", "1048576");
+    verify(mockControllerBuilder).trieNodeCacheSize(eq(1048576L));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void negativeTrieNodeCacheSizeMustError() {
+    parseCommand("--Xtrie-node-cache-size", "-1");
+
+    verifyZeroInteractions(mockRunnerBuilder);
+
+    assertThat(commandErrorOutput.toString())
+        .contains("--Xtrie-node-cache-size must be 0 to disable the cache or positive");
+    assertThat(commandOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void flatStateIsEnabledByDefault() {
+    parseCommand();
+    verify(mockControllerBuilder).flatStateEnabled(eq(true));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void flatStateCanBeDisabled() {
+    parseCommand("--Xflat-state-enabled", "false");
+    verify(mockControllerBuilder).flatStateEnabled(eq(false));
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void blockchainFreezerDepthBelowMinimumMustError() {
+    parseCommand("--Xblockchain-freezer-depth", "100");
+
+    verifyZeroInteractions(mockRunnerBuilder);
+
+    assertThat(commandErrorOutput.toString())
+        .contains("--Xblockchain-freezer-depth must be 0 to disable the block freezer or at least");
+    assertThat(commandOutput.toString()).isEmpty();
+  }
+
   @Test
   public void natMethodOptionIsParsedCorrectly() {
 
@@ -2139,6 +2230,49 @@ public class PantheonCommandTest extends CommandTestAbstract {
     assertThat(commandErrorOutput.toString()).isEmpty();
   }
 
+  @Test
+  public void metricsTimerSamplingDefaultsToNoSampledTimers() {
+    parseCommand("--metrics-enabled");
+
+    verify(mockRunnerBuilder).metricsConfiguration(metricsConfigArgumentCaptor.capture());
+    verify(mockRunnerBuilder).build();
+
+    assertThat(metricsConfigArgumentCaptor.getValue().getTimerSamplingIntervals()).isEmpty();
+
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void metricsTimerSamplingOptionMustBeUsed() {
+    parseCommand(
+        "--metrics-enabled", "--Xmetrics-timer-sampling", "KVSTORE_ROCKSDB=1,SYNCHRONIZER=4");
+
+    verify(mockRunnerBuilder).metricsConfiguration(metricsConfigArgumentCaptor.capture());
+    verify(mockRunnerBuilder).build();
+
+    assertThat(metricsConfigArgumentCaptor.getValue().getTimerSamplingIntervals())
+        .containsOnly(
+            entry(PantheonMetricCategory.KVSTORE_ROCKSDB, 1),
+            entry(PantheonMetricCategory.SYNCHRONIZER, 4));
+
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Test
+  public void metricsTimerSamplingIntervalMustBePositive() {
+    assumeTrue(isFullInstantiation());
+
+    parseCommand("--metrics-enabled", "--Xmetrics-timer-sampling", "KVSTORE_ROCKSDB=0");
+
+    verifyZeroInteractions(mockRunnerBuilder);
+
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString())
+        .startsWith("--Xmetrics-timer-sampling intervals must be at least 1.");
+  }
+
   @Test
   public void metricsPushEnabledPropertyMustBeUsed() {
     parseCommand("--metrics-push-enabled");
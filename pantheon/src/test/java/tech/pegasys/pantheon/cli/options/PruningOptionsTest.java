@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.cli.options;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.ethereum.worldstate.PrunerConfiguration;
+
+import org.junit.Test;
+
+public class PruningOptionsTest
+    extends AbstractCLIOptionsTest<PrunerConfiguration, PruningOptions> {
+
+  @Test
+  public void blocksRetained() {
+    final TestPantheonCommand cmd = parseCommand("--Xpruning-blocks-retained", "2048");
+
+    final PrunerConfiguration config = getOptionsFromPantheonCommand(cmd).toDomainObject();
+    assertThat(config.getBlocksRetained()).isEqualTo(2048);
+
+    assertThat(commandOutput.toString()).isEmpty();
+    assertThat(commandErrorOutput.toString()).isEmpty();
+  }
+
+  @Override
+  PrunerConfiguration createDefaultDomainObject() {
+    return PrunerConfiguration.getDefault();
+  }
+
+  @Override
+  PrunerConfiguration createCustomizedDomainObject() {
+    return new PrunerConfiguration(
+        PrunerConfiguration.DEFAULT_BLOCKS_RETAINED + 1,
+        PrunerConfiguration.DEFAULT_BLOCK_CONFIRMATIONS + 1);
+  }
+
+  @Override
+  PruningOptions optionsFromDomainObject(final PrunerConfiguration domainObject) {
+    return PruningOptions.fromConfig(domainObject);
+  }
+
+  @Override
+  PruningOptions getOptionsFromPantheonCommand(final TestPantheonCommand pantheonCommand) {
+    return pantheonCommand.getPruningOptions();
+  }
+}
@@ -31,7 +31,11 @@ public class RocksDBOptionsTest
         .maxOpenFiles(RocksDbConfiguration.DEFAULT_MAX_OPEN_FILES + 1)
         .cacheCapacity(RocksDbConfiguration.DEFAULT_CACHE_CAPACITY + 1)
         .maxBackgroundCompactions(RocksDbConfiguration.DEFAULT_MAX_BACKGROUND_COMPACTIONS + 1)
-        .backgroundThreadCount(RocksDbConfiguration.DEFAULT_BACKGROUND_THREAD_COUNT + 1);
+        .backgroundThreadCount(RocksDbConfiguration.DEFAULT_BACKGROUND_THREAD_COUNT + 1)
+        .useTransactionDb(!RocksDbConfiguration.DEFAULT_USE_TRANSACTION_DB)
+        .bloomFilterBitsPerKey("WORLD_STATE", 12)
+        .bloomFilterBitsPerKey("BLOCKCHAIN", 0)
+        .levelCompression("PRUNING_STATE", false);
   }
 
   @Override
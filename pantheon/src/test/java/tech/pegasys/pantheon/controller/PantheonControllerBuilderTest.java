@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import tech.pegasys.pantheon.config.GenesisConfigFile;
+import tech.pegasys.pantheon.crypto.SECP256K1.KeyPair;
+import tech.pegasys.pantheon.ethereum.core.InMemoryStorageProvider;
+import tech.pegasys.pantheon.ethereum.core.MiningParametersTestBuilder;
+import tech.pegasys.pantheon.ethereum.core.PrivacyParameters;
+import tech.pegasys.pantheon.ethereum.eth.EthProtocol;
+import tech.pegasys.pantheon.ethereum.eth.EthProtocolConfiguration;
+import tech.pegasys.pantheon.ethereum.eth.StateRangeProtocol;
+import tech.pegasys.pantheon.ethereum.eth.sync.SynchronizerConfiguration;
+import tech.pegasys.pantheon.ethereum.eth.transactions.TransactionPoolConfiguration;
+import tech.pegasys.pantheon.ethereum.p2p.rlpx.wire.SubProtocol;
+import tech.pegasys.pantheon.metrics.noop.NoOpMetricsSystem;
+import tech.pegasys.pantheon.testutil.TestClock;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PantheonControllerBuilderTest {
+
+  @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void shouldNotAdvertiseStateRangeProtocolByDefault() throws IOException {
+    try (final PantheonController<?> controller =
+        buildController(SynchronizerConfiguration.builder().build())) {
+      assertThat(controller.getSubProtocolConfiguration().getSubProtocols())
+          .extracting(SubProtocol::getName)
+          .containsExactly(EthProtocol.NAME);
+    }
+  }
+
+  @Test
+  public void shouldAdvertiseStateRangeProtocolWhenSyncingStateByRange() throws IOException {
+    try (final PantheonController<?> controller =
+        buildController(SynchronizerConfiguration.builder().fastSyncRangeState(true).build())) {
+      assertThat(controller.getSubProtocolConfiguration().getSubProtocols())
+          .extracting(SubProtocol::getName)
+          .containsExactly(EthProtocol.NAME, StateRangeProtocol.NAME);
+    }
+  }
+
+  private PantheonController<?> buildController(final SynchronizerConfiguration syncConfig)
+      throws IOException {
+    return new PantheonController.Builder()
+        .fromGenesisConfig(GenesisConfigFile.mainnet())
+        .synchronizerConfiguration(syncConfig)
+        .ethProtocolConfiguration(EthProtocolConfiguration.defaultConfig())
+        .storageProvider(new InMemoryStorageProvider())
+        .networkId(1)
+        .miningParameters(new MiningParametersTestBuilder().enabled(false).build())
+        .nodeKeys(KeyPair.generate())
+        .metricsSystem(new NoOpMetricsSystem())
+        .privacyParameters(PrivacyParameters.DEFAULT)
+        .dataDirectory(folder.newFolder().toPath())
+        .clock(TestClock.fixed())
+        .transactionPoolConfiguration(TransactionPoolConfiguration.builder().build())
+        .build();
+  }
+}
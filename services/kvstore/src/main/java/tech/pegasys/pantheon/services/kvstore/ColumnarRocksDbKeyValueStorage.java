@@ -12,6 +12,8 @@
  */
 package tech.pegasys.pantheon.services.kvstore;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import tech.pegasys.pantheon.metrics.MetricsSystem;
 import tech.pegasys.pantheon.metrics.OperationTimer;
 import tech.pegasys.pantheon.services.util.RocksDbUtil;
@@ -20,28 +22,36 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 import java.io.Closeable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.google.common.collect.ImmutableMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Env;
+import org.rocksdb.Filter;
 import org.rocksdb.LRUCache;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.Statistics;
 import org.rocksdb.TransactionDB;
 import org.rocksdb.TransactionDBOptions;
+import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 
 public class ColumnarRocksDbKeyValueStorage
@@ -49,10 +59,26 @@ public class ColumnarRocksDbKeyValueStorage
 
   private static final Logger LOG = LogManager.getLogger();
   private static final String DEFAULT_COLUMN = "default";
+  private static final int REMOVE_BATCH_SIZE = 1000;
+  // Levels 0 and 1 are small and rewritten on almost every compaction, so they are only worth
+  // compressing further down where most of the data ends up.
+  private static final List<CompressionType> COMPRESSION_PER_LEVEL =
+      Arrays.asList(
+          CompressionType.NO_COMPRESSION,
+          CompressionType.NO_COMPRESSION,
+          CompressionType.LZ4_COMPRESSION,
+          CompressionType.LZ4_COMPRESSION,
+          CompressionType.LZ4_COMPRESSION,
+          CompressionType.LZ4_COMPRESSION,
+          CompressionType.LZ4_COMPRESSION);
 
   private final DBOptions options;
+  private final LRUCache blockCache;
+  private final List<Filter> bloomFilters = new ArrayList<>();
+  private final List<ColumnFamilyOptions> columnOptions = new ArrayList<>();
   private final TransactionDBOptions txOptions;
-  private final TransactionDB db;
+  private final RocksDB db;
+  private final boolean useTransactionDb;
   private final AtomicBoolean closed = new AtomicBoolean(false);
   private final Map<String, ColumnFamilyHandle> columnHandlesByName;
   private final RocksDBMetricsHelper rocksDBMetricsHelper;
@@ -62,6 +88,14 @@ public class ColumnarRocksDbKeyValueStorage
       final List<Segment> segments,
       final MetricsSystem metricsSystem)
       throws StorageException {
+    final Set<String> segmentNames =
+        segments.stream().map(Segment::getName).collect(Collectors.toSet());
+    for (final String segmentName : rocksDbConfiguration.getBloomFilterBitsPerKey().keySet()) {
+      checkArgument(segmentNames.contains(segmentName), "Unknown segment %s", segmentName);
+    }
+    for (final String segmentName : rocksDbConfiguration.getLevelCompression().keySet()) {
+      checkArgument(segmentNames.contains(segmentName), "Unknown segment %s", segmentName);
+    }
     return new ColumnarRocksDbKeyValueStorage(rocksDbConfiguration, segments, metricsSystem);
   }
 
@@ -71,15 +105,22 @@ public class ColumnarRocksDbKeyValueStorage
       final MetricsSystem metricsSystem) {
     RocksDbUtil.loadNativeLibrary();
     try {
+      // One block cache for every column, so that the busiest columns get the largest share of
+      // it. It's as large as the caches each column used to have on its own put together.
+      blockCache = new LRUCache(rocksDbConfiguration.getCacheCapacity() * (segments.size() + 1));
       final List<ColumnFamilyDescriptor> columnDescriptors =
           segments.stream()
-              .map(segment -> new ColumnFamilyDescriptor(segment.getId()))
+              .map(
+                  segment ->
+                      new ColumnFamilyDescriptor(
+                          segment.getId(),
+                          createColumnFamilyOptions(
+                              rocksDbConfiguration.getSegmentOptions(segment))))
               .collect(Collectors.toList());
       columnDescriptors.add(
           new ColumnFamilyDescriptor(
               DEFAULT_COLUMN.getBytes(StandardCharsets.UTF_8),
-              new ColumnFamilyOptions()
-                  .setTableFormatConfig(createBlockBasedTableConfig(rocksDbConfiguration))));
+              createColumnFamilyOptions(SegmentOptions.DEFAULT)));
 
       final Statistics stats = new Statistics();
       options =
@@ -94,14 +135,14 @@ public class ColumnarRocksDbKeyValueStorage
                       .setBackgroundThreads(rocksDbConfiguration.getBackgroundThreadCount()));
 
       txOptions = new TransactionDBOptions();
+      useTransactionDb = rocksDbConfiguration.useTransactionDb();
+      final String databaseDir = rocksDbConfiguration.getDatabaseDir().toString();
       final List<ColumnFamilyHandle> columnHandles = new ArrayList<>(columnDescriptors.size());
       db =
-          TransactionDB.open(
-              options,
-              txOptions,
-              rocksDbConfiguration.getDatabaseDir().toString(),
-              columnDescriptors,
-              columnHandles);
+          useTransactionDb
+              ? TransactionDB.open(
+                  options, txOptions, databaseDir, columnDescriptors, columnHandles)
+              : RocksDB.open(options, databaseDir, columnDescriptors, columnHandles);
       rocksDBMetricsHelper =
           RocksDBMetricsHelper.of(metricsSystem, rocksDbConfiguration, db, stats);
       final Map<BytesValue, String> segmentsById =
@@ -119,15 +160,31 @@ public class ColumnarRocksDbKeyValueStorage
         }
       }
       columnHandlesByName = builder.build();
+      RocksDBMetricsHelper.registerColumnFamilyMetrics(
+          metricsSystem, rocksDbConfiguration, db, columnHandlesByName);
 
     } catch (final RocksDBException e) {
       throw new StorageException(e);
     }
   }
 
-  private BlockBasedTableConfig createBlockBasedTableConfig(final RocksDbConfiguration config) {
-    final LRUCache cache = new LRUCache(config.getCacheCapacity());
-    return new BlockBasedTableConfig().setBlockCache(cache);
+  private ColumnFamilyOptions createColumnFamilyOptions(final SegmentOptions segmentOptions) {
+    final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig().setBlockCache(blockCache);
+    if (segmentOptions.getBloomFilterBitsPerKey() > 0) {
+      // Whole key filters let reads of missing keys, and of keys in the upper levels, skip the
+      // files that can't contain them instead of reading one data block per level.
+      final Filter bloomFilter = new BloomFilter(segmentOptions.getBloomFilterBitsPerKey(), false);
+      bloomFilters.add(bloomFilter);
+      tableConfig.setFilter(bloomFilter).setWholeKeyFiltering(true);
+    }
+
+    final ColumnFamilyOptions columnFamilyOptions =
+        new ColumnFamilyOptions().setTableFormatConfig(tableConfig);
+    if (segmentOptions.isLevelCompression()) {
+      columnFamilyOptions.setCompressionPerLevel(COMPRESSION_PER_LEVEL);
+    }
+    columnOptions.add(columnFamilyOptions);
+    return columnFamilyOptions;
   }
 
   @Override
@@ -152,22 +209,37 @@ public class ColumnarRocksDbKeyValueStorage
   public Transaction<ColumnFamilyHandle> startTransaction() throws StorageException {
     throwIfClosed();
     final WriteOptions options = new WriteOptions();
-    return new RocksDbTransaction(db.beginTransaction(options), options);
+    if (useTransactionDb) {
+      return new RocksDbTransaction(((TransactionDB) db).beginTransaction(options), options);
+    }
+    return new RocksDbWriteBatchTransaction(new WriteBatch(), options);
   }
 
   @Override
   public long removeUnless(
       final ColumnFamilyHandle segmentHandle, final Predicate<BytesValue> inUseCheck) {
     long removedNodeCounter = 0;
-    try (final RocksIterator rocksIterator = db.newIterator(segmentHandle)) {
-      rocksIterator.seekToFirst();
-      while (rocksIterator.isValid()) {
-        final byte[] key = rocksIterator.key();
-        if (!inUseCheck.test(BytesValue.wrap(key))) {
-          removedNodeCounter++;
-          db.delete(segmentHandle, key);
+    try (final RocksIterator rocksIterator = db.newIterator(segmentHandle);
+        final WriteOptions writeOptions = new WriteOptions()) {
+      WriteBatch batch = new WriteBatch();
+      try {
+        rocksIterator.seekToFirst();
+        while (rocksIterator.isValid()) {
+          final byte[] key = rocksIterator.key();
+          if (!inUseCheck.test(BytesValue.wrap(key))) {
+            removedNodeCounter++;
+            batch.delete(segmentHandle, key);
+            if (batch.count() >= REMOVE_BATCH_SIZE) {
+              db.write(writeOptions, batch);
+              batch.close();
+              batch = new WriteBatch();
+            }
+          }
+          rocksIterator.next();
         }
-        rocksIterator.next();
+        db.write(writeOptions, batch);
+      } finally {
+        batch.close();
       }
     } catch (final RocksDBException e) {
       throw new KeyValueStorage.StorageException(e);
@@ -175,6 +247,19 @@ public class ColumnarRocksDbKeyValueStorage
     return removedNodeCounter;
   }
 
+  @Override
+  public Stream<BytesValue> streamKeys(final ColumnFamilyHandle segmentHandle) {
+    throwIfClosed();
+    return RocksDbKeyIterator.create(db.newIterator(segmentHandle)).toStream();
+  }
+
+  @Override
+  public Stream<BytesValue> streamKeysWithPrefix(
+      final ColumnFamilyHandle segmentHandle, final BytesValue prefix) {
+    throwIfClosed();
+    return RocksDbKeyIterator.create(db.newIterator(segmentHandle), prefix).toStream();
+  }
+
   @Override
   public void clear(final ColumnFamilyHandle segmentHandle) {
     try (final RocksIterator rocksIterator = db.newIterator(segmentHandle)) {
@@ -183,7 +268,10 @@ public class ColumnarRocksDbKeyValueStorage
         final byte[] firstKey = rocksIterator.key();
         rocksIterator.seekToLast();
         if (rocksIterator.isValid()) {
-          db.deleteRange(segmentHandle, firstKey, rocksIterator.key());
+          final byte[] lastKey = rocksIterator.key();
+          // The end of the range is exclusive so the last key has to be removed separately
+          db.deleteRange(segmentHandle, firstKey, lastKey);
+          db.delete(segmentHandle, lastKey);
         }
       }
     } catch (final RocksDBException e) {
@@ -198,6 +286,9 @@ public class ColumnarRocksDbKeyValueStorage
       options.close();
       columnHandlesByName.values().forEach(ColumnFamilyHandle::close);
       db.close();
+      columnOptions.forEach(ColumnFamilyOptions::close);
+      bloomFilters.forEach(Filter::close);
+      blockCache.close();
     }
   }
 
@@ -267,4 +358,58 @@ public class ColumnarRocksDbKeyValueStorage
       options.close();
     }
   }
+
+  private class RocksDbWriteBatchTransaction extends AbstractTransaction<ColumnFamilyHandle> {
+    private final WriteBatch batch;
+    private final WriteOptions options;
+
+    RocksDbWriteBatchTransaction(final WriteBatch batch, final WriteOptions options) {
+      this.batch = batch;
+      this.options = options;
+    }
+
+    @Override
+    protected void doPut(
+        final ColumnFamilyHandle segment, final BytesValue key, final BytesValue value) {
+      try (final OperationTimer.TimingContext ignored =
+          rocksDBMetricsHelper.getWriteLatency().startTimer()) {
+        batch.put(segment, key.getArrayUnsafe(), value.getArrayUnsafe());
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      }
+    }
+
+    @Override
+    protected void doRemove(final ColumnFamilyHandle segment, final BytesValue key) {
+      try (final OperationTimer.TimingContext ignored =
+          rocksDBMetricsHelper.getRemoveLatency().startTimer()) {
+        batch.delete(segment, key.getArrayUnsafe());
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      }
+    }
+
+    @Override
+    protected void doCommit() throws StorageException {
+      try (final OperationTimer.TimingContext ignored =
+          rocksDBMetricsHelper.getCommitLatency().startTimer()) {
+        db.write(options, batch);
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      } finally {
+        close();
+      }
+    }
+
+    @Override
+    protected void doRollback() {
+      rocksDBMetricsHelper.getRollbackCount().inc();
+      close();
+    }
+
+    private void close() {
+      batch.close();
+      options.close();
+    }
+  }
 }
@@ -24,6 +24,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public class InMemoryKeyValueStorage implements KeyValueStorage {
 
@@ -68,8 +69,20 @@ public class InMemoryKeyValueStorage implements KeyValueStorage {
 
   @Override
   public long removeUnless(final Predicate<BytesValue> inUseCheck) {
-    hashValueStore.keySet().removeIf(key -> !inUseCheck.test(key));
-    return 0;
+    final Lock lock = rwLock.writeLock();
+    lock.lock();
+    try {
+      final long initialSize = hashValueStore.size();
+      hashValueStore.keySet().removeIf(key -> !inUseCheck.test(key));
+      return initialSize - hashValueStore.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Stream<BytesValue> streamKeys() {
+    return keySet().stream();
   }
 
   @Override
@@ -78,7 +91,13 @@ public class InMemoryKeyValueStorage implements KeyValueStorage {
   }
 
   public Set<BytesValue> keySet() {
-    return Collections.unmodifiableSet(new HashSet<>(hashValueStore.keySet()));
+    final Lock lock = rwLock.readLock();
+    lock.lock();
+    try {
+      return Collections.unmodifiableSet(new HashSet<>(hashValueStore.keySet()));
+    } finally {
+      lock.unlock();
+    }
   }
 
   private class InMemoryTransaction extends AbstractTransaction {
@@ -19,6 +19,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 import java.io.Closeable;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /** Service provided by pantheon to facilitate persistent data storage. */
 public interface KeyValueStorage extends Closeable {
@@ -37,6 +38,25 @@ public interface KeyValueStorage extends Closeable {
 
   long removeUnless(Predicate<BytesValue> inUseCheck);
 
+  /**
+   * Streams all keys currently held in storage. The stream holds resources in the underlying
+   * storage and must be closed once it is no longer needed.
+   *
+   * @return A stream of the keys in storage.
+   */
+  Stream<BytesValue> streamKeys() throws StorageException;
+
+  /**
+   * Streams the keys held in storage that start with a prefix. The stream holds resources in the
+   * underlying storage and must be closed once it is no longer needed.
+   *
+   * @param prefix The prefix of the keys to stream.
+   * @return A stream of the keys in storage that start with the prefix.
+   */
+  default Stream<BytesValue> streamKeysWithPrefix(final BytesValue prefix) throws StorageException {
+    return streamKeys().filter(key -> key.commonPrefixLength(prefix) == prefix.size());
+  }
+
   /**
    * Begins a transaction. Returns a transaction object that can be updated and committed.
    *
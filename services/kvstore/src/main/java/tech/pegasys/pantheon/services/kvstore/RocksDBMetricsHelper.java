@@ -19,14 +19,23 @@ import tech.pegasys.pantheon.metrics.PantheonMetricCategory;
 import tech.pegasys.pantheon.metrics.prometheus.PrometheusMetricsSystem;
 import tech.pegasys.pantheon.metrics.rocksdb.RocksDBStats;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.prometheus.client.Collector;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.Statistics;
-import org.rocksdb.TransactionDB;
 
 public class RocksDBMetricsHelper {
   private static final Logger LOG = LogManager.getLogger();
+  private static final List<String> COLUMN_FAMILY_LABELS = Arrays.asList("database", "column");
 
   private final OperationTimer readLatency;
   private final OperationTimer removeLatency;
@@ -50,7 +59,7 @@ public class RocksDBMetricsHelper {
   public static RocksDBMetricsHelper of(
       final MetricsSystem metricsSystem,
       final RocksDbConfiguration rocksDbConfiguration,
-      final TransactionDB db,
+      final RocksDB db,
       final Statistics stats) {
     final OperationTimer readLatency =
         metricsSystem
@@ -128,6 +137,112 @@ public class RocksDBMetricsHelper {
         readLatency, removeLatency, writeLatency, commitLatency, rollbackCount);
   }
 
+  /**
+   * Registers gauges for the RocksDB properties that are tracked separately by each column family,
+   * labelled with the column they belong to.
+   *
+   * @param metricsSystem The metrics system to register the gauges with.
+   * @param rocksDbConfiguration The configuration of the database.
+   * @param db The database the columns belong to.
+   * @param columnHandlesByName The columns to report on, by name.
+   */
+  public static void registerColumnFamilyMetrics(
+      final MetricsSystem metricsSystem,
+      final RocksDbConfiguration rocksDbConfiguration,
+      final RocksDB db,
+      final Map<String, ColumnFamilyHandle> columnHandlesByName) {
+    if (!(metricsSystem instanceof PrometheusMetricsSystem)) {
+      return;
+    }
+    final PrometheusMetricsSystem prometheusMetricsSystem = (PrometheusMetricsSystem) metricsSystem;
+    registerColumnFamilyProperty(
+        prometheusMetricsSystem,
+        rocksDbConfiguration,
+        db,
+        columnHandlesByName,
+        "column_table_readers_memory_bytes",
+        "Estimated memory used for RocksDB index and filter blocks in bytes, by column",
+        "rocksdb.estimate-table-readers-mem");
+    registerColumnFamilyProperty(
+        prometheusMetricsSystem,
+        rocksDbConfiguration,
+        db,
+        columnHandlesByName,
+        "column_files_size_bytes",
+        "Estimated size of the live RocksDB files in bytes, by column",
+        "rocksdb.live-sst-files-size");
+    registerColumnFamilyProperty(
+        prometheusMetricsSystem,
+        rocksDbConfiguration,
+        db,
+        columnHandlesByName,
+        "column_memtables_size_bytes",
+        "Size of the RocksDB memtables in bytes, by column",
+        "rocksdb.cur-size-all-mem-tables");
+    registerColumnFamilyProperty(
+        prometheusMetricsSystem,
+        rocksDbConfiguration,
+        db,
+        columnHandlesByName,
+        "column_estimated_keys",
+        "Estimated number of keys stored in RocksDB, by column",
+        "rocksdb.estimate-num-keys");
+
+    // All columns share the same block cache, so its usage is reported once for the database.
+    metricsSystem.createLongGauge(
+        PantheonMetricCategory.KVSTORE_ROCKSDB,
+        "rocks_db_block_cache_usage_bytes",
+        "Memory used by the RocksDB block cache shared by all columns in bytes",
+        () -> {
+          try {
+            return db.getLongProperty("rocksdb.block-cache-usage");
+          } catch (final RocksDBException e) {
+            LOG.debug("Failed to get RocksDB metric", e);
+            return 0L;
+          }
+        });
+  }
+
+  private static void registerColumnFamilyProperty(
+      final PrometheusMetricsSystem metricsSystem,
+      final RocksDbConfiguration rocksDbConfiguration,
+      final RocksDB db,
+      final Map<String, ColumnFamilyHandle> columnHandlesByName,
+      final String name,
+      final String help,
+      final String property) {
+    final String metricName =
+        metricsSystem.convertToPrometheusName(PantheonMetricCategory.KVSTORE_ROCKSDB, name);
+    metricsSystem.addCollector(
+        PantheonMetricCategory.KVSTORE_ROCKSDB,
+        new Collector() {
+          @Override
+          public List<MetricFamilySamples> collect() {
+            final List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+            columnHandlesByName.forEach(
+                (column, handle) ->
+                    samples.add(
+                        new MetricFamilySamples.Sample(
+                            metricName,
+                            COLUMN_FAMILY_LABELS,
+                            Arrays.asList(rocksDbConfiguration.getLabel(), column),
+                            getLongProperty(db, handle, property))));
+            return Collections.singletonList(
+                new MetricFamilySamples(metricName, Type.GAUGE, help, samples));
+          }
+        });
+  }
+
+  private static long getLongProperty(
+      final RocksDB db, final ColumnFamilyHandle handle, final String property) {
+    try {
+      return db.getLongProperty(handle, property);
+    } catch (final RocksDBException e) {
+      LOG.debug("Failed to get RocksDB metric", e);
+      return 0L;
+    }
+  }
+
   public OperationTimer getReadLatency() {
     return readLatency;
   }
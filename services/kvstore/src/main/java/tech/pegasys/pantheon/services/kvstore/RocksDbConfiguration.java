@@ -12,15 +12,23 @@
  */
 package tech.pegasys.pantheon.services.kvstore;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import tech.pegasys.pantheon.services.kvstore.SegmentedKeyValueStorage.Segment;
 import tech.pegasys.pantheon.services.util.RocksDbUtil;
 
 import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
 
 public class RocksDbConfiguration {
   public static final int DEFAULT_MAX_OPEN_FILES = 1024;
   public static final long DEFAULT_CACHE_CAPACITY = 8388608;
   public static final int DEFAULT_MAX_BACKGROUND_COMPACTIONS = 4;
   public static final int DEFAULT_BACKGROUND_THREAD_COUNT = 4;
+  public static final boolean DEFAULT_USE_TRANSACTION_DB = true;
 
   private final Path databaseDir;
   private final int maxOpenFiles;
@@ -29,6 +37,9 @@ public class RocksDbConfiguration {
   private final int backgroundThreadCount;
   private final boolean useColumns;
   private final long cacheCapacity;
+  private final boolean useTransactionDb;
+  private final Map<String, Integer> bloomFilterBitsPerKey;
+  private final Map<String, Boolean> levelCompression;
 
   private RocksDbConfiguration(
       final Path databaseDir,
@@ -37,6 +48,9 @@ public class RocksDbConfiguration {
       final int backgroundThreadCount,
       final boolean useColumns,
       final long cacheCapacity,
+      final boolean useTransactionDb,
+      final Map<String, Integer> bloomFilterBitsPerKey,
+      final Map<String, Boolean> levelCompression,
       final String label) {
     this.maxBackgroundCompactions = maxBackgroundCompactions;
     this.backgroundThreadCount = backgroundThreadCount;
@@ -45,6 +59,9 @@ public class RocksDbConfiguration {
     this.databaseDir = databaseDir;
     this.maxOpenFiles = maxOpenFiles;
     this.cacheCapacity = cacheCapacity;
+    this.useTransactionDb = useTransactionDb;
+    this.bloomFilterBitsPerKey = ImmutableMap.copyOf(bloomFilterBitsPerKey);
+    this.levelCompression = ImmutableMap.copyOf(levelCompression);
     this.label = label;
   }
 
@@ -68,6 +85,12 @@ public class RocksDbConfiguration {
     return backgroundThreadCount;
   }
 
+  /**
+   * The capacity of the block cache of each column. When using columns, they share a single cache
+   * as large as all of their capacities put together.
+   *
+   * @return the capacity of the block cache in bytes.
+   */
   public long getCacheCapacity() {
     return cacheCapacity;
   }
@@ -80,6 +103,53 @@ public class RocksDbConfiguration {
     return useColumns;
   }
 
+  /**
+   * Whether the database is opened as a pessimistic transaction database, locking every key written
+   * by a transaction until it commits. Otherwise transactions are buffered in a write batch and
+   * written atomically on commit, without taking any locks.
+   *
+   * @return true if the database should be opened as a transaction database.
+   */
+  public boolean useTransactionDb() {
+    return useTransactionDb;
+  }
+
+  /**
+   * The bloom filter bits per key that override the defaults of segments, by segment name.
+   *
+   * @return the overridden bloom filter bits per key.
+   */
+  public Map<String, Integer> getBloomFilterBitsPerKey() {
+    return bloomFilterBitsPerKey;
+  }
+
+  /**
+   * Whether segments use per-level compression, overriding their defaults, by segment name.
+   *
+   * @return the overridden per-level compression settings.
+   */
+  public Map<String, Boolean> getLevelCompression() {
+    return levelCompression;
+  }
+
+  /**
+   * The options a segment is opened with: its own defaults, with any of them overridden by this
+   * configuration applied on top.
+   *
+   * @param segment the segment.
+   * @return the options for the segment.
+   */
+  public SegmentOptions getSegmentOptions(final Segment segment) {
+    final SegmentOptions defaults = segment.getOptions();
+    return SegmentOptions.builder()
+        .bloomFilterBitsPerKey(
+            bloomFilterBitsPerKey.getOrDefault(
+                segment.getName(), defaults.getBloomFilterBitsPerKey()))
+        .levelCompression(
+            levelCompression.getOrDefault(segment.getName(), defaults.isLevelCompression()))
+        .build();
+  }
+
   public static class Builder {
 
     Path databaseDir;
@@ -90,6 +160,9 @@ public class RocksDbConfiguration {
     int maxBackgroundCompactions = DEFAULT_MAX_BACKGROUND_COMPACTIONS;
     int backgroundThreadCount = DEFAULT_BACKGROUND_THREAD_COUNT;
     boolean useColumns = false;
+    boolean useTransactionDb = DEFAULT_USE_TRANSACTION_DB;
+    final Map<String, Integer> bloomFilterBitsPerKey = new HashMap<>();
+    final Map<String, Boolean> levelCompression = new HashMap<>();
 
     private Builder() {}
 
@@ -128,6 +201,22 @@ public class RocksDbConfiguration {
       return this;
     }
 
+    public Builder useTransactionDb(final boolean useTransactionDb) {
+      this.useTransactionDb = useTransactionDb;
+      return this;
+    }
+
+    public Builder bloomFilterBitsPerKey(final String segmentName, final int bitsPerKey) {
+      checkArgument(bitsPerKey >= 0, "Bloom filter bits per key can't be negative");
+      this.bloomFilterBitsPerKey.put(segmentName, bitsPerKey);
+      return this;
+    }
+
+    public Builder levelCompression(final String segmentName, final boolean levelCompression) {
+      this.levelCompression.put(segmentName, levelCompression);
+      return this;
+    }
+
     public RocksDbConfiguration build() {
       return new RocksDbConfiguration(
           databaseDir,
@@ -136,6 +225,9 @@ public class RocksDbConfiguration {
           backgroundThreadCount,
           useColumns,
           cacheCapacity,
+          useTransactionDb,
+          bloomFilterBitsPerKey,
+          levelCompression,
           label);
     }
   }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import tech.pegasys.pantheon.util.bytes.BytesValue;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.rocksdb.RocksIterator;
+
+class RocksDbKeyIterator implements Iterator<BytesValue>, AutoCloseable {
+
+  private final RocksIterator rocksIterator;
+  private final BytesValue prefix;
+
+  private RocksDbKeyIterator(final RocksIterator rocksIterator, final BytesValue prefix) {
+    this.rocksIterator = rocksIterator;
+    this.prefix = prefix;
+  }
+
+  static RocksDbKeyIterator create(final RocksIterator rocksIterator) {
+    rocksIterator.seekToFirst();
+    return new RocksDbKeyIterator(rocksIterator, BytesValue.EMPTY);
+  }
+
+  static RocksDbKeyIterator create(final RocksIterator rocksIterator, final BytesValue prefix) {
+    // Keys are iterated in order, so the keys with the prefix are the ones from the prefix itself
+    // up to the first key without it.
+    rocksIterator.seek(prefix.getArrayUnsafe());
+    return new RocksDbKeyIterator(rocksIterator, prefix);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return rocksIterator.isValid()
+        && BytesValue.wrap(rocksIterator.key()).commonPrefixLength(prefix) == prefix.size();
+  }
+
+  @Override
+  public BytesValue next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final BytesValue key = BytesValue.wrap(rocksIterator.key());
+    rocksIterator.next();
+    return key;
+  }
+
+  Stream<BytesValue> toStream() {
+    final Spliterator<BytesValue> spliterator =
+        Spliterators.spliteratorUnknownSize(
+            this, Spliterator.IMMUTABLE | Spliterator.DISTINCT | Spliterator.NONNULL);
+    return StreamSupport.stream(spliterator, false).onClose(this::close);
+  }
+
+  @Override
+  public void close() {
+    rocksIterator.close();
+  }
+}
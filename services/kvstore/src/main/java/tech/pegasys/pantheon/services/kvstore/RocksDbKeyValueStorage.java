@@ -21,26 +21,31 @@ import java.io.Closeable;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.rocksdb.BlockBasedTableConfig;
 import org.rocksdb.LRUCache;
 import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
 import org.rocksdb.Statistics;
 import org.rocksdb.TransactionDB;
 import org.rocksdb.TransactionDBOptions;
+import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 
 public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
 
   private static final Logger LOG = LogManager.getLogger();
+  private static final int REMOVE_BATCH_SIZE = 1000;
 
   private final Options options;
   private final TransactionDBOptions txOptions;
-  private final TransactionDB db;
+  private final RocksDB db;
+  private final boolean useTransactionDb;
   private final AtomicBoolean closed = new AtomicBoolean(false);
   private final RocksDBMetricsHelper rocksDBMetricsHelper;
 
@@ -65,7 +70,12 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
       options.getEnv().setBackgroundThreads(rocksDbConfiguration.getBackgroundThreadCount());
 
       txOptions = new TransactionDBOptions();
-      db = TransactionDB.open(options, txOptions, rocksDbConfiguration.getDatabaseDir().toString());
+      useTransactionDb = rocksDbConfiguration.useTransactionDb();
+      final String databaseDir = rocksDbConfiguration.getDatabaseDir().toString();
+      db =
+          useTransactionDb
+              ? TransactionDB.open(options, txOptions, databaseDir)
+              : RocksDB.open(options, databaseDir);
       rocksDBMetricsHelper =
           RocksDBMetricsHelper.of(metricsSystem, rocksDbConfiguration, db, stats);
     } catch (final RocksDBException e) {
@@ -76,16 +86,19 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   @Override
   public void clear() {
     try (final RocksIterator rocksIterator = db.newIterator()) {
+      rocksIterator.seekToFirst();
       if (!rocksIterator.isValid()) {
         return;
       }
-      rocksIterator.seekToFirst();
       final byte[] firstKey = rocksIterator.key();
       rocksIterator.seekToLast();
       if (!rocksIterator.isValid()) {
         return;
       }
-      db.deleteRange(firstKey, rocksIterator.key());
+      final byte[] lastKey = rocksIterator.key();
+      // The end of the range is exclusive so the last key has to be removed separately
+      db.deleteRange(firstKey, lastKey);
+      db.delete(lastKey);
     } catch (final RocksDBException e) {
       throw new StorageException(e);
     }
@@ -115,15 +128,27 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
   @Override
   public long removeUnless(final Predicate<BytesValue> inUseCheck) throws StorageException {
     long removedNodeCounter = 0;
-    try (final RocksIterator rocksIterator = db.newIterator()) {
-      rocksIterator.seekToFirst();
-      while (rocksIterator.isValid()) {
-        final byte[] key = rocksIterator.key();
-        if (!inUseCheck.test(BytesValue.wrap(key))) {
-          removedNodeCounter++;
-          db.delete(key);
+    try (final RocksIterator rocksIterator = db.newIterator();
+        final WriteOptions writeOptions = new WriteOptions()) {
+      WriteBatch batch = new WriteBatch();
+      try {
+        rocksIterator.seekToFirst();
+        while (rocksIterator.isValid()) {
+          final byte[] key = rocksIterator.key();
+          if (!inUseCheck.test(BytesValue.wrap(key))) {
+            removedNodeCounter++;
+            batch.delete(key);
+            if (batch.count() >= REMOVE_BATCH_SIZE) {
+              db.write(writeOptions, batch);
+              batch.close();
+              batch = new WriteBatch();
+            }
+          }
+          rocksIterator.next();
         }
-        rocksIterator.next();
+        db.write(writeOptions, batch);
+      } finally {
+        batch.close();
       }
     } catch (final RocksDBException e) {
       throw new StorageException(e);
@@ -131,11 +156,26 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
     return removedNodeCounter;
   }
 
+  @Override
+  public Stream<BytesValue> streamKeys() throws StorageException {
+    throwIfClosed();
+    return RocksDbKeyIterator.create(db.newIterator()).toStream();
+  }
+
+  @Override
+  public Stream<BytesValue> streamKeysWithPrefix(final BytesValue prefix) throws StorageException {
+    throwIfClosed();
+    return RocksDbKeyIterator.create(db.newIterator(), prefix).toStream();
+  }
+
   @Override
   public Transaction startTransaction() throws StorageException {
     throwIfClosed();
     final WriteOptions options = new WriteOptions();
-    return new RocksDbTransaction(db.beginTransaction(options), options);
+    if (useTransactionDb) {
+      return new RocksDbTransaction(((TransactionDB) db).beginTransaction(options), options);
+    }
+    return new RocksDbWriteBatchTransaction(new WriteBatch(), options);
   }
 
   private BlockBasedTableConfig createBlockBasedTableConfig(final RocksDbConfiguration config) {
@@ -209,4 +249,58 @@ public class RocksDbKeyValueStorage implements KeyValueStorage, Closeable {
       options.close();
     }
   }
+
+  private class RocksDbWriteBatchTransaction extends AbstractTransaction {
+
+    private final WriteBatch batch;
+    private final WriteOptions options;
+
+    RocksDbWriteBatchTransaction(final WriteBatch batch, final WriteOptions options) {
+      this.batch = batch;
+      this.options = options;
+    }
+
+    @Override
+    protected void doPut(final BytesValue key, final BytesValue value) {
+      try (final OperationTimer.TimingContext ignored =
+          rocksDBMetricsHelper.getWriteLatency().startTimer()) {
+        batch.put(key.getArrayUnsafe(), value.getArrayUnsafe());
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      }
+    }
+
+    @Override
+    protected void doRemove(final BytesValue key) {
+      try (final OperationTimer.TimingContext ignored =
+          rocksDBMetricsHelper.getRemoveLatency().startTimer()) {
+        batch.delete(key.getArrayUnsafe());
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      }
+    }
+
+    @Override
+    protected void doCommit() throws StorageException {
+      try (final OperationTimer.TimingContext ignored =
+          rocksDBMetricsHelper.getCommitLatency().startTimer()) {
+        db.write(options, batch);
+      } catch (final RocksDBException e) {
+        throw new StorageException(e);
+      } finally {
+        close();
+      }
+    }
+
+    @Override
+    protected void doRollback() {
+      rocksDBMetricsHelper.getRollbackCount().inc();
+      close();
+    }
+
+    private void close() {
+      batch.close();
+      options.close();
+    }
+  }
 }
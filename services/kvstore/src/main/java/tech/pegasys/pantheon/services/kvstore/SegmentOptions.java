@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 ConsenSys AG.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package tech.pegasys.pantheon.services.kvstore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tuning for a single segment, applied by storage that can tune segments separately, such as the
+ * column families of a RocksDB database.
+ */
+public class SegmentOptions {
+  public static final SegmentOptions DEFAULT = builder().build();
+
+  private final int bloomFilterBitsPerKey;
+  private final boolean levelCompression;
+
+  private SegmentOptions(final int bloomFilterBitsPerKey, final boolean levelCompression) {
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+    this.levelCompression = levelCompression;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * The number of bits per key of the segment's whole key bloom filters. Bloom filters let reads
+   * of missing keys, and of keys in the upper levels, skip the files that can't contain them, so
+   * they suit segments that are mostly read by random keys, such as hashes.
+   *
+   * @return the number of bits per key, or 0 if the segment has no bloom filters.
+   */
+  public int getBloomFilterBitsPerKey() {
+    return bloomFilterBitsPerKey;
+  }
+
+  /**
+   * Whether the segment leaves the top levels, which are rewritten most often, uncompressed and
+   * compresses the others with LZ4, rather than using RocksDB's default compression.
+   *
+   * @return true if the segment uses per-level compression.
+   */
+  public boolean isLevelCompression() {
+    return levelCompression;
+  }
+
+  public static class Builder {
+    private int bloomFilterBitsPerKey = 0;
+    private boolean levelCompression = false;
+
+    private Builder() {}
+
+    public Builder bloomFilterBitsPerKey(final int bloomFilterBitsPerKey) {
+      checkArgument(bloomFilterBitsPerKey >= 0, "Bloom filter bits per key can't be negative");
+      this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+      return this;
+    }
+
+    public Builder levelCompression(final boolean levelCompression) {
+      this.levelCompression = levelCompression;
+      return this;
+    }
+
+    public SegmentOptions build() {
+      return new SegmentOptions(bloomFilterBitsPerKey, levelCompression);
+    }
+  }
+}
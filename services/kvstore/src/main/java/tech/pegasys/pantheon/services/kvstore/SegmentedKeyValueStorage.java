@@ -19,6 +19,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 import java.io.Closeable;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * Service provided by pantheon to facilitate persistent data storage.
@@ -49,6 +50,28 @@ public interface SegmentedKeyValueStorage<S> extends Closeable {
 
   long removeUnless(S segmentHandle, Predicate<BytesValue> inUseCheck);
 
+  /**
+   * Streams all keys currently held in a segment. The stream holds resources in the underlying
+   * storage and must be closed once it is no longer needed.
+   *
+   * @param segmentHandle the segment
+   * @return A stream of the keys in the segment.
+   */
+  Stream<BytesValue> streamKeys(S segmentHandle) throws StorageException;
+
+  /**
+   * Streams the keys held in a segment that start with a prefix. The stream holds resources in the
+   * underlying storage and must be closed once it is no longer needed.
+   *
+   * @param segmentHandle the segment
+   * @param prefix The prefix of the keys to stream.
+   * @return A stream of the keys in the segment that start with the prefix.
+   */
+  default Stream<BytesValue> streamKeysWithPrefix(final S segmentHandle, final BytesValue prefix)
+      throws StorageException {
+    return streamKeys(segmentHandle).filter(key -> key.commonPrefixLength(prefix) == prefix.size());
+  }
+
   void clear(S segmentHandle);
 
   class StorageException extends RuntimeException {
@@ -100,6 +123,15 @@ public interface SegmentedKeyValueStorage<S> extends Closeable {
     String getName();
 
     byte[] getId();
+
+    /**
+     * How storage that can tune segments separately should tune this segment.
+     *
+     * @return the options of this segment.
+     */
+    default SegmentOptions getOptions() {
+      return SegmentOptions.DEFAULT;
+    }
   }
 
   abstract class AbstractTransaction<S> implements Transaction<S> {
@@ -18,6 +18,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 import java.io.IOException;
 import java.util.Optional;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 public class SegmentedKeyValueStorageAdapter<S> implements KeyValueStorage {
 
@@ -55,6 +56,16 @@ public class SegmentedKeyValueStorageAdapter<S> implements KeyValueStorage {
     return storage.removeUnless(segmentHandle, inUseCheck);
   }
 
+  @Override
+  public Stream<BytesValue> streamKeys() throws StorageException {
+    return storage.streamKeys(segmentHandle);
+  }
+
+  @Override
+  public Stream<BytesValue> streamKeysWithPrefix(final BytesValue prefix) throws StorageException {
+    return storage.streamKeysWithPrefix(segmentHandle, prefix);
+  }
+
   @Override
   public Transaction startTransaction() throws StorageException {
     final SegmentedKeyValueStorage.Transaction<S> transaction = storage.startTransaction();
@@ -12,6 +12,7 @@
  */
 package tech.pegasys.pantheon.services.kvstore;
 
+import static java.util.stream.Collectors.toSet;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -22,8 +23,10 @@ import tech.pegasys.pantheon.util.bytes.BytesValues;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -93,6 +96,36 @@ public abstract class AbstractKeyValueStorageTest {
     assertEquals(Optional.empty(), store.get(BytesValue.fromHexString("0F")));
   }
 
+  @Test
+  public void streamKeys() throws Exception {
+    final KeyValueStorage store = createStore();
+    final Transaction tx = store.startTransaction();
+    final Set<BytesValue> keys =
+        Stream.of("0F", "10", "11", "12").map(BytesValue::fromHexString).collect(toSet());
+    keys.forEach(key -> tx.put(key, BytesValue.of(1)));
+    tx.commit();
+
+    try (final Stream<BytesValue> streamedKeys = store.streamKeys()) {
+      assertEquals(keys, streamedKeys.collect(toSet()));
+    }
+  }
+
+  @Test
+  public void clearRemovesAllEntries() throws Exception {
+    final KeyValueStorage store = createStore();
+    final Transaction tx = store.startTransaction();
+    tx.put(BytesValue.fromHexString("0F"), BytesValue.of(1));
+    tx.put(BytesValue.fromHexString("10"), BytesValue.of(2));
+    tx.put(BytesValue.fromHexString("11"), BytesValue.of(3));
+    tx.commit();
+
+    store.clear();
+
+    try (final Stream<BytesValue> streamedKeys = store.streamKeys()) {
+      assertEquals(0, streamedKeys.count());
+    }
+  }
+
   @Test
   public void concurrentUpdate() throws Exception {
     final int keyCount = 1000;
@@ -76,6 +76,37 @@ public class ColumnarRocksDbKeyValueStorageTest extends AbstractKeyValueStorageT
     assertEquals(Optional.empty(), store.get(barSegment, BytesValue.of(6)));
   }
 
+  @Test
+  public void canOverrideSegmentOptions() throws Exception {
+    final SegmentedKeyValueStorage<ColumnFamilyHandle> store =
+        ColumnarRocksDbKeyValueStorage.create(
+            RocksDbConfiguration.builder()
+                .databaseDir(folder.newFolder().toPath())
+                .bloomFilterBitsPerKey(TestSegment.FOO.getName(), 10)
+                .levelCompression(TestSegment.BAR.getName(), true)
+                .build(),
+            Arrays.asList(TestSegment.FOO, TestSegment.BAR),
+            new NoOpMetricsSystem());
+    final ColumnFamilyHandle fooSegment = store.getSegmentIdentifierByName(TestSegment.FOO);
+
+    final Transaction<ColumnFamilyHandle> tx = store.startTransaction();
+    tx.put(fooSegment, BytesValue.of(1), BytesValue.of(2));
+    tx.commit();
+
+    assertEquals(Optional.of(BytesValue.of(2)), store.get(fooSegment, BytesValue.of(1)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsOptionsForUnknownSegments() throws Exception {
+    ColumnarRocksDbKeyValueStorage.create(
+        RocksDbConfiguration.builder()
+            .databaseDir(folder.newFolder().toPath())
+            .bloomFilterBitsPerKey("UNKNOWN", 10)
+            .build(),
+        Arrays.asList(TestSegment.FOO, TestSegment.BAR),
+        new NoOpMetricsSystem());
+  }
+
   public enum TestSegment implements Segment {
     FOO(new byte[] {1}),
     BAR(new byte[] {2});
@@ -14,12 +14,14 @@ package tech.pegasys.pantheon.services.tasks;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
 public class CachingTaskCollection<T> implements TaskCollection<T> {
-  private static final int DEFAULT_CACHE_SIZE = 1_000_000;
+  public static final int DEFAULT_CACHE_SIZE = 1_000_000;
   private final int maxCacheSize;
 
   // The underlying collection
@@ -27,7 +29,7 @@ public class CachingTaskCollection<T> implements TaskCollection<T> {
   /**
    * A cache of tasks to operate on before going to {@link CachingTaskCollection#wrappedCollection}
    */
-  private final Queue<Task<T>> cache = new ArrayDeque<>();
+  private final Queue<Task<T>> cache;
   // Tasks that have been removed, but not marked completed yet
   private final Set<Task<T>> outstandingTasks = new HashSet<>();
 
@@ -36,6 +38,26 @@ public class CachingTaskCollection<T> implements TaskCollection<T> {
   public CachingTaskCollection(final TaskCollection<T> collection, final int maxCacheSize) {
     this.wrappedCollection = collection;
     this.maxCacheSize = maxCacheSize;
+    this.cache = new ArrayDeque<>();
+  }
+
+  /**
+   * Creates a collection which removes cached tasks in priority order rather than the order they
+   * were added in. Tasks that overflow the cache are kept in the order of the underlying
+   * collection, and are only removed once the cache is empty.
+   *
+   * @param collection The underlying collection.
+   * @param maxCacheSize The maximum number of tasks to hold in the cache.
+   * @param priority Orders the cached tasks, with the task to remove first ordered first.
+   */
+  public CachingTaskCollection(
+      final TaskCollection<T> collection,
+      final int maxCacheSize,
+      final Comparator<? super T> priority) {
+    this.wrappedCollection = collection;
+    this.maxCacheSize = maxCacheSize;
+    final Comparator<Task<T>> taskPriority = Comparator.comparing(Task::getData, priority);
+    this.cache = new PriorityQueue<>(taskPriority);
   }
 
   public CachingTaskCollection(final TaskCollection<T> collection) {
@@ -19,6 +19,7 @@ import tech.pegasys.pantheon.util.bytes.BytesValue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -173,6 +174,24 @@ public class CachingTaskCollectionTest {
         .containsExactlyInAnyOrder(getTaskData(failedTasks).toArray(new BytesValue[0]));
   }
 
+  @Test
+  public void removeCachedTasksInPriorityOrder() {
+    final CachingTaskCollection<BytesValue> taskCollection =
+        new CachingTaskCollection<>(wrappedTaskCollection, 3, Comparator.reverseOrder());
+    taskCollection.add(BytesValue.of(1));
+    taskCollection.add(BytesValue.of(3));
+    taskCollection.add(BytesValue.of(2));
+    // Overflows the cache so is only removed once the cache is empty.
+    taskCollection.add(BytesValue.of(4));
+
+    final Task<BytesValue> first = taskCollection.remove();
+    assertThat(first.getData()).isEqualTo(BytesValue.of(3));
+    first.markFailed();
+
+    assertThat(getTaskData(getAllTasks(taskCollection)))
+        .containsExactly(BytesValue.of(3), BytesValue.of(2), BytesValue.of(1), BytesValue.of(4));
+  }
+
   @Test
   public void close() throws IOException {
     final CachingTaskCollection<BytesValue> taskCollection = createCachingCollection(10);
@@ -17,6 +17,7 @@ import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 
 public class MutableByteBufferWrappingBytesValue extends AbstractBytesValue
     implements MutableBytesValue {
@@ -122,4 +123,12 @@ public class MutableByteBufferWrappingBytesValue extends AbstractBytesValue
 
     return super.getArrayUnsafe();
   }
+
+  @Override
+  public void update(final MessageDigest digest) {
+    // Work on a duplicate so that the position and limit of the wrapped buffer are left untouched.
+    final ByteBuffer view = bytes.duplicate();
+    view.limit(offset + size).position(offset);
+    digest.update(view);
+  }
 }
@@ -15,15 +15,11 @@ package tech.pegasys.pantheon.util.uint;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import tech.pegasys.pantheon.util.bytes.Bytes32;
-import tech.pegasys.pantheon.util.bytes.Bytes32s;
 import tech.pegasys.pantheon.util.bytes.BytesValue;
 import tech.pegasys.pantheon.util.bytes.BytesValues;
 import tech.pegasys.pantheon.util.bytes.MutableBytes32;
 
 import java.math.BigInteger;
-import java.util.function.BinaryOperator;
-
-import com.google.common.annotations.VisibleForTesting;
 
 /**
  * Static operations to work on bytes interpreted as 256 bytes unsigned integers.
@@ -33,6 +29,11 @@ import com.google.common.annotations.VisibleForTesting;
  *
  * <p>All operations that write a result are written assuming that the result may be the same object
  * than one or more of the operands.
+ *
+ * <p>Arithmetic is performed on the four 64-bit limbs of each operand, which are read into locals
+ * before any byte of the result is written. Addition, subtraction, multiplication, comparisons and
+ * shifts therefore never allocate. Division and modular reductions by a value that does not fit in
+ * 32 bits use Knuth's algorithm D over small scratch arrays rather than {@link BigInteger}.
  */
 public abstract class UInt256Bytes {
 
@@ -56,9 +57,7 @@ public abstract class UInt256Bytes {
 
   private static final int SIZE = Bytes32.SIZE;
 
-  private static final BigInteger P256 = BigInteger.valueOf(2).pow(8 * 32);
-
-  /** The number of ints a word contains. */
+  /** The number of 32-bit digits a word contains. */
   private static final int INT_SIZE = 32 / 4;
 
   private static final byte ALL_ZERO_BYTE = (byte) 0x00;
@@ -83,265 +82,623 @@ public abstract class UInt256Bytes {
     }
   }
 
-  private static void copy(final BigInteger result, final MutableBytes32 destination) {
-    copyPadded(BytesValue.wrap(result.toByteArray()), destination, ALL_ZERO_BYTE);
-  }
+  // Limbs are numbered from the least significant (0) to the most significant (3).
 
-  private interface TriOperator<T> {
-    T apply(T op1, T op2, T op3);
+  private static long limb(final Bytes32 v, final int index) {
+    return v.getLong(SIZE - 8 - 8 * index);
   }
 
-  private static void doOnBigInteger(
-      final Bytes32 v1,
-      final Bytes32 v2,
-      final MutableBytes32 dest,
-      final BinaryOperator<BigInteger> operator) {
-    final BigInteger i1 = BytesValues.asUnsignedBigInteger(v1);
-    final BigInteger i2 = BytesValues.asUnsignedBigInteger(v2);
-    final BigInteger result = operator.apply(i1, i2);
-    copy(result, dest);
+  private static void setLimbs(
+      final MutableBytes32 result, final long l0, final long l1, final long l2, final long l3) {
+    result.setLong(0, l3);
+    result.setLong(8, l2);
+    result.setLong(16, l1);
+    result.setLong(24, l0);
   }
 
-  private static void doOnBigInteger(
-      final Bytes32 v1,
-      final Bytes32 v2,
-      final Bytes32 v3,
-      final MutableBytes32 dest,
-      final TriOperator<BigInteger> operator) {
-    final BigInteger i1 = BytesValues.asUnsignedBigInteger(v1);
-    final BigInteger i2 = BytesValues.asUnsignedBigInteger(v2);
-    final BigInteger i3 = BytesValues.asUnsignedBigInteger(v3);
-    final BigInteger result = operator.apply(i1, i2, i3);
-    copy(result, dest);
+  private static long select(
+      final int index, final long l0, final long l1, final long l2, final long l3) {
+    switch (index) {
+      case 0:
+        return l0;
+      case 1:
+        return l1;
+      case 2:
+        return l2;
+      case 3:
+        return l3;
+      default:
+        return 0L;
+    }
   }
 
-  public static void add(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    long carry = 0;
+  /** Carry out of the most significant bit of {@code sum = a + b + carryIn}. */
+  private static long carry(final long a, final long b, final long sum) {
+    return ((a & b) | ((a | b) & ~sum)) >>> 63;
+  }
 
-    // Add ints from the right hand side, propagating any carry.
-    for (int i = INT_SIZE - 1; i >= 0; i--) {
-      final long sum = (v1.getInt(i * 4) & LONG_MASK) + (v2.getInt(i * 4) & LONG_MASK) + carry;
-      result.setInt(i * 4, (int) sum);
-      carry = sum >>> 32;
-    }
-    // Discard the final carry since we work modulo 256.
+  /** Borrow out of the most significant bit of {@code diff = a - b - borrowIn}. */
+  private static long borrow(final long a, final long b, final long diff) {
+    return ((~a & b) | ((~a | b) & diff)) >>> 63;
   }
 
-  public static void add(final Bytes32 v1, final long v2, final MutableBytes32 result) {
-    final long sum1 = (v1.getInt(SIZE - 4) & LONG_MASK) + (v2 & LONG_MASK);
-    result.setInt(SIZE - 4, (int) sum1);
+  private static long unsignedMultiplyHigh(final long a, final long b) {
+    return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+  }
 
-    final long sum2 = (v1.getInt(SIZE - 8) & LONG_MASK) + (v2 >>> 32) + (sum1 >>> 32);
-    result.setInt(SIZE - 8, (int) sum2);
+  private static long lessThan(final long a, final long b) {
+    return Long.compareUnsigned(a, b) < 0 ? 1L : 0L;
+  }
 
-    long carry = (int) (sum2 >>> 32);
-    for (int i = INT_SIZE - 3; i >= 0; i--) {
-      final long sum = (v1.getInt(i * 4) & LONG_MASK) + carry;
-      result.setInt(i * 4, (int) sum);
-      carry = sum >>> 32;
+  private static int compareLimbs(
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3,
+      final long b0,
+      final long b1,
+      final long b2,
+      final long b3) {
+    if (a3 != b3) {
+      return Long.compareUnsigned(a3, b3);
     }
+    if (a2 != b2) {
+      return Long.compareUnsigned(a2, b2);
+    }
+    if (a1 != b1) {
+      return Long.compareUnsigned(a1, b1);
+    }
+    return Long.compareUnsigned(a0, b0);
+  }
+
+  public static void add(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
+    add(
+        limb(v1, 0),
+        limb(v1, 1),
+        limb(v1, 2),
+        limb(v1, 3),
+        limb(v2, 0),
+        limb(v2, 1),
+        limb(v2, 2),
+        limb(v2, 3),
+        result);
+  }
+
+  public static void add(final Bytes32 v1, final long v2, final MutableBytes32 result) {
+    add(limb(v1, 0), limb(v1, 1), limb(v1, 2), limb(v1, 3), v2, 0L, 0L, 0L, result);
+  }
+
+  private static void add(
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3,
+      final long b0,
+      final long b1,
+      final long b2,
+      final long b3,
+      final MutableBytes32 result) {
+    final long s0 = a0 + b0;
+    long c = carry(a0, b0, s0);
+    final long s1 = a1 + b1 + c;
+    c = carry(a1, b1, s1);
+    final long s2 = a2 + b2 + c;
+    c = carry(a2, b2, s2);
+    // Discard the final carry since we work modulo 256.
+    final long s3 = a3 + b3 + c;
+    setLimbs(result, s0, s1, s2, s3);
   }
 
   public static void addModulo(
       final Bytes32 v1, final Bytes32 v2, final Bytes32 modulo, final MutableBytes32 result) {
     if (modulo.isZero()) {
       result.clear();
-    } else {
-      doOnBigInteger(v1, v2, modulo, result, (op1, op2, mod) -> op1.add(op2).mod(mod));
+      return;
     }
+    final long a0 = limb(v1, 0);
+    final long a1 = limb(v1, 1);
+    final long a2 = limb(v1, 2);
+    final long a3 = limb(v1, 3);
+    final long b0 = limb(v2, 0);
+    final long b1 = limb(v2, 1);
+    final long b2 = limb(v2, 2);
+    final long b3 = limb(v2, 3);
+
+    // The sum needs up to 257 bits, so keep the final carry as a ninth digit.
+    final long s0 = a0 + b0;
+    long c = carry(a0, b0, s0);
+    final long s1 = a1 + b1 + c;
+    c = carry(a1, b1, s1);
+    final long s2 = a2 + b2 + c;
+    c = carry(a2, b2, s2);
+    final long s3 = a3 + b3 + c;
+    c = carry(a3, b3, s3);
+
+    final int[] sum = new int[INT_SIZE + 1];
+    toDigits(s0, s1, s2, s3, sum, 0);
+    sum[INT_SIZE] = (int) c;
+    remainder(sum, modulo, result);
   }
 
   public static void subtract(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    final int sign = compareUnsigned(v1, v2);
-
-    if (sign == 0) {
-      result.clear();
-      return;
-    }
-
-    final Bytes32 a;
-    final Bytes32 b;
-    if (sign > 0) {
-      a = v1;
-      b = v2;
-    } else {
-      a = v2;
-      b = v1;
-    }
+    subtract(
+        limb(v1, 0),
+        limb(v1, 1),
+        limb(v1, 2),
+        limb(v1, 3),
+        limb(v2, 0),
+        limb(v2, 1),
+        limb(v2, 2),
+        limb(v2, 3),
+        result);
+  }
 
-    long diff = 0;
+  public static void subtract(final Bytes32 v1, final long v2, final MutableBytes32 result) {
+    subtract(limb(v1, 0), limb(v1, 1), limb(v1, 2), limb(v1, 3), v2, 0L, 0L, 0L, result);
+  }
+
+  private static void subtract(
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3,
+      final long b0,
+      final long b1,
+      final long b2,
+      final long b3,
+      final MutableBytes32 result) {
+    final long d0 = a0 - b0;
+    long b = borrow(a0, b0, d0);
+    final long d1 = a1 - b1 - b;
+    b = borrow(a1, b1, d1);
+    final long d2 = a2 - b2 - b;
+    b = borrow(a2, b2, d2);
+    // Discard the final borrow since we work modulo 256.
+    final long d3 = a3 - b3 - b;
+    setLimbs(result, d0, d1, d2, d3);
+  }
 
-    for (int i = INT_SIZE - 1; i >= 0; i--) {
-      diff = (a.getInt(i * 4) & LONG_MASK) - (b.getInt(i * 4) & LONG_MASK) - ((int) -(diff >> 32));
-      result.setInt(i * 4, (int) diff);
-    }
+  public static void multiply(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
+    multiply(
+        limb(v1, 0),
+        limb(v1, 1),
+        limb(v1, 2),
+        limb(v1, 3),
+        limb(v2, 0),
+        limb(v2, 1),
+        limb(v2, 2),
+        limb(v2, 3),
+        result);
+  }
 
-    if (sign < 0) {
-      negateSigned(result, result);
-    }
+  public static void multiply(final Bytes32 v1, final long v2, final MutableBytes32 result) {
+    checkArgument(v2 >= 0, "Argument must be positive, got %s", v2);
+    multiply(limb(v1, 0), limb(v1, 1), limb(v1, 2), limb(v1, 3), v2, 0L, 0L, 0L, result);
+  }
+
+  /**
+   * Schoolbook multiplication truncated to the low 256 bits. Each partial product {@code a*b + c +
+   * d} of 64-bit limbs fits in 128 bits, so carries never need more than the high limb.
+   */
+  private static void multiply(
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3,
+      final long b0,
+      final long b1,
+      final long b2,
+      final long b3,
+      final MutableBytes32 result) {
+    long lo;
+    long hi;
+
+    // a0 * b
+    final long r0 = a0 * b0;
+    long c = unsignedMultiplyHigh(a0, b0);
+    lo = a0 * b1;
+    long r1 = lo + c;
+    c = unsignedMultiplyHigh(a0, b1) + lessThan(r1, lo);
+    lo = a0 * b2;
+    long r2 = lo + c;
+    c = unsignedMultiplyHigh(a0, b2) + lessThan(r2, lo);
+    long r3 = a0 * b3 + c;
+
+    // a1 * b, shifted by one limb
+    lo = a1 * b0;
+    hi = unsignedMultiplyHigh(a1, b0);
+    lo += r1;
+    hi += lessThan(lo, r1);
+    r1 = lo;
+    c = hi;
+    lo = a1 * b1;
+    hi = unsignedMultiplyHigh(a1, b1);
+    lo += r2;
+    hi += lessThan(lo, r2);
+    lo += c;
+    hi += lessThan(lo, c);
+    r2 = lo;
+    r3 += a1 * b2 + hi;
+
+    // a2 * b, shifted by two limbs
+    lo = a2 * b0;
+    hi = unsignedMultiplyHigh(a2, b0);
+    lo += r2;
+    hi += lessThan(lo, r2);
+    r2 = lo;
+    r3 += a2 * b1 + hi;
+
+    // a3 * b, shifted by three limbs
+    r3 += a3 * b0;
+
+    setLimbs(result, r0, r1, r2, r3);
   }
 
-  public static void subtract(final Bytes32 v1, final long v2, final MutableBytes32 result) {
-    final int sign = fitsLong(v1) ? Long.compare(v1.getLong(SIZE - 8), v2) : 1;
-    if (sign == 0) {
+  public static void multiplyModulo(
+      final Bytes32 v1, final Bytes32 v2, final Bytes32 modulo, final MutableBytes32 result) {
+    if (modulo.isZero()) {
       result.clear();
       return;
     }
-
-    if (sign < 0) {
-      final long diff1 = (v2 & LONG_MASK) - (v1.getInt(SIZE - 4) & LONG_MASK);
-      result.setInt(SIZE - 4, (int) diff1);
-
-      final long diff2 = (v2 >>> 32) - (v1.getInt(SIZE - 8) & LONG_MASK) - ((int) -(diff1 >> 32));
-      result.setInt(SIZE - 8, (int) diff2);
-
-      long diff = diff2;
-      for (int i = INT_SIZE - 3; i >= 0; i--) {
-        diff = -(v1.getInt(i * 4) & LONG_MASK) - ((int) -(diff >> 32));
-        result.setInt(i * 4, (int) diff);
-      }
-      negateSigned(result, result);
-    } else {
-      final long diff1 = (v1.getInt(SIZE - 4) & LONG_MASK) - (v2 & LONG_MASK);
-      result.setInt(SIZE - 4, (int) diff1);
-
-      final long diff2 = (v1.getInt(SIZE - 8) & LONG_MASK) - (v2 >>> 32) - ((int) -(diff1 >> 32));
-      result.setInt(SIZE - 8, (int) diff2);
-
-      long diff = diff2;
-      for (int i = INT_SIZE - 3; i >= 0; i--) {
-        diff = (v1.getInt(i * 4) & LONG_MASK) - ((int) -(diff >> 32));
-        result.setInt(i * 4, (int) diff);
-        if (diff == 0) break;
+    final int[] a = new int[INT_SIZE];
+    final int[] b = new int[INT_SIZE];
+    toDigits(limb(v1, 0), limb(v1, 1), limb(v1, 2), limb(v1, 3), a, 0);
+    toDigits(limb(v2, 0), limb(v2, 1), limb(v2, 2), limb(v2, 3), b, 0);
+
+    // Full 512-bit product.
+    final int[] product = new int[2 * INT_SIZE];
+    for (int j = 0; j < INT_SIZE; j++) {
+      final long bj = b[j] & LONG_MASK;
+      long k = 0;
+      for (int i = 0; i < INT_SIZE; i++) {
+        final long t = (a[i] & LONG_MASK) * bj + (product[i + j] & LONG_MASK) + k;
+        product[i + j] = (int) t;
+        k = t >>> 32;
       }
+      product[j + INT_SIZE] = (int) k;
     }
+    remainder(product, modulo, result);
   }
 
-  private static void negateSigned(final Bytes32 v, final MutableBytes32 result) {
-    Bytes32s.not(v, result);
-    add(result, UInt256.ONE.getBytes(), result);
+  public static void divide(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
+    divideOrModulo(
+        limb(v1, 0),
+        limb(v1, 1),
+        limb(v1, 2),
+        limb(v1, 3),
+        limb(v2, 0),
+        limb(v2, 1),
+        limb(v2, 2),
+        limb(v2, 3),
+        true,
+        result);
   }
 
-  private static boolean isPowerOf2(final long n) {
-    return (n ^ (n - 1)) == 0;
+  public static void divide(final Bytes32 v1, final long v2, final MutableBytes32 result) {
+    if (v2 == 0) {
+      result.clear();
+      return;
+    }
+    checkArgument(v2 > 0, "Argument must be positive, got %s", v2);
+    divideOrModulo(
+        limb(v1, 0), limb(v1, 1), limb(v1, 2), limb(v1, 3), v2, 0L, 0L, 0L, true, result);
   }
 
-  public static void multiply(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    doOnBigInteger(v1, v2, result, BigInteger::multiply);
+  public static void modulo(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
+    divideOrModulo(
+        limb(v1, 0),
+        limb(v1, 1),
+        limb(v1, 2),
+        limb(v1, 3),
+        limb(v2, 0),
+        limb(v2, 1),
+        limb(v2, 2),
+        limb(v2, 3),
+        false,
+        result);
   }
 
-  public static void multiply(final Bytes32 v1, final long v2, final MutableBytes32 result) {
+  public static void modulo(final Bytes32 v1, final long v2, final MutableBytes32 result) {
     if (v2 == 0) {
       result.clear();
-    } else if (v2 > 0 && isPowerOf2(v2)) {
-      final int shifts = log2(v2);
-      // We have to be careful with overflowing operation.
-      if (bitLength(v1) >= SIZE - 1 - shifts) {
-        doOnBigInteger(v1, of(v2), result, BigInteger::multiply);
+      return;
+    }
+    checkArgument(v2 > 0, "Argument must be positive, got %s", v2);
+    divideOrModulo(
+        limb(v1, 0), limb(v1, 1), limb(v1, 2), limb(v1, 3), v2, 0L, 0L, 0L, false, result);
+  }
+
+  private static void divideOrModulo(
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3,
+      final long b0,
+      final long b1,
+      final long b2,
+      final long b3,
+      final boolean quotient,
+      final MutableBytes32 result) {
+    final boolean divisorFitsLong = (b1 | b2 | b3) == 0;
+    if (divisorFitsLong && b0 == 0) {
+      result.clear();
+      return;
+    }
+
+    if (compareLimbs(a0, a1, a2, a3, b0, b1, b2, b3) < 0) {
+      if (quotient) {
+        result.clear();
       } else {
-        shiftLeft(v1, shifts, result);
+        setLimbs(result, a0, a1, a2, a3);
       }
-    } else {
-      doOnBigInteger(v1, of(v2), result, BigInteger::multiply);
+      return;
     }
-  }
 
-  public static void multiplyModulo(
-      final Bytes32 v1, final Bytes32 v2, final Bytes32 modulo, final MutableBytes32 result) {
-    if (modulo.isZero()) {
-      result.clear();
-    } else {
-      doOnBigInteger(v1, v2, modulo, result, (op1, op2, mod) -> op1.multiply(op2).mod(mod));
+    if (divisorFitsLong && (a1 | a2 | a3) == 0) {
+      final long value =
+          quotient ? Long.divideUnsigned(a0, b0) : Long.remainderUnsigned(a0, b0);
+      setLimbs(result, value, 0L, 0L, 0L);
+      return;
     }
-  }
 
-  public static void divide(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    if (v2.isZero()) {
-      result.clear();
-    } else {
-      doOnBigInteger(v1, v2, result, BigInteger::divide);
+    if (divisorFitsLong && (b0 >>> 32) == 0) {
+      // Short division by a single digit, from the most significant digit down.
+      long rem = 0;
+      long q3 = 0;
+      long q2 = 0;
+      long q1 = 0;
+      long q0 = 0;
+      for (int i = 3; i >= 0; i--) {
+        final long l = select(i, a0, a1, a2, a3);
+        final long high = (rem << 32) | (l >>> 32);
+        final long qHigh = Long.divideUnsigned(high, b0);
+        rem = high - qHigh * b0;
+        final long low = (rem << 32) | (l & LONG_MASK);
+        final long qLow = Long.divideUnsigned(low, b0);
+        rem = low - qLow * b0;
+        final long q = (qHigh << 32) | qLow;
+        if (i == 3) {
+          q3 = q;
+        } else if (i == 2) {
+          q2 = q;
+        } else if (i == 1) {
+          q1 = q;
+        } else {
+          q0 = q;
+        }
+      }
+      if (quotient) {
+        setLimbs(result, q0, q1, q2, q3);
+      } else {
+        setLimbs(result, rem, 0L, 0L, 0L);
+      }
+      return;
     }
-  }
 
-  // Assumes v > 0
-  private static int log2(final long v) {
-    return 63 - Long.numberOfLeadingZeros(v);
-  }
-
-  private static int maskByteRightBits(final int bits) {
-    return ~(0xFFFFFFFF << bits);
+    final int[] u = new int[INT_SIZE];
+    final int[] v = new int[INT_SIZE];
+    toDigits(a0, a1, a2, a3, u, 0);
+    toDigits(b0, b1, b2, b3, v, 0);
+    final int m = significantDigits(u, INT_SIZE);
+    final int n = significantDigits(v, INT_SIZE);
+    if (quotient) {
+      final int[] q = new int[INT_SIZE];
+      divideDigits(u, m, v, n, q, null);
+      writeDigits(q, result);
+    } else {
+      final int[] r = new int[INT_SIZE];
+      divideDigits(u, m, v, n, null, r);
+      writeDigits(r, result);
+    }
   }
 
-  @VisibleForTesting
-  static void shiftRight(final Bytes32 v1, final int v2, final MutableBytes32 result) {
-    final int d = v2 / 8;
-    final int s = v2 % 8;
-    int resIdx = SIZE - 1;
-    for (int i = SIZE - 1 - d; i >= 0; i--) {
-      final int leftSide = (v1.get(i) & 0xFF) >>> s;
-      final int rightSide = i == 0 ? 0 : v1.get(i - 1) << (8 - s);
-      result.set(resIdx--, (byte) (leftSide | rightSide));
+  /** Reduces the little-endian digits {@code u} modulo the non-zero {@code modulo}. */
+  private static void remainder(final int[] u, final Bytes32 modulo, final MutableBytes32 result) {
+    final int[] v = new int[INT_SIZE];
+    toDigits(limb(modulo, 0), limb(modulo, 1), limb(modulo, 2), limb(modulo, 3), v, 0);
+    final int m = significantDigits(u, u.length);
+    final int n = significantDigits(v, INT_SIZE);
+    final int[] r = new int[INT_SIZE];
+    if (m < n) {
+      System.arraycopy(u, 0, r, 0, m);
+    } else if (n == 1) {
+      final long d = v[0] & LONG_MASK;
+      long rem = 0;
+      for (int i = m - 1; i >= 0; i--) {
+        rem = Long.remainderUnsigned((rem << 32) | (u[i] & LONG_MASK), d);
+      }
+      r[0] = (int) rem;
+    } else {
+      divideDigits(u, m, v, n, null, r);
     }
-    for (; resIdx >= 0; resIdx--) {
-      result.set(resIdx, (byte) 0);
+    writeDigits(r, result);
+  }
+
+  private static void toDigits(
+      final long l0,
+      final long l1,
+      final long l2,
+      final long l3,
+      final int[] digits,
+      final int offset) {
+    digits[offset] = (int) l0;
+    digits[offset + 1] = (int) (l0 >>> 32);
+    digits[offset + 2] = (int) l1;
+    digits[offset + 3] = (int) (l1 >>> 32);
+    digits[offset + 4] = (int) l2;
+    digits[offset + 5] = (int) (l2 >>> 32);
+    digits[offset + 6] = (int) l3;
+    digits[offset + 7] = (int) (l3 >>> 32);
+  }
+
+  private static void writeDigits(final int[] digits, final MutableBytes32 result) {
+    for (int i = 0; i < INT_SIZE; i++) {
+      result.setInt(SIZE - 4 - 4 * i, digits[i]);
     }
   }
 
-  @VisibleForTesting
-  static void shiftLeft(final Bytes32 v1, final int v2, final MutableBytes32 result) {
-    final int d = v2 / 8;
-    final int s = v2 % 8;
-    int resIdx = 0;
-    for (int i = d; i < SIZE; i++) {
-      final int leftSide = v1.get(i) << s;
-      final int rightSide = i == SIZE - 1 ? 0 : (v1.get(i + 1) & 0xFF) >>> (8 - s);
-      result.set(resIdx++, (byte) (leftSide | rightSide));
+  private static int significantDigits(final int[] digits, final int length) {
+    int n = length;
+    while (n > 0 && digits[n - 1] == 0) {
+      n--;
     }
-    for (; resIdx < SIZE; resIdx++) {
-      result.set(resIdx, (byte) 0);
+    return n;
+  }
+
+  /**
+   * Knuth's algorithm D (TAOCP vol. 2, 4.3.1) on little-endian 32-bit digits, following the
+   * formulation of Hacker's Delight. Requires {@code m >= n >= 2} and {@code v[n - 1] != 0}. Either
+   * of {@code q} (at least {@code m - n + 1} digits) or {@code r} (at least {@code n} digits) may be
+   * null when that part of the result isn't needed.
+   */
+  private static void divideDigits(
+      final int[] u, final int m, final int[] v, final int n, final int[] q, final int[] r) {
+    // Normalize so that the divisor's top digit has its high bit set.
+    final int s = Integer.numberOfLeadingZeros(v[n - 1]);
+    final int[] vn = new int[n];
+    for (int i = n - 1; i > 0; i--) {
+      vn[i] = (v[i] << s) | (int) ((v[i - 1] & LONG_MASK) >>> (32 - s));
     }
-  }
+    vn[0] = v[0] << s;
 
-  public static void divide(final Bytes32 v1, final long v2, final MutableBytes32 result) {
-    if (v2 == 0) {
-      result.clear();
-    } else if (v2 > 0 && isPowerOf2(v2)) {
-      shiftRight(v1, log2(v2), result);
-    } else {
-      doOnBigInteger(v1, of(v2), result, BigInteger::divide);
+    final int[] un = new int[m + 1];
+    un[m] = (int) ((u[m - 1] & LONG_MASK) >>> (32 - s));
+    for (int i = m - 1; i > 0; i--) {
+      un[i] = (u[i] << s) | (int) ((u[i - 1] & LONG_MASK) >>> (32 - s));
     }
-  }
+    un[0] = u[0] << s;
+
+    final long vTop = vn[n - 1] & LONG_MASK;
+    final long vNext = vn[n - 2] & LONG_MASK;
+    for (int j = m - n; j >= 0; j--) {
+      // Estimate the quotient digit, then correct it (it is at most 2 too large).
+      final long num = ((un[j + n] & LONG_MASK) << 32) | (un[j + n - 1] & LONG_MASK);
+      long qhat = Long.divideUnsigned(num, vTop);
+      long rhat = num - qhat * vTop;
+      while (qhat > LONG_MASK
+          || Long.compareUnsigned(qhat * vNext, (rhat << 32) | (un[j + n - 2] & LONG_MASK))
+              > 0) {
+        qhat--;
+        rhat += vTop;
+        if (rhat > LONG_MASK) {
+          break;
+        }
+      }
 
-  public static void exponent(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    doOnBigInteger(v1, v2, result, (val, pow) -> val.modPow(pow, P256));
+      // Multiply and subtract.
+      long k = 0;
+      long t;
+      for (int i = 0; i < n; i++) {
+        final long p = qhat * (vn[i] & LONG_MASK);
+        t = (un[i + j] & LONG_MASK) - k - (p & LONG_MASK);
+        un[i + j] = (int) t;
+        k = (p >>> 32) - (t >> 32);
+      }
+      t = (un[j + n] & LONG_MASK) - k;
+      un[j + n] = (int) t;
+
+      if (t < 0) {
+        // Subtracted too much, add back.
+        qhat--;
+        k = 0;
+        for (int i = 0; i < n; i++) {
+          t = (un[i + j] & LONG_MASK) + (vn[i] & LONG_MASK) + k;
+          un[i + j] = (int) t;
+          k = t >>> 32;
+        }
+        un[j + n] += (int) k;
+      }
+      if (q != null) {
+        q[j] = (int) qhat;
+      }
+    }
+
+    if (r != null) {
+      // Unnormalize the remainder.
+      for (int i = 0; i < n; i++) {
+        r[i] = (un[i] >>> s) | (int) ((un[i + 1] & LONG_MASK) << (32 - s));
+      }
+    }
   }
 
-  public static void modulo(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
-    if (v2.isZero()) {
-      result.clear();
-    } else {
-      doOnBigInteger(v1, v2, result, BigInteger::mod);
+  public static void shiftRight(final Bytes32 v1, final int v2, final MutableBytes32 result) {
+    final long a0 = limb(v1, 0);
+    final long a1 = limb(v1, 1);
+    final long a2 = limb(v1, 2);
+    final long a3 = limb(v1, 3);
+    final int limbShift = v2 >>> 6;
+    final int bitShift = v2 & 63;
+    final long r0 = shiftRightLimb(limbShift, bitShift, a0, a1, a2, a3);
+    final long r1 = shiftRightLimb(1 + limbShift, bitShift, a0, a1, a2, a3);
+    final long r2 = shiftRightLimb(2 + limbShift, bitShift, a0, a1, a2, a3);
+    final long r3 = shiftRightLimb(3 + limbShift, bitShift, a0, a1, a2, a3);
+    setLimbs(result, r0, r1, r2, r3);
+  }
+
+  private static long shiftRightLimb(
+      final int from,
+      final int bitShift,
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3) {
+    final long low = select(from, a0, a1, a2, a3) >>> bitShift;
+    if (bitShift == 0) {
+      return low;
     }
+    return low | (select(from + 1, a0, a1, a2, a3) << (64 - bitShift));
+  }
+
+  public static void shiftLeft(final Bytes32 v1, final int v2, final MutableBytes32 result) {
+    final long a0 = limb(v1, 0);
+    final long a1 = limb(v1, 1);
+    final long a2 = limb(v1, 2);
+    final long a3 = limb(v1, 3);
+    final int limbShift = v2 >>> 6;
+    final int bitShift = v2 & 63;
+    final long r0 = shiftLeftLimb(-limbShift, bitShift, a0, a1, a2, a3);
+    final long r1 = shiftLeftLimb(1 - limbShift, bitShift, a0, a1, a2, a3);
+    final long r2 = shiftLeftLimb(2 - limbShift, bitShift, a0, a1, a2, a3);
+    final long r3 = shiftLeftLimb(3 - limbShift, bitShift, a0, a1, a2, a3);
+    setLimbs(result, r0, r1, r2, r3);
+  }
+
+  private static long shiftLeftLimb(
+      final int from,
+      final int bitShift,
+      final long a0,
+      final long a1,
+      final long a2,
+      final long a3) {
+    final long high = select(from, a0, a1, a2, a3) << bitShift;
+    if (bitShift == 0) {
+      return high;
+    }
+    return high | (select(from - 1, a0, a1, a2, a3) >>> (64 - bitShift));
   }
 
-  public static void modulo(final Bytes32 v1, final long v2, final MutableBytes32 result) {
-    if (v2 == 0) {
-      result.clear();
-    } else if (v2 > 0 && isPowerOf2(v2)) {
-      final int log2 = log2(v2);
-      final int d = log2 / 8;
-      final int s = log2 % 8;
-      // Copy everything right of d
-      v1.slice(d + 1).copyTo(result, d + 1);
-      // Mask the byte at d to only include the s right-most bits ...
-      result.set(SIZE - 1 - d, (byte) (v1.get(SIZE - 1 - d) & maskByteRightBits(s)));
-      // and clear anything left of that d.
-      for (int i = d + 1; i < SIZE; i++) {
-        result.set(SIZE - 1 - i, (byte) 0);
+  public static void exponent(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
+    final long e0 = limb(v2, 0);
+    final long e1 = limb(v2, 1);
+    final long e2 = limb(v2, 2);
+    final long e3 = limb(v2, 3);
+    final int bits = bitLength(e0, e1, e2, e3);
+
+    final MutableBytes32 base = MutableBytes32.create();
+    v1.copyTo(base);
+    final MutableBytes32 accumulator = MutableBytes32.create();
+    accumulator.setLong(SIZE - 8, 1L);
+
+    // Right-to-left binary exponentiation; all products are implicitly modulo 2^256.
+    for (int i = 0; i < bits; i++) {
+      if (((select(i >>> 6, e0, e1, e2, e3) >>> (i & 63)) & 1L) != 0) {
+        multiply(accumulator, base, accumulator);
+      }
+      if (i + 1 < bits) {
+        multiply(base, base, base);
       }
-    } else {
-      doOnBigInteger(v1, of(v2), result, BigInteger::mod);
     }
+    accumulator.copyTo(result);
   }
 
   public static void signExtend(final Bytes32 v1, final Bytes32 v2, final MutableBytes32 result) {
@@ -409,19 +766,29 @@ public abstract class UInt256Bytes {
   }
 
   static int bitLength(final Bytes32 bytes) {
-    for (int i = 0; i < SIZE; i++) {
-      final byte b = bytes.get(i);
-      if (b == 0) continue;
+    return bitLength(limb(bytes, 0), limb(bytes, 1), limb(bytes, 2), limb(bytes, 3));
+  }
 
-      return (SIZE * 8) - (i * 8) - (Integer.numberOfLeadingZeros(b & 0xFF) - 3 * 8);
+  private static int bitLength(final long l0, final long l1, final long l2, final long l3) {
+    if (l3 != 0) {
+      return 256 - Long.numberOfLeadingZeros(l3);
     }
-    return 0;
+    if (l2 != 0) {
+      return 192 - Long.numberOfLeadingZeros(l2);
+    }
+    if (l1 != 0) {
+      return 128 - Long.numberOfLeadingZeros(l1);
+    }
+    return 64 - Long.numberOfLeadingZeros(l0);
   }
 
-  static int compareUnsigned(final Bytes32 v1, final Bytes32 v2) {
-    for (int i = 0; i < SIZE; i++) {
-      final int cmp = Integer.compare((v1.get(i)) & 0xFF, (v2.get(i)) & 0xFF);
-      if (cmp != 0) return cmp;
+  public static int compareUnsigned(final Bytes32 v1, final Bytes32 v2) {
+    for (int i = 3; i >= 0; i--) {
+      final long l1 = limb(v1, i);
+      final long l2 = limb(v2, i);
+      if (l1 != l2) {
+        return Long.compareUnsigned(l1, l2);
+      }
     }
     return 0;
   }
@@ -18,14 +18,18 @@ import tech.pegasys.pantheon.util.bytes.Bytes32;
 import tech.pegasys.pantheon.util.bytes.MutableBytes32;
 import tech.pegasys.pantheon.util.uint.UInt256Bytes.BinaryLongOp;
 import tech.pegasys.pantheon.util.uint.UInt256Bytes.BinaryOp;
+import tech.pegasys.pantheon.util.uint.UInt256Bytes.TernaryOp;
 
 import java.math.BigInteger;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 public class UInt256BytesTest {
 
+  private static final BigInteger P256 = BigInteger.ONE.shiftLeft(256);
+
   private static String h(final String n) {
     return UInt256.of(new BigInteger(n)).toShortHexString();
   }
@@ -219,6 +223,98 @@ public class UInt256BytesTest {
         .isEqualTo("0x00000000000000000000000000000000000000000000000000000000facefeed");
   }
 
+  @Test
+  public void shiftAcrossLimbs() {
+    shiftLeft("0x01", 64, "0x010000000000000000");
+    shiftLeft("0x8000000000000000", 1, "0x010000000000000000");
+    shiftLeft("0x01", 255, "0x8000000000000000000000000000000000000000000000000000000000000000");
+    shiftLeft("0x01", 256, "0x00");
+    shiftRight("0x010000000000000000", 64, "0x01");
+    shiftRight("0x010000000000000000", 1, "0x8000000000000000");
+    shiftRight("0x8000000000000000000000000000000000000000000000000000000000000000", 255, "0x01");
+    shiftRight("0x8000000000000000000000000000000000000000000000000000000000000000", 256, "0x00");
+  }
+
+  @Test
+  public void multiplyWrapsAround() {
+    final String max = P256.subtract(BigInteger.ONE).toString();
+    op(UInt256Bytes::multiply, b(max), b(max), b("1"));
+    op(UInt256Bytes::multiply, b(max), b("2"), b(P256.subtract(BigInteger.valueOf(2)).toString()));
+    op(
+        UInt256Bytes::multiply,
+        b("340282366920938463463374607431768211455"),
+        b("340282366920938463463374607431768211457"),
+        b(P256.subtract(BigInteger.ONE).toString()));
+  }
+
+  @Test
+  public void subtractWrapsAround() {
+    op(UInt256Bytes::subtract, b("0"), b("1"), b(P256.subtract(BigInteger.ONE).toString()));
+    op(UInt256Bytes::subtract, b("5"), b("7"), b(P256.subtract(BigInteger.valueOf(2)).toString()));
+  }
+
+  @Test
+  public void divideByMultiDigitDivisor() {
+    op(
+        UInt256Bytes::divide,
+        b("115792089237316195423570985008687907853269984665640564039457584007913129639935"),
+        b("340282366920938463463374607431768211456"),
+        b("340282366920938463463374607431768211455"));
+    op(
+        UInt256Bytes::modulo,
+        b("115792089237316195423570985008687907853269984665640564039457584007913129639935"),
+        b("18446744073709551617"),
+        b("0"));
+    op(UInt256Bytes::divide, b("18446744073709551616"), b("18446744073709551617"), b("0"));
+    op(UInt256Bytes::divide, b("12"), b("0"), b("0"));
+    op(UInt256Bytes::modulo, b("12"), b("0"), b("0"));
+  }
+
+  @Test
+  public void modularArithmeticUsesFullWidthIntermediates() {
+    final String max = P256.subtract(BigInteger.ONE).toString();
+    ternaryOp(UInt256Bytes::addModulo, b(max), b(max), b("12"), b("6"));
+    ternaryOp(UInt256Bytes::addModulo, b(max), b("1"), b(max), b("1"));
+    ternaryOp(UInt256Bytes::multiplyModulo, b(max), b(max), b("12"), b("9"));
+    ternaryOp(UInt256Bytes::multiplyModulo, b(max), b(max), b("18446744073709551617"), b("0"));
+    ternaryOp(UInt256Bytes::multiplyModulo, b("7"), b("8"), b("0"), b("0"));
+  }
+
+  @Test
+  public void exponent() {
+    op(UInt256Bytes::exponent, b("2"), b("0"), b("1"));
+    op(UInt256Bytes::exponent, b("0"), b("0"), b("1"));
+    op(UInt256Bytes::exponent, b("2"), b("255"), b(BigInteger.ONE.shiftLeft(255).toString()));
+    op(UInt256Bytes::exponent, b("2"), b("256"), b("0"));
+    op(UInt256Bytes::exponent, b("3"), b("7"), b("2187"));
+  }
+
+  @Test
+  public void matchesBigIntegerArithmetic() {
+    final Random random = new Random(1);
+    for (int i = 0; i < 2000; i++) {
+      final BigInteger x = new BigInteger(1 + random.nextInt(256), random);
+      final BigInteger y = new BigInteger(1 + random.nextInt(256), random);
+      final BigInteger m = new BigInteger(1 + random.nextInt(256), random);
+      final Bytes32 bx = UInt256Bytes.of(x);
+      final Bytes32 by = UInt256Bytes.of(y);
+      final Bytes32 bm = UInt256Bytes.of(m);
+
+      op(UInt256Bytes::add, bx, by, UInt256Bytes.of(x.add(y).mod(P256)));
+      op(UInt256Bytes::subtract, bx, by, UInt256Bytes.of(x.subtract(y).mod(P256)));
+      op(UInt256Bytes::multiply, bx, by, UInt256Bytes.of(x.multiply(y).mod(P256)));
+      if (y.signum() != 0) {
+        op(UInt256Bytes::divide, bx, by, UInt256Bytes.of(x.divide(y)));
+        op(UInt256Bytes::modulo, bx, by, UInt256Bytes.of(x.mod(y)));
+      }
+      if (m.signum() != 0) {
+        ternaryOp(UInt256Bytes::addModulo, bx, by, bm, UInt256Bytes.of(x.add(y).mod(m)));
+        ternaryOp(UInt256Bytes::multiplyModulo, bx, by, bm, UInt256Bytes.of(x.multiply(y).mod(m)));
+      }
+      assertThat(Integer.signum(UInt256Bytes.compareUnsigned(bx, by))).isEqualTo(x.compareTo(y));
+    }
+  }
+
   private void bitLength(final String input, final int expectedLength) {
     Assert.assertEquals(
         expectedLength, UInt256Bytes.bitLength(Bytes32.fromHexStringLenient(input)));
@@ -319,6 +415,27 @@ public class UInt256BytesTest {
     assertEquals(expected, r2, false);
   }
 
+  private static Bytes32 b(final String n) {
+    return UInt256Bytes.of(new BigInteger(n));
+  }
+
+  private void ternaryOp(
+      final TernaryOp op,
+      final Bytes32 v1,
+      final Bytes32 v2,
+      final Bytes32 v3,
+      final Bytes32 expected) {
+    final MutableBytes32 r1 = MutableBytes32.create();
+    op.applyOp(v1, v2, v3, r1);
+    assertEquals(expected, r1, false);
+
+    // Also test in-place.
+    final MutableBytes32 r2 = MutableBytes32.create();
+    v3.copyTo(r2);
+    op.applyOp(v1, v2, r2, r2);
+    assertEquals(expected, r2, false);
+  }
+
   private void assertEquals(
       final Bytes32 expected, final Bytes32 actual, final boolean displayAsHex) {
     if (displayAsHex) {